@@ -1,10 +1,40 @@
 -- Chat Log Database Schema
 -- Compatible with MySQL 8.x and MariaDB 11.x
+--
+-- The tables the plugin creates with the default config.yml: text UUIDs (database.schema.uuid_storage: "text"),
+-- server/world/channel names stored in the log tables (database.schema.dictionary_encoding: false), no
+-- partitioning (database.partitioning.enabled: false) and the FULLTEXT index for /chatlog search.
+-- Enabling those options later converts the tables through the plugin's online migrations; with partitioning,
+-- the partitions are created by the plugin's partition maintenance. Bookkeeping tables (migration progress,
+-- running servers) are created by the plugin on its first start.
 
 CREATE DATABASE IF NOT EXISTS `thelab_chatlog` DEFAULT CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci;
 
 USE `thelab_chatlog`;
 
+-- Lookup tables for dictionary_encoding; the plugin creates them in every mode
+CREATE TABLE IF NOT EXISTS `servers` (
+    `id` SMALLINT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
+    `name` VARCHAR(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL,
+    UNIQUE INDEX `uk_name` (`name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Server instance names';
+
+CREATE TABLE IF NOT EXISTS `worlds` (
+    `id` SMALLINT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
+    `name` VARCHAR(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL,
+    UNIQUE INDEX `uk_name` (`name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='World names';
+
+CREATE TABLE IF NOT EXISTS `channels` (
+    `id` SMALLINT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
+    `name` VARCHAR(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL,
+    UNIQUE INDEX `uk_name` (`name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Chat channel names';
+
+INSERT IGNORE INTO `servers` (name) VALUES ('(overflow)');
+INSERT IGNORE INTO `worlds` (name) VALUES ('(overflow)');
+INSERT IGNORE INTO `channels` (name) VALUES ('(overflow)');
+
 -- Table for storing all chat messages
 CREATE TABLE IF NOT EXISTS `chat_messages` (
     `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -17,26 +47,49 @@ CREATE TABLE IF NOT EXISTS `chat_messages` (
     `message_type` ENUM('CHAT', 'PRIVATE', 'BROADCAST', 'COMMAND', 'SYSTEM', 'JOIN', 'LEAVE', 'DEATH', 'ACHIEVEMENT') NOT NULL DEFAULT 'CHAT' COMMENT 'Type of message',
     `channel` VARCHAR(255) DEFAULT 'global' COMMENT 'Chat channel (global, local, team, etc.)',
     `location_x` DOUBLE NULL COMMENT 'X coordinate where message was sent',
-    `location_y` DOUBLE NULL COMMENT 'Y coordinate where message was sent', 
+    `location_y` DOUBLE NULL COMMENT 'Y coordinate where message was sent',
     `location_z` DOUBLE NULL COMMENT 'Z coordinate where message was sent',
     `recipient_uuid` VARCHAR(36) NULL COMMENT 'UUID of recipient for private messages',
     `recipient_name` VARCHAR(16) NULL COMMENT 'Name of recipient for private messages',
     `is_cancelled` BOOLEAN DEFAULT FALSE COMMENT 'Whether the message was cancelled by a plugin',
     `metadata_json` JSON NULL COMMENT 'Additional metadata in JSON format',
     `timestamp` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT 'When the message was sent',
-    INDEX `idx_player_uuid` (`player_uuid`),
+    INDEX `idx_player_time` (`player_uuid`, `timestamp`, `id`),
     INDEX `idx_player_name` (`player_name`),
     INDEX `idx_timestamp` (`timestamp`),
     INDEX `idx_message_type` (`message_type`),
     INDEX `idx_world_name` (`world_name`),
     INDEX `idx_channel` (`channel`),
-    INDEX `idx_server_name` (`server_name`)
+    INDEX `idx_server_name` (`server_name`),
+    FULLTEXT INDEX `ft_message_content` (`message_content`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Stores all chat messages and related events';
 
+-- Table for storing executed commands
+CREATE TABLE IF NOT EXISTS `command_logs` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+    `command_uuid` VARCHAR(36) UNIQUE NOT NULL COMMENT 'Unique identifier for the command log',
+    `server_name` VARCHAR(255) NOT NULL COMMENT 'Server instance name',
+    `source_type` ENUM('PLAYER','CONSOLE','RCON','COMMAND_BLOCK','OTHER') NOT NULL COMMENT 'From where the command originated',
+    `player_uuid` VARCHAR(36) NULL COMMENT 'UUID if source is PLAYER',
+    `player_name` VARCHAR(16) NULL COMMENT 'Name if source is PLAYER',
+    `command_text` TEXT NOT NULL COMMENT 'The raw command text',
+    `world_name` VARCHAR(255) NULL COMMENT 'World (if applicable, e.g., player or command block)',
+    `location_x` DOUBLE NULL COMMENT 'X coordinate if applicable',
+    `location_y` DOUBLE NULL COMMENT 'Y coordinate if applicable',
+    `location_z` DOUBLE NULL COMMENT 'Z coordinate if applicable',
+    `is_cancelled` BOOLEAN DEFAULT FALSE COMMENT 'Whether the command was cancelled',
+    `metadata_json` JSON NULL COMMENT 'Additional metadata in JSON format',
+    `timestamp` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT 'When the command was executed',
+    INDEX `idx_source_type` (`source_type`),
+    INDEX `idx_player_time` (`player_uuid`, `timestamp`, `id`),
+    INDEX `idx_timestamp_cmd` (`timestamp`),
+    INDEX `idx_server_name_cmd` (`server_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Logs executed commands from all sources';
+
 -- Table for storing player sessions
 CREATE TABLE IF NOT EXISTS `player_sessions` (
     `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
-    `session_uuid` VARCHAR(36) UNIQUE NOT NULL COMMENT 'Unique session identifier',
+    `session_uuid` VARCHAR(36) NOT NULL COMMENT 'Unique session identifier',
     `player_uuid` VARCHAR(36) NOT NULL COMMENT 'UUID of the player',
     `player_name` VARCHAR(16) NOT NULL COMMENT 'Player name at session start',
     `server_name` VARCHAR(255) NOT NULL COMMENT 'Server instance name',
@@ -44,6 +97,7 @@ CREATE TABLE IF NOT EXISTS `player_sessions` (
     `logout_time` TIMESTAMP NULL COMMENT 'When player left (NULL if still online)',
     `ip_address` VARCHAR(45) NULL COMMENT 'Player IP address (IPv4/IPv6)',
     `client_brand` VARCHAR(255) NULL COMMENT 'Minecraft client brand/version',
+    UNIQUE INDEX `session_uuid` (`session_uuid`),
     INDEX `idx_player_uuid` (`player_uuid`),
     INDEX `idx_login_time` (`login_time`),
     INDEX `idx_server_name` (`server_name`)
@@ -52,22 +106,110 @@ CREATE TABLE IF NOT EXISTS `player_sessions` (
 -- Table for server events and system messages
 CREATE TABLE IF NOT EXISTS `server_events` (
     `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
-    `event_uuid` VARCHAR(36) UNIQUE NOT NULL COMMENT 'Unique event identifier',
+    `event_uuid` VARCHAR(36) NOT NULL COMMENT 'Unique event identifier',
     `server_name` VARCHAR(255) NOT NULL COMMENT 'Server instance name',
     `event_type` ENUM('SERVER_START', 'SERVER_STOP', 'SERVER_RESTART', 'PLUGIN_LOAD', 'PLUGIN_UNLOAD', 'WORLD_LOAD', 'WORLD_UNLOAD', 'BACKUP', 'ERROR', 'WARNING', 'INFO') NOT NULL COMMENT 'Type of server event',
     `event_message` TEXT NOT NULL COMMENT 'Description of the event',
     `severity_level` ENUM('LOW', 'MEDIUM', 'HIGH', 'CRITICAL') DEFAULT 'MEDIUM' COMMENT 'Event severity',
     `metadata_json` JSON NULL COMMENT 'Additional event data in JSON format',
     `timestamp` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT 'When the event occurred',
+    UNIQUE INDEX `event_uuid` (`event_uuid`),
     INDEX `idx_event_type` (`event_type`),
     INDEX `idx_timestamp` (`timestamp`),
     INDEX `idx_server_name` (`server_name`),
     INDEX `idx_severity_level` (`severity_level`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Logs server events and system messages';
 
+-- Player directory: one row per UUID and every name it was seen with
+CREATE TABLE IF NOT EXISTS `players` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+    `player_uuid` VARCHAR(36) NOT NULL COMMENT 'UUID of the player',
+    `current_name` VARCHAR(16) NOT NULL COMMENT 'Most recently seen name',
+    `first_seen` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT 'First logged event',
+    `last_seen` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT 'Last logged event',
+    UNIQUE INDEX `player_uuid` (`player_uuid`),
+    INDEX `idx_current_name` (`current_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS `player_names` (
+    `player_id` BIGINT NOT NULL COMMENT 'players.id',
+    `name` VARCHAR(16) NOT NULL COMMENT 'A name the player used',
+    `first_seen` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT 'First event under this name',
+    `last_seen` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT 'Last event under this name',
+    PRIMARY KEY (`player_id`, `name`),
+    INDEX `idx_name` (`name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Per-player counters, updated in the same transaction as every logged row
+CREATE TABLE IF NOT EXISTS `player_stats` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+    `player_uuid` VARCHAR(36) NOT NULL COMMENT 'UUID of the player',
+    `messages_chat` BIGINT NOT NULL DEFAULT 0 COMMENT 'Logged CHAT messages',
+    `messages_private` BIGINT NOT NULL DEFAULT 0 COMMENT 'Logged PRIVATE messages',
+    `messages_broadcast` BIGINT NOT NULL DEFAULT 0 COMMENT 'Logged BROADCAST messages',
+    `messages_command` BIGINT NOT NULL DEFAULT 0 COMMENT 'Logged COMMAND messages',
+    `messages_system` BIGINT NOT NULL DEFAULT 0 COMMENT 'Logged SYSTEM messages',
+    `messages_join` BIGINT NOT NULL DEFAULT 0 COMMENT 'Logged JOIN messages',
+    `messages_leave` BIGINT NOT NULL DEFAULT 0 COMMENT 'Logged LEAVE messages',
+    `messages_death` BIGINT NOT NULL DEFAULT 0 COMMENT 'Logged DEATH messages',
+    `messages_achievement` BIGINT NOT NULL DEFAULT 0 COMMENT 'Logged ACHIEVEMENT messages',
+    `commands` BIGINT NOT NULL DEFAULT 0 COMMENT 'Logged commands',
+    `message_bytes` BIGINT NOT NULL DEFAULT 0 COMMENT 'Total size of the message contents in bytes',
+    `command_bytes` BIGINT NOT NULL DEFAULT 0 COMMENT 'Total size of the command texts in bytes',
+    `updated_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT 'Last counter update',
+    UNIQUE INDEX `player_uuid` (`player_uuid`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Hourly and daily activity rollups
+CREATE TABLE IF NOT EXISTS `chat_activity_hourly` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+    `bucket` DATETIME NOT NULL COMMENT 'Start of the hour or day',
+    `server_name` VARCHAR(255) NOT NULL COMMENT 'Server instance name',
+    `channel` VARCHAR(255) NOT NULL COMMENT 'Chat channel',
+    `message_type` ENUM('CHAT', 'PRIVATE', 'BROADCAST', 'COMMAND', 'SYSTEM', 'JOIN', 'LEAVE', 'DEATH', 'ACHIEVEMENT') NOT NULL COMMENT 'Type of message',
+    `player_uuid` VARCHAR(36) NOT NULL COMMENT 'UUID of the player',
+    `messages` BIGINT NOT NULL DEFAULT 0 COMMENT 'Messages within the bucket',
+    UNIQUE INDEX `uk_activity` (`player_uuid`, `bucket`, `server_name`, `channel`, `message_type`),
+    INDEX `idx_bucket` (`bucket`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS `chat_activity_daily` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+    `bucket` DATE NOT NULL COMMENT 'Start of the hour or day',
+    `server_name` VARCHAR(255) NOT NULL COMMENT 'Server instance name',
+    `channel` VARCHAR(255) NOT NULL COMMENT 'Chat channel',
+    `message_type` ENUM('CHAT', 'PRIVATE', 'BROADCAST', 'COMMAND', 'SYSTEM', 'JOIN', 'LEAVE', 'DEATH', 'ACHIEVEMENT') NOT NULL COMMENT 'Type of message',
+    `player_uuid` VARCHAR(36) NOT NULL COMMENT 'UUID of the player',
+    `messages` BIGINT NOT NULL DEFAULT 0 COMMENT 'Messages within the bucket',
+    UNIQUE INDEX `uk_activity` (`player_uuid`, `bucket`, `server_name`, `channel`, `message_type`),
+    INDEX `idx_bucket` (`bucket`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS `command_activity_hourly` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+    `bucket` DATETIME NOT NULL COMMENT 'Start of the hour or day',
+    `server_name` VARCHAR(255) NOT NULL COMMENT 'Server instance name',
+    `source_type` ENUM('PLAYER','CONSOLE','RCON','COMMAND_BLOCK','OTHER') NOT NULL COMMENT 'From where the commands originated',
+    `player_uuid` VARCHAR(36) NOT NULL COMMENT 'UUID of the player, all zeros for other sources',
+    `commands` BIGINT NOT NULL DEFAULT 0 COMMENT 'Commands within the bucket',
+    UNIQUE INDEX `uk_activity` (`player_uuid`, `bucket`, `server_name`, `source_type`),
+    INDEX `idx_bucket` (`bucket`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS `command_activity_daily` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+    `bucket` DATE NOT NULL COMMENT 'Start of the hour or day',
+    `server_name` VARCHAR(255) NOT NULL COMMENT 'Server instance name',
+    `source_type` ENUM('PLAYER','CONSOLE','RCON','COMMAND_BLOCK','OTHER') NOT NULL COMMENT 'From where the commands originated',
+    `player_uuid` VARCHAR(36) NOT NULL COMMENT 'UUID of the player, all zeros for other sources',
+    `commands` BIGINT NOT NULL DEFAULT 0 COMMENT 'Commands within the bucket',
+    UNIQUE INDEX `uk_activity` (`player_uuid`, `bucket`, `server_name`, `source_type`),
+    INDEX `idx_bucket` (`bucket`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- Create a view for easy chat message querying with player info
-CREATE VIEW `v_chat_messages_full` AS
-SELECT 
+CREATE OR REPLACE VIEW `v_chat_messages_full` AS
+SELECT
     cm.id,
     cm.message_uuid,
     cm.server_name,
@@ -84,9 +226,9 @@ SELECT
     cm.recipient_name,
     cm.is_cancelled,
     cm.metadata_json,
-    cm.timestamp,
+    cm.`timestamp`,
     ps.ip_address,
     ps.client_brand
 FROM chat_messages cm
-LEFT JOIN player_sessions ps ON cm.player_uuid = ps.player_uuid 
-    AND cm.timestamp BETWEEN ps.login_time AND COALESCE(ps.logout_time, NOW());
+LEFT JOIN player_sessions ps ON cm.player_uuid = ps.player_uuid
+    AND cm.`timestamp` BETWEEN ps.login_time AND COALESCE(ps.logout_time, NOW());
@@ -1,13 +1,29 @@
 package de.chriss1998.theLabChatLog;
 
 import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.logging.Level;
+import de.chriss1998.theLabChatLog.archive.ArchiveStore;
+import de.chriss1998.theLabChatLog.archive.Archiver;
+import de.chriss1998.theLabChatLog.config.ChatLogSettings;
 import de.chriss1998.theLabChatLog.database.DatabaseManager;
+import de.chriss1998.theLabChatLog.dao.ActivityDAO;
 import de.chriss1998.theLabChatLog.dao.ChatDAO;
+import de.chriss1998.theLabChatLog.dao.PlayerDAO;
+import de.chriss1998.theLabChatLog.dao.RecentChatIndex;
+import de.chriss1998.theLabChatLog.dao.RecentHistoryCache;
+import de.chriss1998.theLabChatLog.directory.PlayerDirectory;
+import de.chriss1998.theLabChatLog.export.Exporter;
+import de.chriss1998.theLabChatLog.export.Importer;
+import de.chriss1998.theLabChatLog.ingest.WriteBehindQueue;
 import de.chriss1998.theLabChatLog.listener.ChatEventListener;
+import de.chriss1998.theLabChatLog.model.IdGenerators;
 import de.chriss1998.theLabChatLog.command.ChatLogCommand;
 import de.chriss1998.theLabChatLog.command.ChatLogTabCompleter;
 import de.chriss1998.theLabChatLog.command.ChatLogGuiCommand;
-import org.bukkit.event.Listener;
 import de.chriss1998.theLabChatLog.listener.PaperChatEventBridge;
 import de.chriss1998.theLabChatLog.listener.PlayerSelectListener;
 import de.chriss1998.theLabChatLog.listener.PlayerFunctionsListener;
@@ -16,8 +32,17 @@ public final class TheLabChatLog extends JavaPlugin {
 
     private DatabaseManager databaseManager;
     private ChatDAO chatDAO;
-    private ChatEventListener bukkitChatListener;
-    private Listener paperChatListener;
+    private WriteBehindQueue writeQueue;
+    private PlayerDirectory playerDirectory;
+    private ArchiveStore archiveStore;
+    private RecentChatIndex recentIndex;
+    private RecentHistoryCache historyCache;
+    private ActivityDAO activityDAO;
+    private Exporter exporter;
+    private Importer importer;
+    private Archiver archiver;
+    // Kompilierte, unveränderliche Konfiguration; wird bei Reload atomar ersetzt
+    private volatile ChatLogSettings settings;
 
     @Override
     public void onEnable() {
@@ -29,6 +54,9 @@ public final class TheLabChatLog extends JavaPlugin {
 
         // Standard-Konfiguration aus resources nach plugins/<PluginName>/config.yml kopieren (falls nicht vorhanden)
         saveDefaultConfig();
+        settings = ChatLogSettings.compile(getConfig());
+        // ID-Generator für message_uuid/command_uuid (Standard: zeitlich sortierte UUIDv7)
+        IdGenerators.set(IdGenerators.fromConfig(getConfig().getString("performance.id_generator", "uuidv7")));
 
         // Datenbank initialisieren
         databaseManager = new DatabaseManager(this);
@@ -39,13 +67,51 @@ public final class TheLabChatLog extends JavaPlugin {
         } else {
             // DAO initialisieren und Listener registrieren
             chatDAO = new ChatDAO(databaseManager, getLogger());
+            // Spielerverzeichnis (Namen, Namenshistorie, Präfixsuche) im Hintergrund laden
+            playerDirectory = new PlayerDirectory(new PlayerDAO(databaseManager), getLogger());
+            // Wird die Tabelle noch aus den alten Logs befüllt, danach erneut laden (lädt zusammenführend)
+            databaseManager.whenPlayersBackfilled(() -> playerDirectory.loadAsync(databaseManager.getReadExecutor()));
+            playerDirectory.loadAsync(databaseManager.getReadExecutor());
+            // Archiv-Tier: alte Zeilen in komprimierte Tagesdateien auslagern, Historie liest dort weiter
+            setupArchive();
+            // Write-Behind-Queue: Events werden gesammelt und als Batch geschrieben
+            // Index der letzten Chat-Nachrichten im Speicher: Suchen im Zeitfenster brauchen keine DB-Abfrage
+            RecentChatIndex recentIndex = setupRecentIndex();
+            // Neueste Einträge aktiver Spieler im Speicher: erste Historienseite ohne DB-Abfrage
+            if (getConfig().getBoolean("performance.history_cache.enabled", true)) {
+                historyCache = new RecentHistoryCache(
+                        Math.max(1, getConfig().getInt("performance.history_cache.max_players", 500)),
+                        Math.max(10, getConfig().getInt("performance.history_cache.entries_per_player", 50)));
+                chatDAO.setHistoryCache(historyCache);
+            }
+            // Stündliche/tägliche Aktivitäts-Rollups für /chatlog top und /chatlog activity
+            if (getConfig().getBoolean("performance.activity.enabled", true)) {
+                activityDAO = new ActivityDAO(databaseManager, getLogger(),
+                        getConfig().getLong("performance.activity.flush_interval_seconds", 60));
+                chatDAO.setActivity(activityDAO);
+            }
+            writeQueue = new WriteBehindQueue(this, chatDAO, playerDirectory, recentIndex, historyCache);
+            writeQueue.start();
+            // Exporte laufen über eine eigene Streaming-Verbindung außerhalb des Pools
+            exporter = new Exporter(databaseManager, chatDAO, getLogger(), new File(getDataFolder(), "exports"),
+                    getConfig().getInt("export.fetch_size", 1000),
+                    getConfig().getLong("export.progress_interval_seconds", 10));
+            // Importe laden Exportdateien idempotent (per UUID) über den Batch-Schreibpfad zurück
+            importer = new Importer(chatDAO, getLogger(), recentIndex, historyCache,
+                    getConfig().getInt("import.batch_size", 1000),
+                    getConfig().getInt("import.parser_threads", 2),
+                    getConfig().getLong("import.progress_interval_seconds", 10));
+            // Offline-Restore: Dateien aus imports/ beim Start einlesen und nach imports/done/ verschieben
+            File imports = new File(getDataFolder(), "imports");
+            if (getConfig().getBoolean("import.on_startup", false) && imports.isDirectory()) {
+                importer.startDirectory(imports.toPath());
+            }
             // Immer Bukkit-Listener für Join/Leave/Death/Achievement/Commands
-            bukkitChatListener = new ChatEventListener(this, chatDAO);
-            getServer().getPluginManager().registerEvents(bukkitChatListener, this);
+            getServer().getPluginManager().registerEvents(new ChatEventListener(this, writeQueue), this);
 
             // Auf Paper zusätzlich AsyncChatEvent via reflektionsbasierter Bridge registrieren
             if (isClassPresent("io.papermc.paper.event.player.AsyncChatEvent")) {
-                boolean registered = PaperChatEventBridge.tryRegister(this, chatDAO);
+                boolean registered = PaperChatEventBridge.tryRegister(this, writeQueue);
                 if (!registered) {
                     getLogger().warning("Paper AsyncChatEvent vorhanden, aber Bridge konnte nicht registriert werden.");
                 }
@@ -76,7 +142,22 @@ public final class TheLabChatLog extends JavaPlugin {
 
     @Override
     public void onDisable() {
-        // Ressourcen freigeben
+        // Ressourcen freigeben – zuerst ausstehende Events schreiben, dann den Pool schließen
+        if (writeQueue != null) {
+            writeQueue.shutdown();
+        }
+        if (archiver != null) {
+            archiver.stop();
+        }
+        if (exporter != null) {
+            exporter.stop();
+        }
+        if (importer != null) {
+            importer.stop();
+        }
+        if (archiveStore != null) {
+            archiveStore.close();
+        }
         if (databaseManager != null) {
             databaseManager.shutdown();
         }
@@ -91,6 +172,76 @@ public final class TheLabChatLog extends JavaPlugin {
         return chatDAO;
     }
 
+    public WriteBehindQueue getWriteQueue() {
+        return writeQueue;
+    }
+
+    public PlayerDirectory getPlayerDirectory() {
+        return playerDirectory;
+    }
+
+    public RecentChatIndex getRecentIndex() {
+        return recentIndex;
+    }
+
+    public RecentHistoryCache getHistoryCache() {
+        return historyCache;
+    }
+
+    public ActivityDAO getActivityDAO() {
+        return activityDAO;
+    }
+
+    public Exporter getExporter() {
+        return exporter;
+    }
+
+    public Importer getImporter() {
+        return importer;
+    }
+
+    public ArchiveStore getArchiveStore() {
+        return archiveStore;
+    }
+
+    public ChatLogSettings getSettings() {
+        return settings;
+    }
+
+    private RecentChatIndex setupRecentIndex() {
+        if (!getConfig().getBoolean("database.search.recent_index.enabled", true)) {
+            return null;
+        }
+        recentIndex = new RecentChatIndex(
+                Math.max(1000, getConfig().getInt("database.search.recent_index.max_messages", 50000)),
+                Duration.ofMinutes(Math.max(1, getConfig().getLong("database.search.recent_index.window_minutes", 240))));
+        chatDAO.setRecentIndex(recentIndex);
+        return recentIndex;
+    }
+
+    private void setupArchive() {
+        File directory = new File(getDataFolder(), "archive");
+        boolean enabled = getConfig().getBoolean("archive.enabled", false);
+        // Vorhandene Archivdateien bleiben auch nach dem Deaktivieren abfragbar
+        if (!enabled && !directory.isDirectory()) {
+            return;
+        }
+        archiveStore = new ArchiveStore(directory, getLogger(), getConfig().getInt("archive.reader_threads", 2));
+        try {
+            archiveStore.open();
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Archiv konnte nicht geöffnet werden – Archivierung deaktiviert.", e);
+            archiveStore.close();
+            archiveStore = null;
+            return;
+        }
+        chatDAO.setArchive(archiveStore);
+        if (enabled) {
+            archiver = new Archiver(databaseManager, chatDAO, archiveStore, getLogger(), getConfig());
+            archiver.start();
+        }
+    }
+
     private boolean isClassPresent(String className) {
         try {
             Class.forName(className);
@@ -104,17 +255,8 @@ public final class TheLabChatLog extends JavaPlugin {
     public void reloadAllConfigs() {
         // Eigene Config neu laden
         reloadConfig();
-        // Listener informieren
-        if (bukkitChatListener != null) {
-            bukkitChatListener.reloadConfiguration();
-        }
-        if (paperChatListener != null) {
-            try {
-                paperChatListener.getClass().getMethod("reloadConfiguration").invoke(paperChatListener);
-            } catch (Throwable ignored) {
-                // Methode existiert evtl. nicht – ignorieren
-            }
-        }
-        getLogger().info("Konfiguration neu geladen.");
+        // Neuen Snapshot kompilieren und für alle Listener auf einmal veröffentlichen
+        settings = ChatLogSettings.compile(getConfig());
+        getLogger().info("Konfiguration neu geladen (Chat-Logging aktiv: " + settings.isEnabled() + ").");
     }
 }
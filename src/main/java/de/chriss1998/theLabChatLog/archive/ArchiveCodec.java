@@ -0,0 +1,192 @@
+package de.chriss1998.theLabChatLog.archive;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import de.chriss1998.theLabChatLog.model.ChatMessage;
+import de.chriss1998.theLabChatLog.model.CommandLog;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Column layout of archived rows. Every column is a run of untagged protobuf values (one per row),
+ * compressed on its own by {@link ArchiveSegment}; nullable values carry a leading presence flag.
+ */
+final class ArchiveCodec {
+
+    private ArchiveCodec() {}
+
+    /**
+     * One column: how to append a row's value and how to read it back; {@code target} is null for skipped rows
+     */
+    interface Column<T> {
+        String name();
+
+        void write(CodedOutputStream out, T row) throws IOException;
+
+        void read(CodedInputStream in, T target) throws IOException;
+    }
+
+    /**
+     * Archived table: its columns, the column holding the player UUID, and the accessors needed for the index
+     */
+    record Schema<T>(String table, Supplier<T> factory, List<Column<T>> columns, String playerColumn,
+                     Function<T, Long> id, Function<T, LocalDateTime> timestamp, Function<T, String> player) {
+
+        Column<T> column(String name) {
+            return columns.stream().filter(c -> c.name().equals(name)).findFirst().orElse(null);
+        }
+    }
+
+    static final Schema<ChatMessage> CHAT_MESSAGES = new Schema<>("chat_messages", ChatMessage::new, List.of(
+            int64("id", ChatMessage::getId, ChatMessage::setId),
+            string("message_uuid", ChatMessage::getMessageUuid, ChatMessage::setMessageUuid),
+            string("server_name", ChatMessage::getServerName, ChatMessage::setServerName),
+            string("world_name", ChatMessage::getWorldName, ChatMessage::setWorldName),
+            string("player_uuid", ChatMessage::getPlayerUuid, ChatMessage::setPlayerUuid),
+            string("player_name", ChatMessage::getPlayerName, ChatMessage::setPlayerName),
+            string("message_content", ChatMessage::getMessageContent, ChatMessage::setMessageContent),
+            string("message_type", m -> m.getMessageType() != null ? m.getMessageType().name() : null,
+                    (m, v) -> m.setMessageType(v != null ? ChatMessage.MessageType.valueOf(v) : null)),
+            string("channel", ChatMessage::getChannel, ChatMessage::setChannel),
+            number("location_x", ChatMessage::getLocationX, ChatMessage::setLocationX),
+            number("location_y", ChatMessage::getLocationY, ChatMessage::setLocationY),
+            number("location_z", ChatMessage::getLocationZ, ChatMessage::setLocationZ),
+            string("recipient_uuid", ChatMessage::getRecipientUuid, ChatMessage::setRecipientUuid),
+            string("recipient_name", ChatMessage::getRecipientName, ChatMessage::setRecipientName),
+            bool("is_cancelled", ChatMessage::isCancelled, ChatMessage::setCancelled),
+            string("metadata_json", ChatMessage::getMetadataJson, ChatMessage::setMetadataJson),
+            timestamp("timestamp", ChatMessage::getTimestamp, ChatMessage::setTimestamp)
+    ), "player_uuid", ChatMessage::getId, ChatMessage::getTimestamp, ChatMessage::getPlayerUuid);
+
+    static final Schema<CommandLog> COMMAND_LOGS = new Schema<>("command_logs", CommandLog::new, List.of(
+            int64("id", CommandLog::getId, CommandLog::setId),
+            string("command_uuid", CommandLog::getCommandUuid, CommandLog::setCommandUuid),
+            string("server_name", CommandLog::getServerName, CommandLog::setServerName),
+            string("source_type", l -> l.getSourceType() != null ? l.getSourceType().name() : null,
+                    (l, v) -> l.setSourceType(v != null ? CommandLog.SourceType.valueOf(v) : null)),
+            string("player_uuid", CommandLog::getPlayerUuid, CommandLog::setPlayerUuid),
+            string("player_name", CommandLog::getPlayerName, CommandLog::setPlayerName),
+            string("command_text", CommandLog::getCommandText, CommandLog::setCommandText),
+            string("world_name", CommandLog::getWorldName, CommandLog::setWorldName),
+            number("location_x", CommandLog::getLocationX, CommandLog::setLocationX),
+            number("location_y", CommandLog::getLocationY, CommandLog::setLocationY),
+            number("location_z", CommandLog::getLocationZ, CommandLog::setLocationZ),
+            bool("is_cancelled", CommandLog::isCancelled, CommandLog::setCancelled),
+            string("metadata_json", CommandLog::getMetadataJson, CommandLog::setMetadataJson),
+            timestamp("timestamp", CommandLog::getTimestamp, CommandLog::setTimestamp)
+    ), "player_uuid", CommandLog::getId, CommandLog::getTimestamp, CommandLog::getPlayerUuid);
+
+    private static <T> Column<T> string(String name, Function<T, String> getter, BiConsumer<T, String> setter) {
+        return new Column<>() {
+            public String name() {
+                return name;
+            }
+
+            public void write(CodedOutputStream out, T row) throws IOException {
+                String value = getter.apply(row);
+                out.writeBoolNoTag(value != null);
+                if (value != null) {
+                    out.writeStringNoTag(value);
+                }
+            }
+
+            public void read(CodedInputStream in, T target) throws IOException {
+                String value = in.readBool() ? in.readString() : null;
+                if (target != null) {
+                    setter.accept(target, value);
+                }
+            }
+        };
+    }
+
+    private static <T> Column<T> number(String name, Function<T, Double> getter, BiConsumer<T, Double> setter) {
+        return new Column<>() {
+            public String name() {
+                return name;
+            }
+
+            public void write(CodedOutputStream out, T row) throws IOException {
+                Double value = getter.apply(row);
+                out.writeBoolNoTag(value != null);
+                if (value != null) {
+                    out.writeDoubleNoTag(value);
+                }
+            }
+
+            public void read(CodedInputStream in, T target) throws IOException {
+                Double value = in.readBool() ? in.readDouble() : null;
+                if (target != null) {
+                    setter.accept(target, value);
+                }
+            }
+        };
+    }
+
+    private static <T> Column<T> int64(String name, Function<T, Long> getter, BiConsumer<T, Long> setter) {
+        return new Column<>() {
+            public String name() {
+                return name;
+            }
+
+            public void write(CodedOutputStream out, T row) throws IOException {
+                Long value = getter.apply(row);
+                out.writeSInt64NoTag(value != null ? value : 0);
+            }
+
+            public void read(CodedInputStream in, T target) throws IOException {
+                long value = in.readSInt64();
+                if (target != null) {
+                    setter.accept(target, value);
+                }
+            }
+        };
+    }
+
+    private static <T> Column<T> bool(String name, Function<T, Boolean> getter, BiConsumer<T, Boolean> setter) {
+        return new Column<>() {
+            public String name() {
+                return name;
+            }
+
+            public void write(CodedOutputStream out, T row) throws IOException {
+                out.writeBoolNoTag(getter.apply(row));
+            }
+
+            public void read(CodedInputStream in, T target) throws IOException {
+                boolean value = in.readBool();
+                if (target != null) {
+                    setter.accept(target, value);
+                }
+            }
+        };
+    }
+
+    // LocalDateTime is zone-less; UTC is only used as a lossless codec here (like the spool)
+    private static <T> Column<T> timestamp(String name, Function<T, LocalDateTime> getter, BiConsumer<T, LocalDateTime> setter) {
+        return new Column<>() {
+            public String name() {
+                return name;
+            }
+
+            public void write(CodedOutputStream out, T row) throws IOException {
+                LocalDateTime value = getter.apply(row);
+                out.writeSInt64NoTag(value != null ? value.toEpochSecond(ZoneOffset.UTC) : 0);
+                out.writeUInt32NoTag(value != null ? value.getNano() : 0);
+            }
+
+            public void read(CodedInputStream in, T target) throws IOException {
+                long seconds = in.readSInt64();
+                int nanos = in.readUInt32();
+                if (target != null) {
+                    setter.accept(target, LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC));
+                }
+            }
+        };
+    }
+}
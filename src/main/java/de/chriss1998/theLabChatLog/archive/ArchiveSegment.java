@@ -0,0 +1,296 @@
+package de.chriss1998.theLabChatLog.archive;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable archive file holding the rows of one table and day, stored column by column.
+ * <p>
+ * Layout: {@code [int magic][byte version][int header length][header][column blocks]}. The header carries the
+ * row count, id and timestamp bounds, a Bloom filter of the player UUIDs and the size of every column block,
+ * so the index of all segments can be loaded without touching the data. Each column block is deflated on
+ * its own; a player lookup inflates the player column first and only decodes the other columns on a match.
+ */
+final class ArchiveSegment {
+
+    static final String EXTENSION = ".seg";
+    private static final int MAGIC = 0x544C4341; // "TLCA"
+    private static final byte VERSION = 2; // 2: timestamp bounds with nanoseconds
+    private static final double BLOOM_FALSE_POSITIVES = 0.01;
+
+    /**
+     * Index of one segment file
+     */
+    record Header(Path file, String table, LocalDate day, int rows, long minId, long maxId,
+                  LocalDateTime minTime, LocalDateTime maxTime, BloomFilter players,
+                  Map<String, int[]> columns, long dataOffset) {
+
+        boolean mightContainPlayer(String playerUuid) {
+            return players.mightContain(playerUuid);
+        }
+
+        long fileSize() {
+            return dataOffset + columns.values().stream().mapToLong(c -> c[1]).sum();
+        }
+    }
+
+    private ArchiveSegment() {}
+
+    /**
+     * Write the rows (all of one day) to a new segment in {@code directory}; the file appears atomically
+     */
+    static <T> Header write(Path directory, ArchiveCodec.Schema<T> schema, LocalDate day, List<T> rows) throws IOException {
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("Archive segments cannot be empty");
+        }
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+        LocalDateTime minTime = null;
+        LocalDateTime maxTime = null;
+        Set<String> distinctPlayers = new HashSet<>();
+        for (T row : rows) {
+            long id = schema.id().apply(row);
+            minId = Math.min(minId, id);
+            maxId = Math.max(maxId, id);
+            LocalDateTime time = schema.timestamp().apply(row);
+            if (minTime == null || time.isBefore(minTime)) {
+                minTime = time;
+            }
+            if (maxTime == null || time.isAfter(maxTime)) {
+                maxTime = time;
+            }
+            String player = schema.player().apply(row);
+            if (player != null) {
+                distinctPlayers.add(player.toLowerCase(Locale.ROOT));
+            }
+        }
+        // Sized by the players actually in the segment; a busy day has many rows per player
+        BloomFilter players = BloomFilter.create(Math.max(16, distinctPlayers.size()), BLOOM_FALSE_POSITIVES);
+        for (String player : distinctPlayers) {
+            players.add(player);
+        }
+
+        // Encode and compress every column
+        Map<String, byte[]> blocks = new LinkedHashMap<>();
+        Map<String, int[]> sizes = new LinkedHashMap<>();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            for (ArchiveCodec.Column<T> column : schema.columns()) {
+                ByteArrayOutputStream raw = new ByteArrayOutputStream();
+                CodedOutputStream out = CodedOutputStream.newInstance(raw);
+                for (T row : rows) {
+                    column.write(out, row);
+                }
+                out.flush();
+                byte[] compressed = deflate(deflater, raw.toByteArray());
+                blocks.put(column.name(), compressed);
+                sizes.put(column.name(), new int[]{raw.size(), compressed.length});
+            }
+        } finally {
+            deflater.end();
+        }
+
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        header.writeUTF(schema.table());
+        header.writeLong(day.toEpochDay());
+        header.writeInt(rows.size());
+        header.writeLong(minId);
+        header.writeLong(maxId);
+        header.writeLong(minTime.toEpochSecond(ZoneOffset.UTC));
+        header.writeInt(minTime.getNano());
+        header.writeLong(maxTime.toEpochSecond(ZoneOffset.UTC));
+        header.writeInt(maxTime.getNano());
+        players.write(header);
+        header.writeInt(sizes.size());
+        for (Map.Entry<String, int[]> e : sizes.entrySet()) {
+            header.writeUTF(e.getKey());
+            header.writeInt(e.getValue()[0]);
+            header.writeInt(e.getValue()[1]);
+        }
+        header.flush();
+
+        Files.createDirectories(directory);
+        Path target = directory.resolve(day + "-" + maxId + EXTENSION);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(file)) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(headerBytes.size());
+            headerBytes.writeTo(out);
+            for (byte[] block : blocks.values()) {
+                out.write(block);
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        return new Header(target, schema.table(), day, rows.size(), minId, maxId, minTime, maxTime, players,
+                sizes, 9L + headerBytes.size());
+    }
+
+    static Header readHeader(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an archive segment: " + file);
+            }
+            byte version = in.readByte();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported archive segment version " + version + ": " + file);
+            }
+            int headerLength = in.readInt();
+            String table = in.readUTF();
+            LocalDate day = LocalDate.ofEpochDay(in.readLong());
+            int rows = in.readInt();
+            long minId = in.readLong();
+            long maxId = in.readLong();
+            LocalDateTime minTime = LocalDateTime.ofEpochSecond(in.readLong(), version > 1 ? in.readInt() : 0, ZoneOffset.UTC);
+            LocalDateTime maxTime;
+            if (version > 1) {
+                maxTime = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+            } else {
+                // Version 1 dropped the fraction; the newest row may lie anywhere in that second
+                maxTime = LocalDateTime.ofEpochSecond(in.readLong(), 0, ZoneOffset.UTC).plusSeconds(1).minusNanos(1);
+            }
+            BloomFilter players = BloomFilter.read(in);
+            int columnCount = in.readInt();
+            Map<String, int[]> columns = new LinkedHashMap<>();
+            for (int i = 0; i < columnCount; i++) {
+                String name = in.readUTF();
+                columns.put(name, new int[]{in.readInt(), in.readInt()});
+            }
+            return new Header(file, table, day, rows, minId, maxId, minTime, maxTime, players, columns, 9L + headerLength);
+        }
+    }
+
+    /**
+     * Read the rows of a segment, only those of {@code playerUuid} if it is not null (case-insensitive)
+     */
+    static <T> List<T> read(Header header, ArchiveCodec.Schema<T> schema, String playerUuid) throws IOException {
+        try (FileChannel channel = FileChannel.open(header.file(), StandardOpenOption.READ)) {
+            BitSet selected = new BitSet(header.rows());
+            if (playerUuid != null) {
+                CodedInputStream in = CodedInputStream.newInstance(column(channel, header, schema.playerColumn()));
+                ArchiveCodec.Column<T> playerColumn = schema.column(schema.playerColumn());
+                T probe = schema.factory().get();
+                for (int row = 0; row < header.rows(); row++) {
+                    playerColumn.read(in, probe);
+                    String player = schema.player().apply(probe);
+                    if (player != null && player.equalsIgnoreCase(playerUuid)) {
+                        selected.set(row);
+                    }
+                }
+                if (selected.isEmpty()) {
+                    return List.of(); // Bloom filter false positive
+                }
+            } else {
+                selected.set(0, header.rows());
+            }
+
+            List<T> rows = new ArrayList<>(selected.cardinality());
+            T[] byRow = newRowArray(header.rows());
+            for (int row = selected.nextSetBit(0); row >= 0; row = selected.nextSetBit(row + 1)) {
+                T target = schema.factory().get();
+                byRow[row] = target;
+                rows.add(target);
+            }
+            for (ArchiveCodec.Column<T> column : schema.columns()) {
+                if (!header.columns().containsKey(column.name())) {
+                    continue; // column added after this segment was written
+                }
+                CodedInputStream in = CodedInputStream.newInstance(column(channel, header, column.name()));
+                int last = selected.length();
+                for (int row = 0; row < last; row++) {
+                    column.read(in, byRow[row]);
+                }
+            }
+            return rows;
+        }
+    }
+
+    private static ByteBuffer column(FileChannel channel, Header header, String name) throws IOException {
+        long offset = header.dataOffset();
+        for (Map.Entry<String, int[]> e : header.columns().entrySet()) {
+            if (e.getKey().equals(name)) {
+                ByteBuffer compressed = ByteBuffer.allocate(e.getValue()[1]);
+                while (compressed.hasRemaining()) {
+                    if (channel.read(compressed, offset + compressed.position()) < 0) {
+                        throw new IOException("Truncated archive segment: " + header.file());
+                    }
+                }
+                return ByteBuffer.wrap(inflate(compressed.array(), e.getValue()[0]));
+            }
+            offset += e.getValue()[1];
+        }
+        throw new IOException("Column " + name + " missing in " + header.file());
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buffer);
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] compressed, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int n = 0;
+            while (n < rawLength && !inflater.finished()) {
+                int read = inflater.inflate(raw, n, rawLength - n);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += read;
+            }
+            if (n != rawLength) {
+                throw new IOException("Corrupt archive column (" + n + " of " + rawLength + " bytes)");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt archive column", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T[] newRowArray(int size) {
+        return (T[]) new Object[size];
+    }
+}
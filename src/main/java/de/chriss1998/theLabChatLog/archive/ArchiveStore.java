@@ -0,0 +1,235 @@
+package de.chriss1998.theLabChatLog.archive;
+
+import de.chriss1998.theLabChatLog.model.ChatMessage;
+import de.chriss1998.theLabChatLog.model.CommandLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Cold storage for rows moved out of the database: one directory per table with immutable per-day
+ * {@link ArchiveSegment segments}. The headers of all segments are kept in memory; player lookups skip
+ * segments by timestamp bounds and Bloom filter and read the remaining ones in parallel, newest first.
+ */
+public final class ArchiveStore {
+
+    private static final Comparator<ArchiveSegment.Header> NEWEST_FIRST =
+            Comparator.comparing(ArchiveSegment.Header::day).reversed()
+                    .thenComparing(Comparator.comparingLong(ArchiveSegment.Header::maxId).reversed());
+
+    private final Path directory;
+    private final Logger logger;
+    private final int parallelism;
+    private final ExecutorService readers;
+    // Segment headers per table, newest day first
+    private final Map<String, List<ArchiveSegment.Header>> segments = new ConcurrentHashMap<>();
+
+    public ArchiveStore(File directory, Logger logger, int readerThreads) {
+        this.directory = directory.toPath();
+        this.logger = logger;
+        this.parallelism = Math.max(1, readerThreads);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.readers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "ChatLog-ArchiveReader-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Load the headers of all existing segments; unfinished temp files of a crashed archiver are removed
+     */
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        for (ArchiveCodec.Schema<?> schema : List.of(ArchiveCodec.CHAT_MESSAGES, ArchiveCodec.COMMAND_LOGS)) {
+            Path tableDir = directory.resolve(schema.table());
+            List<ArchiveSegment.Header> headers = new ArrayList<>();
+            if (Files.isDirectory(tableDir)) {
+                try (Stream<Path> files = Files.list(tableDir)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        String name = file.getFileName().toString();
+                        if (name.endsWith(ArchiveSegment.EXTENSION + ".tmp")) {
+                            Files.deleteIfExists(file);
+                        } else if (name.endsWith(ArchiveSegment.EXTENSION)) {
+                            try {
+                                headers.add(ArchiveSegment.readHeader(file));
+                            } catch (IOException e) {
+                                logger.log(Level.WARNING, "Skipping unreadable archive segment " + file, e);
+                            }
+                        }
+                    }
+                }
+            }
+            headers.sort(NEWEST_FIRST);
+            segments.put(schema.table(), new CopyOnWriteArrayList<>(headers));
+        }
+    }
+
+    Path tableDirectory(String table) {
+        return directory.resolve(table);
+    }
+
+    void add(ArchiveSegment.Header header) {
+        List<ArchiveSegment.Header> list = segments.computeIfAbsent(header.table(), t -> new CopyOnWriteArrayList<>());
+        synchronized (list) {
+            List<ArchiveSegment.Header> sorted = new ArrayList<>(list);
+            sorted.add(header);
+            sorted.sort(NEWEST_FIRST);
+            list.clear();
+            list.addAll(sorted);
+        }
+    }
+
+    /**
+     * Highest archived id of a table on the given day (0 if none); rows above it still need archiving
+     */
+    long maxArchivedId(String table, LocalDate day) {
+        return segments.getOrDefault(table, List.of()).stream()
+                .filter(h -> h.day().equals(day))
+                .mapToLong(ArchiveSegment.Header::maxId)
+                .max()
+                .orElse(0);
+    }
+
+    /**
+     * Archived chat messages of a player, newest first. Only rows strictly before {@code (beforeTime, beforeId)}
+     * are returned if {@code beforeTime} is set; {@code skip} matches are skipped.
+     */
+    public List<ChatMessage> findChatMessages(String playerUuid, LocalDateTime since, LocalDateTime beforeTime, long beforeId,
+                                              int skip, int limit) {
+        return find(ArchiveCodec.CHAT_MESSAGES, playerUuid, since, beforeTime, beforeId, skip, limit);
+    }
+
+    /**
+     * Archived command logs of a player, newest first; bounds as in {@link #findChatMessages}
+     */
+    public List<CommandLog> findCommandLogs(String playerUuid, LocalDateTime since, LocalDateTime beforeTime, long beforeId,
+                                            int skip, int limit) {
+        return find(ArchiveCodec.COMMAND_LOGS, playerUuid, since, beforeTime, beforeId, skip, limit);
+    }
+
+    private <T> List<T> find(ArchiveCodec.Schema<T> schema, String playerUuid, LocalDateTime since,
+                             LocalDateTime beforeTime, long beforeId, int skip, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        List<ArchiveSegment.Header> candidates = segments.getOrDefault(schema.table(), List.of()).stream()
+                .filter(h -> since == null || !h.maxTime().isBefore(since))
+                .filter(h -> beforeTime == null || !h.minTime().isAfter(beforeTime))
+                .filter(h -> h.mightContainPlayer(playerUuid))
+                .toList();
+        Comparator<T> newestFirst = Comparator.comparing(schema.timestamp())
+                .thenComparing(schema.id())
+                .reversed();
+        int needed = skip + limit;
+        List<T> found = new ArrayList<>();
+        for (int start = 0; start < candidates.size(); start += parallelism) {
+            // Stop once the page is complete and no remaining segment can hold a newer row
+            if (found.size() >= needed
+                    && candidates.get(start).maxTime().isBefore(schema.timestamp().apply(found.get(needed - 1)))) {
+                break;
+            }
+            List<Future<List<T>>> reads = new ArrayList<>();
+            for (ArchiveSegment.Header header : candidates.subList(start, Math.min(start + parallelism, candidates.size()))) {
+                reads.add(readers.submit(() -> ArchiveSegment.read(header, schema, playerUuid)));
+            }
+            for (Future<List<T>> read : reads) {
+                found.addAll(await(read));
+            }
+            found.removeIf(row -> {
+                LocalDateTime time = schema.timestamp().apply(row);
+                return (since != null && time.isBefore(since))
+                        || (beforeTime != null && (time.isAfter(beforeTime)
+                        || (time.equals(beforeTime) && schema.id().apply(row) >= beforeId)));
+            });
+            found.sort(newestFirst);
+        }
+        if (found.size() <= skip) {
+            return List.of();
+        }
+        return new ArrayList<>(found.subList(skip, Math.min(found.size(), needed)));
+    }
+
+    /**
+     * Result of one segment read; an unreadable segment is logged and contributes no rows
+     */
+    private <T> List<T> await(Future<List<T>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        } catch (ExecutionException e) {
+            logger.log(Level.WARNING, "Failed to read archive segment", e.getCause());
+            return List.of();
+        }
+    }
+
+    /**
+     * Delete segments of days before {@code cutoff}; returns the number of deleted files
+     */
+    public int deleteBefore(LocalDate cutoff) {
+        int deleted = 0;
+        for (List<ArchiveSegment.Header> list : segments.values()) {
+            for (ArchiveSegment.Header header : list) {
+                if (!header.day().isBefore(cutoff)) {
+                    continue;
+                }
+                try {
+                    list.remove(header);
+                    Files.deleteIfExists(header.file());
+                    deleted++;
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Failed to delete archive segment " + header.file(), e);
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Number of segments, archived rows and their size on disk
+     */
+    public String getStats() {
+        long files = 0;
+        long rows = 0;
+        long bytes = 0;
+        for (List<ArchiveSegment.Header> list : segments.values()) {
+            for (ArchiveSegment.Header header : list) {
+                files++;
+                rows += header.rows();
+                bytes += header.fileSize();
+            }
+        }
+        return String.format("Archive - segments: %d, rows: %d, size: %.1f MB", files, rows, bytes / (1024.0 * 1024.0));
+    }
+
+    public void close() {
+        readers.shutdownNow();
+        try {
+            readers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
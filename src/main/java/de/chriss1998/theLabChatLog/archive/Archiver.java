@@ -0,0 +1,131 @@
+package de.chriss1998.theLabChatLog.archive;
+
+import de.chriss1998.theLabChatLog.dao.ChatDAO;
+import de.chriss1998.theLabChatLog.database.DatabaseManager;
+import de.chriss1998.theLabChatLog.database.RetentionService;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Moves rows older than {@code archive.after_days} from {@code chat_messages}/{@code command_logs} into the
+ * {@link ArchiveStore}, one day at a time, oldest first.
+ * <p>
+ * A day's rows are written to a segment and synced before they are deleted, and the delete is bounded by the
+ * highest archived id, so a crash in between at worst leaves rows that the next run skips (their ids are
+ * already covered) and deletes. Rows arriving late for an archived day end up in an additional segment.
+ */
+public final class Archiver {
+
+    @FunctionalInterface
+    interface SqlSupplier<T> {
+        T get() throws SQLException;
+    }
+
+    @FunctionalInterface
+    interface DayLoader<T> {
+        List<T> load(LocalDateTime from, LocalDateTime to, long afterId) throws SQLException;
+    }
+
+    private record Source<T>(ArchiveCodec.Schema<T> schema, SqlSupplier<LocalDateTime> oldest, DayLoader<T> loader) {}
+
+    private final DatabaseManager databaseManager;
+    private final ArchiveStore store;
+    private final Logger logger;
+    private final int afterDays;
+    private final int keepDays;
+    private final long intervalHours;
+    private final List<Source<?>> sources;
+    private final ScheduledExecutorService executor;
+    private volatile boolean stopped;
+
+    public Archiver(DatabaseManager databaseManager, ChatDAO chatDAO, ArchiveStore store, Logger logger, FileConfiguration config) {
+        this.databaseManager = databaseManager;
+        this.store = store;
+        this.logger = logger;
+        this.afterDays = Math.max(1, config.getInt("archive.after_days", 30));
+        this.keepDays = Math.max(0, config.getInt("archive.keep_days", 0));
+        this.intervalHours = Math.max(1, config.getLong("archive.interval_hours", 24));
+        this.sources = List.of(
+                new Source<>(ArchiveCodec.CHAT_MESSAGES, chatDAO::getOldestChatMessageTime, chatDAO::loadChatMessagesForArchive),
+                new Source<>(ArchiveCodec.COMMAND_LOGS, chatDAO::getOldestCommandLogTime, chatDAO::loadCommandLogsForArchive));
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ChatLog-Archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        executor.scheduleWithFixedDelay(this::runOnce, 2, TimeUnit.HOURS.toMinutes(intervalHours), TimeUnit.MINUTES);
+    }
+
+    public void stop() {
+        stopped = true;
+        executor.shutdownNow();
+    }
+
+    private void runOnce() {
+        if (databaseManager.isMigrating()) {
+            logger.info("Archiving postponed: a schema migration is still running");
+            return;
+        }
+        RetentionService retention = databaseManager.getRetention();
+        if (retention == null) {
+            return;
+        }
+        LocalDate cutoff = LocalDate.now().minusDays(afterDays);
+        for (Source<?> source : sources) {
+            try {
+                archive(source, retention, cutoff);
+            } catch (SQLException | IOException | CompletionException e) {
+                logger.log(Level.WARNING, "Archiving " + source.schema().table() + " failed; it continues at the next interval", e);
+            }
+        }
+        if (keepDays > 0 && !stopped) {
+            int deleted = store.deleteBefore(LocalDate.now().minusDays(keepDays));
+            if (deleted > 0) {
+                logger.info("Archive: deleted " + deleted + " segments older than " + keepDays + " days");
+            }
+        }
+    }
+
+    private <T> void archive(Source<T> source, RetentionService retention, LocalDate cutoff) throws SQLException, IOException {
+        String table = source.schema().table();
+        LocalDate previous = null;
+        while (!stopped) {
+            LocalDateTime oldest = source.oldest().get();
+            if (oldest == null || !oldest.toLocalDate().isBefore(cutoff)) {
+                return;
+            }
+            LocalDate day = oldest.toLocalDate();
+            if (day.equals(previous)) {
+                // The delete did not remove the day (e.g. rows above the archived ids); retry next interval
+                logger.warning("Archive: rows of " + table + " on " + day + " remain in the database after archiving");
+                return;
+            }
+            previous = day;
+
+            long archivedId = store.maxArchivedId(table, day);
+            List<T> rows = source.loader().load(day.atStartOfDay(), day.plusDays(1).atStartOfDay(), archivedId);
+            if (!rows.isEmpty()) {
+                ArchiveSegment.Header header = ArchiveSegment.write(store.tableDirectory(table), source.schema(), day, rows);
+                store.add(header);
+                archivedId = Math.max(archivedId, header.maxId());
+                logger.info(String.format("Archived %d rows of %s from %s (%d KB)", rows.size(), table, day, header.fileSize() / 1024));
+            }
+            // Every row of this and earlier days up to archivedId is in a segment now
+            retention.purgeAsync(table, day.plusDays(1).atStartOfDay(), archivedId).join();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package de.chriss1998.theLabChatLog.archive;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Fixed-size Bloom filter over strings (player UUIDs), stored in the header of an archive segment so
+ * segments without a player can be skipped without decompressing them.
+ */
+final class BloomFilter {
+
+    private static final int MAX_WORDS = 1 << 16; // 4 Mbit, far above one day of distinct players
+
+    private final long[] words;
+    private final int hashes;
+
+    private BloomFilter(long[] words, int hashes) {
+        this.words = words;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Filter sized for {@code expected} entries at the given false positive rate
+     */
+    static BloomFilter create(int expected, double falsePositiveRate) {
+        int n = Math.max(1, expected);
+        double bits = -n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        int wordCount = (int) Math.min(MAX_WORDS, Math.max(1, Math.ceil(bits / 64)));
+        int k = (int) Math.max(1, Math.min(16, Math.round((double) wordCount * 64 / n * Math.log(2))));
+        return new BloomFilter(new long[wordCount], k);
+    }
+
+    void add(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long bitCount = (long) words.length * 64;
+        for (int i = 1; i <= hashes; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    boolean mightContain(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long bitCount = (long) words.length * 64;
+        for (int i = 1; i <= hashes; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeByte(hashes);
+        out.writeInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    static BloomFilter read(DataInput in) throws IOException {
+        int hashes = in.readUnsignedByte();
+        int wordCount = in.readInt();
+        if (hashes == 0 || wordCount <= 0 || wordCount > MAX_WORDS) {
+            throw new IOException("Corrupt bloom filter (" + hashes + " hashes, " + wordCount + " words)");
+        }
+        long[] words = new long[wordCount];
+        for (int i = 0; i < wordCount; i++) {
+            words[i] = in.readLong();
+        }
+        return new BloomFilter(words, hashes);
+    }
+
+    /**
+     * 64-bit FNV-1a of the lower-cased UTF-8 bytes, finished with the murmur3 mixer
+     */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe1a85a7bL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -1,7 +1,15 @@
 package de.chriss1998.theLabChatLog.command;
 
 import de.chriss1998.theLabChatLog.TheLabChatLog;
+import de.chriss1998.theLabChatLog.dao.ActivityDAO;
 import de.chriss1998.theLabChatLog.dao.ChatDAO;
+import de.chriss1998.theLabChatLog.dao.ChatSearch;
+import de.chriss1998.theLabChatLog.database.UuidCodec;
+import de.chriss1998.theLabChatLog.directory.PlayerDirectory;
+import de.chriss1998.theLabChatLog.export.ExportFormat;
+import de.chriss1998.theLabChatLog.export.Exporter;
+import de.chriss1998.theLabChatLog.export.Importer;
+import de.chriss1998.theLabChatLog.ingest.WriteBehindQueue;
 import de.chriss1998.theLabChatLog.model.ChatMessage;
 import de.chriss1998.theLabChatLog.model.CommandLog;
 import org.bukkit.Bukkit;
@@ -12,17 +20,37 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
 
 public class ChatLogCommand implements CommandExecutor {
 
     private final TheLabChatLog plugin;
     private static final int PREVIEW_MAX = 120;
     private static final Map<String, String> SUBCOMMANDS = buildSubcommandHelp();
+    private final HistoryCursorCache cursors = new HistoryCursorCache();
+    // Letzte Suche je Absender für "/chatlog search next"
+    private final Map<String, SearchState> searches = new ConcurrentHashMap<>();
+
+    private record SearchState(ChatSearch search, String cursor, int page) {}
+
+    // Filter für top/activity; from ist nie null
+    private record ActivityArgs(ActivityDAO.Kind kind, String playerUuid, String server, String channel, LocalDateTime from) {}
 
     public ChatLogCommand(TheLabChatLog plugin) {
         this.plugin = plugin;
@@ -30,7 +58,9 @@ public class ChatLogCommand implements CommandExecutor {
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
-        if (!sender.hasPermission("thelab.chatlog.admin")) {
+        // Exporte dürfen auch Nicht-Admins mit thelab.chatlog.export
+        boolean export = args.length > 0 && args[0].equalsIgnoreCase("export");
+        if (!sender.hasPermission("thelab.chatlog.admin") && !(export && sender.hasPermission("thelab.chatlog.export"))) {
             sender.sendMessage(ChatColor.RED + "Keine Berechtigung.");
             return true;
         }
@@ -56,12 +86,36 @@ public class ChatLogCommand implements CommandExecutor {
                 sender.sendMessage(ChatColor.AQUA + "ChatLog Status:");
                 sender.sendMessage(ChatColor.GRAY + " - DB: " + (plugin.getDatabaseManager() != null && plugin.getDatabaseManager().isEnabled()));
                 sender.sendMessage(ChatColor.GRAY + " - Pool: " + pool);
+                if (plugin.getDatabaseManager() != null) {
+                    sender.sendMessage(ChatColor.GRAY + " - Lanes: " + plugin.getDatabaseManager().getExecutorStats());
+                    if (plugin.getDatabaseManager().getRetention() != null) {
+                        sender.sendMessage(ChatColor.GRAY + " - " + plugin.getDatabaseManager().getRetention().getStats());
+                    }
+                }
+                if (plugin.getActivityDAO() != null) {
+                    sender.sendMessage(ChatColor.GRAY + " - " + plugin.getActivityDAO().getStats());
+                }
+                if (plugin.getHistoryCache() != null) {
+                    sender.sendMessage(ChatColor.GRAY + " - " + plugin.getHistoryCache().getStats());
+                }
+                if (plugin.getRecentIndex() != null) {
+                    sender.sendMessage(ChatColor.GRAY + " - " + plugin.getRecentIndex().getStats());
+                }
+                if (plugin.getArchiveStore() != null) {
+                    sender.sendMessage(ChatColor.GRAY + " - " + plugin.getArchiveStore().getStats());
+                }
+                if (plugin.getWriteQueue() != null) {
+                    sender.sendMessage(ChatColor.GRAY + " - Queue: " + plugin.getWriteQueue().getStats());
+                    sender.sendMessage(ChatColor.GRAY + " - " + plugin.getWriteQueue().getOverloadController().getStats());
+                }
                 return true;
 
             case "test":
                 // Schreibe einen kurzen Testeintrag, um DB-Schreibzugriff zu prüfen
                 try {
-                    plugin.getDatabaseManager().executeAsync("INSERT INTO server_events(event_uuid, server_name, event_type, event_message, severity_level) VALUES (UUID(), ?, 'INFO', 'ChatLog TEST', 'LOW')", plugin.getConfig().getString("server.name", "Unknown"));
+                    plugin.getDatabaseManager().executeAsync("INSERT INTO server_events(event_uuid, server_name, event_type, event_message, severity_level) VALUES (?, ?, 'INFO', 'ChatLog TEST', 'LOW')",
+                            UuidCodec.toParameter(UUID.randomUUID().toString(), plugin.getDatabaseManager().getUuidStorage("server_events")),
+                            plugin.getConfig().getString("server.name", "Unknown"));
                     sender.sendMessage(ChatColor.GREEN + "Test-Event in DB geschrieben (server_events). Prüfe Datenbank.");
                 } catch (Exception ex) {
                     sender.sendMessage(ChatColor.RED + "Fehler beim Schreiben in die DB: " + ex.getMessage());
@@ -95,6 +149,34 @@ public class ChatLogCommand implements CommandExecutor {
                 handleHistoryCmd(sender, label, args);
                 return true;
 
+            case "search":
+                handleSearch(sender, label, args);
+                return true;
+
+            case "whosaid":
+                handleWhoSaid(sender, label, args);
+                return true;
+
+            case "top":
+                handleTop(sender, label, args);
+                return true;
+
+            case "activity":
+                handleActivity(sender, label, args);
+                return true;
+
+            case "export":
+                handleExport(sender, label, args);
+                return true;
+
+            case "import":
+                handleImport(sender, label, args);
+                return true;
+
+            case "deadletter":
+                handleDeadLetter(sender);
+                return true;
+
             default:
                 suggestSubcommand(sender, label, args[0]);
                 sender.sendMessage(ChatColor.GRAY + "Nutze " + ChatColor.YELLOW + "/" + label + " help" + ChatColor.GRAY + " für eine Übersicht.");
@@ -112,7 +194,6 @@ public class ChatLogCommand implements CommandExecutor {
         String targetName = args[1];
         int page = parsePage(args, 2);
         int limit = 10;
-        int offset = (page - 1) * limit;
 
         String uuid = resolveUuidByName(targetName);
         if (uuid == null) {
@@ -126,7 +207,10 @@ public class ChatLogCommand implements CommandExecutor {
             return;
         }
 
-        dao.getCombinedHistoryByPlayerAsync(uuid, limit, offset).thenAccept(entries -> {
+        pageCursor(sender, "all", uuid, page, limit, dao::seekCombinedHistoryByPlayerAsync)
+                .thenCompose(cursor -> dao.getCombinedHistoryByPlayerAsync(uuid, cursor, limit)).thenAccept(result -> {
+            cursors.put(sender.getName(), "all", uuid, page + 1, result.nextCursor());
+            List<ChatDAO.HistoryEntry> entries = result.items();
             Bukkit.getScheduler().runTask(plugin, () -> {
                 sender.sendMessage(ChatColor.AQUA + "Historie (ALLE) für " + ChatColor.GOLD + targetName + ChatColor.AQUA + " – Seite " + page);
                 if (entries.isEmpty()) {
@@ -161,7 +245,6 @@ public class ChatLogCommand implements CommandExecutor {
         String targetName = args[1];
         int page = parsePage(args, 2);
         int limit = 10;
-        int offset = (page - 1) * limit;
 
         String uuid = resolveUuidByName(targetName);
         if (uuid == null) {
@@ -175,7 +258,10 @@ public class ChatLogCommand implements CommandExecutor {
             return;
         }
 
-        dao.getChatMessagesByPlayerAsync(uuid, limit, offset).thenAccept(list -> {
+        pageCursor(sender, "chat", uuid, page, limit, dao::seekChatMessagesByPlayerAsync)
+                .thenCompose(cursor -> dao.getChatMessagesByPlayerAsync(uuid, cursor, limit)).thenAccept(result -> {
+            cursors.put(sender.getName(), "chat", uuid, page + 1, result.nextCursor());
+            List<ChatMessage> list = result.items();
             Bukkit.getScheduler().runTask(plugin, () -> {
                 sender.sendMessage(ChatColor.AQUA + "Historie (CHAT) für " + ChatColor.GOLD + targetName + ChatColor.AQUA + " – Seite " + page);
                 if (list.isEmpty()) {
@@ -206,7 +292,6 @@ public class ChatLogCommand implements CommandExecutor {
         String targetName = args[1];
         int page = parsePage(args, 2);
         int limit = 10;
-        int offset = (page - 1) * limit;
 
         String uuid = resolveUuidByName(targetName);
         if (uuid == null) {
@@ -220,7 +305,10 @@ public class ChatLogCommand implements CommandExecutor {
             return;
         }
 
-        dao.getCommandLogsByPlayerAsync(uuid, limit, offset).thenAccept(list -> {
+        pageCursor(sender, "cmd", uuid, page, limit, dao::seekCommandLogsByPlayerAsync)
+                .thenCompose(cursor -> dao.getCommandLogsByPlayerAsync(uuid, cursor, limit)).thenAccept(result -> {
+            cursors.put(sender.getName(), "cmd", uuid, page + 1, result.nextCursor());
+            List<CommandLog> list = result.items();
             Bukkit.getScheduler().runTask(plugin, () -> {
                 sender.sendMessage(ChatColor.AQUA + "Historie (COMMANDS) für " + ChatColor.GOLD + targetName + ChatColor.AQUA + " – Seite " + page);
                 if (list.isEmpty()) {
@@ -241,6 +329,527 @@ public class ChatLogCommand implements CommandExecutor {
         });
     }
 
+    private void handleSearch(CommandSender sender, String label, String[] args) {
+        if (args.length < 2) {
+            sender.sendMessage(ChatColor.YELLOW + "Benutzung: /" + label + " search [-p <Spieler>] [-s <Server>] [-t <Zeitraum>] <Suchbegriffe>");
+            sender.sendMessage(ChatColor.GRAY + "Beispiel: " + ChatColor.YELLOW + "/" + label + " search -p Steve -t 7d \"free diamonds\" -scam");
+            sender.sendMessage(ChatColor.GRAY + "Begriffe: " + ChatColor.WHITE + "wort" + ChatColor.GRAY + " muss vorkommen, "
+                    + ChatColor.WHITE + "-wort" + ChatColor.GRAY + " ausschließen, " + ChatColor.WHITE + "\"Satz\"" + ChatColor.GRAY + " genaue Wortfolge, "
+                    + ChatColor.WHITE + "wor*" + ChatColor.GRAY + " Wortanfang. Zeitraum z.B. 12h, 7d, 2w oder 2024-05-01.");
+            sender.sendMessage(ChatColor.GRAY + "Nächste Seite: " + ChatColor.YELLOW + "/" + label + " search next");
+            return;
+        }
+        ChatDAO dao = plugin.getChatDAO();
+        if (dao == null) {
+            sender.sendMessage(ChatColor.RED + "ChatDAO nicht verfügbar.");
+            return;
+        }
+
+        SearchState state;
+        if (args.length == 2 && args[1].equalsIgnoreCase("next")) {
+            SearchState last = searches.get(sender.getName());
+            if (last == null || last.cursor() == null) {
+                sender.sendMessage(ChatColor.GRAY + "Keine weiteren Ergebnisse. Starte eine neue Suche mit /" + label + " search.");
+                return;
+            }
+            state = last;
+        } else {
+            ChatSearch search = parseSearch(sender, args);
+            if (search == null) {
+                return;
+            }
+            if (search.isEmpty()) {
+                sender.sendMessage(ChatColor.RED + "Bitte mindestens einen Suchbegriff angeben, der vorkommen muss.");
+                return;
+            }
+            state = new SearchState(search, null, 1);
+        }
+
+        int limit = 10;
+        long started = System.nanoTime();
+        dao.searchChatMessagesAsync(state.search(), state.cursor(), limit).thenAccept(result -> {
+            long millis = (System.nanoTime() - started) / 1_000_000;
+            searches.put(sender.getName(), new SearchState(state.search(), result.nextCursor(), state.page() + 1));
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                sender.sendMessage(ChatColor.AQUA + "Suche " + ChatColor.GOLD + state.search().getText() + ChatColor.AQUA
+                        + " – Seite " + state.page() + ChatColor.DARK_GRAY + " (" + millis + " ms)");
+                if (result.items().isEmpty()) {
+                    sender.sendMessage(ChatColor.GRAY + "Keine Nachrichten gefunden.");
+                    return;
+                }
+                for (ChatMessage m : result.items()) {
+                    String ts = m.getTimestamp() != null ? m.getTimestamp().toString() : "";
+                    sender.sendMessage(ChatColor.DARK_AQUA + "[" + ts + "] " + ChatColor.GRAY + "[" + m.getServerName() + "] "
+                            + ChatColor.GOLD + m.getPlayerName() + ChatColor.GRAY + ": " + ChatColor.WHITE + trim(m.getMessageContent()));
+                }
+                if (result.hasMore()) {
+                    sender.sendMessage(ChatColor.DARK_GRAY + "— Weiter mit /" + label + " search next —");
+                } else {
+                    sender.sendMessage(ChatColor.DARK_GRAY + "— Ende der Ergebnisse —");
+                }
+            });
+        }).exceptionally(ex -> {
+            Bukkit.getScheduler().runTask(plugin, () -> sender.sendMessage(ChatColor.RED + "Fehler bei der Suche: " + ex.getMessage()));
+            return null;
+        });
+    }
+
+    private void handleWhoSaid(CommandSender sender, String label, String[] args) {
+        if (args.length < 2) {
+            sender.sendMessage(ChatColor.YELLOW + "Benutzung: /" + label + " whosaid [-s <Server>] [-t <Zeitraum>] <Suchbegriffe>");
+            sender.sendMessage(ChatColor.GRAY + "Beispiel: " + ChatColor.YELLOW + "/" + label + " whosaid -t 2h \"free diamonds\"");
+            sender.sendMessage(ChatColor.GRAY + "Begriffe wie bei /" + label + " search.");
+            return;
+        }
+        ChatDAO dao = plugin.getChatDAO();
+        if (dao == null) {
+            sender.sendMessage(ChatColor.RED + "ChatDAO nicht verfügbar.");
+            return;
+        }
+        ChatSearch search = parseSearch(sender, args);
+        if (search == null) {
+            return;
+        }
+        if (search.isEmpty()) {
+            sender.sendMessage(ChatColor.RED + "Bitte mindestens einen Suchbegriff angeben, der vorkommen muss.");
+            return;
+        }
+
+        int limit = 10;
+        long started = System.nanoTime();
+        dao.whoSaidAsync(search, limit).thenAccept(speakers -> {
+            long millis = (System.nanoTime() - started) / 1_000_000;
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                sender.sendMessage(ChatColor.AQUA + "Wer schrieb " + ChatColor.GOLD + search.getText() + ChatColor.DARK_GRAY + " (" + millis + " ms)");
+                if (speakers.isEmpty()) {
+                    sender.sendMessage(ChatColor.GRAY + "Keine Nachrichten gefunden.");
+                    return;
+                }
+                for (ChatDAO.Speaker speaker : speakers) {
+                    sender.sendMessage(ChatColor.GOLD + " " + speaker.playerName() + ChatColor.GRAY + " – " + speaker.matches()
+                            + (speaker.matches() == 1 ? " Nachricht" : " Nachrichten") + ", zuletzt "
+                            + ChatColor.DARK_AQUA + speaker.lastMatch());
+                }
+            });
+        }).exceptionally(ex -> {
+            Bukkit.getScheduler().runTask(plugin, () -> sender.sendMessage(ChatColor.RED + "Fehler bei der Suche: " + ex.getMessage()));
+            return null;
+        });
+    }
+
+    private void handleTop(CommandSender sender, String label, String[] args) {
+        ActivityDAO activity = plugin.getActivityDAO();
+        if (activity == null) {
+            sender.sendMessage(ChatColor.RED + "Aktivitäts-Rollups sind deaktiviert (performance.activity.enabled).");
+            return;
+        }
+        ActivityArgs filter = parseActivityArgs(sender, label, "top", args, LocalDate.now().atStartOfDay());
+        if (filter == null) {
+            return;
+        }
+        // Bis zu einer Woche stundengenau, darüber aus den Tageswerten (ab Mitternacht des Starttags)
+        ActivityDAO.Grain grain = filter.from().isAfter(LocalDateTime.now().minusDays(7)) ? ActivityDAO.Grain.HOUR : ActivityDAO.Grain.DAY;
+        int limit = 10;
+        activity.topPlayersAsync(filter.kind(), grain, filter.from(), filter.server(), filter.channel(), limit).thenAccept(top ->
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    sender.sendMessage(ChatColor.AQUA + (filter.kind() == ActivityDAO.Kind.CHAT ? "Aktivste Chatter" : "Meiste Commands")
+                            + ChatColor.GRAY + " seit " + ChatColor.DARK_AQUA + filter.from().withNano(0) + describeFilter(filter));
+                    if (top.isEmpty()) {
+                        sender.sendMessage(ChatColor.GRAY + "Keine Aktivität gefunden.");
+                        return;
+                    }
+                    int rank = 1;
+                    for (ActivityDAO.TopPlayer player : top) {
+                        sender.sendMessage(ChatColor.GOLD + " " + rank++ + ". " + playerName(player.playerUuid()) + ChatColor.GRAY + " – "
+                                + player.count() + (filter.kind() == ActivityDAO.Kind.CHAT ? " Nachrichten" : " Commands"));
+                    }
+                })
+        ).exceptionally(ex -> {
+            Bukkit.getScheduler().runTask(plugin, () -> sender.sendMessage(ChatColor.RED + "Fehler beim Laden der Rangliste: " + ex.getMessage()));
+            return null;
+        });
+    }
+
+    private void handleActivity(CommandSender sender, String label, String[] args) {
+        ActivityDAO activity = plugin.getActivityDAO();
+        if (activity == null) {
+            sender.sendMessage(ChatColor.RED + "Aktivitäts-Rollups sind deaktiviert (performance.activity.enabled).");
+            return;
+        }
+        ActivityArgs filter = parseActivityArgs(sender, label, "activity", args, LocalDateTime.now().minusHours(24));
+        if (filter == null) {
+            return;
+        }
+        // Bis zu zwei Tage pro Stunde, darüber pro Tag
+        ActivityDAO.Grain grain = filter.from().isAfter(LocalDateTime.now().minusDays(2)) ? ActivityDAO.Grain.HOUR : ActivityDAO.Grain.DAY;
+        activity.activityAsync(filter.kind(), grain, filter.from(), filter.server(), filter.channel(), filter.playerUuid()).thenAccept(buckets ->
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    sender.sendMessage(ChatColor.AQUA + (filter.kind() == ActivityDAO.Kind.CHAT ? "Nachrichten pro " : "Commands pro ")
+                            + (grain == ActivityDAO.Grain.HOUR ? "Stunde" : "Tag") + ChatColor.GRAY + " seit "
+                            + ChatColor.DARK_AQUA + filter.from().withNano(0) + describeFilter(filter));
+                    if (buckets.isEmpty()) {
+                        sender.sendMessage(ChatColor.GRAY + "Keine Aktivität gefunden.");
+                        return;
+                    }
+                    // Eine Zeile je Zeitraum: Summe, dann die größten Kanäle (Chat) bzw. Server (Commands)
+                    Map<LocalDateTime, List<ActivityDAO.Bucket>> byStart = new LinkedHashMap<>();
+                    for (ActivityDAO.Bucket bucket : buckets) {
+                        byStart.computeIfAbsent(bucket.start(), k -> new ArrayList<>()).add(bucket);
+                    }
+                    for (Map.Entry<LocalDateTime, List<ActivityDAO.Bucket>> e : byStart.entrySet()) {
+                        long total = e.getValue().stream().mapToLong(ActivityDAO.Bucket::count).sum();
+                        String groups = e.getValue().stream().limit(3)
+                                .map(b -> b.group() + " " + b.count())
+                                .collect(Collectors.joining(", "));
+                        String start = grain == ActivityDAO.Grain.HOUR ? e.getKey().toString() : e.getKey().toLocalDate().toString();
+                        sender.sendMessage(ChatColor.DARK_AQUA + " [" + start + "] " + ChatColor.GOLD + total
+                                + ChatColor.GRAY + " – " + groups + (e.getValue().size() > 3 ? ", ..." : ""));
+                    }
+                })
+        ).exceptionally(ex -> {
+            Bukkit.getScheduler().runTask(plugin, () -> sender.sendMessage(ChatColor.RED + "Fehler beim Laden der Aktivität: " + ex.getMessage()));
+            return null;
+        });
+    }
+
+    private void handleExport(CommandSender sender, String label, String[] args) {
+        Exporter exporter = plugin.getExporter();
+        if (exporter == null) {
+            sender.sendMessage(ChatColor.RED + "Export nicht verfügbar (Datenbank nicht initialisiert).");
+            return;
+        }
+        String usage = ChatColor.YELLOW + "Benutzung: /" + label + " export player <Spieler> <ndjson|csv> [-t <Zeitraum>]"
+                + ChatColor.GRAY + " | " + ChatColor.YELLOW + "server <Server> <ndjson|csv> [-t <Zeitraum>]"
+                + ChatColor.GRAY + " | " + ChatColor.YELLOW + "range <Von> <Bis|now> <ndjson|csv>";
+        String scope = args.length > 1 ? args[1].toLowerCase(Locale.ROOT) : "";
+        boolean range = scope.equals("range");
+        if (!(scope.equals("player") || scope.equals("server") || range) || args.length < (range ? 5 : 4)) {
+            sender.sendMessage(usage);
+            return;
+        }
+        ExportFormat format = ExportFormat.fromName(args[range ? 4 : 3]);
+        if (format == null) {
+            sender.sendMessage(ChatColor.RED + "Unbekanntes Format: " + args[range ? 4 : 3] + " (ndjson oder csv)");
+            return;
+        }
+
+        String playerUuid = null;
+        String server = null;
+        LocalDateTime from = null;
+        LocalDateTime to = null;
+        String name;
+        if (range) {
+            // Von/Bis: relativ (7d) oder Datum; Bis ist exklusiv
+            from = parseSince(args[2]);
+            to = args[3].equalsIgnoreCase("now") ? null : parseSince(args[3]);
+            if (from == null || (to == null && !args[3].equalsIgnoreCase("now"))) {
+                sender.sendMessage(ChatColor.RED + "Ungültiger Zeitraum: " + args[2] + " " + args[3] + " (z.B. 7d now oder 2024-05-01 2024-06-01)");
+                return;
+            }
+            name = "range-" + from.toLocalDate();
+        } else {
+            if (scope.equals("player")) {
+                playerUuid = resolveUuidByName(args[2]);
+                if (playerUuid == null) {
+                    sender.sendMessage(ChatColor.RED + "Spieler nicht gefunden: " + args[2]);
+                    return;
+                }
+            } else {
+                server = args[2];
+            }
+            if (args.length == 6 && args[4].equals("-t")) {
+                from = parseSince(args[5]);
+                if (from == null) {
+                    sender.sendMessage(ChatColor.RED + "Ungültiger Zeitraum: " + args[5] + " (z.B. 12h, 7d, 2w oder 2024-05-01)");
+                    return;
+                }
+            } else if (args.length != 4) {
+                sender.sendMessage(usage);
+                return;
+            }
+            name = scope + "-" + args[2];
+        }
+        // Nur Zeichen, die in jedem Dateisystem gültig sind
+        name = name.replaceAll("[^A-Za-z0-9_.-]", "_");
+
+        Exporter.Request request = new Exporter.Request(name, new ChatDAO.StreamFilter(playerUuid, server, from, to), format);
+        boolean started = exporter.start(request, new Exporter.Listener() {
+            @Override
+            public void progress(long rows, long bytes) {
+                Bukkit.getScheduler().runTask(plugin, () -> sender.sendMessage(ChatColor.GRAY + "Export läuft: "
+                        + rows + " Zeilen, " + (bytes / 1024) + " KiB geschrieben"));
+            }
+
+            @Override
+            public void completed(List<Path> files, long rows, long bytes, long millis) {
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    sender.sendMessage(ChatColor.GREEN + "Export fertig: " + rows + " Zeilen, " + (bytes / 1024) + " KiB in "
+                            + String.format(Locale.ROOT, "%.1f", millis / 1000.0) + "s");
+                    for (Path file : files) {
+                        sender.sendMessage(ChatColor.GRAY + " - exports/" + file.getFileName());
+                    }
+                });
+            }
+
+            @Override
+            public void failed(Exception error) {
+                Bukkit.getScheduler().runTask(plugin, () -> sender.sendMessage(ChatColor.RED + "Export fehlgeschlagen: " + error.getMessage()));
+            }
+        });
+        if (!started) {
+            sender.sendMessage(ChatColor.RED + "Es läuft bereits ein Export. Bitte warte, bis er fertig ist.");
+            return;
+        }
+        sender.sendMessage(ChatColor.AQUA + "Export gestartet (" + format.getExtension() + ", gzip) – Fortschritt folgt.");
+    }
+
+    private void handleDeadLetter(CommandSender sender) {
+        WriteBehindQueue queue = plugin.getWriteQueue();
+        if (queue == null) {
+            sender.sendMessage(ChatColor.RED + "Write-Queue nicht verfügbar (Datenbank nicht initialisiert).");
+            return;
+        }
+        // Dateizugriff nicht auf dem Main-Thread
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            String result;
+            try {
+                int requeued = queue.requeueDeadLetters();
+                result = requeued > 0
+                        ? ChatColor.GREEN + "" + requeued + " abgelehnte Events erneut in den Spool gelegt; sie werden jetzt wieder eingespielt."
+                        : ChatColor.GRAY + "Keine abgelehnten Events im Dead-Letter-Spool.";
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "Failed to requeue dead-lettered events", e);
+                result = ChatColor.RED + "Dead-Letter-Datei konnte nicht eingelesen werden: " + e.getMessage();
+            }
+            String message = result;
+            Bukkit.getScheduler().runTask(plugin, () -> sender.sendMessage(message));
+        });
+    }
+
+    private void handleImport(CommandSender sender, String label, String[] args) {
+        Importer importer = plugin.getImporter();
+        if (importer == null) {
+            sender.sendMessage(ChatColor.RED + "Import nicht verfügbar (Datenbank nicht initialisiert).");
+            return;
+        }
+        if (args.length != 2) {
+            sender.sendMessage(ChatColor.YELLOW + "Benutzung: /" + label + " import <Datei>");
+            sender.sendMessage(ChatColor.GRAY + "Dateien aus imports/ oder exports/ (.ndjson, .csv, auch .gz)");
+            return;
+        }
+        Path file = resolveImportFile(args[1]);
+        if (file == null) {
+            sender.sendMessage(ChatColor.RED + "Datei nicht gefunden: " + args[1] + " (in imports/ oder exports/)");
+            return;
+        }
+        boolean started = importer.start(file, new Importer.Listener() {
+            @Override
+            public void progress(long rows, long inserted) {
+                Bukkit.getScheduler().runTask(plugin, () -> sender.sendMessage(ChatColor.GRAY + "Import läuft: "
+                        + rows + " Zeilen gelesen, " + inserted + " neu"));
+            }
+
+            @Override
+            public void completed(Path file, long rows, long inserted, long rejected, long millis) {
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    sender.sendMessage(ChatColor.GREEN + "Import fertig: " + rows + " Zeilen, " + inserted + " neu, "
+                            + (rows - inserted - rejected) + " bereits vorhanden in "
+                            + String.format(Locale.ROOT, "%.1f", millis / 1000.0) + "s");
+                    if (rejected > 0) {
+                        sender.sendMessage(ChatColor.YELLOW + " - " + rejected + " fehlerhafte Zeilen übersprungen (siehe Log)");
+                    }
+                });
+            }
+
+            @Override
+            public void failed(Path file, Exception error) {
+                Bukkit.getScheduler().runTask(plugin, () -> sender.sendMessage(ChatColor.RED + "Import fehlgeschlagen: "
+                        + error.getMessage() + ChatColor.GRAY + " (erneut starten überspringt bereits geladene Zeilen)"));
+            }
+        });
+        if (!started) {
+            sender.sendMessage(ChatColor.RED + "Es läuft bereits ein Import. Bitte warte, bis er fertig ist.");
+            return;
+        }
+        sender.sendMessage(ChatColor.AQUA + "Import von " + file.getFileName() + " gestartet – Fortschritt folgt.");
+    }
+
+    // Nur Dateinamen direkt in imports/ oder exports/, keine Pfade
+    private Path resolveImportFile(String name) {
+        if (name.contains("/") || name.contains("\\") || name.startsWith(".") || !Importer.isImportable(Path.of(name))) {
+            return null;
+        }
+        for (String directory : new String[]{"imports", "exports"}) {
+            Path file = plugin.getDataFolder().toPath().resolve(directory).resolve(name);
+            if (Files.isRegularFile(file)) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Liest [chat|cmd] und die Filter -p, -s, -c, -t für top/activity; null bei ungültiger Eingabe (Meldung ist raus)
+     */
+    private ActivityArgs parseActivityArgs(CommandSender sender, String label, String sub, String[] args, LocalDateTime defaultFrom) {
+        ActivityDAO.Kind kind = ActivityDAO.Kind.CHAT;
+        String playerUuid = null;
+        String server = null;
+        String channel = null;
+        LocalDateTime from = defaultFrom;
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i].toLowerCase(Locale.ROOT);
+            if (arg.equals("chat") || arg.equals("cmd")) {
+                kind = arg.equals("chat") ? ActivityDAO.Kind.CHAT : ActivityDAO.Kind.COMMANDS;
+                continue;
+            }
+            boolean flag = (arg.equals("-s") || arg.equals("-c") || arg.equals("-t") || (arg.equals("-p") && sub.equals("activity")))
+                    && i + 1 < args.length;
+            if (!flag) {
+                sender.sendMessage(ChatColor.YELLOW + "Benutzung: /" + label + " " + sub + " [chat|cmd]"
+                        + (sub.equals("activity") ? " [-p <Spieler>]" : "") + " [-s <Server>] [-c <Kanal>] [-t <Zeitraum>]");
+                return null;
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "-p" -> {
+                    playerUuid = resolveUuidByName(value);
+                    if (playerUuid == null) {
+                        sender.sendMessage(ChatColor.RED + "Spieler nicht gefunden: " + value);
+                        return null;
+                    }
+                }
+                case "-s" -> server = value;
+                case "-c" -> channel = value;
+                default -> {
+                    from = parseSince(value);
+                    if (from == null) {
+                        sender.sendMessage(ChatColor.RED + "Ungültiger Zeitraum: " + value + " (z.B. 12h, 7d, 2w oder 2024-05-01)");
+                        return null;
+                    }
+                }
+            }
+        }
+        return new ActivityArgs(kind, playerUuid, server, channel, from);
+    }
+
+    private String describeFilter(ActivityArgs filter) {
+        StringBuilder sb = new StringBuilder();
+        if (filter.playerUuid() != null) {
+            sb.append(ChatColor.GRAY).append(", Spieler ").append(ChatColor.GOLD).append(playerName(filter.playerUuid()));
+        }
+        if (filter.server() != null) {
+            sb.append(ChatColor.GRAY).append(", Server ").append(ChatColor.WHITE).append(filter.server());
+        }
+        if (filter.channel() != null && filter.kind() == ActivityDAO.Kind.CHAT) {
+            sb.append(ChatColor.GRAY).append(", Kanal ").append(ChatColor.WHITE).append(filter.channel());
+        }
+        return sb.toString();
+    }
+
+    // Name aus dem Spielerverzeichnis, sonst die UUID
+    private String playerName(String uuid) {
+        PlayerDirectory directory = plugin.getPlayerDirectory();
+        PlayerDirectory.Entry entry = directory != null ? directory.get(uuid) : null;
+        return entry != null ? entry.getName() : uuid;
+    }
+
+    /**
+     * Liest Filter (-p Spieler, -s Server, -t Zeitraum) und Suchbegriffe; null bei ungültiger Eingabe (Meldung ist raus)
+     */
+    private ChatSearch parseSearch(CommandSender sender, String[] args) {
+        String playerUuid = null;
+        String server = null;
+        LocalDateTime from = null;
+        StringBuilder text = new StringBuilder();
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            boolean flag = (arg.equals("-p") || arg.equals("-s") || arg.equals("-t")) && i + 1 < args.length;
+            if (!flag) {
+                text.append(text.length() > 0 ? " " : "").append(arg);
+                continue;
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "-p" -> {
+                    playerUuid = resolveUuidByName(value);
+                    if (playerUuid == null) {
+                        sender.sendMessage(ChatColor.RED + "Spieler nicht gefunden: " + value);
+                        return null;
+                    }
+                }
+                case "-s" -> server = value;
+                default -> {
+                    from = parseSince(value);
+                    if (from == null) {
+                        sender.sendMessage(ChatColor.RED + "Ungültiger Zeitraum: " + value + " (z.B. 12h, 7d, 2w oder 2024-05-01)");
+                        return null;
+                    }
+                }
+            }
+        }
+        return new ChatSearch.Builder(text.toString())
+                .player(playerUuid)
+                .server(server)
+                .between(from, null)
+                .build();
+    }
+
+    // Zeitraum relativ zu jetzt (30m, 12h, 7d, 2w) oder ab einem Datum (2024-05-01)
+    private static LocalDateTime parseSince(String value) {
+        String v = value.toLowerCase(Locale.ROOT);
+        try {
+            if (v.length() > 1 && Character.isDigit(v.charAt(0))) {
+                char unit = v.charAt(v.length() - 1);
+                long amount = Long.parseLong(v.substring(0, v.length() - 1));
+                LocalDateTime now = LocalDateTime.now();
+                switch (unit) {
+                    case 'm': return now.minusMinutes(amount);
+                    case 'h': return now.minusHours(amount);
+                    case 'd': return now.minusDays(amount);
+                    case 'w': return now.minusWeeks(amount);
+                    default: break;
+                }
+            }
+        } catch (NumberFormatException ignored) {
+            // kein relativer Zeitraum, evtl. ein Datum
+        }
+        try {
+            return LocalDate.parse(v).atStartOfDay();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Seek zum Cursor einer Seite ab einer bekannten Seitengrenze (null/0: ab dem neuesten Eintrag)
+     */
+    @FunctionalInterface
+    private interface PageSeek {
+        CompletableFuture<String> seek(String uuid, String from, int fromRow, int offset);
+    }
+
+    /**
+     * Cursor einer Seite: aus dem Cache, wenn die Seite schon bekannt ist, sonst per Index-Seek ab der
+     * nächstgelegenen bekannten Seite davor, damit nur die Einträge dazwischen übersprungen werden
+     */
+    private CompletableFuture<String> pageCursor(CommandSender sender, String kind, String uuid, int page, int limit,
+                                                 PageSeek seek) {
+        if (page <= 1) {
+            return CompletableFuture.completedFuture(null);
+        }
+        HistoryCursorCache.Boundary known = cursors.floor(sender.getName(), kind, uuid, page);
+        if (known != null && known.page() == page) {
+            return CompletableFuture.completedFuture(known.cursor());
+        }
+        String from = known != null ? known.cursor() : null;
+        int fromRow = known != null ? (known.page() - 1) * limit : 0;
+        return seek.seek(uuid, from, fromRow, (page - 1) * limit).thenApply(cursor -> {
+            cursors.put(sender.getName(), kind, uuid, page, cursor);
+            return cursor;
+        });
+    }
+
     private void printHelp(CommandSender sender, String label) {
         String version = plugin.getDescription().getVersion();
         sender.sendMessage(ChatColor.AQUA + "==== ChatLog Hilfe " + (version.isEmpty() ? "" : ("v" + version + " ")) + "====");
@@ -287,6 +896,13 @@ public class ChatLogCommand implements CommandExecutor {
         m.put("history", "Zeigt Chat- und Command-Historie eines Spielers. Nutzung: /%s history <Spieler> [Seite]");
         m.put("historychat", "Zeigt nur Chat-Historie eines Spielers. Nutzung: /%s historychat <Spieler> [Seite]");
         m.put("historycmd", "Zeigt nur Command-Historie eines Spielers. Nutzung: /%s historycmd <Spieler> [Seite]");
+        m.put("search", "Durchsucht alle Chat-Nachrichten. Nutzung: /%s search [-p <Spieler>] [-s <Server>] [-t <Zeitraum>] <Begriffe>");
+        m.put("whosaid", "Zeigt, welche Spieler etwas geschrieben haben. Nutzung: /%s whosaid [-s <Server>] [-t <Zeitraum>] <Begriffe>");
+        m.put("top", "Zeigt die aktivsten Spieler (Standard: heute). Nutzung: /%s top [chat|cmd] [-s <Server>] [-c <Kanal>] [-t <Zeitraum>]");
+        m.put("activity", "Zeigt Nachrichten/Commands pro Stunde oder Tag. Nutzung: /%s activity [chat|cmd] [-p <Spieler>] [-s <Server>] [-c <Kanal>] [-t <Zeitraum>]");
+        m.put("import", "Lädt eine Exportdatei aus imports/ oder exports/ (Duplikate werden übersprungen). Nutzung: /%s import <Datei>");
+        m.put("deadletter", "Spielt vom Datenbankserver abgelehnte Events aus dem Spool erneut ein (nach Behebung der Ursache).");
+        m.put("export", "Exportiert Chat und Commands gzip-komprimiert nach exports/. Nutzung: /%s export <player|server|range> ... <ndjson|csv>");
         return Collections.unmodifiableMap(m);
     }
 
@@ -320,20 +936,23 @@ public class ChatLogCommand implements CommandExecutor {
         // 1) Online players (fast path)
         Player online = plugin.getServer().getPlayerExact(name);
         if (online != null) return online.getUniqueId().toString();
-        
-        // 2) Spigot: search known offline players by exact name (case-insensitive)
-        try {
-            for (OfflinePlayer off : plugin.getServer().getOfflinePlayers()) {
-                if (off != null && off.getName() != null && off.getName().equalsIgnoreCase(name)) {
-                    UUID id = off.getUniqueId();
-                    if (id != null) return id.toString();
-                }
-            }
-        } catch (Throwable ignored) { }
-
-        // 3) Intentionally avoid Bukkit#getOfflinePlayer(String) because it is deprecated and may perform
-        //    blocking lookups and unreliable name-based resolution. If nothing was found above, return null.
 
+        // 2) Spielerverzeichnis im Speicher: alle je geloggten Spieler, auch frühere Namen (O(Namenslänge))
+        PlayerDirectory directory = plugin.getPlayerDirectory();
+        String uuid = directory != null ? directory.resolve(name) : null;
+        if (uuid != null) return uuid;
+
+        // 3) Solange das Verzeichnis noch aus den alten Logs befüllt wird: bekannte Offline-Spieler (exakter Name)
+        if (plugin.getDatabaseManager() == null || !plugin.getDatabaseManager().isPlayersBackfilled()) {
+            try {
+                for (OfflinePlayer off : plugin.getServer().getOfflinePlayers()) {
+                    if (off != null && off.getName() != null && off.getName().equalsIgnoreCase(name)) {
+                        UUID id = off.getUniqueId();
+                        if (id != null) return id.toString();
+                    }
+                }
+            } catch (Throwable ignored) { }
+        }
         return null;
     }
 
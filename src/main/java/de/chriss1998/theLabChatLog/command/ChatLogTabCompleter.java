@@ -1,25 +1,40 @@
 package de.chriss1998.theLabChatLog.command;
 
 import de.chriss1998.theLabChatLog.TheLabChatLog;
+import de.chriss1998.theLabChatLog.directory.PlayerDirectory;
+import de.chriss1998.theLabChatLog.export.Importer;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 public class ChatLogTabCompleter implements TabCompleter {
 
     private static final List<String> SUBS = Arrays.asList(
             "help", "reload", "stats", "test", "countme",
-            "history", "historychat", "historycmd"
+            "history", "historychat", "historycmd", "search", "whosaid",
+            "top", "activity", "export", "import", "deadletter"
     );
 
+    private static final List<String> SEARCH_FLAGS = Arrays.asList("-p", "-s", "-t", "next");
+
+    private static final List<String> ACTIVITY_ARGS = Arrays.asList("chat", "cmd", "-p", "-s", "-c", "-t");
+
+    private static final List<String> EXPORT_SCOPES = Arrays.asList("player", "server", "range");
+
+    private static final List<String> EXPORT_FORMATS = Arrays.asList("ndjson", "csv");
+
+    private static final int MAX_PLAYER_SUGGESTIONS = 50;
+
     private final TheLabChatLog plugin;
 
     public ChatLogTabCompleter(TheLabChatLog plugin) {
@@ -28,7 +43,8 @@ public class ChatLogTabCompleter implements TabCompleter {
 
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
-        if (!sender.hasPermission("thelab.chatlog.admin")) {
+        boolean admin = sender.hasPermission("thelab.chatlog.admin");
+        if (!admin && !sender.hasPermission("thelab.chatlog.export")) {
             return Collections.emptyList();
         }
         if (!"chatlog".equalsIgnoreCase(command.getName())) {
@@ -37,23 +53,80 @@ public class ChatLogTabCompleter implements TabCompleter {
 
         if (args.length == 1) {
             String prefix = args[0].toLowerCase(Locale.ROOT);
+            // Ohne Admin-Recht nur export
             return SUBS.stream()
                     .filter(s -> s.startsWith(prefix))
+                    .filter(s -> admin || s.equals("export"))
                     .sorted()
                     .collect(Collectors.toList());
         }
 
         String sub = args[0].toLowerCase(Locale.ROOT);
 
+        if (sub.equals("search") || sub.equals("whosaid")) {
+            String current = args[args.length - 1];
+            // Spieler nach -p, Filter und "next" am Wortanfang
+            if (args.length > 2 && args[args.length - 2].equals("-p")) {
+                return suggestPlayers(current);
+            }
+            if (current.isEmpty() || current.startsWith("-") || (args.length == 2 && "next".startsWith(current.toLowerCase(Locale.ROOT)))) {
+                return SEARCH_FLAGS.stream()
+                        .filter(f -> f.startsWith(current.toLowerCase(Locale.ROOT)))
+                        .filter(f -> (args.length == 2 && sub.equals("search")) || !f.equals("next"))
+                        .collect(Collectors.toList());
+            }
+            return Collections.emptyList();
+        }
+
+        if (sub.equals("top") || sub.equals("activity")) {
+            String current = args[args.length - 1];
+            if (args.length > 2 && args[args.length - 2].equals("-p")) {
+                return suggestPlayers(current);
+            }
+            if (args.length > 2 && args[args.length - 2].startsWith("-")) {
+                return Collections.emptyList();
+            }
+            // -p nur bei activity
+            return ACTIVITY_ARGS.stream()
+                    .filter(a -> a.startsWith(current.toLowerCase(Locale.ROOT)))
+                    .filter(a -> sub.equals("activity") || !a.equals("-p"))
+                    .collect(Collectors.toList());
+        }
+
+        if (sub.equals("export")) {
+            String current = args[args.length - 1].toLowerCase(Locale.ROOT);
+            if (args.length == 2) {
+                return EXPORT_SCOPES.stream().filter(s -> s.startsWith(current)).collect(Collectors.toList());
+            }
+            String scope = args[1].toLowerCase(Locale.ROOT);
+            if (args.length == 3 && scope.equals("player")) {
+                return suggestPlayers(args[2]);
+            }
+            if (args.length == 4 && scope.equals("range")) {
+                return "now".startsWith(current) ? Collections.singletonList("now") : Collections.emptyList();
+            }
+            // Format nach Spieler/Server bzw. nach Von/Bis, danach optional -t
+            if (args.length == (scope.equals("range") ? 5 : 4)) {
+                return EXPORT_FORMATS.stream().filter(f -> f.startsWith(current)).collect(Collectors.toList());
+            }
+            if (args.length == 5 && !scope.equals("range")) {
+                return "-t".startsWith(current) ? Collections.singletonList("-t") : Collections.emptyList();
+            }
+            return Collections.emptyList();
+        }
+
+        if (!admin) {
+            return Collections.emptyList();
+        }
+
+        if (sub.equals("import")) {
+            return args.length == 2 ? suggestImportFiles(args[1]) : Collections.emptyList();
+        }
+
         if (args.length == 2) {
             // Spieler-Vorschläge für history/historychat/historycmd
             if (sub.equals("history") || sub.equals("historychat") || sub.equals("historycmd")) {
-                String prefix = args[1].toLowerCase(Locale.ROOT);
-                return Bukkit.getOnlinePlayers().stream()
-                        .map(p -> p.getName())
-                        .filter(name -> name != null && name.toLowerCase(Locale.ROOT).startsWith(prefix))
-                        .sorted()
-                        .collect(Collectors.toList());
+                return suggestPlayers(args[1]);
             }
             return Collections.emptyList();
         }
@@ -73,4 +146,36 @@ public class ChatLogTabCompleter implements TabCompleter {
 
         return Collections.emptyList();
     }
+
+    // Importierbare Dateien aus imports/ und exports/
+    private List<String> suggestImportFiles(String input) {
+        TreeSet<String> names = new TreeSet<>();
+        for (String directory : new String[]{"imports", "exports"}) {
+            File[] files = new File(plugin.getDataFolder(), directory).listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                if (file.isFile() && file.getName().startsWith(input) && Importer.isImportable(file.toPath())) {
+                    names.add(file.getName());
+                }
+            }
+        }
+        return names.stream().limit(MAX_PLAYER_SUGGESTIONS).collect(Collectors.toList());
+    }
+
+    private List<String> suggestPlayers(String input) {
+        String prefix = input.toLowerCase(Locale.ROOT);
+        TreeSet<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        Bukkit.getOnlinePlayers().stream()
+                .map(p -> p.getName())
+                .filter(name -> name != null && name.toLowerCase(Locale.ROOT).startsWith(prefix))
+                .forEach(names::add);
+        // Offline-Spieler aus dem Verzeichnis (Präfix-Trie im Speicher, blockiert den Tick nicht)
+        PlayerDirectory directory = plugin.getPlayerDirectory();
+        if (directory != null) {
+            names.addAll(directory.complete(prefix, MAX_PLAYER_SUGGESTIONS));
+        }
+        return names.stream().limit(MAX_PLAYER_SUGGESTIONS).collect(Collectors.toList());
+    }
 }
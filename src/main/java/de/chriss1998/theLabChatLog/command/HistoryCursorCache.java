@@ -0,0 +1,58 @@
+package de.chriss1998.theLabChatLog.command;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merkt sich pro Betrachter, Historien-Art und Spieler die Cursor der als Nächstes abrufbaren Seiten.
+ * Wer Seite für Seite blättert, bekommt die nächste Seite so direkt per Keyset statt über einen Seek;
+ * ein Seitensprung beginnt an der nächstgelegenen bekannten Seitengrenze davor.
+ */
+final class HistoryCursorCache {
+
+    private static final int MAX_ENTRIES = 512;
+    private static final long TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private record Entry(int page, String cursor, long createdAt) {}
+
+    /**
+     * Bekannte Seite und der Cursor, mit dem sie beginnt
+     */
+    record Boundary(int page, String cursor) {}
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Die höchste bekannte Seite bis einschließlich {@code page}, oder null
+     */
+    synchronized Boundary floor(String viewer, String kind, String target, int page) {
+        String prefix = key(viewer, kind, target, 0);
+        prefix = prefix.substring(0, prefix.length() - 1);
+        long now = System.currentTimeMillis();
+        Entry best = null;
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            Entry entry = e.getValue();
+            if (entry.page() <= page && (best == null || entry.page() > best.page())
+                    && now - entry.createdAt() <= TTL_MILLIS && e.getKey().startsWith(prefix)) {
+                best = entry;
+            }
+        }
+        return best != null ? new Boundary(best.page(), best.cursor()) : null;
+    }
+
+    synchronized void put(String viewer, String kind, String target, int page, String cursor) {
+        if (cursor != null) {
+            entries.put(key(viewer, kind, target, page), new Entry(page, cursor, System.currentTimeMillis()));
+        }
+    }
+
+    private static String key(String viewer, String kind, String target, int page) {
+        return viewer + '|' + kind + '|' + target + '|' + page;
+    }
+}
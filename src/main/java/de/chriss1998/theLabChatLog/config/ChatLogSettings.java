@@ -0,0 +1,107 @@
+package de.chriss1998.theLabChatLog.config;
+
+import de.chriss1998.theLabChatLog.filter.CommandRedactor;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.entity.Player;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Immutable snapshot of the chat logging configuration, compiled once per (re)load.
+ * Listeners read it through a single volatile reference on the plugin, so a reload is atomic
+ * and the per-event exclusion and channel checks are hash lookups.
+ */
+public final class ChatLogSettings {
+
+    private final String serverName;
+    private final boolean enabled;
+    private final boolean logChat;
+    private final boolean logPrivateMessages;
+    private final boolean logCommands;
+    private final boolean logSystemMessages;
+    private final boolean logJoinLeave;
+    private final boolean logDeathMessages;
+    private final boolean logAchievements;
+    private final boolean logBroadcasts;
+    private final boolean filterSensitiveData;
+    private final CommandRedactor commandRedactor;
+    private final int maxMessageLength;
+    private final Set<String> enabledChannels;   // empty = all channels
+    private final Set<UUID> excludedUuids;
+    private final Set<String> excludedNames;     // lower case
+    private final boolean debug;
+
+    private ChatLogSettings(FileConfiguration config) {
+        this.serverName = config.getString("server.name", "Unknown");
+        this.enabled = config.getBoolean("chat_logging.enabled", true);
+        this.logChat = config.getBoolean("chat_logging.log_types.chat", true);
+        this.logPrivateMessages = config.getBoolean("chat_logging.log_types.private_messages", true);
+        this.logCommands = config.getBoolean("chat_logging.log_types.commands", false);
+        this.logSystemMessages = config.getBoolean("chat_logging.log_types.system_messages", true);
+        this.logJoinLeave = config.getBoolean("chat_logging.log_types.join_leave", true);
+        this.logDeathMessages = config.getBoolean("chat_logging.log_types.death_messages", true);
+        this.logAchievements = config.getBoolean("chat_logging.log_types.achievements", true);
+        this.logBroadcasts = config.getBoolean("chat_logging.log_types.broadcasts", true);
+        this.filterSensitiveData = config.getBoolean("chat_logging.filter_sensitive_data", true);
+        this.commandRedactor = CommandRedactor.compile(config);
+        this.maxMessageLength = Math.max(3, config.getInt("chat_logging.max_message_length", 1000));
+        this.enabledChannels = Set.copyOf(config.getStringList("chat_logging.channels"));
+
+        // Entries may be UUIDs or player names
+        Set<UUID> uuids = new HashSet<>();
+        Set<String> names = new HashSet<>();
+        for (String entry : config.getStringList("chat_logging.excluded_players")) {
+            String trimmed = entry.trim();
+            try {
+                uuids.add(UUID.fromString(trimmed));
+            } catch (IllegalArgumentException e) {
+                names.add(trimmed.toLowerCase(Locale.ROOT));
+            }
+        }
+        this.excludedUuids = Set.copyOf(uuids);
+        this.excludedNames = Set.copyOf(names);
+        this.debug = config.getBoolean("debug.enabled", false);
+    }
+
+    /**
+     * Compile the current configuration into a new snapshot
+     */
+    public static ChatLogSettings compile(FileConfiguration config) {
+        return new ChatLogSettings(config);
+    }
+
+    public boolean isPlayerExcluded(Player player) {
+        if (excludedUuids.contains(player.getUniqueId())) {
+            return true;
+        }
+        return !excludedNames.isEmpty() && excludedNames.contains(player.getName().toLowerCase(Locale.ROOT));
+    }
+
+    public boolean isChannelEnabled(String channel) {
+        return enabledChannels.isEmpty() || enabledChannels.contains(channel);
+    }
+
+    /**
+     * Apply the sensitive command rules if filtering is enabled
+     */
+    public String redactCommand(String command) {
+        return filterSensitiveData ? commandRedactor.redact(command) : command;
+    }
+
+    public String getServerName() { return serverName; }
+    public boolean isEnabled() { return enabled; }
+    public boolean isLogChat() { return logChat; }
+    public boolean isLogPrivateMessages() { return logPrivateMessages; }
+    public boolean isLogCommands() { return logCommands; }
+    public boolean isLogSystemMessages() { return logSystemMessages; }
+    public boolean isLogJoinLeave() { return logJoinLeave; }
+    public boolean isLogDeathMessages() { return logDeathMessages; }
+    public boolean isLogAchievements() { return logAchievements; }
+    public boolean isLogBroadcasts() { return logBroadcasts; }
+    public boolean isFilterSensitiveData() { return filterSensitiveData; }
+    public int getMaxMessageLength() { return maxMessageLength; }
+    public boolean isDebug() { return debug; }
+}
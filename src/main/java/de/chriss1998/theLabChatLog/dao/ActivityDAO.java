@@ -0,0 +1,390 @@
+package de.chriss1998.theLabChatLog.dao;
+
+import de.chriss1998.theLabChatLog.database.BulkInsert;
+import de.chriss1998.theLabChatLog.database.DatabaseManager;
+import de.chriss1998.theLabChatLog.database.UuidCodec;
+import de.chriss1998.theLabChatLog.model.ChatMessage;
+import de.chriss1998.theLabChatLog.model.CommandLog;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hourly and daily activity rollups: message counts per server, channel, type and player, and command counts
+ * per server, source and player.
+ * <p>
+ * Written rows are added to in-memory deltas per hour; {@link #flush(boolean)} adds them to the hourly and
+ * daily tables with one upsert per key, so a busy hour costs a handful of row updates instead of one per
+ * message. Deltas not flushed when the process dies are lost; the queries here read only the rollups and lag
+ * behind the log by at most the flush interval.
+ */
+public final class ActivityDAO {
+
+    /**
+     * Which rollup the queries read
+     */
+    public enum Kind { CHAT, COMMANDS }
+
+    /**
+     * Bucket size; hourly rows are kept for {@code retention.hourly_activity_days}, daily rows forever
+     */
+    public enum Grain {
+        HOUR("hourly"), DAY("daily");
+
+        private final String suffix;
+
+        Grain(String suffix) {
+            this.suffix = suffix;
+        }
+    }
+
+    /**
+     * Player and the number of messages or commands in the queried range
+     */
+    public record TopPlayer(String playerUuid, long count) {}
+
+    /**
+     * Messages of one channel or commands of one server within one bucket
+     */
+    public record Bucket(LocalDateTime start, String group, long count) {}
+
+    // Command rows of console, RCON and command blocks are keyed by this player
+    public static final String NO_PLAYER = "00000000-0000-0000-0000-000000000000";
+
+    // Message types written by players themselves; joins, deaths etc. are not chat activity
+    private static final String SPOKEN_TYPES = "message_type IN ('CHAT', 'PRIVATE')";
+
+    private static final String CHAT_HOURLY = "chat_activity_hourly";
+    private static final String CHAT_DAILY = "chat_activity_daily";
+    private static final String COMMAND_HOURLY = "command_activity_hourly";
+    private static final String COMMAND_DAILY = "command_activity_daily";
+
+    private static final String UPSERT_CHAT_PREFIX = """
+        INSERT INTO `{table}` (bucket, server_name, channel, message_type, player_uuid, messages) VALUES\s""";
+    private static final String UPSERT_CHAT_SUFFIX = " ON DUPLICATE KEY UPDATE messages = messages + VALUES(messages)";
+
+    private static final String UPSERT_COMMAND_PREFIX = """
+        INSERT INTO `{table}` (bucket, server_name, source_type, player_uuid, commands) VALUES\s""";
+    private static final String UPSERT_COMMAND_SUFFIX = " ON DUPLICATE KEY UPDATE commands = commands + VALUES(commands)";
+
+    private static final String SELECT_TOP_CHAT = """
+        SELECT player_uuid, SUM(messages) AS total
+        FROM `chat_activity_{grain}`
+        WHERE bucket >= ? AND {spoken}{filters}
+        GROUP BY player_uuid
+        ORDER BY total DESC
+        LIMIT ?
+        """;
+
+    private static final String SELECT_TOP_COMMANDS = """
+        SELECT player_uuid, SUM(commands) AS total
+        FROM `command_activity_{grain}`
+        WHERE bucket >= ? AND player_uuid <> ?{filters}
+        GROUP BY player_uuid
+        ORDER BY total DESC
+        LIMIT ?
+        """;
+
+    private static final String SELECT_CHAT_BUCKETS = """
+        SELECT bucket, channel AS grp, SUM(messages) AS total
+        FROM `chat_activity_{grain}`
+        WHERE bucket >= ? AND {spoken}{filters}
+        GROUP BY bucket, channel
+        ORDER BY bucket, total DESC
+        """;
+
+    private static final String SELECT_COMMAND_BUCKETS = """
+        SELECT bucket, server_name AS grp, SUM(commands) AS total
+        FROM `command_activity_{grain}`
+        WHERE bucket >= ?{filters}
+        GROUP BY bucket, server_name
+        ORDER BY bucket, total DESC
+        """;
+
+    private record ChatKey(LocalDateTime bucket, String serverName, String channel, ChatMessage.MessageType type,
+                           String playerUuid) {}
+
+    private record CommandKey(LocalDateTime bucket, String serverName, CommandLog.SourceType source, String playerUuid) {}
+
+    // Upserts in key order, so concurrent flushes of servers sharing the database lock rows in the same order
+    private static final Comparator<ChatKey> CHAT_ORDER = Comparator.comparing(ChatKey::playerUuid)
+            .thenComparing(ChatKey::bucket).thenComparing(ChatKey::serverName).thenComparing(ChatKey::channel)
+            .thenComparing(ChatKey::type);
+    private static final Comparator<CommandKey> COMMAND_ORDER = Comparator.comparing(CommandKey::playerUuid)
+            .thenComparing(CommandKey::bucket).thenComparing(CommandKey::serverName).thenComparing(CommandKey::source);
+
+    private final DatabaseManager databaseManager;
+    private final Logger logger;
+    private final long flushIntervalNanos;
+    private final Map<String, BulkInsert<Map.Entry<ChatKey, Long>>> chatUpserts = new HashMap<>();
+    private final Map<String, BulkInsert<Map.Entry<CommandKey, Long>>> commandUpserts = new HashMap<>();
+    // Pending hourly deltas; guarded by this
+    private Map<ChatKey, Long> chatDeltas = new HashMap<>();
+    private Map<CommandKey, Long> commandDeltas = new HashMap<>();
+    private long lastFlush = System.nanoTime(); // flusher thread only
+
+    public ActivityDAO(DatabaseManager databaseManager, Logger logger, long flushIntervalSeconds) {
+        this.databaseManager = databaseManager;
+        this.logger = logger;
+        this.flushIntervalNanos = TimeUnit.SECONDS.toNanos(Math.max(1, flushIntervalSeconds));
+        for (String table : List.of(CHAT_HOURLY, CHAT_DAILY)) {
+            chatUpserts.put(table, new BulkInsert<>(UPSERT_CHAT_PREFIX.replace("{table}", table), 6, UPSERT_CHAT_SUFFIX,
+                    (s, o, e) -> bindChatDelta(s, o, e, table)));
+        }
+        for (String table : List.of(COMMAND_HOURLY, COMMAND_DAILY)) {
+            commandUpserts.put(table, new BulkInsert<>(UPSERT_COMMAND_PREFIX.replace("{table}", table), 5, UPSERT_COMMAND_SUFFIX,
+                    (s, o, e) -> bindCommandDelta(s, o, e, table)));
+        }
+    }
+
+    /**
+     * Count written chat messages towards their hour
+     */
+    public synchronized void addChatMessages(List<ChatMessage> messages) {
+        for (ChatMessage message : messages) {
+            if (message.getPlayerUuid() == null || message.getTimestamp() == null) {
+                continue;
+            }
+            ChatKey key = new ChatKey(message.getTimestamp().truncatedTo(ChronoUnit.HOURS),
+                    nonNull(message.getServerName(), "Unknown"), nonNull(message.getChannel(), "global"),
+                    message.getMessageType() != null ? message.getMessageType() : ChatMessage.MessageType.CHAT,
+                    message.getPlayerUuid().toLowerCase(Locale.ROOT));
+            chatDeltas.merge(key, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * Count written command logs towards their hour
+     */
+    public synchronized void addCommandLogs(List<CommandLog> logs) {
+        for (CommandLog log : logs) {
+            if (log.getTimestamp() == null) {
+                continue;
+            }
+            CommandKey key = new CommandKey(log.getTimestamp().truncatedTo(ChronoUnit.HOURS),
+                    nonNull(log.getServerName(), "Unknown"),
+                    log.getSourceType() != null ? log.getSourceType() : CommandLog.SourceType.OTHER,
+                    log.getPlayerUuid() != null ? log.getPlayerUuid().toLowerCase(Locale.ROOT) : NO_PLAYER);
+            commandDeltas.merge(key, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * Write the pending deltas in one transaction if the flush interval passed (or always if {@code force}).
+     * Called by the single write-behind flusher; on failure the deltas stay pending for the next attempt.
+     */
+    public void flush(boolean force) throws SQLException {
+        if (!force && System.nanoTime() - lastFlush < flushIntervalNanos) {
+            return;
+        }
+        lastFlush = System.nanoTime();
+        Map<ChatKey, Long> chat;
+        Map<CommandKey, Long> commands;
+        synchronized (this) {
+            if (chatDeltas.isEmpty() && commandDeltas.isEmpty()) {
+                return;
+            }
+            chat = chatDeltas;
+            commands = commandDeltas;
+            chatDeltas = new HashMap<>();
+            commandDeltas = new HashMap<>();
+        }
+        try {
+            write(chat, commands);
+        } catch (SQLException e) {
+            synchronized (this) {
+                chat.forEach((key, count) -> chatDeltas.merge(key, count, Long::sum));
+                commands.forEach((key, count) -> commandDeltas.merge(key, count, Long::sum));
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Players with the most chat messages or player commands since {@code from}, optionally on one server
+     * (and for chat in one channel). Daily grain counts from midnight of {@code from}'s day.
+     */
+    public CompletableFuture<List<TopPlayer>> topPlayersAsync(Kind kind, Grain grain, LocalDateTime from,
+                                                              String serverName, String channel, int limit) {
+        return DatabaseManager.supplyAsync(() -> {
+            List<Object> parameters = new ArrayList<>();
+            parameters.add(bucketStart(grain, from));
+            if (kind == Kind.COMMANDS) {
+                parameters.add(UuidCodec.toParameter(NO_PLAYER, databaseManager.getUuidStorage(table(kind, grain))));
+            }
+            String filters = filters(kind, serverName, channel, parameters);
+            parameters.add(limit);
+            String sql = (kind == Kind.CHAT ? SELECT_TOP_CHAT : SELECT_TOP_COMMANDS)
+                    .replace("{grain}", grain.suffix).replace("{spoken}", SPOKEN_TYPES).replace("{filters}", filters);
+
+            List<TopPlayer> top = new ArrayList<>();
+            try (Connection connection = databaseManager.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(sql)) {
+                bind(statement, parameters);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        top.add(new TopPlayer(UuidCodec.read(rs, "player_uuid", databaseManager.getUuidStorage(table(kind, grain))),
+                                rs.getLong("total")));
+                    }
+                }
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Failed to read the most active players from the " + grain.suffix + " rollup", e);
+            }
+            return top;
+        }, databaseManager.getReadExecutor());
+    }
+
+    /**
+     * Chat messages per bucket and channel, or commands per bucket and server, since {@code from}.
+     * Buckets are in time order, groups within a bucket by count.
+     */
+    public CompletableFuture<List<Bucket>> activityAsync(Kind kind, Grain grain, LocalDateTime from,
+                                                         String serverName, String channel, String playerUuid) {
+        return DatabaseManager.supplyAsync(() -> {
+            List<Object> parameters = new ArrayList<>();
+            parameters.add(bucketStart(grain, from));
+            String filters = filters(kind, serverName, channel, parameters);
+            if (playerUuid != null) {
+                filters += " AND player_uuid = ?";
+                parameters.add(UuidCodec.toParameter(playerUuid, databaseManager.getUuidStorage(table(kind, grain))));
+            }
+            String sql = (kind == Kind.CHAT ? SELECT_CHAT_BUCKETS : SELECT_COMMAND_BUCKETS)
+                    .replace("{grain}", grain.suffix).replace("{spoken}", SPOKEN_TYPES).replace("{filters}", filters);
+
+            List<Bucket> buckets = new ArrayList<>();
+            try (Connection connection = databaseManager.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(sql)) {
+                bind(statement, parameters);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        buckets.add(new Bucket(rs.getTimestamp("bucket").toLocalDateTime(), rs.getString("grp"), rs.getLong("total")));
+                    }
+                }
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Failed to read the activity from the " + grain.suffix + " rollup", e);
+            }
+            return buckets;
+        }, databaseManager.getReadExecutor());
+    }
+
+    public synchronized String getStats() {
+        return String.format("Activity rollups - pending keys: %d chat, %d commands", chatDeltas.size(), commandDeltas.size());
+    }
+
+    private void write(Map<ChatKey, Long> chat, Map<CommandKey, Long> commands) throws SQLException {
+        List<Map.Entry<ChatKey, Long>> chatHourly = sorted(chat, CHAT_ORDER);
+        List<Map.Entry<ChatKey, Long>> chatDaily = sorted(rollUp(chat, key -> new ChatKey(key.bucket().truncatedTo(ChronoUnit.DAYS),
+                key.serverName(), key.channel(), key.type(), key.playerUuid())), CHAT_ORDER);
+        List<Map.Entry<CommandKey, Long>> commandHourly = sorted(commands, COMMAND_ORDER);
+        List<Map.Entry<CommandKey, Long>> commandDaily = sorted(rollUp(commands, key -> new CommandKey(key.bucket().truncatedTo(ChronoUnit.DAYS),
+                key.serverName(), key.source(), key.playerUuid())), COMMAND_ORDER);
+
+        Lock gate = databaseManager.getWriteGate();
+        gate.lock();
+        try (Connection connection = databaseManager.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                chatUpserts.get(CHAT_HOURLY).execute(connection, databaseManager.getDialect(), chatHourly);
+                chatUpserts.get(CHAT_DAILY).execute(connection, databaseManager.getDialect(), chatDaily);
+                commandUpserts.get(COMMAND_HOURLY).execute(connection, databaseManager.getDialect(), commandHourly);
+                commandUpserts.get(COMMAND_DAILY).execute(connection, databaseManager.getDialect(), commandDaily);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            gate.unlock();
+        }
+    }
+
+    private static <K> Map<K, Long> rollUp(Map<K, Long> hourly, Function<K, K> daily) {
+        Map<K, Long> rolled = new HashMap<>();
+        hourly.forEach((key, count) -> rolled.merge(daily.apply(key), count, Long::sum));
+        return rolled;
+    }
+
+    private static <K> List<Map.Entry<K, Long>> sorted(Map<K, Long> deltas, Comparator<K> order) {
+        List<Map.Entry<K, Long>> entries = new ArrayList<>(deltas.entrySet());
+        entries.sort(Map.Entry.comparingByKey(order));
+        return entries;
+    }
+
+    private void bindChatDelta(PreparedStatement statement, int offset, Map.Entry<ChatKey, Long> delta, String table) throws SQLException {
+        ChatKey key = delta.getKey();
+        bindBucket(statement, offset + 1, key.bucket(), table.equals(CHAT_DAILY));
+        statement.setString(offset + 2, key.serverName());
+        statement.setString(offset + 3, key.channel());
+        statement.setString(offset + 4, key.type().name());
+        UuidCodec.bind(statement, offset + 5, key.playerUuid(), databaseManager.getUuidStorage(table));
+        statement.setLong(offset + 6, delta.getValue());
+    }
+
+    private void bindCommandDelta(PreparedStatement statement, int offset, Map.Entry<CommandKey, Long> delta, String table) throws SQLException {
+        CommandKey key = delta.getKey();
+        bindBucket(statement, offset + 1, key.bucket(), table.equals(COMMAND_DAILY));
+        statement.setString(offset + 2, key.serverName());
+        statement.setString(offset + 3, key.source().name());
+        UuidCodec.bind(statement, offset + 4, key.playerUuid(), databaseManager.getUuidStorage(table));
+        statement.setLong(offset + 5, delta.getValue());
+    }
+
+    private static void bindBucket(PreparedStatement statement, int index, LocalDateTime bucket, boolean daily) throws SQLException {
+        if (daily) {
+            statement.setDate(index, Date.valueOf(bucket.toLocalDate()));
+        } else {
+            statement.setTimestamp(index, Timestamp.valueOf(bucket));
+        }
+    }
+
+    private static Object bucketStart(Grain grain, LocalDateTime from) {
+        return grain == Grain.DAY ? Date.valueOf(from.toLocalDate()) : Timestamp.valueOf(from.truncatedTo(ChronoUnit.HOURS));
+    }
+
+    private static String filters(Kind kind, String serverName, String channel, List<Object> parameters) {
+        StringBuilder filters = new StringBuilder();
+        if (serverName != null) {
+            filters.append(" AND server_name = ?");
+            parameters.add(serverName);
+        }
+        if (channel != null && kind == Kind.CHAT) {
+            filters.append(" AND channel = ?");
+            parameters.add(channel);
+        }
+        return filters.toString();
+    }
+
+    private static void bind(PreparedStatement statement, List<Object> parameters) throws SQLException {
+        for (int i = 0; i < parameters.size(); i++) {
+            statement.setObject(i + 1, parameters.get(i));
+        }
+    }
+
+    private static String table(Kind kind, Grain grain) {
+        return (kind == Kind.CHAT ? "chat_activity_" : "command_activity_") + grain.suffix;
+    }
+
+    private static String nonNull(String value, String fallback) {
+        return value != null ? value : fallback;
+    }
+}
@@ -1,13 +1,30 @@
 package de.chriss1998.theLabChatLog.dao;
 
+import de.chriss1998.theLabChatLog.archive.ArchiveStore;
+import de.chriss1998.theLabChatLog.database.BulkInsert;
 import de.chriss1998.theLabChatLog.database.DatabaseManager;
+import de.chriss1998.theLabChatLog.database.LookupTable;
+import de.chriss1998.theLabChatLog.database.RetentionService;
+import de.chriss1998.theLabChatLog.database.UuidCodec;
+import de.chriss1998.theLabChatLog.database.UuidStorage;
 import de.chriss1998.theLabChatLog.model.ChatMessage;
 import de.chriss1998.theLabChatLog.model.CommandLog;
 
+import java.io.IOException;
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -18,334 +35,1047 @@ public class ChatDAO {
     
     private final DatabaseManager databaseManager;
     private final Logger logger;
+
+    private static final String CHAT_MESSAGES = "chat_messages";
+    private static final String COMMAND_LOGS = "command_logs";
     
     // SQL Queries
-    private static final String INSERT_CHAT_MESSAGE = """
+    private static final String INSERT_CHAT_MESSAGE_PREFIX = """
         INSERT INTO `chat_messages` (
             message_uuid, server_name, world_name, player_uuid, player_name,
             message_content, message_type, channel, location_x, location_y, location_z,
             recipient_uuid, recipient_name, is_cancelled, metadata_json, `timestamp`
-        ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-        """;
+        ) VALUES\s""";
+
+    // Dictionary encoded layout: names are replaced by lookup table keys
+    private static final String INSERT_CHAT_MESSAGE_ENCODED_PREFIX = """
+        INSERT INTO `chat_messages` (
+            message_uuid, server_id, world_id, player_uuid, player_name,
+            message_content, message_type, channel_id, location_x, location_y, location_z,
+            recipient_uuid, recipient_name, is_cancelled, metadata_json, `timestamp`
+        ) VALUES\s""";
+
+    // {chat} is replaced by the select list and FROM clause of the table's current layout
+    private static final String CHAT_FROM_PLAIN = "cm.* FROM `chat_messages` cm";
+    private static final String CHAT_FROM_ENCODED = """
+        cm.*, sv.name AS server_name, w.name AS world_name, ch.name AS channel
+        FROM `chat_messages` cm
+        LEFT JOIN `servers` sv ON sv.id = cm.server_id
+        LEFT JOIN `worlds` w ON w.id = cm.world_id
+        LEFT JOIN `channels` ch ON ch.id = cm.channel_id""";
     
+    // Keyset pages: rows strictly after the cursor (timestamp, id) in (timestamp DESC, id DESC) order.
+    // The extra "timestamp <= ?" gives the optimizer a range on idx_player_time to seek to.
     private static final String SELECT_CHAT_MESSAGES_BY_PLAYER = """
-        SELECT * FROM `chat_messages`
-        WHERE player_uuid = ?
-        ORDER BY `timestamp` DESC
-        LIMIT ? OFFSET ?
+        SELECT {chat}
+        WHERE cm.player_uuid = ? AND cm.`timestamp` >= ?
+          AND cm.`timestamp` <= ? AND (cm.`timestamp` < ? OR cm.id < ?)
+        ORDER BY cm.`timestamp` DESC, cm.id DESC
+        LIMIT ?
+        """;
+
+    // Page jumps: the (timestamp, id) at a row offset after a known page boundary (or the newest row),
+    // read from idx_player_time alone
+    private static final String SEEK_CHAT_MESSAGES_BY_PLAYER = """
+        SELECT `timestamp`, id FROM `chat_messages`
+        WHERE player_uuid = ? AND `timestamp` >= ?
+          AND `timestamp` <= ? AND (`timestamp` < ? OR id < ?)
+        ORDER BY `timestamp` DESC, id DESC
+        LIMIT 1 OFFSET ?
         """;
     
     private static final String SELECT_CHAT_MESSAGES_BY_TIME_RANGE = """
-        SELECT * FROM `chat_messages`
-        WHERE `timestamp` BETWEEN ? AND ?
-        ORDER BY `timestamp` DESC
-        LIMIT ? OFFSET ?
+        SELECT {chat}
+        WHERE cm.`timestamp` BETWEEN ? AND ? AND (cm.`timestamp` < ? OR cm.id < ?)
+        ORDER BY cm.`timestamp` DESC, cm.id DESC
+        LIMIT ?
         """;
     
-    private static final String SELECT_CHAT_MESSAGES_BY_CONTENT = """
-        SELECT * FROM `chat_messages`
-        WHERE message_content LIKE ?
-        ORDER BY `timestamp` DESC
-        LIMIT ? OFFSET ?
+    // Content search: conditions depend on the search and on whether a FULLTEXT index exists
+    private static final String SEARCH_ORDER = """
+
+        ORDER BY cm.`timestamp` DESC, cm.id DESC
+        LIMIT ?
         """;
     
+    // "Who said": the players with matches, most recent first
+    private static final String SELECT_SPEAKERS = """
+        SELECT cm.player_uuid, MAX(cm.player_name) AS player_name, COUNT(*) AS matches, MAX(cm.`timestamp`) AS last_match
+        FROM `chat_messages` cm{cm_server_join}
+        WHERE\s""";
+
+    // Recent speakers whose older matches are counted per query
+    private static final int SPEAKER_BATCH = 500;
+
+    private static final String SPEAKERS_ORDER = """
+
+        GROUP BY cm.player_uuid
+        ORDER BY last_match DESC
+        LIMIT ?
+        """;
+
     private static final String COUNT_MESSAGES_BY_PLAYER = """
         SELECT COUNT(*) FROM `chat_messages` WHERE player_uuid = ?
         """;
-    
-    private static final String DELETE_OLD_MESSAGES = """
-        DELETE FROM `chat_messages` WHERE `timestamp` < ?
+
+    // Archiving: the rows of one day above the highest archived id
+    private static final String SELECT_CHAT_MESSAGES_FOR_ARCHIVE = """
+        SELECT {chat}
+        WHERE cm.`timestamp` >= ? AND cm.`timestamp` < ? AND cm.id > ?
+        ORDER BY cm.id
         """;
 
+    private static final String SELECT_OLDEST_CHAT_MESSAGE = "SELECT MIN(`timestamp`) FROM `chat_messages`";
+
+    private static final String COUNT_CHAT_MESSAGES_BY_PLAYER_SINCE = """
+        SELECT COUNT(*) FROM `chat_messages` WHERE player_uuid = ? AND `timestamp` >= ?
+        """;
+    
     // Command logs
-    private static final String INSERT_COMMAND_LOG = """
+    private static final String INSERT_COMMAND_LOG_PREFIX = """
         INSERT INTO `command_logs` (
             command_uuid, server_name, source_type, player_uuid, player_name,
             command_text, world_name, location_x, location_y, location_z,
             is_cancelled, metadata_json, `timestamp`
-        ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-        """;
+        ) VALUES\s""";
+
+    private static final String INSERT_COMMAND_LOG_ENCODED_PREFIX = """
+        INSERT INTO `command_logs` (
+            command_uuid, server_id, source_type, player_uuid, player_name,
+            command_text, world_id, location_x, location_y, location_z,
+            is_cancelled, metadata_json, `timestamp`
+        ) VALUES\s""";
+
+    // Just above the TIMESTAMP minimum in any time zone; used as "no lower bound"
+    private static final Timestamp EPOCH = Timestamp.valueOf("1970-01-02 00:00:00");
+    // Above every stored row; the keyset bound of a first page
+    private static final Timestamp FAR_FUTURE = Timestamp.valueOf("2099-12-31 00:00:00");
+
+    private static final String ON_DUPLICATE_UUID_SKIP = " ON DUPLICATE KEY UPDATE id = id";
+
+    // Lookup table names keep every spelling (utf8mb4_bin); filters compare them like the plain name columns
+    private static final String NAME_COLLATION = " COLLATE utf8mb4_unicode_ci";
+
+    // {cmd} works like {chat}
+    private static final String COMMAND_FROM_PLAIN = "cl.* FROM `command_logs` cl";
+    private static final String COMMAND_FROM_ENCODED = """
+        cl.*, sv.name AS server_name, w.name AS world_name
+        FROM `command_logs` cl
+        LEFT JOIN `servers` sv ON sv.id = cl.server_id
+        LEFT JOIN `worlds` w ON w.id = cl.world_id""";
 
     private static final String SELECT_COMMAND_LOGS_BY_PLAYER = """
-        SELECT * FROM `command_logs`
-        WHERE player_uuid = ?
-        ORDER BY `timestamp` DESC
-        LIMIT ? OFFSET ?
+        SELECT {cmd}
+        WHERE cl.player_uuid = ? AND cl.`timestamp` >= ?
+          AND cl.`timestamp` <= ? AND (cl.`timestamp` < ? OR cl.id < ?)
+        ORDER BY cl.`timestamp` DESC, cl.id DESC
+        LIMIT ?
         """;
 
-    // Combined history (CHAT + COMMAND) for a player
-    private static final String SELECT_COMBINED_HISTORY_BY_PLAYER = """
-        SELECT * FROM (
-            SELECT
-                'CHAT' AS entry_type,
-                cm.`timestamp` AS ts,
-                cm.message_content AS text,
-                cm.message_type AS subtype,
-                cm.world_name AS world_name,
-                cm.location_x AS location_x,
-                cm.location_y AS location_y,
-                cm.location_z AS location_z,
-                NULL AS source_type,
-                cm.is_cancelled AS is_cancelled
-            FROM chat_messages cm
-            WHERE cm.player_uuid = ?
+    private static final String SEEK_COMMAND_LOGS_BY_PLAYER = """
+        SELECT `timestamp`, id FROM `command_logs`
+        WHERE player_uuid = ? AND `timestamp` >= ?
+          AND `timestamp` <= ? AND (`timestamp` < ? OR id < ?)
+        ORDER BY `timestamp` DESC, id DESC
+        LIMIT 1 OFFSET ?
+        """;
+
+    private static final String SELECT_COMMAND_LOGS_FOR_ARCHIVE = """
+        SELECT {cmd}
+        WHERE cl.`timestamp` >= ? AND cl.`timestamp` < ? AND cl.id > ?
+        ORDER BY cl.id
+        """;
+
+    // Streams (exports): conditions depend on the filter. One player's rows follow idx_player_time,
+    // everything else the primary key, so the server never sorts the whole range.
+    private static final String STREAM_CHAT_MESSAGES = "SELECT {chat}";
+    private static final String STREAM_COMMAND_LOGS = "SELECT {cmd}";
+
+    private static final String SELECT_OLDEST_COMMAND_LOG = "SELECT MIN(`timestamp`) FROM `command_logs`";
+
+    private static final String COUNT_COMMAND_LOGS_BY_PLAYER_SINCE = """
+        SELECT COUNT(*) FROM `command_logs` WHERE player_uuid = ? AND `timestamp` >= ?
+        """;
+
+    // Page jumps in the combined history: each half is read from its index after the boundary and bounded by the offset
+    private static final String SEEK_COMBINED_HISTORY_BY_PLAYER = """
+        SELECT ts, id, kind_rank FROM (
+            (SELECT `timestamp` AS ts, id, 1 AS kind_rank FROM `chat_messages`
+            WHERE player_uuid = ? AND `timestamp` >= ?
+              AND `timestamp` <= ? AND (`timestamp` < ? OR id < ?)
+            ORDER BY `timestamp` DESC, id DESC
+            LIMIT ?)
             UNION ALL
-            SELECT
-                'COMMAND' AS entry_type,
-                cl.`timestamp` AS ts,
-                cl.command_text AS text,
-                NULL AS subtype,
-                cl.world_name AS world_name,
-                cl.location_x AS location_x,
-                cl.location_y AS location_y,
-                cl.location_z AS location_z,
-                cl.source_type AS source_type,
-                cl.is_cancelled AS is_cancelled
-            FROM command_logs cl
-            WHERE cl.player_uuid = ?
+            (SELECT `timestamp` AS ts, id, 0 AS kind_rank FROM `command_logs`
+            WHERE player_uuid = ? AND `timestamp` >= ?
+              AND `timestamp` <= ? AND (`timestamp` < ? OR id < ?)
+            ORDER BY `timestamp` DESC, id DESC
+            LIMIT ?)
         ) t
-        ORDER BY ts DESC
-        LIMIT ? OFFSET ?
+        ORDER BY ts DESC, kind_rank DESC, id DESC
+        LIMIT 1 OFFSET ?
         """;
+
+    // Combined history order: timestamp, then kind (chat before commands), then id (all descending)
+    private static final Comparator<HistoryEntry> NEWEST_FIRST = Comparator.comparing((HistoryEntry e) -> e.timestamp)
+            .thenComparing(HistoryEntry::kind)
+            .thenComparingLong(e -> e.id)
+            .reversed();
+
+    /**
+     * Rows of one table after a cursor, newest first
+     */
+    @FunctionalInterface
+    private interface PageLoader<T> {
+        List<T> load(HistoryCursor after, int limit) throws SQLException;
+    }
+    
+    /**
+     * Work done in the insert transaction before the rows are inserted; returns the rows that are new
+     */
+    @FunctionalInterface
+    private interface BeforeInsert<T> {
+        List<T> run(Connection connection, List<T> rows) throws SQLException;
+    }
+
+    /**
+     * Insert statements for both name layouts of a table; the layout is chosen per transaction.
+     * {@code counters} updates player_stats in the same transaction, {@code committed} gets the new rows after
+     * the commit.
+     */
+    private record LayoutInsert<T>(String table, BulkInsert<T> plain, BulkInsert<T> encoded, BeforeInsert<T> counters,
+                                   Consumer<List<T>> committed) {}
+
+    private final NameDictionary names;
+    private final PlayerStatsDAO stats;
+
+    private final LayoutInsert<ChatMessage> chatMessageInsert;
+    private final LayoutInsert<CommandLog> commandLogInsert;
+    private final LayoutInsert<ChatMessage> chatMessageReplayInsert;
+    private final LayoutInsert<CommandLog> commandLogReplayInsert;
+    // Cold storage the history queries continue in once the database rows are exhausted; null if disabled
+    private volatile ArchiveStore archive;
+    private volatile RecentChatIndex recentIndex;
+    private volatile RecentHistoryCache historyCache;
+    private volatile ActivityDAO activity;
     
     public ChatDAO(DatabaseManager databaseManager, Logger logger) {
         this.databaseManager = databaseManager;
         this.logger = logger;
+        this.names = new NameDictionary(databaseManager, logger);
+        this.stats = new PlayerStatsDAO(databaseManager);
+        this.chatMessageInsert = new LayoutInsert<>(CHAT_MESSAGES,
+                new BulkInsert<>(INSERT_CHAT_MESSAGE_PREFIX, 16, (s, o, m) -> bindChatMessage(s, o, m, false)),
+                new BulkInsert<>(INSERT_CHAT_MESSAGE_ENCODED_PREFIX, 16, (s, o, m) -> bindChatMessage(s, o, m, true)),
+                (connection, rows) -> {
+                    stats.addChatMessages(connection, rows);
+                    return rows;
+                },
+                this::onChatMessagesWritten);
+        this.commandLogInsert = new LayoutInsert<>(COMMAND_LOGS,
+                new BulkInsert<>(INSERT_COMMAND_LOG_PREFIX, 13, (s, o, l) -> bindCommandLog(s, o, l, false)),
+                new BulkInsert<>(INSERT_COMMAND_LOG_ENCODED_PREFIX, 13, (s, o, l) -> bindCommandLog(s, o, l, true)),
+                (connection, rows) -> {
+                    stats.addCommandLogs(connection, rows);
+                    return rows;
+                },
+                this::onCommandLogsWritten);
+        // Idempotent variants for replays: rows whose UUID already exists are skipped and not counted again
+        this.chatMessageReplayInsert = new LayoutInsert<>(CHAT_MESSAGES,
+                new BulkInsert<>(INSERT_CHAT_MESSAGE_PREFIX, 16, ON_DUPLICATE_UUID_SKIP, (s, o, m) -> bindChatMessage(s, o, m, false)),
+                new BulkInsert<>(INSERT_CHAT_MESSAGE_ENCODED_PREFIX, 16, ON_DUPLICATE_UUID_SKIP, (s, o, m) -> bindChatMessage(s, o, m, true)),
+                (connection, rows) -> {
+                    List<ChatMessage> fresh = stats.notStored(connection, CHAT_MESSAGES, "message_uuid", rows, ChatMessage::getMessageUuid);
+                    stats.addChatMessages(connection, fresh);
+                    return fresh;
+                },
+                this::onChatMessagesWritten);
+        this.commandLogReplayInsert = new LayoutInsert<>(COMMAND_LOGS,
+                new BulkInsert<>(INSERT_COMMAND_LOG_PREFIX, 13, ON_DUPLICATE_UUID_SKIP, (s, o, l) -> bindCommandLog(s, o, l, false)),
+                new BulkInsert<>(INSERT_COMMAND_LOG_ENCODED_PREFIX, 13, ON_DUPLICATE_UUID_SKIP, (s, o, l) -> bindCommandLog(s, o, l, true)),
+                (connection, rows) -> {
+                    List<CommandLog> fresh = stats.notStored(connection, COMMAND_LOGS, "command_uuid", rows, CommandLog::getCommandUuid);
+                    stats.addCommandLogs(connection, fresh);
+                    return fresh;
+                },
+                this::onCommandLogsWritten);
+        if (databaseManager.isEnabled()) {
+            try {
+                names.preload();
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Failed to preload server/world/channel names; they are resolved on first use", e);
+            }
+        }
     }
 
     /**
      * Insert a command log asynchronously
      */
     public CompletableFuture<Void> insertCommandLogAsync(CommandLog log) {
-        return CompletableFuture.runAsync(() -> {
-            try (Connection connection = databaseManager.getConnection();
-                 PreparedStatement statement = connection.prepareStatement(INSERT_COMMAND_LOG)) {
-
-                statement.setString(1, log.getCommandUuid());
-                statement.setString(2, log.getServerName());
-                statement.setString(3, log.getSourceType().name());
-                statement.setString(4, log.getPlayerUuid());
-                statement.setString(5, log.getPlayerName());
-                statement.setString(6, log.getCommandText());
-                statement.setString(7, log.getWorldName());
-
-                // Nullable location fields
-                setDoubleOrNull(statement, 8, log.getLocationX());
-                setDoubleOrNull(statement, 9, log.getLocationY());
-                setDoubleOrNull(statement, 10, log.getLocationZ());
-
-                statement.setBoolean(11, log.isCancelled());
-                statement.setString(12, log.getMetadataJson());
-                statement.setTimestamp(13, Timestamp.valueOf(log.getTimestamp()));
-
-                statement.executeUpdate();
+        return DatabaseManager.runAsync(() -> {
+            try {
+                writeInTransaction(commandLogInsert, List.of(log));
             } catch (SQLException e) {
                 logger.log(Level.WARNING, "Failed to insert command log: " + log.getCommandUuid(), e);
             }
-        });
+        }, databaseManager.getWriteExecutor());
     }
     
     /**
      * Insert a chat message asynchronously
      */
     public CompletableFuture<Void> insertChatMessageAsync(ChatMessage message) {
-        return CompletableFuture.runAsync(() -> {
-            try (Connection connection = databaseManager.getConnection();
-                 PreparedStatement statement = connection.prepareStatement(INSERT_CHAT_MESSAGE)) {
-                
-                statement.setString(1, message.getMessageUuid());
-                statement.setString(2, message.getServerName());
-                statement.setString(3, message.getWorldName());
-                statement.setString(4, message.getPlayerUuid());
-                statement.setString(5, message.getPlayerName());
-                statement.setString(6, message.getMessageContent());
-                statement.setString(7, message.getMessageType().name());
-                statement.setString(8, message.getChannel());
-                
-                // Handle nullable location fields
-                if (message.getLocationX() != null) {
-                    statement.setDouble(9, message.getLocationX());
-                } else {
-                    statement.setNull(9, Types.DOUBLE);
-                }
-                
-                if (message.getLocationY() != null) {
-                    statement.setDouble(10, message.getLocationY());
-                } else {
-                    statement.setNull(10, Types.DOUBLE);
-                }
-                
-                if (message.getLocationZ() != null) {
-                    statement.setDouble(11, message.getLocationZ());
-                } else {
-                    statement.setNull(11, Types.DOUBLE);
-                }
-                
-                statement.setString(12, message.getRecipientUuid());
-                statement.setString(13, message.getRecipientName());
-                statement.setBoolean(14, message.isCancelled());
-                statement.setString(15, message.getMetadataJson());
-                statement.setTimestamp(16, Timestamp.valueOf(message.getTimestamp()));
-                
-                statement.executeUpdate();
-                
+        return DatabaseManager.runAsync(() -> {
+            try {
+                writeInTransaction(chatMessageInsert, List.of(message));
             } catch (SQLException e) {
                 logger.log(Level.WARNING, "Failed to insert chat message: " + message.getMessageUuid(), e);
             }
-        });
+        }, databaseManager.getWriteExecutor());
     }
     
     /**
      * Insert multiple chat messages in a batch
      */
     public CompletableFuture<Void> insertChatMessagesBatchAsync(List<ChatMessage> messages) {
-        return CompletableFuture.runAsync(() -> {
-            try (Connection connection = databaseManager.getConnection();
-                 PreparedStatement statement = connection.prepareStatement(INSERT_CHAT_MESSAGE)) {
-                
-                connection.setAutoCommit(false);
-                
-                for (ChatMessage message : messages) {
-                    statement.setString(1, message.getMessageUuid());
-                    statement.setString(2, message.getServerName());
-                    statement.setString(3, message.getWorldName());
-                    statement.setString(4, message.getPlayerUuid());
-                    statement.setString(5, message.getPlayerName());
-                    statement.setString(6, message.getMessageContent());
-                    statement.setString(7, message.getMessageType().name());
-                    statement.setString(8, message.getChannel());
-                    
-                    // Handle nullable location fields
-                    setDoubleOrNull(statement, 9, message.getLocationX());
-                    setDoubleOrNull(statement, 10, message.getLocationY());
-                    setDoubleOrNull(statement, 11, message.getLocationZ());
-                    
-                    statement.setString(12, message.getRecipientUuid());
-                    statement.setString(13, message.getRecipientName());
-                    statement.setBoolean(14, message.isCancelled());
-                    statement.setString(15, message.getMetadataJson());
-                    statement.setTimestamp(16, Timestamp.valueOf(message.getTimestamp()));
-                    
-                    statement.addBatch();
-                }
-                
-                statement.executeBatch();
-                connection.commit();
-                connection.setAutoCommit(true);
-                
+        return DatabaseManager.runAsync(() -> {
+            try {
+                insertChatMessagesBatch(messages);
                 logger.info("Successfully inserted " + messages.size() + " chat messages in batch");
-                
             } catch (SQLException e) {
                 logger.log(Level.WARNING, "Failed to insert chat messages batch", e);
             }
-        });
+        }, databaseManager.getWriteExecutor());
+    }
+
+    /**
+     * Insert multiple chat messages in a single transaction on the calling thread,
+     * using the dialect's bulk strategy (multi-row VALUES or driver bulk protocol)
+     */
+    public void insertChatMessagesBatch(List<ChatMessage> messages) throws SQLException {
+        writeInTransaction(chatMessageInsert, messages);
+    }
+
+    /**
+     * Insert multiple command logs in a batch
+     */
+    public CompletableFuture<Void> insertCommandLogsBatchAsync(List<CommandLog> logs) {
+        return DatabaseManager.runAsync(() -> {
+            try {
+                insertCommandLogsBatch(logs);
+                logger.info("Successfully inserted " + logs.size() + " command logs in batch");
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Failed to insert command logs batch", e);
+            }
+        }, databaseManager.getWriteExecutor());
+    }
+
+    /**
+     * Insert multiple command logs in a single transaction on the calling thread,
+     * using the dialect's bulk strategy (multi-row VALUES or driver bulk protocol)
+     */
+    public void insertCommandLogsBatch(List<CommandLog> logs) throws SQLException {
+        writeInTransaction(commandLogInsert, logs);
+    }
+
+    /**
+     * Insert chat messages, skipping rows whose message_uuid is already stored (used for spool replays and
+     * imports). Returns the number of rows that were not stored yet.
+     */
+    public int insertChatMessagesBatchIdempotent(List<ChatMessage> messages) throws SQLException {
+        return writeInTransaction(chatMessageReplayInsert, messages);
+    }
+
+    /**
+     * Insert command logs, skipping rows whose command_uuid is already stored (used for spool replays and
+     * imports). Returns the number of rows that were not stored yet.
+     */
+    public int insertCommandLogsBatchIdempotent(List<CommandLog> logs) throws SQLException {
+        return writeInTransaction(commandLogReplayInsert, logs);
+    }
+
+    /**
+     * Let the per-player history queries fall back to archived rows
+     */
+    public void setArchive(ArchiveStore archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Let content searches answer from the in-memory index of recent messages, reading only older rows here
+     */
+    public void setRecentIndex(RecentChatIndex recentIndex) {
+        this.recentIndex = recentIndex;
+    }
+
+    /**
+     * Count every written chat message and command log towards the activity rollups
+     */
+    public void setActivity(ActivityDAO activity) {
+        this.activity = activity;
+    }
+
+    /**
+     * Write the pending activity rollup deltas if their flush interval passed (or always if {@code force})
+     */
+    public void flushActivity(boolean force) throws SQLException {
+        ActivityDAO rollups = activity;
+        if (rollups != null) {
+            rollups.flush(force);
+        }
+    }
+
+    /**
+     * Serve first history pages of recently active players from memory
+     */
+    public void setHistoryCache(RecentHistoryCache historyCache) {
+        this.historyCache = historyCache;
+    }
+
+    /**
+     * Whether the database is currently initialized and the pool open
+     */
+    public boolean isAvailable() {
+        return databaseManager.isEnabled();
+    }
+
+    private <T> int writeInTransaction(LayoutInsert<T> insert, List<T> rows) throws SQLException {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        // Held for the whole transaction so a column swap never sees a half-written batch
+        Lock gate = databaseManager.getWriteGate();
+        gate.lock();
+        List<T> fresh;
+        try (Connection connection = databaseManager.getConnection()) {
+            boolean encoded = isEncoded(insert.table());
+            BulkInsert<T> layout = encoded ? insert.encoded() : insert.plain();
+            if (encoded) {
+                // Autocommit, before the transaction: new keys survive a rollback of the batch
+                resolveNames(connection, rows);
+            }
+            connection.setAutoCommit(false);
+            try {
+                fresh = insert.counters().run(connection, rows);
+                layout.execute(connection, databaseManager.getDialect(), rows);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            gate.unlock();
+        }
+        insert.committed().accept(fresh);
+        return fresh.size();
+    }
+
+    /**
+     * Give every server, world and channel name of the rows a lookup table key, on the writer's connection
+     */
+    private void resolveNames(Connection connection, List<?> rows) throws SQLException {
+        for (Object row : rows) {
+            if (row instanceof ChatMessage message) {
+                names.resolve(connection, LookupTable.SERVERS, message.getServerName());
+                names.resolve(connection, LookupTable.WORLDS, message.getWorldName());
+                names.resolve(connection, LookupTable.CHANNELS, message.getChannel());
+            } else if (row instanceof CommandLog log) {
+                names.resolve(connection, LookupTable.SERVERS, log.getServerName());
+                names.resolve(connection, LookupTable.WORLDS, log.getWorldName());
+            }
+        }
+    }
+
+    private void onChatMessagesWritten(List<ChatMessage> messages) {
+        ActivityDAO rollups = activity;
+        if (rollups != null) {
+            rollups.addChatMessages(messages);
+        }
+    }
+
+    private void onCommandLogsWritten(List<CommandLog> logs) {
+        ActivityDAO rollups = activity;
+        if (rollups != null) {
+            rollups.addCommandLogs(logs);
+        }
+    }
+
+    private UuidStorage uuidStorage(String table) {
+        return databaseManager.getUuidStorage(table);
+    }
+
+    private boolean isEncoded(String table) {
+        return databaseManager.isDictionaryEncoded(table);
+    }
+
+    /**
+     * Lower timestamp bound of per-player history queries; with partitioning this prunes older partitions
+     */
+    private Timestamp historySince() {
+        int days = databaseManager.getHistoryWindowDays();
+        return days > 0 ? Timestamp.valueOf(LocalDateTime.now().minusDays(days)) : EPOCH;
+    }
+
+    /**
+     * Fill in the FROM clause matching the current layout, joining names back from the lookup tables
+     */
+    private String query(String template) {
+        boolean chatEncoded = isEncoded(CHAT_MESSAGES);
+        boolean commandsEncoded = isEncoded(COMMAND_LOGS);
+        return template
+                .replace("{chat}", chatEncoded ? CHAT_FROM_ENCODED : CHAT_FROM_PLAIN)
+                .replace("{cmd}", commandsEncoded ? COMMAND_FROM_ENCODED : COMMAND_FROM_PLAIN)
+                .replace("{cm_world}", chatEncoded ? "cmw.name" + NAME_COLLATION : "cm.world_name")
+                .replace("{cm_server}", chatEncoded ? "sv.name" + NAME_COLLATION : "cm.server_name")
+                .replace("{cm_join}", chatEncoded ? " LEFT JOIN worlds cmw ON cmw.id = cm.world_id" : "")
+                .replace("{cm_server_join}", chatEncoded ? " LEFT JOIN `servers` sv ON sv.id = cm.server_id" : "")
+                .replace("{cl_world}", commandsEncoded ? "clw.name" + NAME_COLLATION : "cl.world_name")
+                .replace("{cl_server}", commandsEncoded ? "sv.name" + NAME_COLLATION : "cl.server_name")
+                .replace("{cl_join}", commandsEncoded ? " LEFT JOIN worlds clw ON clw.id = cl.world_id" : "");
     }
     
+    private int count(Connection connection, String countSql, String playerUuid, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(countSql)) {
+            UuidCodec.bind(statement, 1, playerUuid, uuidStorage(table));
+            statement.setTimestamp(2, historySince());
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private LocalDateTime historyWindowStart() {
+        int days = databaseManager.getHistoryWindowDays();
+        return days > 0 ? LocalDateTime.now().minusDays(days) : null;
+    }
+
     /**
-     * Get chat messages by player UUID
+     * Chat messages of one day with an id above {@code afterId}, for the archiver (blocking)
      */
-    public CompletableFuture<List<ChatMessage>> getChatMessagesByPlayerAsync(String playerUuid, int limit, int offset) {
-        return CompletableFuture.supplyAsync(() -> {
-            List<ChatMessage> messages = new ArrayList<>();
-            
-            try (Connection connection = databaseManager.getConnection();
-                 PreparedStatement statement = connection.prepareStatement(SELECT_CHAT_MESSAGES_BY_PLAYER)) {
-                
-                statement.setString(1, playerUuid);
-                statement.setInt(2, limit);
-                statement.setInt(3, offset);
-                
-                try (ResultSet resultSet = statement.executeQuery()) {
-                    while (resultSet.next()) {
-                        messages.add(mapResultSetToChatMessage(resultSet));
-                    }
+    public List<ChatMessage> loadChatMessagesForArchive(LocalDateTime from, LocalDateTime to, long afterId) throws SQLException {
+        List<ChatMessage> messages = new ArrayList<>();
+        try (Connection connection = databaseManager.getConnection();
+             PreparedStatement statement = connection.prepareStatement(query(SELECT_CHAT_MESSAGES_FOR_ARCHIVE))) {
+            statement.setTimestamp(1, Timestamp.valueOf(from));
+            statement.setTimestamp(2, Timestamp.valueOf(to));
+            statement.setLong(3, afterId);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    messages.add(mapResultSetToChatMessage(rs));
                 }
-                
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Command logs of one day with an id above {@code afterId}, for the archiver (blocking)
+     */
+    public List<CommandLog> loadCommandLogsForArchive(LocalDateTime from, LocalDateTime to, long afterId) throws SQLException {
+        List<CommandLog> logs = new ArrayList<>();
+        try (Connection connection = databaseManager.getConnection();
+             PreparedStatement statement = connection.prepareStatement(query(SELECT_COMMAND_LOGS_FOR_ARCHIVE))) {
+            statement.setTimestamp(1, Timestamp.valueOf(from));
+            statement.setTimestamp(2, Timestamp.valueOf(to));
+            statement.setLong(3, afterId);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    logs.add(mapResultSetToCommandLog(rs));
+                }
+            }
+        }
+        return logs;
+    }
+
+    /**
+     * Receives streamed rows one at a time; an exception aborts the stream
+     */
+    @FunctionalInterface
+    public interface RowSink<T> {
+        void accept(T row) throws IOException;
+    }
+
+    /**
+     * Rows selected by a stream; every field is optional, {@code to} is exclusive
+     */
+    public record StreamFilter(String playerUuid, String serverName, LocalDateTime from, LocalDateTime to) {}
+
+    /**
+     * Pass every chat message matching the filter to the sink without collecting them (blocking).
+     * The rows are fetched {@code fetchSize} at a time on the given connection, which should be one from
+     * {@link DatabaseManager#openStreamingConnection()}. Returns the number of rows passed.
+     */
+    public long streamChatMessages(Connection connection, StreamFilter filter, int fetchSize, RowSink<ChatMessage> sink)
+            throws SQLException, IOException {
+        return stream(connection, STREAM_CHAT_MESSAGES, "cm", "{cm_server}", CHAT_MESSAGES, filter, fetchSize,
+                this::mapResultSetToChatMessage, sink);
+    }
+
+    /**
+     * Like {@link #streamChatMessages}, for command logs
+     */
+    public long streamCommandLogs(Connection connection, StreamFilter filter, int fetchSize, RowSink<CommandLog> sink)
+            throws SQLException, IOException {
+        return stream(connection, STREAM_COMMAND_LOGS, "cl", "{cl_server}", COMMAND_LOGS, filter, fetchSize,
+                this::mapResultSetToCommandLog, sink);
+    }
+
+    @FunctionalInterface
+    private interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private <T> long stream(Connection connection, String select, String alias, String server, String table,
+                            StreamFilter filter, int fetchSize, RowMapper<T> mapper, RowSink<T> sink)
+            throws SQLException, IOException {
+        List<String> conditions = new ArrayList<>();
+        List<Object> parameters = new ArrayList<>();
+        if (filter.playerUuid() != null) {
+            conditions.add(alias + ".player_uuid = ?");
+            parameters.add(UuidCodec.toParameter(filter.playerUuid(), uuidStorage(table)));
+        }
+        if (filter.serverName() != null) {
+            conditions.add(server + " = ?");
+            parameters.add(filter.serverName());
+        }
+        if (filter.from() != null) {
+            conditions.add(alias + ".`timestamp` >= ?");
+            parameters.add(Timestamp.valueOf(filter.from()));
+        }
+        if (filter.to() != null) {
+            conditions.add(alias + ".`timestamp` < ?");
+            parameters.add(Timestamp.valueOf(filter.to()));
+        }
+        String sql = select
+                + (conditions.isEmpty() ? "" : "\nWHERE " + String.join("\n  AND ", conditions))
+                + (filter.playerUuid() != null
+                    ? "\nORDER BY " + alias + ".`timestamp`, " + alias + ".id"
+                    : "\nORDER BY " + alias + ".id");
+
+        long rows = 0;
+        try (PreparedStatement statement = connection.prepareStatement(query(sql),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(fetchSize);
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    sink.accept(mapper.map(rs));
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Timestamp of the oldest chat message in the database, null if there is none (blocking)
+     */
+    public LocalDateTime getOldestChatMessageTime() throws SQLException {
+        return queryOldest(SELECT_OLDEST_CHAT_MESSAGE);
+    }
+
+    /**
+     * Timestamp of the oldest command log in the database, null if there is none (blocking)
+     */
+    public LocalDateTime getOldestCommandLogTime() throws SQLException {
+        return queryOldest(SELECT_OLDEST_COMMAND_LOG);
+    }
+
+    private LocalDateTime queryOldest(String sql) throws SQLException {
+        try (Connection connection = databaseManager.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet rs = statement.executeQuery()) {
+            Timestamp oldest = rs.next() ? rs.getTimestamp(1) : null;
+            return oldest != null ? oldest.toLocalDateTime() : null;
+        }
+    }
+
+    /**
+     * Get a page of chat messages by player UUID, newest first. {@code cursor} is the
+     * {@link HistoryPage#nextCursor()} of the previous page, or null for the first page.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public CompletableFuture<HistoryPage<ChatMessage>> getChatMessagesByPlayerAsync(String playerUuid, String cursor, int limit) {
+        HistoryCursor after = HistoryCursor.decode(cursor);
+        RecentHistoryCache cache = historyCache;
+        if (after == null && cache != null) {
+            List<ChatMessage> cached = cache.chatMessages(playerUuid, limit, historyWindowStart());
+            if (cached != null) {
+                return CompletableFuture.completedFuture(page(cached, limit, HistoryCursor::after));
+            }
+        }
+        return DatabaseManager.supplyAsync(() -> {
+            List<ChatMessage> messages = List.of();
+            try (Connection connection = databaseManager.getConnection()) {
+                messages = after == null ? newestChatMessages(connection, playerUuid, limit)
+                        : chatMessagesByPlayer(connection, playerUuid, resolveCursor(connection, after), limit);
             } catch (SQLException e) {
                 logger.log(Level.WARNING, "Failed to get chat messages for player: " + playerUuid, e);
             }
-            
-            return messages;
-        });
+            return page(messages, limit, HistoryCursor::after);
+        }, databaseManager.getReadExecutor());
     }
 
     /**
-     * Get command logs by player UUID
+     * Get a page of command logs by player UUID, newest first; cursor as in {@link #getChatMessagesByPlayerAsync}
      */
-    public CompletableFuture<List<CommandLog>> getCommandLogsByPlayerAsync(String playerUuid, int limit, int offset) {
-        return CompletableFuture.supplyAsync(() -> {
-            List<CommandLog> logs = new ArrayList<>();
-            try (Connection connection = databaseManager.getConnection();
-                 PreparedStatement statement = connection.prepareStatement(SELECT_COMMAND_LOGS_BY_PLAYER)) {
+    public CompletableFuture<HistoryPage<CommandLog>> getCommandLogsByPlayerAsync(String playerUuid, String cursor, int limit) {
+        HistoryCursor after = HistoryCursor.decode(cursor);
+        RecentHistoryCache cache = historyCache;
+        if (after == null && cache != null) {
+            List<CommandLog> cached = cache.commandLogs(playerUuid, limit, historyWindowStart());
+            if (cached != null) {
+                return CompletableFuture.completedFuture(page(cached, limit, HistoryCursor::after));
+            }
+        }
+        return DatabaseManager.supplyAsync(() -> {
+            List<CommandLog> logs = List.of();
+            try (Connection connection = databaseManager.getConnection()) {
+                logs = after == null ? newestCommandLogs(connection, playerUuid, limit)
+                        : commandLogsByPlayer(connection, playerUuid, resolveCursor(connection, after), limit);
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Failed to get command logs for player: " + playerUuid, e);
+            }
+            return page(logs, limit, HistoryCursor::after);
+        }, databaseManager.getReadExecutor());
+    }
 
-                statement.setString(1, playerUuid);
-                statement.setInt(2, limit);
-                statement.setInt(3, offset);
+    /**
+     * Get a page of the combined history (chat + commands) by player UUID, ordered by timestamp DESC;
+     * cursor as in {@link #getChatMessagesByPlayerAsync}. Both tables are read through their own index in
+     * bounded batches and merged in memory, so no query sorts more than one page.
+     */
+    public CompletableFuture<HistoryPage<HistoryEntry>> getCombinedHistoryByPlayerAsync(String playerUuid, String cursor, int limit) {
+        HistoryCursor start = HistoryCursor.decode(cursor);
+        RecentHistoryCache cache = historyCache;
+        if (start == null && cache != null) {
+            List<ChatMessage> messages = cache.chatMessages(playerUuid, limit, historyWindowStart());
+            List<CommandLog> logs = messages != null ? cache.commandLogs(playerUuid, limit, historyWindowStart()) : null;
+            if (logs != null) {
+                List<HistoryEntry> entries = new ArrayList<>(messages.size() + logs.size());
+                messages.forEach(m -> entries.add(HistoryEntry.of(m)));
+                logs.forEach(l -> entries.add(HistoryEntry.of(l)));
+                entries.sort(NEWEST_FIRST);
+                return CompletableFuture.completedFuture(page(entries.size() > limit ? entries.subList(0, limit) : entries,
+                        limit, HistoryCursor::after));
+            }
+        }
+        return DatabaseManager.supplyAsync(() -> {
+            List<HistoryEntry> entries = List.of();
+            try (Connection connection = databaseManager.getConnection()) {
+                HistoryCursor from = resolveCursor(connection, start);
+                // A first batch of exactly one page: the merge reads no further batch for the first page
+                entries = new KWayMerge<>(NEWEST_FIRST, List.of(
+                        historySource(from, (after, n) -> after == null ? newestChatMessages(connection, playerUuid, n)
+                                : chatMessagesByPlayer(connection, playerUuid, after, n), HistoryEntry::of),
+                        historySource(from, (after, n) -> after == null ? newestCommandLogs(connection, playerUuid, n)
+                                : commandLogsByPlayer(connection, playerUuid, after, n), HistoryEntry::of)),
+                        limit).take(0, limit);
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Failed to get combined history for player: " + playerUuid, e);
+            }
+            return page(entries, limit, HistoryCursor::after);
+        }, databaseManager.getReadExecutor());
+    }
 
-                try (ResultSet rs = statement.executeQuery()) {
-                    while (rs.next()) {
-                        logs.add(mapResultSetToCommandLog(rs));
-                    }
+    /**
+     * The first page of a player's chat messages, from the history cache or read and then cached
+     */
+    private List<ChatMessage> newestChatMessages(Connection connection, String playerUuid, int limit) throws SQLException {
+        RecentHistoryCache cache = historyCache;
+        if (cache == null) {
+            return chatMessagesByPlayer(connection, playerUuid, null, limit);
+        }
+        List<ChatMessage> cached = cache.chatMessages(playerUuid, limit, historyWindowStart());
+        if (cached != null) {
+            return cached;
+        }
+        RecentHistoryCache.Player player = cache.player(playerUuid);
+        List<ChatMessage> messages = chatMessagesByPlayer(connection, playerUuid, null, limit);
+        cache.seedChatMessages(player, messages, messages.size() < limit);
+        return messages;
+    }
+
+    /**
+     * The first page of a player's command logs, from the history cache or read and then cached
+     */
+    private List<CommandLog> newestCommandLogs(Connection connection, String playerUuid, int limit) throws SQLException {
+        RecentHistoryCache cache = historyCache;
+        if (cache == null) {
+            return commandLogsByPlayer(connection, playerUuid, null, limit);
+        }
+        List<CommandLog> cached = cache.commandLogs(playerUuid, limit, historyWindowStart());
+        if (cached != null) {
+            return cached;
+        }
+        RecentHistoryCache.Player player = cache.player(playerUuid);
+        List<CommandLog> logs = commandLogsByPlayer(connection, playerUuid, null, limit);
+        cache.seedCommandLogs(player, logs, logs.size() < limit);
+        return logs;
+    }
+
+    /**
+     * Chat messages of a player after the cursor, newest first: database rows, continued in the archive
+     */
+    private List<ChatMessage> chatMessagesByPlayer(Connection connection, String playerUuid, HistoryCursor after, int limit) throws SQLException {
+        List<ChatMessage> messages = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(query(SELECT_CHAT_MESSAGES_BY_PLAYER))) {
+            UuidCodec.bind(statement, 1, playerUuid, uuidStorage(CHAT_MESSAGES));
+            statement.setTimestamp(2, historySince());
+            statement.setInt(bindKeyset(statement, 3, after, HistoryCursor.Kind.CHAT), limit);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    messages.add(mapResultSetToChatMessage(resultSet));
+                }
+            }
+        }
+
+        ArchiveStore archived = archive;
+        if (archived != null && messages.size() < limit) {
+            HistoryCursor before = messages.isEmpty() ? after : HistoryCursor.after(messages.get(messages.size() - 1));
+            messages.addAll(archivedChatMessages(archived, playerUuid, before, 0, limit - messages.size()));
+        }
+        return messages;
+    }
+
+    /**
+     * Command logs of a player after the cursor, newest first: database rows, continued in the archive
+     */
+    private List<CommandLog> commandLogsByPlayer(Connection connection, String playerUuid, HistoryCursor after, int limit) throws SQLException {
+        List<CommandLog> logs = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(query(SELECT_COMMAND_LOGS_BY_PLAYER))) {
+            UuidCodec.bind(statement, 1, playerUuid, uuidStorage(COMMAND_LOGS));
+            statement.setTimestamp(2, historySince());
+            statement.setInt(bindKeyset(statement, 3, after, HistoryCursor.Kind.COMMAND), limit);
+
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    logs.add(mapResultSetToCommandLog(rs));
+                }
+            }
+        }
+
+        ArchiveStore archived = archive;
+        if (archived != null && logs.size() < limit) {
+            HistoryCursor before = logs.isEmpty() ? after : HistoryCursor.after(logs.get(logs.size() - 1));
+            logs.addAll(archivedCommandLogs(archived, playerUuid, before, 0, limit - logs.size()));
+        }
+        return logs;
+    }
+
+    /**
+     * Merge source over one table's rows as history entries: the first batch starts at the page cursor,
+     * later batches after the last row read
+     */
+    private static <T> KWayMerge.Source<HistoryEntry> historySource(HistoryCursor start, PageLoader<T> loader,
+                                                                  Function<T, HistoryEntry> toEntry) {
+        return (last, limit) -> loader.load(last == null ? start : HistoryCursor.after(last), limit).stream()
+                .map(toEntry)
+                .toList();
+    }
+
+    /**
+     * Cursor of the chat message page starting at row {@code offset} (null for 0), to jump to a page number.
+     * {@code from} is the cursor of a known page starting at row {@code fromRow} (null and 0: the newest row);
+     * only the idx_player_time entries between it and the page are read, never the rows themselves.
+     */
+    public CompletableFuture<String> seekChatMessagesByPlayerAsync(String playerUuid, String from, int fromRow, int offset) {
+        if (offset <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return DatabaseManager.supplyAsync(() -> {
+            try (Connection connection = databaseManager.getConnection()) {
+                HistoryCursor base = resolveCursor(connection, HistoryCursor.decode(from));
+                HistoryCursor cursor = seek(connection, SEEK_CHAT_MESSAGES_BY_PLAYER, playerUuid, CHAT_MESSAGES, HistoryCursor.Kind.CHAT,
+                        base, offset - fromRow - 1);
+                ArchiveStore archived = archive;
+                if (cursor == null && archived != null) {
+                    int skip = offset - 1 - count(connection, COUNT_CHAT_MESSAGES_BY_PLAYER_SINCE, playerUuid, CHAT_MESSAGES);
+                    cursor = first(archivedChatMessages(archived, playerUuid, null, Math.max(0, skip), 1), HistoryCursor::after);
                 }
+                return (cursor != null ? cursor : HistoryCursor.END).encode();
             } catch (SQLException e) {
-                logger.log(Level.WARNING, "Failed to get command logs for player: " + playerUuid, e);
+                logger.log(Level.WARNING, "Failed to seek chat messages for player: " + playerUuid, e);
+                return HistoryCursor.END.encode();
             }
-            return logs;
-        });
+        }, databaseManager.getReadExecutor());
     }
 
     /**
-     * Get combined history (chat + commands) by player UUID, ordered by timestamp DESC
+     * Cursor of the command log page starting at row {@code offset}; see {@link #seekChatMessagesByPlayerAsync}
      */
-    public CompletableFuture<List<HistoryEntry>> getCombinedHistoryByPlayerAsync(String playerUuid, int limit, int offset) {
-        return CompletableFuture.supplyAsync(() -> {
-            List<HistoryEntry> entries = new ArrayList<>();
-            try (Connection connection = databaseManager.getConnection();
-                 PreparedStatement statement = connection.prepareStatement(SELECT_COMBINED_HISTORY_BY_PLAYER)) {
-
-                statement.setString(1, playerUuid);
-                statement.setString(2, playerUuid);
-                statement.setInt(3, limit);
-                statement.setInt(4, offset);
-
-                try (ResultSet rs = statement.executeQuery()) {
-                    while (rs.next()) {
-                        HistoryEntry e = new HistoryEntry();
-                        e.entryType = rs.getString("entry_type");
-                        e.timestamp = rs.getTimestamp("ts");
-                        e.text = rs.getString("text");
-                        e.subtype = rs.getString("subtype");
-                        e.worldName = rs.getString("world_name");
-                        e.locationX = rs.getObject("location_x", Double.class);
-                        e.locationY = rs.getObject("location_y", Double.class);
-                        e.locationZ = rs.getObject("location_z", Double.class);
-                        e.sourceType = rs.getString("source_type");
-                        e.cancelled = rs.getBoolean("is_cancelled");
-                        entries.add(e);
+    public CompletableFuture<String> seekCommandLogsByPlayerAsync(String playerUuid, String from, int fromRow, int offset) {
+        if (offset <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return DatabaseManager.supplyAsync(() -> {
+            try (Connection connection = databaseManager.getConnection()) {
+                HistoryCursor base = resolveCursor(connection, HistoryCursor.decode(from));
+                HistoryCursor cursor = seek(connection, SEEK_COMMAND_LOGS_BY_PLAYER, playerUuid, COMMAND_LOGS, HistoryCursor.Kind.COMMAND,
+                        base, offset - fromRow - 1);
+                ArchiveStore archived = archive;
+                if (cursor == null && archived != null) {
+                    int skip = offset - 1 - count(connection, COUNT_COMMAND_LOGS_BY_PLAYER_SINCE, playerUuid, COMMAND_LOGS);
+                    cursor = first(archivedCommandLogs(archived, playerUuid, null, Math.max(0, skip), 1), HistoryCursor::after);
+                }
+                return (cursor != null ? cursor : HistoryCursor.END).encode();
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Failed to seek command logs for player: " + playerUuid, e);
+                return HistoryCursor.END.encode();
+            }
+        }, databaseManager.getReadExecutor());
+    }
+
+    /**
+     * Cursor of the combined history page starting at row {@code offset}; see {@link #seekChatMessagesByPlayerAsync}
+     */
+    public CompletableFuture<String> seekCombinedHistoryByPlayerAsync(String playerUuid, String from, int fromRow, int offset) {
+        if (offset <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return DatabaseManager.supplyAsync(() -> {
+            try (Connection connection = databaseManager.getConnection()) {
+                HistoryCursor base = resolveCursor(connection, HistoryCursor.decode(from));
+                int rows = offset - fromRow;
+                HistoryCursor cursor = null;
+                try (PreparedStatement statement = connection.prepareStatement(SEEK_COMBINED_HISTORY_BY_PLAYER)) {
+                    Timestamp since = historySince();
+                    UuidCodec.bind(statement, 1, playerUuid, uuidStorage(CHAT_MESSAGES));
+                    statement.setTimestamp(2, since);
+                    int index = bindKeyset(statement, 3, base, HistoryCursor.Kind.CHAT);
+                    statement.setInt(index++, rows);
+                    UuidCodec.bind(statement, index++, playerUuid, uuidStorage(COMMAND_LOGS));
+                    statement.setTimestamp(index++, since);
+                    index = bindKeyset(statement, index, base, HistoryCursor.Kind.COMMAND);
+                    statement.setInt(index++, rows);
+                    statement.setInt(index, rows - 1);
+                    try (ResultSet rs = statement.executeQuery()) {
+                        if (rs.next()) {
+                            cursor = new HistoryCursor(rs.getTimestamp(1).toLocalDateTime(), rs.getLong(2),
+                                    HistoryCursor.Kind.values()[rs.getInt(3)]);
+                        }
                     }
                 }
+                ArchiveStore archived = archive;
+                if (cursor == null && archived != null) {
+                    int skip = offset - 1 - count(connection, COUNT_CHAT_MESSAGES_BY_PLAYER_SINCE, playerUuid, CHAT_MESSAGES)
+                            - count(connection, COUNT_COMMAND_LOGS_BY_PLAYER_SINCE, playerUuid, COMMAND_LOGS);
+                    cursor = first(archivedHistory(archived, playerUuid, null, Math.max(0, skip), 1), HistoryCursor::after);
+                }
+                return (cursor != null ? cursor : HistoryCursor.END).encode();
             } catch (SQLException e) {
-                logger.log(Level.WARNING, "Failed to get combined history for player: " + playerUuid, e);
+                logger.log(Level.WARNING, "Failed to seek combined history for player: " + playerUuid, e);
+                return HistoryCursor.END.encode();
+            }
+        }, databaseManager.getReadExecutor());
+    }
+
+    /**
+     * (timestamp, id) of the row at a 0-based position of a player's rows after {@code base} (null: from the
+     * newest row), null past the end
+     */
+    private HistoryCursor seek(Connection connection, String sql, String playerUuid, String table,
+                               HistoryCursor.Kind kind, HistoryCursor base, int row) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            UuidCodec.bind(statement, 1, playerUuid, uuidStorage(table));
+            statement.setTimestamp(2, historySince());
+            statement.setInt(bindKeyset(statement, 3, base, kind), row);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? new HistoryCursor(rs.getTimestamp(1).toLocalDateTime(), rs.getLong(2), kind) : null;
             }
-            return entries;
-        });
+        }
+    }
+
+    /**
+     * Bind {@code timestamp <= ? AND (timestamp < ? OR id < ?)} for rows after the cursor, or for all rows
+     * without one; returns the next parameter index
+     */
+    private static int bindKeyset(PreparedStatement statement, int index, HistoryCursor after, HistoryCursor.Kind kind) throws SQLException {
+        Timestamp bound = after != null ? Timestamp.valueOf(after.timestamp()) : FAR_FUTURE;
+        statement.setTimestamp(index, bound);
+        statement.setTimestamp(index + 1, bound);
+        statement.setLong(index + 2, after != null ? after.tieBreakId(kind) : Long.MAX_VALUE);
+        return index + 3;
+    }
+
+    /**
+     * A full page continues after its last row; a short page is the last one
+     */
+    private static <T> HistoryPage<T> page(List<T> items, int limit, Function<T, HistoryCursor> cursor) {
+        String next = !items.isEmpty() && items.size() >= limit ? cursor.apply(items.get(items.size() - 1)).encode() : null;
+        return new HistoryPage<>(items, next);
+    }
+
+    /**
+     * Look up the row of a cursor taken from a cached entry that had no row id yet. A row still waiting in the
+     * write queue or the spool is not found; the listing then continues from its timestamp.
+     */
+    private HistoryCursor resolveCursor(Connection connection, HistoryCursor cursor) throws SQLException {
+        if (cursor == null || cursor.unresolvedUuid() == null) {
+            // An index position without a message UUID has no row to continue from
+            return cursor != null && cursor.isIndexed() ? cursor.unresolvable() : cursor;
+        }
+        boolean command = cursor.kind() == HistoryCursor.Kind.COMMAND;
+        String table = command ? COMMAND_LOGS : CHAT_MESSAGES;
+        String sql = "SELECT id FROM `" + table + "` WHERE " + (command ? "command_uuid" : "message_uuid") + " = ?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            UuidCodec.bind(statement, 1, cursor.unresolvedUuid(), uuidStorage(table));
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? cursor.resolve(rs.getLong(1)) : cursor.unresolvable();
+            }
+        }
+    }
+
+    private static <T> HistoryCursor first(List<T> items, Function<T, HistoryCursor> cursor) {
+        return items.isEmpty() ? null : cursor.apply(items.get(0));
+    }
+
+    private List<ChatMessage> archivedChatMessages(ArchiveStore archived, String playerUuid, HistoryCursor before, int skip, int limit) {
+        return before == null
+                ? archived.findChatMessages(playerUuid, historyWindowStart(), null, 0, skip, limit)
+                : archived.findChatMessages(playerUuid, historyWindowStart(), before.timestamp(), before.tieBreakId(HistoryCursor.Kind.CHAT), skip, limit);
+    }
+
+    private List<CommandLog> archivedCommandLogs(ArchiveStore archived, String playerUuid, HistoryCursor before, int skip, int limit) {
+        return before == null
+                ? archived.findCommandLogs(playerUuid, historyWindowStart(), null, 0, skip, limit)
+                : archived.findCommandLogs(playerUuid, historyWindowStart(), before.timestamp(), before.tieBreakId(HistoryCursor.Kind.COMMAND), skip, limit);
+    }
+
+    /**
+     * Archived chat messages and command logs merged in combined history order
+     */
+    private List<HistoryEntry> archivedHistory(ArchiveStore archived, String playerUuid, HistoryCursor before, int skip, int limit) throws SQLException {
+        return new KWayMerge<>(NEWEST_FIRST, List.of(
+                historySource(before, (after, n) -> archivedChatMessages(archived, playerUuid, after, 0, n), HistoryEntry::of),
+                historySource(before, (after, n) -> archivedCommandLogs(archived, playerUuid, after, 0, n), HistoryEntry::of)),
+                skip + limit).take(skip, limit);
     }
     
     /**
-     * Get chat messages within a time range
+     * Get a page of chat messages within a time range, newest first; cursor as in {@link #getChatMessagesByPlayerAsync}
      */
-    public CompletableFuture<List<ChatMessage>> getChatMessagesByTimeRangeAsync(
-            Timestamp startTime, Timestamp endTime, int limit, int offset) {
-        return CompletableFuture.supplyAsync(() -> {
+    public CompletableFuture<HistoryPage<ChatMessage>> getChatMessagesByTimeRangeAsync(
+            Timestamp startTime, Timestamp endTime, String cursor, int limit) {
+        HistoryCursor after = HistoryCursor.decode(cursor);
+        return DatabaseManager.supplyAsync(() -> {
             List<ChatMessage> messages = new ArrayList<>();
             
             try (Connection connection = databaseManager.getConnection();
-                 PreparedStatement statement = connection.prepareStatement(SELECT_CHAT_MESSAGES_BY_TIME_RANGE)) {
+                 PreparedStatement statement = connection.prepareStatement(query(SELECT_CHAT_MESSAGES_BY_TIME_RANGE))) {
                 
+                Timestamp bound = after != null ? Timestamp.valueOf(after.timestamp()) : FAR_FUTURE;
                 statement.setTimestamp(1, startTime);
-                statement.setTimestamp(2, endTime);
-                statement.setInt(3, limit);
-                statement.setInt(4, offset);
+                statement.setTimestamp(2, bound.before(endTime) ? bound : endTime);
+                statement.setTimestamp(3, bound);
+                statement.setLong(4, after != null ? after.tieBreakId(HistoryCursor.Kind.CHAT) : Long.MAX_VALUE);
+                statement.setInt(5, limit);
                 
                 try (ResultSet resultSet = statement.executeQuery()) {
                     while (resultSet.next()) {
@@ -357,51 +1087,228 @@ public class ChatDAO {
                 logger.log(Level.WARNING, "Failed to get chat messages by time range", e);
             }
             
-            return messages;
-        });
+            return page(messages, limit, HistoryCursor::after);
+        }, databaseManager.getReadExecutor());
     }
     
     /**
-     * Search chat messages by content
+     * Search chat messages by content with optional player, server and time filters, newest first.
+     * Uses the FULLTEXT index when the table has one, otherwise a LIKE condition per term;
+     * cursor as in {@link #getChatMessagesByPlayerAsync}.
      */
-    public CompletableFuture<List<ChatMessage>> searchChatMessagesAsync(String searchTerm, int limit, int offset) {
-        return CompletableFuture.supplyAsync(() -> {
+    public CompletableFuture<HistoryPage<ChatMessage>> searchChatMessagesAsync(ChatSearch search, String cursor, int limit) {
+        HistoryCursor after = HistoryCursor.decode(cursor);
+        RecentChatIndex recent = recentIndex;
+        return DatabaseManager.supplyAsync(() -> {
             List<ChatMessage> messages = new ArrayList<>();
-            
-            try (Connection connection = databaseManager.getConnection();
-                 PreparedStatement statement = connection.prepareStatement(SELECT_CHAT_MESSAGES_BY_CONTENT)) {
-                
-                statement.setString(1, "%" + searchTerm + "%");
-                statement.setInt(2, limit);
-                statement.setInt(3, offset);
-                
+            if (search.isEmpty()) {
+                return page(messages, limit, HistoryCursor::after);
+            }
+
+            HistoryCursor next = null;
+            HistoryCursor before = after;
+            LocalDateTime coveredSince = null;
+            if (recent != null) {
+                RecentChatIndex.Result<List<RecentChatIndex.Hit>> hits = recent.search(search, after, limit);
+                for (RecentChatIndex.Hit hit : hits.value()) {
+                    messages.add(hit.message());
+                    next = HistoryCursor.indexed(hit.message(), hit.sequence());
+                }
+                coveredSince = hits.coveredSince();
+                if (messages.size() >= limit) {
+                    return new HistoryPage<>(messages, next.encode());
+                }
+                if (search.getFrom() != null && !search.getFrom().isBefore(coveredSince)) {
+                    return new HistoryPage<>(messages, null);
+                }
+                // The database continues below the window from its newest row
+                if (after != null && !after.timestamp().isBefore(coveredSince)) {
+                    before = null;
+                }
+            }
+
+            List<ChatMessage> older = searchDatabase(search, before, coveredSince, limit - messages.size());
+            messages.addAll(older);
+            if (!older.isEmpty()) {
+                next = HistoryCursor.after(older.get(older.size() - 1));
+            }
+            return new HistoryPage<>(messages, messages.size() >= limit && next != null ? next.encode() : null);
+        }, databaseManager.getReadExecutor());
+    }
+
+    /**
+     * Matches stored in the database strictly after the cursor and, if given, before {@code until} (blocking)
+     */
+    private List<ChatMessage> searchDatabase(ChatSearch search, HistoryCursor after, LocalDateTime until, int limit) {
+        List<ChatMessage> messages = new ArrayList<>();
+        try (Connection connection = databaseManager.getConnection()) {
+            // A cursor from the recent index points at a sequence number; continue from its stored row
+            HistoryCursor before = resolveCursor(connection, after);
+            List<String> conditions = new ArrayList<>();
+            List<Object> parameters = new ArrayList<>();
+            searchConditions(search, until, conditions, parameters);
+            Timestamp bound = before != null ? Timestamp.valueOf(before.timestamp()) : FAR_FUTURE;
+            Timestamp to = search.getTo() != null ? Timestamp.valueOf(search.getTo()) : null;
+            conditions.add("cm.`timestamp` <= ? AND (cm.`timestamp` < ? OR cm.id < ?)");
+            parameters.add(to != null && to.before(bound) ? to : bound);
+            parameters.add(bound);
+            parameters.add(before != null ? before.tieBreakId(HistoryCursor.Kind.CHAT) : Long.MAX_VALUE);
+            parameters.add(limit);
+
+            String sql = "SELECT {chat}\nWHERE " + String.join("\n  AND ", conditions) + SEARCH_ORDER;
+            try (PreparedStatement statement = connection.prepareStatement(query(sql))) {
+                for (int i = 0; i < parameters.size(); i++) {
+                    statement.setObject(i + 1, parameters.get(i));
+                }
+
                 try (ResultSet resultSet = statement.executeQuery()) {
                     while (resultSet.next()) {
                         messages.add(mapResultSetToChatMessage(resultSet));
                     }
                 }
-                
-            } catch (SQLException e) {
-                logger.log(Level.WARNING, "Failed to search chat messages for: " + searchTerm, e);
             }
-            
-            return messages;
-        });
+
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Failed to search chat messages for: " + search.getText(), e);
+        }
+        return messages;
+    }
+
+    /**
+     * The players who wrote messages matching the search, with their number of matches, most recent first.
+     * Inside the window of the recent index this is answered from memory.
+     */
+    public CompletableFuture<List<Speaker>> whoSaidAsync(ChatSearch search, int limit) {
+        RecentChatIndex recent = recentIndex;
+        return DatabaseManager.supplyAsync(() -> {
+            Map<String, Speaker> speakers = new HashMap<>();
+            if (search.isEmpty()) {
+                return List.<Speaker>of();
+            }
+            LocalDateTime coveredSince = null;
+            if (recent != null) {
+                RecentChatIndex.Result<Map<String, Speaker>> recentSpeakers = recent.speakers(search);
+                speakers.putAll(recentSpeakers.value());
+                coveredSince = recentSpeakers.coveredSince();
+            }
+            if (coveredSince == null || search.getFrom() == null || search.getFrom().isBefore(coveredSince)) {
+                try (Connection connection = databaseManager.getConnection()) {
+                    Set<String> recentOnly = new HashSet<>(speakers.keySet());
+                    for (Speaker speaker : olderSpeakers(connection, search, coveredSince, List.of(), limit)) {
+                        recentOnly.remove(String.valueOf(speaker.playerUuid()));
+                        speakers.merge(String.valueOf(speaker.playerUuid()), speaker, Speaker::merge);
+                    }
+                    // Recent speakers outside the older top list still have their older matches counted
+                    List<String> missing = new ArrayList<>(recentOnly);
+                    for (int from = 0; from < missing.size(); from += SPEAKER_BATCH) {
+                        List<String> batch = missing.subList(from, Math.min(from + SPEAKER_BATCH, missing.size()));
+                        for (Speaker speaker : olderSpeakers(connection, search, coveredSince, batch, batch.size())) {
+                            speakers.merge(String.valueOf(speaker.playerUuid()), speaker, Speaker::merge);
+                        }
+                    }
+                } catch (SQLException e) {
+                    logger.log(Level.WARNING, "Failed to find the players who wrote: " + search.getText(), e);
+                }
+            }
+            return speakers.values().stream()
+                    .sorted(Comparator.comparing(Speaker::lastMatch).reversed())
+                    .limit(limit)
+                    .toList();
+        }, databaseManager.getReadExecutor());
+    }
+
+    /**
+     * Players with matches stored in the database before {@code until}, most recent first; only those in
+     * {@code players} if it is not empty (blocking)
+     */
+    private List<Speaker> olderSpeakers(Connection connection, ChatSearch search, LocalDateTime until,
+                                        List<String> players, int limit) throws SQLException {
+        List<String> conditions = new ArrayList<>();
+        List<Object> parameters = new ArrayList<>();
+        searchConditions(search, until, conditions, parameters);
+        if (search.getTo() != null) {
+            conditions.add("cm.`timestamp` <= ?");
+            parameters.add(Timestamp.valueOf(search.getTo()));
+        }
+        if (!players.isEmpty()) {
+            conditions.add("cm.player_uuid IN (" + String.join(", ", Collections.nCopies(players.size(), "?")) + ")");
+            for (String player : players) {
+                parameters.add(UuidCodec.toParameter(player, uuidStorage(CHAT_MESSAGES)));
+            }
+        }
+        parameters.add(limit);
+        String sql = SELECT_SPEAKERS + String.join("\n  AND ", conditions) + SPEAKERS_ORDER;
+        List<Speaker> speakers = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(query(sql))) {
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    speakers.add(new Speaker(UuidCodec.read(resultSet, "player_uuid", uuidStorage(CHAT_MESSAGES)),
+                            resultSet.getString("player_name"), resultSet.getInt("matches"),
+                            resultSet.getTimestamp("last_match").toLocalDateTime()));
+                }
+            }
+        }
+        return speakers;
+    }
+
+    /**
+     * Text, player, server and start conditions of a search, and the end of the range read from the database
+     */
+    private void searchConditions(ChatSearch search, LocalDateTime until, List<String> conditions, List<Object> parameters) {
+        if (databaseManager.isFulltextIndexed()) {
+            conditions.add("MATCH(cm.message_content) AGAINST (? IN BOOLEAN MODE)");
+            parameters.add(search.booleanQuery());
+        } else {
+            for (ChatSearch.Term term : search.terms()) {
+                conditions.add("cm.message_content " + (term.excluded() ? "NOT LIKE" : "LIKE") + " ? ESCAPE '!'");
+                parameters.add("%" + escapeLike(term.text()) + "%");
+            }
+        }
+        if (search.getPlayerUuid() != null) {
+            conditions.add("cm.player_uuid = ?");
+            parameters.add(UuidCodec.toParameter(search.getPlayerUuid(), uuidStorage(CHAT_MESSAGES)));
+        }
+        if (search.getServerName() != null) {
+            conditions.add("{cm_server} = ?");
+            parameters.add(search.getServerName());
+        }
+        if (search.getFrom() != null) {
+            conditions.add("cm.`timestamp` >= ?");
+            parameters.add(Timestamp.valueOf(search.getFrom()));
+        }
+        if (until != null) {
+            conditions.add("cm.`timestamp` < ?");
+            parameters.add(Timestamp.valueOf(until));
+        }
+    }
+
+    /**
+     * Escape LIKE wildcards with the '!' escape character
+     */
+    private static String escapeLike(String text) {
+        return text.replace("!", "!!").replace("%", "!%").replace("_", "!_");
     }
     
     /**
      * Get message count for a player
      */
     public CompletableFuture<Integer> getMessageCountByPlayerAsync(String playerUuid) {
-        return CompletableFuture.supplyAsync(() -> {
-            try (Connection connection = databaseManager.getConnection();
-                 PreparedStatement statement = connection.prepareStatement(COUNT_MESSAGES_BY_PLAYER)) {
-                
-                statement.setString(1, playerUuid);
-                
-                try (ResultSet resultSet = statement.executeQuery()) {
-                    if (resultSet.next()) {
-                        return resultSet.getInt(1);
+        return DatabaseManager.supplyAsync(() -> {
+            try (Connection connection = databaseManager.getConnection()) {
+                // A single row of player_stats once it is backfilled, the index range of the player until then
+                if (databaseManager.isPlayerStatsReady()) {
+                    return (int) Math.min(Integer.MAX_VALUE, stats.countMessages(connection, playerUuid));
+                }
+                try (PreparedStatement statement = connection.prepareStatement(COUNT_MESSAGES_BY_PLAYER)) {
+                    UuidCodec.bind(statement, 1, playerUuid, uuidStorage(CHAT_MESSAGES));
+
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        if (resultSet.next()) {
+                            return resultSet.getInt(1);
+                        }
                     }
                 }
                 
@@ -410,28 +1317,23 @@ public class ChatDAO {
             }
             
             return 0;
-        });
+        }, databaseManager.getReadExecutor());
     }
     
     /**
-     * Delete old messages before a certain timestamp
+     * Delete old messages before a certain timestamp, in throttled primary-key chunks on the retention thread
      */
     public CompletableFuture<Integer> deleteOldMessagesAsync(Timestamp beforeTimestamp) {
-        return CompletableFuture.supplyAsync(() -> {
-            try (Connection connection = databaseManager.getConnection();
-                 PreparedStatement statement = connection.prepareStatement(DELETE_OLD_MESSAGES)) {
-                
-                statement.setTimestamp(1, beforeTimestamp);
-                int deletedCount = statement.executeUpdate();
-                
-                logger.info("Deleted " + deletedCount + " old chat messages");
-                return deletedCount;
-                
-            } catch (SQLException e) {
-                logger.log(Level.WARNING, "Failed to delete old messages", e);
-                return 0;
-            }
-        });
+        RetentionService retention = databaseManager.getRetention();
+        if (retention == null) {
+            return CompletableFuture.completedFuture(0);
+        }
+        return retention.purgeAsync(CHAT_MESSAGES, beforeTimestamp.toLocalDateTime())
+                .thenApply(Long::intValue)
+                .exceptionally(e -> {
+                    logger.log(Level.WARNING, "Failed to delete old messages", e);
+                    return 0;
+                });
     }
     
     /**
@@ -439,12 +1341,13 @@ public class ChatDAO {
      */
     private ChatMessage mapResultSetToChatMessage(ResultSet rs) throws SQLException {
         ChatMessage message = new ChatMessage();
+        UuidStorage uuids = uuidStorage(CHAT_MESSAGES);
         
         message.setId(rs.getLong("id"));
-        message.setMessageUuid(rs.getString("message_uuid"));
+        message.setMessageUuid(UuidCodec.read(rs, "message_uuid", uuids));
         message.setServerName(rs.getString("server_name"));
         message.setWorldName(rs.getString("world_name"));
-        message.setPlayerUuid(rs.getString("player_uuid"));
+        message.setPlayerUuid(UuidCodec.read(rs, "player_uuid", uuids));
         message.setPlayerName(rs.getString("player_name"));
         message.setMessageContent(rs.getString("message_content"));
         message.setMessageType(ChatMessage.MessageType.valueOf(rs.getString("message_type")));
@@ -459,7 +1362,7 @@ public class ChatDAO {
         message.setLocationY(locationY);
         message.setLocationZ(locationZ);
         
-        message.setRecipientUuid(rs.getString("recipient_uuid"));
+        message.setRecipientUuid(UuidCodec.read(rs, "recipient_uuid", uuids));
         message.setRecipientName(rs.getString("recipient_name"));
         message.setCancelled(rs.getBoolean("is_cancelled"));
         message.setMetadataJson(rs.getString("metadata_json"));
@@ -473,14 +1376,15 @@ public class ChatDAO {
      */
     private CommandLog mapResultSetToCommandLog(ResultSet rs) throws SQLException {
         CommandLog log = new CommandLog();
+        UuidStorage uuids = uuidStorage(COMMAND_LOGS);
         log.setId(rs.getLong("id"));
-        log.setCommandUuid(rs.getString("command_uuid"));
+        log.setCommandUuid(UuidCodec.read(rs, "command_uuid", uuids));
         log.setServerName(rs.getString("server_name"));
         String src = rs.getString("source_type");
         if (src != null) {
             try { log.setSourceType(CommandLog.SourceType.valueOf(src)); } catch (IllegalArgumentException ignored) {}
         }
-        log.setPlayerUuid(rs.getString("player_uuid"));
+        log.setPlayerUuid(UuidCodec.read(rs, "player_uuid", uuids));
         log.setPlayerName(rs.getString("player_name"));
         log.setCommandText(rs.getString("command_text"));
         log.setWorldName(rs.getString("world_name"));
@@ -496,10 +1400,75 @@ public class ChatDAO {
         return log;
     }
     
+    /**
+     * Bind the 16 chat_messages columns starting after the given parameter offset
+     */
+    private void bindChatMessage(PreparedStatement statement, int offset, ChatMessage message, boolean encoded) throws SQLException {
+        UuidStorage uuids = uuidStorage(CHAT_MESSAGES);
+        UuidCodec.bind(statement, offset + 1, message.getMessageUuid(), uuids);
+        bindName(statement, offset + 2, LookupTable.SERVERS, message.getServerName(), encoded);
+        bindName(statement, offset + 3, LookupTable.WORLDS, message.getWorldName(), encoded);
+        UuidCodec.bind(statement, offset + 4, message.getPlayerUuid(), uuids);
+        statement.setString(offset + 5, message.getPlayerName());
+        statement.setString(offset + 6, message.getMessageContent());
+        statement.setString(offset + 7, message.getMessageType().name());
+        bindName(statement, offset + 8, LookupTable.CHANNELS, message.getChannel(), encoded);
+
+        // Handle nullable location fields
+        setDoubleOrNull(statement, offset + 9, message.getLocationX());
+        setDoubleOrNull(statement, offset + 10, message.getLocationY());
+        setDoubleOrNull(statement, offset + 11, message.getLocationZ());
+
+        UuidCodec.bind(statement, offset + 12, message.getRecipientUuid(), uuids);
+        statement.setString(offset + 13, message.getRecipientName());
+        statement.setBoolean(offset + 14, message.isCancelled());
+        statement.setString(offset + 15, message.getMetadataJson());
+        statement.setTimestamp(offset + 16, Timestamp.valueOf(message.getTimestamp()));
+    }
+
+    /**
+     * Bind the 13 command_logs columns starting after the given parameter offset
+     */
+    private void bindCommandLog(PreparedStatement statement, int offset, CommandLog log, boolean encoded) throws SQLException {
+        UuidStorage uuids = uuidStorage(COMMAND_LOGS);
+        UuidCodec.bind(statement, offset + 1, log.getCommandUuid(), uuids);
+        bindName(statement, offset + 2, LookupTable.SERVERS, log.getServerName(), encoded);
+        statement.setString(offset + 3, log.getSourceType().name());
+        UuidCodec.bind(statement, offset + 4, log.getPlayerUuid(), uuids);
+        statement.setString(offset + 5, log.getPlayerName());
+        statement.setString(offset + 6, log.getCommandText());
+        bindName(statement, offset + 7, LookupTable.WORLDS, log.getWorldName(), encoded);
+
+        // Nullable location fields
+        setDoubleOrNull(statement, offset + 8, log.getLocationX());
+        setDoubleOrNull(statement, offset + 9, log.getLocationY());
+        setDoubleOrNull(statement, offset + 10, log.getLocationZ());
+
+        statement.setBoolean(offset + 11, log.isCancelled());
+        statement.setString(offset + 12, log.getMetadataJson());
+        statement.setTimestamp(offset + 13, Timestamp.valueOf(log.getTimestamp()));
+    }
+    
+    /**
+     * Bind a name column as text or, for encoded tables, as its lookup table key
+     */
+    private void bindName(PreparedStatement statement, int parameterIndex, LookupTable lookup, String name, boolean encoded) throws SQLException {
+        if (!encoded) {
+            statement.setString(parameterIndex, name);
+            return;
+        }
+        Integer id = names.idOf(lookup, name);
+        if (id != null) {
+            statement.setInt(parameterIndex, id);
+        } else {
+            statement.setNull(parameterIndex, Types.SMALLINT);
+        }
+    }
+
     /**
      * Helper method to set double or null
      */
-    private void setDoubleOrNull(PreparedStatement statement, int parameterIndex, Double value) throws SQLException {
+    private static void setDoubleOrNull(PreparedStatement statement, int parameterIndex, Double value) throws SQLException {
         if (value != null) {
             statement.setDouble(parameterIndex, value);
         } else {
@@ -507,11 +1476,23 @@ public class ChatDAO {
         }
     }
 
+    /**
+     * A player who wrote messages matching a search: number of matches and the latest one
+     */
+    public record Speaker(String playerUuid, String playerName, int matches, LocalDateTime lastMatch) {
+
+        Speaker merge(Speaker other) {
+            Speaker latest = other.lastMatch.isAfter(lastMatch) ? other : this;
+            return new Speaker(playerUuid, latest.playerName, matches + other.matches, latest.lastMatch);
+        }
+    }
+
     /**
      * Simple DTO for combined history entries
      */
     public static class HistoryEntry {
         public String entryType; // CHAT or COMMAND
+        public long id; // row id in chat_messages or command_logs
         public Timestamp timestamp;
         public String text;
         public String subtype; // ChatMessage.MessageType as string (for CHAT)
@@ -521,6 +1502,43 @@ public class ChatDAO {
         public Double locationZ;
         public String sourceType; // CommandLog.SourceType as string (for COMMAND)
         public boolean cancelled;
+        public String uuid; // message_uuid or command_uuid
+
+        HistoryCursor.Kind kind() {
+            return HistoryCursor.Kind.valueOf(entryType);
+        }
+
+        static HistoryEntry of(ChatMessage message) {
+            HistoryEntry e = new HistoryEntry();
+            e.entryType = "CHAT";
+            e.id = message.getId() != null ? message.getId() : 0;
+            e.uuid = message.getMessageUuid();
+            e.timestamp = message.getTimestamp() != null ? Timestamp.valueOf(message.getTimestamp()) : null;
+            e.text = message.getMessageContent();
+            e.subtype = message.getMessageType() != null ? message.getMessageType().name() : null;
+            e.worldName = message.getWorldName();
+            e.locationX = message.getLocationX();
+            e.locationY = message.getLocationY();
+            e.locationZ = message.getLocationZ();
+            e.cancelled = message.isCancelled();
+            return e;
+        }
+
+        static HistoryEntry of(CommandLog log) {
+            HistoryEntry e = new HistoryEntry();
+            e.entryType = "COMMAND";
+            e.id = log.getId() != null ? log.getId() : 0;
+            e.uuid = log.getCommandUuid();
+            e.timestamp = log.getTimestamp() != null ? Timestamp.valueOf(log.getTimestamp()) : null;
+            e.text = log.getCommandText();
+            e.worldName = log.getWorldName();
+            e.locationX = log.getLocationX();
+            e.locationY = log.getLocationY();
+            e.locationZ = log.getLocationZ();
+            e.sourceType = log.getSourceType() != null ? log.getSourceType().name() : null;
+            e.cancelled = log.isCancelled();
+            return e;
+        }
     }
 }
 
@@ -0,0 +1,151 @@
+package de.chriss1998.theLabChatLog.dao;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Content search over chat messages: search text plus optional player, server and time filters.
+ * <p>
+ * The text uses the common search syntax: every word is required, {@code -word} excludes messages
+ * containing it, {@code "a phrase"} matches the words in this order and {@code word*} matches words starting
+ * with it. With a FULLTEXT index it is run as {@code MATCH ... AGAINST (... IN BOOLEAN MODE)}, otherwise
+ * every term becomes a LIKE condition.
+ */
+public final class ChatSearch {
+
+    /**
+     * One search term; phrases contain spaces
+     */
+    record Term(String text, boolean excluded, boolean prefix) {}
+
+    // Operators of the boolean FULLTEXT syntax that are not part of a term
+    private static final String OPERATORS = "+-<>()~*\"@";
+
+    private final String text;
+    private List<Term> terms;
+    private String playerUuid;
+    private String serverName;
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    private ChatSearch(String text) {
+        this.text = text;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getPlayerUuid() {
+        return playerUuid;
+    }
+
+    public String getServerName() {
+        return serverName;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    /**
+     * Whether the text contains no word a message has to contain; such a search matches nothing
+     */
+    public boolean isEmpty() {
+        return terms.stream().allMatch(Term::excluded);
+    }
+
+    List<Term> terms() {
+        return terms;
+    }
+
+    /**
+     * The terms in MySQL boolean mode syntax, every term marked as required or excluded
+     */
+    String booleanQuery() {
+        return terms.stream()
+                .map(t -> (t.excluded() ? "-" : "+") + (t.text().indexOf(' ') >= 0 ? "\"" + t.text() + "\""
+                        : t.text() + (t.prefix() ? "*" : "")))
+                .collect(Collectors.joining(" "));
+    }
+
+    static List<Term> parse(String text) {
+        List<Term> terms = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            boolean excluded = c == '-';
+            if (c == '-' || c == '+') {
+                i++;
+            }
+            if (i < text.length() && text.charAt(i) == '"') {
+                int end = text.indexOf('"', i + 1);
+                end = end < 0 ? text.length() : end;
+                String phrase = clean(text.substring(i + 1, end)).trim().replaceAll("\\s+", " ");
+                if (!phrase.isEmpty()) {
+                    terms.add(new Term(phrase, excluded, false));
+                }
+                i = end + 1;
+                continue;
+            }
+            int end = i;
+            while (end < text.length() && !Character.isWhitespace(text.charAt(end))) {
+                end++;
+            }
+            String word = text.substring(i, end);
+            String cleaned = clean(word);
+            if (!cleaned.isEmpty()) {
+                terms.add(new Term(cleaned, excluded, word.endsWith("*")));
+            }
+            i = end;
+        }
+        return terms;
+    }
+
+    private static String clean(String term) {
+        StringBuilder cleaned = new StringBuilder(term.length());
+        for (char c : term.toCharArray()) {
+            cleaned.append(OPERATORS.indexOf(c) >= 0 ? ' ' : c);
+        }
+        return cleaned.toString().trim();
+    }
+
+    public static class Builder {
+        private final ChatSearch search;
+
+        public Builder(String text) {
+            search = new ChatSearch(text);
+            search.terms = List.copyOf(parse(text));
+        }
+
+        public Builder player(String playerUuid) {
+            search.playerUuid = playerUuid;
+            return this;
+        }
+
+        public Builder server(String serverName) {
+            search.serverName = serverName;
+            return this;
+        }
+
+        public Builder between(LocalDateTime from, LocalDateTime to) {
+            search.from = from;
+            search.to = to;
+            return this;
+        }
+
+        public ChatSearch build() {
+            return search;
+        }
+    }
+}
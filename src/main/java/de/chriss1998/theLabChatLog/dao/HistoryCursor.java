@@ -0,0 +1,154 @@
+package de.chriss1998.theLabChatLog.dao;
+
+import de.chriss1998.theLabChatLog.model.ChatMessage;
+import de.chriss1998.theLabChatLog.model.CommandLog;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * Position in a history listing: the {@code (timestamp, id)} of the last row of a page, and for the combined
+ * chat/command listing also the kind of that row. The next page continues strictly after it in
+ * {@code timestamp DESC, id DESC} order, so every page is an index seek instead of an OFFSET scan.
+ * A page served from memory may end with an entry that has no row id yet; its cursor carries the entry's
+ * UUID instead and is {@link #resolve resolved} to the stored row when the next page is read. A search page
+ * answered by {@link RecentChatIndex} ends with a cursor on the index's sequence number instead of a row id;
+ * it also carries the message UUID, so the database search resolves it like a cached entry.
+ * Callers only pass the {@link #encode() encoded} token around.
+ */
+public final class HistoryCursor {
+
+    /**
+     * Row kind in the combined listing; at equal timestamps later constants come first
+     */
+    public enum Kind { COMMAND, CHAT }
+
+    // Below every stored row: a listing continued from here is empty
+    static final HistoryCursor END = new HistoryCursor(LocalDateTime.of(1970, 1, 2, 0, 0), 0, null);
+
+    // Token marker of an index position
+    private static final String INDEXED = "I";
+
+    private final LocalDateTime timestamp;
+    private final long id;
+    private final Kind kind;
+    // message_uuid/command_uuid of a row whose id was not known yet; null once resolved
+    private final String uuid;
+    // id is a RecentChatIndex sequence number, not a row id
+    private final boolean indexed;
+
+    HistoryCursor(LocalDateTime timestamp, long id, Kind kind) {
+        this(timestamp, id, kind, null, false);
+    }
+
+    private HistoryCursor(LocalDateTime timestamp, long id, Kind kind, String uuid, boolean indexed) {
+        this.timestamp = timestamp;
+        this.id = id;
+        this.kind = kind;
+        this.uuid = uuid;
+        this.indexed = indexed;
+    }
+
+    static HistoryCursor after(ChatMessage message) {
+        return message.getId() != null ? new HistoryCursor(message.getTimestamp(), message.getId(), Kind.CHAT)
+                : new HistoryCursor(message.getTimestamp(), 0, Kind.CHAT, message.getMessageUuid(), false);
+    }
+
+    /**
+     * Position of a search hit from the recent index; {@code sequence} only orders it inside the index
+     */
+    static HistoryCursor indexed(ChatMessage message, long sequence) {
+        return new HistoryCursor(message.getTimestamp(), sequence, Kind.CHAT, message.getMessageUuid(), true);
+    }
+
+    static HistoryCursor after(CommandLog log) {
+        return log.getId() != null ? new HistoryCursor(log.getTimestamp(), log.getId(), Kind.COMMAND)
+                : new HistoryCursor(log.getTimestamp(), 0, Kind.COMMAND, log.getCommandUuid(), false);
+    }
+
+    static HistoryCursor after(ChatDAO.HistoryEntry entry) {
+        return new HistoryCursor(entry.timestamp.toLocalDateTime(), entry.id, entry.kind(), entry.id != 0 ? null : entry.uuid, false);
+    }
+
+    /**
+     * UUID of the row the cursor points at if its id still has to be looked up, otherwise null
+     */
+    String unresolvedUuid() {
+        return uuid;
+    }
+
+    Kind kind() {
+        return kind;
+    }
+
+    /**
+     * Whether {@link #id()} is a sequence number of {@link RecentChatIndex}, which only the index can compare
+     */
+    boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * The same position with the row id that was looked up for {@link #unresolvedUuid()}
+     */
+    HistoryCursor resolve(long rowId) {
+        return new HistoryCursor(timestamp, rowId, kind);
+    }
+
+    /**
+     * For a row that is not stored yet: continue with every row of its second, a few rows may repeat
+     */
+    HistoryCursor unresolvable() {
+        return new HistoryCursor(timestamp, Long.MAX_VALUE, null);
+    }
+
+    LocalDateTime timestamp() {
+        return timestamp;
+    }
+
+    long id() {
+        return id;
+    }
+
+    /**
+     * Id bound for rows of the given kind that share the cursor's timestamp: rows of the cursor's own kind
+     * continue below its id, a kind ordered after it starts over, a kind ordered before it is done
+     */
+    long tieBreakId(Kind half) {
+        if (kind == null || kind == half) {
+            return id;
+        }
+        return half.ordinal() < kind.ordinal() ? Long.MAX_VALUE : Long.MIN_VALUE;
+    }
+
+    /**
+     * Opaque, URL-safe token
+     */
+    public String encode() {
+        String raw = timestamp.toEpochSecond(ZoneOffset.UTC) + ":" + timestamp.getNano() + ":" + id + ":"
+                + (kind != null ? kind.name() : "") + (uuid != null || indexed ? ":" + (uuid != null ? uuid : "") : "")
+                + (indexed ? ":" + INDEXED : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parse a token from {@link #encode()}; null or empty means "from the newest row"
+     */
+    public static HistoryCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":", -1);
+            LocalDateTime timestamp = LocalDateTime.ofEpochSecond(Long.parseLong(parts[0]), Integer.parseInt(parts[1]), ZoneOffset.UTC);
+            Kind kind = parts[3].isEmpty() ? null : Kind.valueOf(parts[3]);
+            String uuid = parts.length > 4 && !parts[4].isEmpty() ? parts[4] : null;
+            boolean indexed = parts.length > 5 && parts[5].equals(INDEXED);
+            return new HistoryCursor(timestamp, Long.parseLong(parts[2]), kind, uuid, indexed);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid history cursor: " + token, e);
+        }
+    }
+}
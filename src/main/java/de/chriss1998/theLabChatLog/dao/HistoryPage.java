@@ -0,0 +1,15 @@
+package de.chriss1998.theLabChatLog.dao;
+
+import java.util.List;
+
+/**
+ * One page of a history listing and the cursor token of the next page (null on the last page). A first page
+ * from the history cache that ends in an entry not written yet has no cursor either; the next page is then
+ * located with a seek.
+ */
+public record HistoryPage<T>(List<T> items, String nextCursor) {
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,119 @@
+package de.chriss1998.theLabChatLog.dao;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Lazy k-way merge of sources that each deliver their rows in the same order, e.g. the chat and command
+ * history of a player read from their own indexes. Sources are read in bounded batches and a source's next
+ * batch is only fetched once the merge needs its next row, so taking n rows reads at most about n rows per
+ * source, however much history lies behind them. Further sources (sessions, server events) are just more
+ * {@link Source}s.
+ */
+final class KWayMerge<T> {
+
+    /**
+     * Rows of one source in merge order, batch by batch
+     */
+    @FunctionalInterface
+    interface Source<T> {
+        /**
+         * Up to {@code limit} rows following {@code last} (null for the first batch); a shorter batch ends the source
+         */
+        List<T> fetch(T last, int limit) throws SQLException;
+    }
+
+    private final class Head {
+        private final Source<T> source;
+        private final ArrayDeque<T> buffer = new ArrayDeque<>();
+        private T last;
+        private boolean exhausted;
+
+        Head(Source<T> source) {
+            this.source = source;
+        }
+
+        /**
+         * Fetch the next batch; false if the source has no more rows
+         */
+        boolean fill() throws SQLException {
+            if (exhausted) {
+                return false;
+            }
+            List<T> batch = source.fetch(last, batchSize);
+            exhausted = batch.size() < batchSize;
+            if (batch.isEmpty()) {
+                return false;
+            }
+            buffer.addAll(batch);
+            last = batch.get(batch.size() - 1);
+            return true;
+        }
+    }
+
+    private final int batchSize;
+    private final List<Head> heads = new ArrayList<>();
+    private final PriorityQueue<Head> queue;
+    private boolean started;
+    // Source whose buffer ran empty on the last row; refilled only if another row is requested
+    private Head pending;
+
+    KWayMerge(Comparator<? super T> order, List<Source<T>> sources, int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+        this.queue = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> order.compare(a.buffer.peek(), b.buffer.peek()));
+        for (Source<T> source : sources) {
+            heads.add(new Head(source));
+        }
+    }
+
+    /**
+     * Next row in merge order, null once every source is exhausted
+     */
+    T next() throws SQLException {
+        if (!started) {
+            started = true;
+            for (Head head : heads) {
+                if (head.fill()) {
+                    queue.add(head);
+                }
+            }
+        }
+        if (pending != null) {
+            if (pending.fill()) {
+                queue.add(pending);
+            }
+            pending = null;
+        }
+        Head head = queue.poll();
+        if (head == null) {
+            return null;
+        }
+        T row = head.buffer.poll();
+        if (head.buffer.isEmpty()) {
+            pending = head;
+        } else {
+            queue.add(head);
+        }
+        return row;
+    }
+
+    /**
+     * The next {@code limit} rows after skipping {@code skip}
+     */
+    List<T> take(int skip, int limit) throws SQLException {
+        for (int i = 0; i < skip; i++) {
+            if (next() == null) {
+                return List.of();
+            }
+        }
+        List<T> rows = new ArrayList<>(Math.max(0, limit));
+        for (T row; rows.size() < limit && (row = next()) != null; ) {
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,123 @@
+package de.chriss1998.theLabChatLog.dao;
+
+import de.chriss1998.theLabChatLog.database.DatabaseManager;
+import de.chriss1998.theLabChatLog.database.LookupTable;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * In-process interning cache mapping server, world and channel names to their lookup table keys.
+ * <p>
+ * Names repeat on nearly every row and there are only a few of them, so after the first occurrence
+ * a name resolves without a round-trip. Misses are resolved by {@link #resolve} on the writer's own connection
+ * before its transaction starts, so the key is valid even if the batch that needed it is rolled back and no
+ * second pooled connection is taken while the write gate is held. Once the SMALLINT key space is used up,
+ * new names share the {@link LookupTable#OVERFLOW_NAME} entry instead of failing the batch.
+ */
+public class NameDictionary {
+
+    // Out of range value (167), failed to read auto-increment value (1467)
+    private static final int ER_WARN_DATA_OUT_OF_RANGE = 167;
+    private static final int ER_AUTOINC_READ_FAILED = 1467;
+
+    private final DatabaseManager databaseManager;
+    private final Logger logger;
+    private final Map<LookupTable, Map<String, Integer>> ids = new EnumMap<>(LookupTable.class);
+    private final Set<LookupTable> overflowWarned = ConcurrentHashMap.newKeySet();
+
+    public NameDictionary(DatabaseManager databaseManager, Logger logger) {
+        this.databaseManager = databaseManager;
+        this.logger = logger;
+        for (LookupTable table : LookupTable.values()) {
+            ids.put(table, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Key of the given name, which must have been {@link #resolve resolved} before; null for a null name
+     */
+    public Integer idOf(LookupTable table, String name) throws SQLException {
+        if (name == null) {
+            return null;
+        }
+        Integer id = ids.get(table).get(name);
+        if (id == null) {
+            throw new SQLException("Unresolved " + table.getTableName() + " entry: " + name);
+        }
+        return id;
+    }
+
+    /**
+     * Make sure the name has a key, inserting it into the lookup table on first use.
+     * Runs on the given autocommit connection, so the caller must not be inside a transaction.
+     */
+    public void resolve(Connection connection, LookupTable table, String name) throws SQLException {
+        if (name == null || ids.get(table).containsKey(name)) {
+            return;
+        }
+        String lookup = table.getTableName();
+        try (PreparedStatement insert = connection.prepareStatement("INSERT IGNORE INTO `" + lookup + "` (name) VALUES (?)")) {
+            insert.setString(1, name);
+            insert.executeUpdate();
+        } catch (SQLException e) {
+            if (!isKeySpaceExhausted(e)) {
+                throw e;
+            }
+        }
+        Integer id = select(connection, lookup, name);
+        if (id == null) {
+            // INSERT IGNORE turns a used-up AUTO_INCREMENT into a warning, so the name is simply not there
+            id = select(connection, lookup, LookupTable.OVERFLOW_NAME);
+            if (id == null) {
+                throw new SQLException("Could not resolve " + lookup + " entry: " + name);
+            }
+            if (overflowWarned.add(table)) {
+                logger.warning("Lookup table " + lookup + " has no keys left; new names are stored as "
+                        + LookupTable.OVERFLOW_NAME);
+            }
+        }
+        ids.get(table).put(name, id);
+    }
+
+    /**
+     * Load all known names, so steady-state writes never miss
+     */
+    public void preload() throws SQLException {
+        try (Connection connection = databaseManager.getConnection()) {
+            for (LookupTable table : LookupTable.values()) {
+                try (PreparedStatement statement = connection.prepareStatement("SELECT id, name FROM `" + table.getTableName() + "`");
+                     ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        ids.get(table).put(rs.getString(2), rs.getInt(1));
+                    }
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return ids.values().stream().mapToInt(Map::size).sum();
+    }
+
+    private static Integer select(Connection connection, String lookup, String name) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("SELECT id FROM `" + lookup + "` WHERE name = ?")) {
+            select.setString(1, name);
+            try (ResultSet rs = select.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+
+    private static boolean isKeySpaceExhausted(SQLException e) {
+        return e.getErrorCode() == ER_WARN_DATA_OUT_OF_RANGE || e.getErrorCode() == ER_AUTOINC_READ_FAILED
+                || "22003".equals(e.getSQLState());
+    }
+}
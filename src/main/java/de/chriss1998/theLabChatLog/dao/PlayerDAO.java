@@ -0,0 +1,135 @@
+package de.chriss1998.theLabChatLog.dao;
+
+import de.chriss1998.theLabChatLog.database.DatabaseManager;
+import de.chriss1998.theLabChatLog.database.UuidCodec;
+import de.chriss1998.theLabChatLog.database.UuidStorage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Data Access Object for the player directory ({@code players} and {@code player_names})
+ */
+public class PlayerDAO {
+
+    private static final String PLAYERS = "players";
+
+    // current_name is assigned before last_seen, so it still compares against the stored value
+    private static final String UPSERT_PLAYER = """
+        INSERT INTO `players` (player_uuid, current_name, first_seen, last_seen)
+        VALUES (?, ?, ?, ?)
+        ON DUPLICATE KEY UPDATE
+            current_name = IF(VALUES(last_seen) >= last_seen, VALUES(current_name), current_name),
+            first_seen = LEAST(first_seen, VALUES(first_seen)),
+            last_seen = GREATEST(last_seen, VALUES(last_seen))
+        """;
+
+    // Qualified: players in the SELECT has first_seen/last_seen too, unqualified names are ambiguous (1052)
+    private static final String UPSERT_PLAYER_NAME = """
+        INSERT INTO `player_names` (player_id, name, first_seen, last_seen)
+        SELECT id, ?, ?, ? FROM `players` WHERE player_uuid = ?
+        ON DUPLICATE KEY UPDATE
+            first_seen = LEAST(`player_names`.first_seen, VALUES(first_seen)),
+            last_seen = GREATEST(`player_names`.last_seen, VALUES(last_seen))
+        """;
+
+    private static final String SELECT_PLAYERS = """
+        SELECT player_uuid, current_name, first_seen, last_seen FROM `players`
+        """;
+
+    private static final String SELECT_FORMER_NAMES = """
+        SELECT p.player_uuid, n.name FROM `player_names` n
+        JOIN `players` p ON p.id = n.player_id
+        WHERE n.name <> p.current_name
+        ORDER BY n.last_seen
+        """;
+
+    /**
+     * One observed (player, name) pair to persist
+     */
+    public record Sighting(String playerUuid, String name, LocalDateTime firstSeen, LocalDateTime lastSeen) {}
+
+    /**
+     * Receives the stored directory row by row
+     */
+    public interface Loader {
+        void player(String playerUuid, String currentName, LocalDateTime firstSeen, LocalDateTime lastSeen);
+
+        void formerName(String playerUuid, String name);
+    }
+
+    private final DatabaseManager databaseManager;
+
+    public PlayerDAO(DatabaseManager databaseManager) {
+        this.databaseManager = databaseManager;
+    }
+
+    /**
+     * Upsert players and their name history in one transaction on the calling thread
+     */
+    public void upsert(List<Sighting> sightings) throws SQLException {
+        if (sightings.isEmpty()) {
+            return;
+        }
+        UuidStorage uuids = databaseManager.getUuidStorage(PLAYERS);
+        Lock gate = databaseManager.getWriteGate();
+        gate.lock();
+        try (Connection connection = databaseManager.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement players = connection.prepareStatement(UPSERT_PLAYER);
+                 PreparedStatement names = connection.prepareStatement(UPSERT_PLAYER_NAME)) {
+                for (Sighting sighting : sightings) {
+                    UuidCodec.bind(players, 1, sighting.playerUuid(), uuids);
+                    players.setString(2, sighting.name());
+                    players.setTimestamp(3, Timestamp.valueOf(sighting.firstSeen()));
+                    players.setTimestamp(4, Timestamp.valueOf(sighting.lastSeen()));
+                    players.addBatch();
+
+                    names.setString(1, sighting.name());
+                    names.setTimestamp(2, Timestamp.valueOf(sighting.firstSeen()));
+                    names.setTimestamp(3, Timestamp.valueOf(sighting.lastSeen()));
+                    UuidCodec.bind(names, 4, sighting.playerUuid(), uuids);
+                    names.addBatch();
+                }
+                players.executeBatch();
+                names.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            gate.unlock();
+        }
+    }
+
+    /**
+     * Stream all players and their former names into the loader, on the calling thread
+     */
+    public void loadAll(Loader loader) throws SQLException {
+        UuidStorage uuids = databaseManager.getUuidStorage(PLAYERS);
+        try (Connection connection = databaseManager.getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_PLAYERS);
+                 ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    loader.player(UuidCodec.read(rs, "player_uuid", uuids), rs.getString("current_name"),
+                            rs.getTimestamp("first_seen").toLocalDateTime(), rs.getTimestamp("last_seen").toLocalDateTime());
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_FORMER_NAMES);
+                 ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    loader.formerName(UuidCodec.read(rs, "player_uuid", uuids), rs.getString("name"));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package de.chriss1998.theLabChatLog.dao;
+
+import de.chriss1998.theLabChatLog.database.DatabaseManager;
+import de.chriss1998.theLabChatLog.database.UuidCodec;
+import de.chriss1998.theLabChatLog.database.UuidStorage;
+import de.chriss1998.theLabChatLog.model.ChatMessage;
+import de.chriss1998.theLabChatLog.model.CommandLog;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Per-player counters in {@code player_stats}: messages per type, commands and their sizes in bytes.
+ * Every written batch adds its deltas in the insert transaction, so a player's count is a single-row lookup
+ * instead of a COUNT(*) over the player's index range. The counters cover everything logged since the
+ * backfill snapshot; rows removed by retention or moved to the archive stay counted.
+ */
+final class PlayerStatsDAO {
+
+    private static final String PLAYER_STATS = "player_stats";
+
+    // Message columns in ChatMessage.MessageType order
+    private static final String UPSERT_STATS = """
+        INSERT INTO `player_stats` (
+            player_uuid, messages_chat, messages_private, messages_broadcast, messages_command, messages_system,
+            messages_join, messages_leave, messages_death, messages_achievement, commands, message_bytes, command_bytes
+        ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        ON DUPLICATE KEY UPDATE
+            messages_chat = messages_chat + VALUES(messages_chat),
+            messages_private = messages_private + VALUES(messages_private),
+            messages_broadcast = messages_broadcast + VALUES(messages_broadcast),
+            messages_command = messages_command + VALUES(messages_command),
+            messages_system = messages_system + VALUES(messages_system),
+            messages_join = messages_join + VALUES(messages_join),
+            messages_leave = messages_leave + VALUES(messages_leave),
+            messages_death = messages_death + VALUES(messages_death),
+            messages_achievement = messages_achievement + VALUES(messages_achievement),
+            commands = commands + VALUES(commands),
+            message_bytes = message_bytes + VALUES(message_bytes),
+            command_bytes = command_bytes + VALUES(command_bytes)
+        """;
+
+    private static final String SELECT_MESSAGE_COUNT = """
+        SELECT messages_chat + messages_private + messages_broadcast + messages_command + messages_system
+             + messages_join + messages_leave + messages_death + messages_achievement
+        FROM `player_stats` WHERE player_uuid = ?
+        """;
+
+    /**
+     * Counter deltas of one player within a batch
+     */
+    private static final class Delta {
+        private final long[] messages = new long[ChatMessage.MessageType.values().length];
+        private long commands;
+        private long messageBytes;
+        private long commandBytes;
+    }
+
+    private final DatabaseManager databaseManager;
+
+    PlayerStatsDAO(DatabaseManager databaseManager) {
+        this.databaseManager = databaseManager;
+    }
+
+    /**
+     * Add the chat messages of a batch to their players' counters, within the caller's transaction
+     */
+    void addChatMessages(Connection connection, List<ChatMessage> messages) throws SQLException {
+        Map<String, Delta> deltas = new TreeMap<>();
+        for (ChatMessage message : messages) {
+            if (message.getPlayerUuid() == null) {
+                continue;
+            }
+            Delta delta = deltas.computeIfAbsent(message.getPlayerUuid().toLowerCase(Locale.ROOT), uuid -> new Delta());
+            ChatMessage.MessageType type = message.getMessageType() != null ? message.getMessageType() : ChatMessage.MessageType.CHAT;
+            delta.messages[type.ordinal()]++;
+            delta.messageBytes += utf8Length(message.getMessageContent());
+        }
+        upsert(connection, deltas);
+    }
+
+    /**
+     * Add the command logs of a batch to their players' counters, within the caller's transaction
+     */
+    void addCommandLogs(Connection connection, List<CommandLog> logs) throws SQLException {
+        Map<String, Delta> deltas = new TreeMap<>();
+        for (CommandLog log : logs) {
+            if (log.getPlayerUuid() == null) {
+                continue;
+            }
+            Delta delta = deltas.computeIfAbsent(log.getPlayerUuid().toLowerCase(Locale.ROOT), uuid -> new Delta());
+            delta.commands++;
+            delta.commandBytes += utf8Length(log.getCommandText());
+        }
+        upsert(connection, deltas);
+    }
+
+    /**
+     * The rows of a replayed batch that are not stored yet; only those are counted
+     */
+    <T> List<T> notStored(Connection connection, String table, String uuidColumn, List<T> rows,
+                          Function<T, String> uuid) throws SQLException {
+        if (rows.isEmpty()) {
+            return rows;
+        }
+        UuidStorage storage = databaseManager.getUuidStorage(table);
+        String sql = "SELECT `" + uuidColumn + "` FROM `" + table + "` WHERE `" + uuidColumn + "` IN ("
+                + String.join(", ", Collections.nCopies(rows.size(), "?")) + ")";
+        Set<String> stored = new HashSet<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < rows.size(); i++) {
+                UuidCodec.bind(statement, i + 1, uuid.apply(rows.get(i)), storage);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    stored.add(UuidCodec.read(rs, uuidColumn, storage).toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return stored.isEmpty() ? rows
+                : rows.stream().filter(row -> !stored.contains(uuid.apply(row).toLowerCase(Locale.ROOT))).toList();
+    }
+
+    /**
+     * Number of chat messages of a player (blocking)
+     */
+    long countMessages(Connection connection, String playerUuid) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_MESSAGE_COUNT)) {
+            UuidCodec.bind(statement, 1, playerUuid, databaseManager.getUuidStorage(PLAYER_STATS));
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    // Players in key order, so concurrent batches lock their rows in the same order
+    private void upsert(Connection connection, Map<String, Delta> deltas) throws SQLException {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        UuidStorage storage = databaseManager.getUuidStorage(PLAYER_STATS);
+        try (PreparedStatement statement = connection.prepareStatement(UPSERT_STATS)) {
+            for (Map.Entry<String, Delta> entry : deltas.entrySet()) {
+                Delta delta = entry.getValue();
+                int index = 1;
+                UuidCodec.bind(statement, index++, entry.getKey(), storage);
+                for (long count : delta.messages) {
+                    statement.setLong(index++, count);
+                }
+                statement.setLong(index++, delta.commands);
+                statement.setLong(index++, delta.messageBytes);
+                statement.setLong(index, delta.commandBytes);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Encoded length like MySQL's LENGTH(), without encoding the text
+     */
+    private static long utf8Length(String text) {
+        if (text == null) {
+            return 0;
+        }
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,503 @@
+package de.chriss1998.theLabChatLog.dao;
+
+import de.chriss1998.theLabChatLog.model.ChatMessage;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bounded in-memory inverted index over the most recent chat messages (at most {@code maxMessages}, none older
+ * than {@code window}), fed by the write-behind flusher with every batch it has written.
+ * <p>
+ * Messages get ascending sequence numbers and sit in a ring; every word maps to its postings, the sequence
+ * numbers of the messages containing it as variable-length deltas packed into an {@code int[]}. Eviction
+ * only advances the oldest live sequence; postings are compacted once enough of them went stale.
+ * <p>
+ * The index is complete from {@link Result#coveredSince()} on: every chat message stored in the database with
+ * a timestamp at or after it is in the index, so {@link ChatDAO} reads only older rows from the database.
+ * Candidates are found like {@code LIKE '%term%'} finds them: a term's first word anywhere inside an indexed word
+ * (through a map from trigrams to the words containing them), its last word as a prefix (a range of the sorted
+ * words), the words in between exactly. Messages with a word too long to index are candidates of every search.
+ * Candidates are verified against the message text with the same rules as the LIKE search.
+ */
+public final class RecentChatIndex {
+
+    /**
+     * A matching message and its sequence number, the tie-breaker of the index's keyset order
+     */
+    record Hit(ChatMessage message, long sequence) {}
+
+    /**
+     * An answer and the time from which the index was complete when it was computed
+     */
+    record Result<T>(T value, LocalDateTime coveredSince) {}
+
+    // Newest first, like the database search
+    private static final Comparator<Hit> NEWEST_FIRST = Comparator
+            .comparing((Hit hit) -> hit.message().getTimestamp())
+            .thenComparingLong(Hit::sequence)
+            .reversed();
+
+    // Longer tokens (links, spam) are only found by verifying the text, not through postings
+    private static final int MAX_WORD_LENGTH = 48;
+    // Length of the pieces of words used for substring lookups; shorter search words match too much to help
+    private static final int GRAM = 3;
+
+    private final int capacity;
+    private final Duration window;
+    private final ChatMessage[] ring;
+    private final NavigableMap<String, Postings> words = new TreeMap<>();
+    private final Map<String, Set<String>> grams = new HashMap<>();
+    private Postings longWords = new Postings();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long oldest;    // oldest live sequence
+    private long next;      // sequence of the next message
+    private long evictedSinceCompaction;
+    private LocalDateTime coveredSince;
+
+    public RecentChatIndex(int maxMessages, Duration window) {
+        this.capacity = Math.max(1, maxMessages);
+        this.window = window;
+        this.ring = new ChatMessage[capacity];
+        // Messages of the current second may have been written before this index existed
+        this.coveredSince = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+    }
+
+    /**
+     * Index a written batch and evict what fell out of the window (flusher thread)
+     */
+    public void add(List<ChatMessage> messages) {
+        lock.writeLock().lock();
+        try {
+            for (ChatMessage message : messages) {
+                if (message.getTimestamp() == null) {
+                    continue;
+                }
+                if (next - oldest == capacity) {
+                    evictOldest();
+                }
+                long sequence = next++;
+                ring[(int) (sequence % capacity)] = message;
+                for (String word : words(message.getMessageContent())) {
+                    Postings postings = words.get(word);
+                    if (postings == null) {
+                        postings = new Postings();
+                        words.put(word, postings);
+                        for (String gram : grams(word)) {
+                            grams.computeIfAbsent(gram, g -> new HashSet<>()).add(word);
+                        }
+                    }
+                    if (postings.size == 0 || postings.last != sequence) {
+                        postings.add(sequence);
+                    }
+                }
+                if (hasLongWord(message.getMessageContent())) {
+                    longWords.add(sequence);
+                }
+            }
+            LocalDateTime expiry = LocalDateTime.now().minus(window);
+            while (oldest < next && message(oldest).getTimestamp().isBefore(expiry)) {
+                evictOldest();
+            }
+            if (evictedSinceCompaction > capacity / 4) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Messages up to {@code newest} reached the database without passing through the index (spool replays);
+     * the index only answers for the time after them
+     */
+    public void markGap(LocalDateTime newest) {
+        lock.writeLock().lock();
+        try {
+            advanceCoverage(newest);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code limit} matches of the search inside the covered window, newest first, strictly after the cursor
+     */
+    Result<List<Hit>> search(ChatSearch search, HistoryCursor after, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Hit> hits = new ArrayList<>();
+            LocalDateTime floor = null;
+            BitSet candidates = candidates(search);
+            for (long sequence = previous(candidates, next - 1); sequence >= oldest; sequence = previous(candidates, sequence - 1)) {
+                ChatMessage message = message(sequence);
+                LocalDateTime timestamp = message.getTimestamp();
+                if (timestamp.isBefore(coveredSince) || floor != null && timestamp.isBefore(floor)) {
+                    // Sequences follow the timestamps up to producer races within a second
+                    if (hits.size() >= limit) {
+                        break;
+                    }
+                    continue;
+                }
+                if (isBefore(timestamp, sequence, after) && matches(search, message)) {
+                    hits.add(new Hit(message, sequence));
+                    if (hits.size() == limit) {
+                        floor = timestamp.minusSeconds(1);
+                    }
+                }
+            }
+            hits.sort(NEWEST_FIRST);
+            return new Result<>(hits.size() > limit ? List.copyOf(hits.subList(0, limit)) : hits, coveredSince);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Players who wrote a match inside the covered window, with their number of matches and latest match
+     */
+    Result<Map<String, ChatDAO.Speaker>> speakers(ChatSearch search) {
+        lock.readLock().lock();
+        try {
+            Map<String, ChatDAO.Speaker> speakers = new HashMap<>();
+            BitSet candidates = candidates(search);
+            for (long sequence = previous(candidates, next - 1); sequence >= oldest; sequence = previous(candidates, sequence - 1)) {
+                ChatMessage message = message(sequence);
+                if (message.getTimestamp().isBefore(coveredSince) || !matches(search, message)) {
+                    continue;
+                }
+                speakers.merge(String.valueOf(message.getPlayerUuid()),
+                        new ChatDAO.Speaker(message.getPlayerUuid(), message.getPlayerName(), 1, message.getTimestamp()),
+                        ChatDAO.Speaker::merge);
+            }
+            return new Result<>(speakers, coveredSince);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public String getStats() {
+        lock.readLock().lock();
+        try {
+            long bytes = longWords.data.length * 4L;
+            for (Postings postings : words.values()) {
+                bytes += postings.data.length * 4L;
+            }
+            return String.format("Recent index - messages: %d/%d, words: %d, postings: %.1f MB, covered since: %s",
+                    next - oldest, capacity, words.size(), bytes / (1024.0 * 1024.0), coveredSince);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Live-window bitmap of the messages that can contain every included term; null if the terms have no
+     * indexable words and every message has to be verified. Inside a term its first word can end a word of
+     * the message, its last word start one, and the words between them are whole words.
+     */
+    private BitSet candidates(ChatSearch search) {
+        BitSet result = null;
+        for (ChatSearch.Term term : search.terms()) {
+            if (term.excluded()) {
+                continue;
+            }
+            List<String> tokens = words(term.text());
+            for (int i = 0; i < tokens.size(); i++) {
+                String token = tokens.get(i);
+                Collection<Postings> matching;
+                if (i == 0) {
+                    matching = containing(token);
+                    if (matching == null) {
+                        continue;
+                    }
+                } else if (i < tokens.size() - 1) {
+                    Postings postings = words.get(token);
+                    matching = postings != null ? List.of(postings) : List.of();
+                } else {
+                    matching = words.subMap(token, true, token + Character.MAX_VALUE, false).values();
+                }
+                BitSet bits = new BitSet((int) (next - oldest));
+                for (Postings postings : matching) {
+                    postings.forEach(oldest, sequence -> bits.set((int) (sequence - oldest)));
+                }
+                longWords.forEach(oldest, sequence -> bits.set((int) (sequence - oldest)));
+                if (result == null) {
+                    result = bits;
+                } else {
+                    result.and(bits);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Postings of the indexed words containing {@code token}; null if it is too short to narrow the search
+     */
+    private Collection<Postings> containing(String token) {
+        if (token.length() < GRAM) {
+            return null;
+        }
+        // The rarest trigram of the token bounds the words to check
+        Set<String> rarest = null;
+        for (String gram : grams(token)) {
+            Set<String> containing = grams.get(gram);
+            if (containing == null) {
+                return List.of();
+            }
+            if (rarest == null || containing.size() < rarest.size()) {
+                rarest = containing;
+            }
+        }
+        List<Postings> matching = new ArrayList<>();
+        for (String word : rarest) {
+            if (word.contains(token)) {
+                matching.add(words.get(word));
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * The newest candidate at or below {@code from}, or {@code oldest - 1} if there is none
+     */
+    private long previous(BitSet candidates, long from) {
+        if (from < oldest || candidates == null) {
+            return Math.max(from, oldest - 1);
+        }
+        int bit = candidates.previousSetBit((int) (from - oldest));
+        return bit < 0 ? oldest - 1 : oldest + bit;
+    }
+
+    private static boolean isBefore(LocalDateTime timestamp, long sequence, HistoryCursor after) {
+        if (after == null) {
+            return true;
+        }
+        int c = timestamp.compareTo(after.timestamp());
+        if (c != 0) {
+            return c < 0;
+        }
+        // A row id says nothing about sequences: the rest of that second may repeat
+        return !after.isIndexed() || sequence < after.id();
+    }
+
+    private static boolean matches(ChatSearch search, ChatMessage message) {
+        if (message.getMessageContent() == null) {
+            return false;
+        }
+        if (search.getPlayerUuid() != null && !search.getPlayerUuid().equalsIgnoreCase(message.getPlayerUuid())) {
+            return false;
+        }
+        if (search.getServerName() != null && !search.getServerName().equalsIgnoreCase(message.getServerName())) {
+            return false;
+        }
+        if (search.getFrom() != null && message.getTimestamp().isBefore(search.getFrom())
+                || search.getTo() != null && message.getTimestamp().isAfter(search.getTo())) {
+            return false;
+        }
+        String content = message.getMessageContent().toLowerCase(Locale.ROOT);
+        for (ChatSearch.Term term : search.terms()) {
+            if (content.contains(term.text().toLowerCase(Locale.ROOT)) == term.excluded()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ChatMessage message(long sequence) {
+        return ring[(int) (sequence % capacity)];
+    }
+
+    private void evictOldest() {
+        int slot = (int) (oldest % capacity);
+        advanceCoverage(ring[slot].getTimestamp());
+        ring[slot] = null;
+        oldest++;
+        evictedSinceCompaction++;
+    }
+
+    private void advanceCoverage(LocalDateTime dropped) {
+        // The database stores whole seconds; everything of that second is read from there from now on
+        LocalDateTime after = dropped.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        if (after.isAfter(coveredSince)) {
+            coveredSince = after;
+        }
+    }
+
+    /**
+     * Drop words without live postings and rewrite postings that start before the oldest live sequence
+     */
+    private void compact() {
+        Iterator<Map.Entry<String, Postings>> it = words.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Postings> entry = it.next();
+            Postings postings = entry.getValue();
+            if (postings.last < oldest) {
+                it.remove();
+                for (String gram : grams(entry.getKey())) {
+                    Set<String> containing = grams.get(gram);
+                    containing.remove(entry.getKey());
+                    if (containing.isEmpty()) {
+                        grams.remove(gram);
+                    }
+                }
+            } else if (postings.first < oldest) {
+                postings.retainFrom(oldest);
+            }
+        }
+        if (longWords.size > 0 && longWords.first < oldest) {
+            longWords.retainFrom(oldest);
+        }
+        evictedSinceCompaction = 0;
+    }
+
+    /**
+     * Distinct lower-case words of a text: runs of letters and digits
+     */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                if (i - start <= MAX_WORD_LENGTH) {
+                    String word = lower.substring(start, i);
+                    if (!words.contains(word)) {
+                        words.add(word);
+                    }
+                }
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Distinct pieces of {@link #GRAM} characters of a word
+     */
+    private static Set<String> grams(String word) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= word.length(); i++) {
+            grams.add(word.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    /**
+     * Whether a text has a run of letters and digits longer than {@link #MAX_WORD_LENGTH}, which is not indexed
+     */
+    private static boolean hasLongWord(String text) {
+        if (text == null) {
+            return false;
+        }
+        int run = 0;
+        for (int i = 0; i < text.length(); i++) {
+            run = Character.isLetterOrDigit(text.charAt(i)) ? run + 1 : 0;
+            if (run > MAX_WORD_LENGTH) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Ascending sequence numbers: the first one, then the gaps as 7-bit groups, four bytes per int
+     */
+    private static final class Postings {
+        private int[] data = new int[2];
+        private int bytes;
+        private int size;
+        private long first;
+        private long last;
+
+        void add(long sequence) {
+            if (size == 0) {
+                first = sequence;
+            } else {
+                long delta = sequence - last;
+                while (delta >= 0x80) {
+                    put((int) (delta & 0x7F) | 0x80);
+                    delta >>>= 7;
+                }
+                put((int) delta);
+            }
+            last = sequence;
+            size++;
+        }
+
+        void forEach(long from, SequenceConsumer consumer) {
+            if (last < from) {
+                return;
+            }
+            long sequence = first;
+            int position = 0;
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    long delta = 0;
+                    int shift = 0;
+                    int b;
+                    do {
+                        b = get(position++);
+                        delta |= (long) (b & 0x7F) << shift;
+                        shift += 7;
+                    } while ((b & 0x80) != 0);
+                    sequence += delta;
+                }
+                if (sequence >= from) {
+                    consumer.accept(sequence);
+                }
+            }
+        }
+
+        void retainFrom(long from) {
+            Postings live = new Postings();
+            forEach(from, live::add);
+            data = live.data;
+            bytes = live.bytes;
+            size = live.size;
+            first = live.first;
+            last = live.last;
+        }
+
+        private void put(int b) {
+            int index = bytes >>> 2;
+            if (index == data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[index] |= b << ((bytes & 3) << 3);
+            bytes++;
+        }
+
+        private int get(int position) {
+            return (data[position >>> 2] >>> ((position & 3) << 3)) & 0xFF;
+        }
+    }
+
+    @FunctionalInterface
+    private interface SequenceConsumer {
+        void accept(long sequence);
+    }
+}
@@ -0,0 +1,239 @@
+package de.chriss1998.theLabChatLog.dao;
+
+import de.chriss1998.theLabChatLog.model.ChatMessage;
+import de.chriss1998.theLabChatLog.model.CommandLog;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Newest chat messages and command logs of recently active players, so the first history page of a player
+ * someone is watching is served from memory. Players are evicted least recently used first.
+ * <p>
+ * The write-behind flusher records every event when it takes it from its queue, before it is written, and
+ * the {@link InFlight} events still queued are added when serving, so entries waiting in the queue or the
+ * spool are included. A player's list is served once it was seeded with a first
+ * page from the database; from then on it holds that player's newest entries without gaps. Only events of
+ * this server pass through here: rows other servers write into a shared database show up once the player
+ * dropped out of the cache.
+ */
+public final class RecentHistoryCache {
+
+    /**
+     * Events of a player that were published but not yet recorded here, oldest first
+     */
+    @FunctionalInterface
+    public interface InFlight {
+        void collect(String playerUuid, List<ChatMessage> messages, List<CommandLog> logs);
+    }
+
+    /**
+     * Newest entries of one kind, newest first
+     */
+    private static final class Entries<T> {
+        private final ArrayDeque<T> newest = new ArrayDeque<>();
+        private boolean seeded;
+        // Holds every entry the player has
+        private boolean complete;
+    }
+
+    /**
+     * The cached history of one player; taken before a database read and seeded with its result, so events
+     * recorded in between end up in the same lists
+     */
+    static final class Player {
+        private final Entries<ChatMessage> chat = new Entries<>();
+        private final Entries<CommandLog> commands = new Entries<>();
+    }
+
+    private final int entriesPerPlayer;
+    private final Map<String, Player> players;
+    private volatile InFlight inFlight;
+    private long hits;
+    private long misses;
+
+    public RecentHistoryCache(int maxPlayers, int entriesPerPlayer) {
+        this.entriesPerPlayer = Math.max(1, entriesPerPlayer);
+        this.players = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Player> eldest) {
+                return size() > maxPlayers;
+            }
+        };
+    }
+
+    /**
+     * Let served pages include the events that are still queued
+     */
+    public void setInFlight(InFlight inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    public synchronized void record(ChatMessage message) {
+        if (message.getPlayerUuid() != null) {
+            add(player(message.getPlayerUuid()).chat, message);
+        }
+    }
+
+    public synchronized void record(CommandLog log) {
+        if (log.getPlayerUuid() != null) {
+            add(player(log.getPlayerUuid()).commands, log);
+        }
+    }
+
+    /**
+     * Drop the cached history of these players; for rows that reached the database without being recorded
+     * here (imports), so the next read seeds them again
+     */
+    public synchronized void forget(Collection<String> playerUuids) {
+        for (String uuid : playerUuids) {
+            players.remove(uuid.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * The player's history, created if the player is not cached yet
+     */
+    synchronized Player player(String playerUuid) {
+        return players.computeIfAbsent(playerUuid.toLowerCase(Locale.ROOT), uuid -> new Player());
+    }
+
+    /**
+     * The newest {@code limit} chat messages at or after {@code since}, or null if they are not all cached
+     */
+    List<ChatMessage> chatMessages(String playerUuid, int limit, LocalDateTime since) {
+        List<ChatMessage> queued = new ArrayList<>();
+        collectInFlight(playerUuid, queued, new ArrayList<>());
+        synchronized (this) {
+            Player player = players.get(playerUuid.toLowerCase(Locale.ROOT));
+            return count(player != null ? newest(player.chat, queued, limit, since,
+                    ChatMessage::getMessageUuid, ChatMessage::getTimestamp) : null);
+        }
+    }
+
+    /**
+     * The newest {@code limit} command logs at or after {@code since}, or null if they are not all cached
+     */
+    List<CommandLog> commandLogs(String playerUuid, int limit, LocalDateTime since) {
+        List<CommandLog> queued = new ArrayList<>();
+        collectInFlight(playerUuid, new ArrayList<>(), queued);
+        synchronized (this) {
+            Player player = players.get(playerUuid.toLowerCase(Locale.ROOT));
+            return count(player != null ? newest(player.commands, queued, limit, since,
+                    CommandLog::getCommandUuid, CommandLog::getTimestamp) : null);
+        }
+    }
+
+    /**
+     * Seed the chat messages with the first page read from the database
+     */
+    synchronized void seedChatMessages(Player player, List<ChatMessage> page, boolean complete) {
+        seed(player.chat, page, complete, ChatMessage::getMessageUuid, ChatMessage::getTimestamp);
+    }
+
+    /**
+     * Seed the command logs with the first page read from the database
+     */
+    synchronized void seedCommandLogs(Player player, List<CommandLog> page, boolean complete) {
+        seed(player.commands, page, complete, CommandLog::getCommandUuid, CommandLog::getTimestamp);
+    }
+
+    public synchronized String getStats() {
+        long total = hits + misses;
+        return String.format("History cache - players: %d, hits: %d, misses: %d (%.1f%% hit rate)",
+                players.size(), hits, misses, total > 0 ? hits * 100.0 / total : 0.0);
+    }
+
+    private <T> void add(Entries<T> entries, T entry) {
+        entries.newest.addFirst(entry);
+        if (entries.newest.size() > entriesPerPlayer) {
+            entries.newest.removeLast();
+            entries.complete = false;
+        }
+    }
+
+    /**
+     * Read before taking this lock: the flusher records drained events while holding the queue's lock
+     */
+    private void collectInFlight(String playerUuid, List<ChatMessage> messages, List<CommandLog> logs) {
+        InFlight source = inFlight;
+        if (source != null) {
+            source.collect(playerUuid, messages, logs);
+        }
+    }
+
+    /**
+     * The queued entries (newer than anything recorded) followed by the recorded ones; an entry recorded
+     * after it was collected from the queue appears in both and is kept once
+     */
+    private <T> List<T> newest(Entries<T> entries, List<T> queued, int limit, LocalDateTime since,
+                               Function<T, String> uuid, Function<T, LocalDateTime> timestamp) {
+        if (!entries.seeded || limit > entriesPerPlayer) {
+            return null;
+        }
+        Map<String, T> merged = new LinkedHashMap<>();
+        for (int i = queued.size() - 1; i >= 0; i--) {
+            merged.putIfAbsent(uuid.apply(queued.get(i)), queued.get(i));
+        }
+        for (T entry : entries.newest) {
+            merged.putIfAbsent(uuid.apply(entry), entry);
+        }
+        if (merged.size() < limit && !entries.complete) {
+            return null;
+        }
+        List<T> page = new ArrayList<>(limit);
+        for (T entry : merged.values()) {
+            if (page.size() == limit || since != null && timestamp.apply(entry).isBefore(since)) {
+                break;
+            }
+            page.add(entry);
+        }
+        return page;
+    }
+
+    private <T> List<T> count(List<T> page) {
+        if (page != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return page;
+    }
+
+    /**
+     * Merge a database page with the entries recorded meanwhile. Both are the newest entries of the player,
+     * so the union is too; entries already written appear in both and are kept once.
+     */
+    private <T> void seed(Entries<T> entries, List<T> page, boolean complete,
+                          Function<T, String> uuid, Function<T, LocalDateTime> timestamp) {
+        if (entries.seeded) {
+            return;
+        }
+        Map<String, T> merged = new LinkedHashMap<>();
+        for (T entry : entries.newest) {
+            merged.putIfAbsent(uuid.apply(entry), entry);
+        }
+        for (T entry : page) {
+            merged.putIfAbsent(uuid.apply(entry), entry);
+        }
+        List<T> sorted = new ArrayList<>(merged.values());
+        sorted.sort(Comparator.comparing(timestamp).reversed());
+        entries.newest.clear();
+        for (T entry : sorted) {
+            if (entries.newest.size() == entriesPerPlayer) {
+                break;
+            }
+            entries.newest.addLast(entry);
+        }
+        entries.complete = complete && sorted.size() <= entriesPerPlayer;
+        entries.seeded = true;
+    }
+}
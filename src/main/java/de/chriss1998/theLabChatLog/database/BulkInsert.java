@@ -0,0 +1,118 @@
+package de.chriss1998.theLabChatLog.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Writes a list of rows into one table using the dialect's {@link SqlDialect.BulkStrategy}.
+ * Multi-row statements are split into power-of-two chunks so that only a handful of distinct
+ * statement texts exist per table, which keeps the server-side prepared statement cache effective.
+ */
+public final class BulkInsert<T> {
+
+    /**
+     * Binds one row starting after the given parameter offset (the first column is offset + 1)
+     */
+    @FunctionalInterface
+    public interface RowBinder<T> {
+        void bind(PreparedStatement statement, int offset, T row) throws SQLException;
+    }
+
+    private static final int MAX_ROWS_PER_STATEMENT = 128;
+
+    private final String insertPrefix;
+    private final String suffix;
+    private final String rowPlaceholders;
+    private final int columnCount;
+    private final RowBinder<T> binder;
+    private final ConcurrentMap<Integer, String> sqlByRowCount = new ConcurrentHashMap<>();
+
+    /**
+     * @param insertPrefix statement up to and including {@code VALUES }, e.g. {@code INSERT INTO `t` (a, b) VALUES }
+     * @param columnCount  number of bound parameters per row
+     */
+    public BulkInsert(String insertPrefix, int columnCount, RowBinder<T> binder) {
+        this(insertPrefix, columnCount, "", binder);
+    }
+
+    /**
+     * @param suffix appended after the VALUES tuples, e.g. an {@code ON DUPLICATE KEY UPDATE} clause
+     */
+    public BulkInsert(String insertPrefix, int columnCount, String suffix, RowBinder<T> binder) {
+        this.insertPrefix = insertPrefix;
+        this.suffix = suffix;
+        this.columnCount = columnCount;
+        this.binder = binder;
+        StringBuilder row = new StringBuilder("(");
+        for (int i = 0; i < columnCount; i++) {
+            row.append(i == 0 ? "?" : ", ?");
+        }
+        this.rowPlaceholders = row.append(')').toString();
+        // A longer statement would be prepared again for every chunk instead of coming from the statement cache
+        int longest = sql(MAX_ROWS_PER_STATEMENT).length();
+        if (longest > SqlDialect.PREP_STMT_CACHE_SQL_LIMIT) {
+            throw new IllegalArgumentException("A " + MAX_ROWS_PER_STATEMENT + "-row insert is " + longest
+                    + " characters, above prepStmtCacheSqlLimit=" + SqlDialect.PREP_STMT_CACHE_SQL_LIMIT);
+        }
+    }
+
+    /**
+     * Single-row statement text
+     */
+    public String singleRowSql() {
+        return sql(1);
+    }
+
+    public RowBinder<T> binder() {
+        return binder;
+    }
+
+    /**
+     * Insert all rows on the given connection. Transaction handling is left to the caller.
+     */
+    public void execute(Connection connection, SqlDialect dialect, List<T> rows) throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        if (dialect.getBulkStrategy() == SqlDialect.BulkStrategy.DRIVER_BULK) {
+            try (PreparedStatement statement = connection.prepareStatement(sql(1))) {
+                for (T row : rows) {
+                    binder.bind(statement, 0, row);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            return;
+        }
+
+        int index = 0;
+        while (index < rows.size()) {
+            int chunk = Math.min(MAX_ROWS_PER_STATEMENT, Integer.highestOneBit(rows.size() - index));
+            try (PreparedStatement statement = connection.prepareStatement(sql(chunk))) {
+                for (int i = 0; i < chunk; i++) {
+                    binder.bind(statement, i * columnCount, rows.get(index + i));
+                }
+                statement.executeUpdate();
+            }
+            index += chunk;
+        }
+    }
+
+    private String sql(int rowCount) {
+        return sqlByRowCount.computeIfAbsent(rowCount, n -> {
+            StringBuilder sb = new StringBuilder(insertPrefix.length() + suffix.length() + n * (rowPlaceholders.length() + 2));
+            sb.append(insertPrefix);
+            for (int i = 0; i < n; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(rowPlaceholders);
+            }
+            return sb.append(suffix).toString();
+        });
+    }
+}
@@ -0,0 +1,131 @@
+package de.chriss1998.theLabChatLog.database;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Dedicated, bounded thread pools for blocking JDBC work.
+ * Writes and reads run on separate named lanes so a slow history query can never delay inserts,
+ * and neither of them touches the JVM-wide common pool.
+ */
+public class DatabaseExecutors {
+
+    private static final long SATURATION_WARNING_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final Lane writeLane;
+    private final Lane readLane;
+
+    public DatabaseExecutors(Logger logger, int writeThreads, int readThreads, int queueCapacity) {
+        this.writeLane = new Lane("Write", Math.max(1, writeThreads), Math.max(1, queueCapacity), logger);
+        this.readLane = new Lane("Read", Math.max(1, readThreads), Math.max(1, queueCapacity), logger);
+    }
+
+    /**
+     * Executor for INSERT/UPDATE/DELETE statements
+     */
+    public Executor writes() {
+        return writeLane;
+    }
+
+    /**
+     * Executor for SELECT statements
+     */
+    public Executor reads() {
+        return readLane;
+    }
+
+    /**
+     * Lane statistics for monitoring
+     */
+    public String getStats() {
+        return writeLane.getStats() + " | " + readLane.getStats();
+    }
+
+    /**
+     * Shut down both lanes, waiting up to the given timeout for queued work
+     */
+    public void shutdown(long timeout, TimeUnit unit) {
+        writeLane.pool.shutdown();
+        readLane.pool.shutdown();
+        try {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            if (!writeLane.pool.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                writeLane.pool.shutdownNow();
+            }
+            if (!readLane.pool.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                readLane.pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            writeLane.pool.shutdownNow();
+            readLane.pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isShutdown() {
+        return writeLane.pool.isShutdown();
+    }
+
+    /**
+     * Fixed-size pool with a bounded queue that counts rejections and warns when it runs full
+     */
+    private static final class Lane implements Executor {
+        private final String name;
+        private final ThreadPoolExecutor pool;
+        private final int queueCapacity;
+        private final Logger logger;
+        private final LongAdder rejected = new LongAdder();
+        private final AtomicLong lastWarning = new AtomicLong(System.nanoTime() - SATURATION_WARNING_INTERVAL_NANOS);
+
+        Lane(String name, int threads, int queueCapacity, Logger logger) {
+            this.name = name;
+            this.queueCapacity = queueCapacity;
+            this.logger = logger;
+            AtomicInteger counter = new AtomicInteger();
+            this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), r -> {
+                Thread thread = new Thread(r, "ChatLog-DB-" + name + "-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            try {
+                pool.execute(command);
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                warnSaturated("rejected task");
+                throw e;
+            }
+            int queued = pool.getQueue().size();
+            if (queued >= queueCapacity * 3 / 4) {
+                warnSaturated(queued + "/" + queueCapacity + " tasks queued");
+            }
+        }
+
+        private void warnSaturated(String detail) {
+            long now = System.nanoTime();
+            long last = lastWarning.get();
+            if (now - last >= SATURATION_WARNING_INTERVAL_NANOS && lastWarning.compareAndSet(last, now)) {
+                logger.warning("Database " + name.toLowerCase() + " lane saturated: " + detail
+                        + " (active=" + pool.getActiveCount() + ", rejected=" + rejected.sum() + ")");
+            }
+        }
+
+        String getStats() {
+            return String.format("%s - Active: %d/%d, Queued: %d/%d, Completed: %d, Rejected: %d",
+                    name, pool.getActiveCount(), pool.getMaximumPoolSize(),
+                    pool.getQueue().size(), queueCapacity,
+                    pool.getCompletedTaskCount(), rejected.sum());
+        }
+    }
+}
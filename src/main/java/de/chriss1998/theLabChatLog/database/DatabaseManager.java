@@ -8,10 +8,22 @@ import org.bukkit.configuration.file.FileConfiguration;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,11 +36,56 @@ public class DatabaseManager {
     private final TheLabChatLog plugin;
     private final Logger logger;
     private HikariDataSource dataSource;
-    private ExecutorService asyncExecutor;
+    private DatabaseExecutors executors;
+    private static final Executor NOT_INITIALIZED = task -> {
+        throw new RejectedExecutionException("DatabaseManager is not initialized");
+    };
     private boolean isEnabled = false;
+
+    // UUID column format: configured target and the actual format per table
+    private UuidStorage configuredUuidStorage = UuidStorage.TEXT;
+    private final Map<String, UuidStorage> tableUuidStorage = new ConcurrentHashMap<>();
+    // Swapped tables whose renamed text UUID columns were not dropped yet
+    private boolean uuidLegacyColumns;
+    // Writers hold the read side; schema swaps take the write side to pause them
+    private final ReentrantReadWriteLock writeGate = new ReentrantReadWriteLock();
+    // Name columns: configured target and the tables already using lookup table keys
+    private boolean dictionaryEncoding = false;
+    private final Set<String> dictionaryEncodedTables = ConcurrentHashMap.newKeySet();
+    // Encoded before the migration indexed the id columns
+    private boolean dictionaryIndexesMissing;
+    private final List<OnlineMigration> migrations = new ArrayList<>();
+    // RANGE partitioning on timestamp: tables already partitioned and the maintenance job
+    private boolean partitioningEnabled = false;
+    private final Set<String> partitionedTables = ConcurrentHashMap.newKeySet();
+    private PartitionManager partitionManager;
+    private ScheduledExecutorService partitionMaintenance;
+    private int historyWindowDays = 0;
+    // Tables created before keyset pagination still lack idx_player_time
+    private boolean historyIndexPending = false;
+    // FULLTEXT content search: configured, and whether chat_messages has the index
+    private boolean fulltextSearch = true;
+    private volatile boolean fulltextIndexed = false;
+    // Per-player counters: whether the backfill of rows logged before player_stats existed is done
+    private volatile boolean playerStatsReady = false;
+    // Player directory: whether players was filled from the rows logged before it existed
+    private volatile boolean playersBackfilled = false;
+    private final List<Runnable> playersBackfilledListeners = new ArrayList<>();
+    private Thread migrationThread;
+    // Running servers register in chat_log_writers; migrations only swap a layout while no other server writes
+    private static final String MIGRATION_LOCK = "thelab_chatlog_migration";
+    private static final int LAYOUT_LOCK_WAIT_SECONDS = 300;
+    private static final int HEARTBEAT_SECONDS = 30;
+    private static final int HEARTBEAT_STALE_SECONDS = 4 * HEARTBEAT_SECONDS;
+    private final String instanceId = UUID.randomUUID().toString();
+    private String serverName;
+    private ScheduledExecutorService writerHeartbeat;
+    // Chunked, throttled deletion of expired rows (retention.*)
+    private RetentionService retention;
     
     // Database configuration
     private String databaseType;
+    private SqlDialect dialect;
     private String host;
     private int port;
     private String database;
@@ -39,11 +96,6 @@ public class DatabaseManager {
     public DatabaseManager(TheLabChatLog plugin) {
         this.plugin = plugin;
         this.logger = plugin.getLogger();
-        this.asyncExecutor = Executors.newFixedThreadPool(3, r -> {
-            Thread thread = new Thread(r, "ChatLog-Database-Thread");
-            thread.setDaemon(true);
-            return thread;
-        });
     }
     
     /**
@@ -52,6 +104,7 @@ public class DatabaseManager {
     public boolean initialize() {
         try {
             loadConfiguration();
+            setupExecutors();
             // Ensure the configured database/schema exists before creating the pool
             ensureDatabaseExists();
             setupHikariDataSource();
@@ -59,6 +112,11 @@ public class DatabaseManager {
             // Ensure required tables and views exist
             ensureSchema();
             isEnabled = true;
+            startWriterHeartbeat();
+            startMigrationsIfNeeded();
+            startPartitionMaintenance();
+            retention = new RetentionService(this, logger, plugin.getConfig());
+            retention.start();
             logger.info("DatabaseManager successfully initialized with " + databaseType.toUpperCase());
             return true;
         } catch (Exception e) {
@@ -74,46 +132,55 @@ public class DatabaseManager {
         FileConfiguration config = plugin.getConfig();
         
         this.databaseType = config.getString("database.type", "mysql").toLowerCase();
+        this.dialect = SqlDialect.fromType(databaseType);
         this.host = config.getString("database.host", "localhost");
         this.port = config.getInt("database.port", 3306);
         this.database = config.getString("database.database", "thelab_chatlog");
         this.username = config.getString("database.username", "app");
         this.password = config.getString("database.password", "");
         this.sslEnabled = config.getBoolean("database.ssl.enabled", false);
+        this.configuredUuidStorage = UuidStorage.fromConfig(config.getString("database.schema.uuid_storage", "text"));
+        this.dictionaryEncoding = config.getBoolean("database.schema.dictionary_encoding", false);
+        this.partitioningEnabled = config.getBoolean("database.partitioning.enabled", false);
+        this.partitionManager = new PartitionManager(this, logger, config);
+        this.historyWindowDays = Math.max(0, config.getInt("database.partitioning.history_window_days", 0));
+        this.fulltextSearch = config.getBoolean("database.search.fulltext", true);
+        this.serverName = config.getString("server.name", "Unknown");
         
         logger.info(String.format("Database config loaded: %s://%s:%d/%s", 
             databaseType, host, port, database));
     }
     
+    /**
+     * Setup the dedicated read/write executor lanes used for all blocking JDBC work
+     */
+    private void setupExecutors() {
+        if (executors != null && !executors.isShutdown()) {
+            return;
+        }
+        FileConfiguration config = plugin.getConfig();
+        int maxPoolSize = config.getInt("database.pool.maximum_pool_size", 10);
+        int writeThreads = config.getInt("performance.executor.write_threads", 2);
+        int readThreads = config.getInt("performance.executor.read_threads", 4);
+        int queueCapacity = config.getInt("performance.executor.queue_capacity", 500);
+
+        // Each lane thread holds at most one connection; the write-behind flusher needs one more
+        if (writeThreads + readThreads + 1 > maxPoolSize) {
+            logger.warning(String.format("Executor lanes (%d write + %d read + 1 flusher) exceed maximum_pool_size=%d; "
+                    + "threads may wait for connections", writeThreads, readThreads, maxPoolSize));
+        }
+        this.executors = new DatabaseExecutors(logger, writeThreads, readThreads, queueCapacity);
+    }
+
     /**
      * Setup HikariCP connection pool
      */
     private void setupHikariDataSource() {
         HikariConfig hikariConfig = new HikariConfig();
         
-        // Build JDBC URL based on database type
-        String jdbcUrl;
-        if ("mariadb".equals(databaseType)) {
-            hikariConfig.setDriverClassName("org.mariadb.jdbc.Driver");
-            jdbcUrl = String.format("jdbc:mariadb://%s:%d/%s", host, port, database);
-        } else {
-            hikariConfig.setDriverClassName("com.mysql.cj.jdbc.Driver");
-            jdbcUrl = String.format("jdbc:mysql://%s:%d/%s", host, port, database);
-        }
-        
-        // Add connection parameters
-        StringBuilder urlBuilder = new StringBuilder(jdbcUrl);
-        urlBuilder.append("?useUnicode=true&characterEncoding=UTF-8&serverTimezone=UTC");
-        
-        if (!sslEnabled) {
-            if ("mariadb".equals(databaseType)) {
-                urlBuilder.append("&useSSL=false");
-            } else {
-                urlBuilder.append("&useSSL=false&allowPublicKeyRetrieval=true");
-            }
-        }
-        
-        hikariConfig.setJdbcUrl(urlBuilder.toString());
+        // Build JDBC URL based on the dialect, including statement caching and bulk batch settings
+        hikariConfig.setDriverClassName(dialect.getDriverClassName());
+        hikariConfig.setJdbcUrl(dialect.buildJdbcUrl(host, port, database, sslEnabled, true));
         hikariConfig.setUsername(username);
         hikariConfig.setPassword(password);
         
@@ -157,26 +224,10 @@ public class DatabaseManager {
      */
     private void ensureDatabaseExists() throws Exception {
         // Build a server-level JDBC URL without a schema (database name)
-        String baseUrl;
-        if ("mariadb".equals(databaseType)) {
-            Class.forName("org.mariadb.jdbc.Driver");
-            baseUrl = String.format("jdbc:mariadb://%s:%d/", host, port);
-        } else {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            baseUrl = String.format("jdbc:mysql://%s:%d/", host, port);
-        }
-
-        StringBuilder url = new StringBuilder(baseUrl);
-        url.append("?useUnicode=true&characterEncoding=UTF-8&serverTimezone=UTC");
-        if (!sslEnabled) {
-            if ("mariadb".equals(databaseType)) {
-                url.append("&useSSL=false");
-            } else {
-                url.append("&useSSL=false&allowPublicKeyRetrieval=true");
-            }
-        }
+        Class.forName(dialect.getDriverClassName());
+        String url = dialect.buildJdbcUrl(host, port, "", sslEnabled, false);
 
-        try (Connection conn = DriverManager.getConnection(url.toString(), username, password)) {
+        try (Connection conn = DriverManager.getConnection(url, username, password)) {
             String createDbSql = "CREATE DATABASE IF NOT EXISTS `" + database + "` " +
                     "DEFAULT CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci";
             try (PreparedStatement ps = conn.prepareStatement(createDbSql)) {
@@ -193,10 +244,10 @@ public class DatabaseManager {
         String createChatMessages = """
             CREATE TABLE IF NOT EXISTS `chat_messages` (
                 `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
-                `message_uuid` VARCHAR(36) UNIQUE NOT NULL COMMENT 'Unique identifier for the message',
+                `message_uuid` {uuid} UNIQUE NOT NULL COMMENT 'Unique identifier for the message',
                 `server_name` VARCHAR(255) NOT NULL COMMENT 'Name of the server instance',
                 `world_name` VARCHAR(255) NOT NULL COMMENT 'World where the message was sent',
-                `player_uuid` VARCHAR(36) NOT NULL COMMENT 'UUID of the player who sent the message',
+                `player_uuid` {uuid} NOT NULL COMMENT 'UUID of the player who sent the message',
                 `player_name` VARCHAR(16) NOT NULL COMMENT 'Display name of the player at time of message',
                 `message_content` TEXT NOT NULL COMMENT 'The actual chat message content',
                 `message_type` ENUM('CHAT', 'PRIVATE', 'BROADCAST', 'COMMAND', 'SYSTEM', 'JOIN', 'LEAVE', 'DEATH', 'ACHIEVEMENT') NOT NULL DEFAULT 'CHAT' COMMENT 'Type of message',
@@ -204,26 +255,29 @@ public class DatabaseManager {
                 `location_x` DOUBLE NULL COMMENT 'X coordinate where message was sent',
                 `location_y` DOUBLE NULL COMMENT 'Y coordinate where message was sent',
                 `location_z` DOUBLE NULL COMMENT 'Z coordinate where message was sent',
-                `recipient_uuid` VARCHAR(36) NULL COMMENT 'UUID of recipient for private messages',
+                `recipient_uuid` {uuid} NULL COMMENT 'UUID of recipient for private messages',
                 `recipient_name` VARCHAR(16) NULL COMMENT 'Name of recipient for private messages',
                 `is_cancelled` BOOLEAN DEFAULT FALSE COMMENT 'Whether the message was cancelled by a plugin',
                 `metadata_json` JSON NULL COMMENT 'Additional metadata in JSON format',
                 `timestamp` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT 'When the message was sent',
-                INDEX `idx_player_uuid` (`player_uuid`),
+                INDEX `idx_player_time` (`player_uuid`, `timestamp`, `id`),
                 INDEX `idx_player_name` (`player_name`),
                 INDEX `idx_timestamp` (`timestamp`),
                 INDEX `idx_message_type` (`message_type`),
                 INDEX `idx_world_name` (`world_name`),
                 INDEX `idx_channel` (`channel`),
-                INDEX `idx_server_name` (`server_name`)
+                INDEX `idx_server_name` (`server_name`){fulltext}
             ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
             """;
+        // Partitioned tables cannot have FULLTEXT indexes; they keep the LIKE search
+        createChatMessages = createChatMessages.replace("{fulltext}", fulltextSearch && !partitioningEnabled
+                ? ",\n        " + SearchIndexMigration.indexDefinition(dialect) : "");
 
         String createPlayerSessions = """
             CREATE TABLE IF NOT EXISTS `player_sessions` (
                 `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
-                `session_uuid` VARCHAR(36) UNIQUE NOT NULL COMMENT 'Unique session identifier',
-                `player_uuid` VARCHAR(36) NOT NULL COMMENT 'UUID of the player',
+                `session_uuid` {uuid} UNIQUE NOT NULL COMMENT 'Unique session identifier',
+                `player_uuid` {uuid} NOT NULL COMMENT 'UUID of the player',
                 `player_name` VARCHAR(16) NOT NULL COMMENT 'Player name at session start',
                 `server_name` VARCHAR(255) NOT NULL COMMENT 'Server instance name',
                 `login_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT 'When player joined',
@@ -239,7 +293,7 @@ public class DatabaseManager {
         String createServerEvents = """
             CREATE TABLE IF NOT EXISTS `server_events` (
                 `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
-                `event_uuid` VARCHAR(36) UNIQUE NOT NULL COMMENT 'Unique event identifier',
+                `event_uuid` {uuid} UNIQUE NOT NULL COMMENT 'Unique event identifier',
                 `server_name` VARCHAR(255) NOT NULL COMMENT 'Server instance name',
                 `event_type` ENUM('SERVER_START', 'SERVER_STOP', 'SERVER_RESTART', 'PLUGIN_LOAD', 'PLUGIN_UNLOAD', 'WORLD_LOAD', 'WORLD_UNLOAD', 'BACKUP', 'ERROR', 'WARNING', 'INFO') NOT NULL COMMENT 'Type of server event',
                 `event_message` TEXT NOT NULL COMMENT 'Description of the event',
@@ -256,10 +310,10 @@ public class DatabaseManager {
         String createCommandLogs = """
             CREATE TABLE IF NOT EXISTS `command_logs` (
                 `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
-                `command_uuid` VARCHAR(36) UNIQUE NOT NULL COMMENT 'Unique identifier for the command log',
+                `command_uuid` {uuid} UNIQUE NOT NULL COMMENT 'Unique identifier for the command log',
                 `server_name` VARCHAR(255) NOT NULL COMMENT 'Server instance name',
                 `source_type` ENUM('PLAYER','CONSOLE','RCON','COMMAND_BLOCK','OTHER') NOT NULL COMMENT 'From where the command originated',
-                `player_uuid` VARCHAR(36) NULL COMMENT 'UUID if source is PLAYER',
+                `player_uuid` {uuid} NULL COMMENT 'UUID if source is PLAYER',
                 `player_name` VARCHAR(16) NULL COMMENT 'Name if source is PLAYER',
                 `command_text` TEXT NOT NULL COMMENT 'The raw command text',
                 `world_name` VARCHAR(255) NULL COMMENT 'World (if applicable, e.g., player or command block)',
@@ -270,28 +324,218 @@ public class DatabaseManager {
                 `metadata_json` JSON NULL COMMENT 'Additional metadata in JSON format',
                 `timestamp` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT 'When the command was executed',
                 INDEX `idx_source_type` (`source_type`),
-                INDEX `idx_player_uuid` (`player_uuid`),
+                INDEX `idx_player_time` (`player_uuid`, `timestamp`, `id`),
                 INDEX `idx_timestamp_cmd` (`timestamp`),
                 INDEX `idx_server_name_cmd` (`server_name`)
             ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
             """;
 
+        String createPlayers = """
+            CREATE TABLE IF NOT EXISTS `players` (
+                `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+                `player_uuid` {uuid} UNIQUE NOT NULL COMMENT 'UUID of the player',
+                `current_name` VARCHAR(16) NOT NULL COMMENT 'Most recently seen name',
+                `first_seen` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT 'First logged event',
+                `last_seen` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT 'Last logged event',
+                INDEX `idx_current_name` (`current_name`)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+            """;
+
+        String createPlayerNames = """
+            CREATE TABLE IF NOT EXISTS `player_names` (
+                `player_id` BIGINT NOT NULL COMMENT 'players.id',
+                `name` VARCHAR(16) NOT NULL COMMENT 'A name the player used',
+                `first_seen` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT 'First event under this name',
+                `last_seen` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT 'Last event under this name',
+                PRIMARY KEY (`player_id`, `name`),
+                INDEX `idx_name` (`name`)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+            """;
+
+        String createPlayerStats = """
+            CREATE TABLE IF NOT EXISTS `player_stats` (
+                `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+                `player_uuid` {uuid} UNIQUE NOT NULL COMMENT 'UUID of the player',
+                `messages_chat` BIGINT NOT NULL DEFAULT 0 COMMENT 'Logged CHAT messages',
+                `messages_private` BIGINT NOT NULL DEFAULT 0 COMMENT 'Logged PRIVATE messages',
+                `messages_broadcast` BIGINT NOT NULL DEFAULT 0 COMMENT 'Logged BROADCAST messages',
+                `messages_command` BIGINT NOT NULL DEFAULT 0 COMMENT 'Logged COMMAND messages',
+                `messages_system` BIGINT NOT NULL DEFAULT 0 COMMENT 'Logged SYSTEM messages',
+                `messages_join` BIGINT NOT NULL DEFAULT 0 COMMENT 'Logged JOIN messages',
+                `messages_leave` BIGINT NOT NULL DEFAULT 0 COMMENT 'Logged LEAVE messages',
+                `messages_death` BIGINT NOT NULL DEFAULT 0 COMMENT 'Logged DEATH messages',
+                `messages_achievement` BIGINT NOT NULL DEFAULT 0 COMMENT 'Logged ACHIEVEMENT messages',
+                `commands` BIGINT NOT NULL DEFAULT 0 COMMENT 'Logged commands',
+                `message_bytes` BIGINT NOT NULL DEFAULT 0 COMMENT 'Total size of the message contents in bytes',
+                `command_bytes` BIGINT NOT NULL DEFAULT 0 COMMENT 'Total size of the command texts in bytes',
+                `updated_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT 'Last counter update'
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+            """;
+
+        // Activity rollups, created per grain: {bucket} is DATETIME (hour start) or DATE
+        String createChatActivity = """
+            CREATE TABLE IF NOT EXISTS `chat_activity_{grain}` (
+                `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+                `bucket` {bucket} NOT NULL COMMENT 'Start of the hour or day',
+                `server_name` VARCHAR(255) NOT NULL COMMENT 'Server instance name',
+                `channel` VARCHAR(255) NOT NULL COMMENT 'Chat channel',
+                `message_type` ENUM('CHAT', 'PRIVATE', 'BROADCAST', 'COMMAND', 'SYSTEM', 'JOIN', 'LEAVE', 'DEATH', 'ACHIEVEMENT') NOT NULL COMMENT 'Type of message',
+                `player_uuid` {uuid} NOT NULL COMMENT 'UUID of the player',
+                `messages` BIGINT NOT NULL DEFAULT 0 COMMENT 'Messages within the bucket',
+                UNIQUE INDEX `uk_activity` (`player_uuid`, `bucket`, `server_name`, `channel`, `message_type`),
+                INDEX `idx_bucket` (`bucket`)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+            """;
+
+        String createCommandActivity = """
+            CREATE TABLE IF NOT EXISTS `command_activity_{grain}` (
+                `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+                `bucket` {bucket} NOT NULL COMMENT 'Start of the hour or day',
+                `server_name` VARCHAR(255) NOT NULL COMMENT 'Server instance name',
+                `source_type` ENUM('PLAYER','CONSOLE','RCON','COMMAND_BLOCK','OTHER') NOT NULL COMMENT 'From where the commands originated',
+                `player_uuid` {uuid} NOT NULL COMMENT 'UUID of the player, all zeros for other sources',
+                `commands` BIGINT NOT NULL DEFAULT 0 COMMENT 'Commands within the bucket',
+                UNIQUE INDEX `uk_activity` (`player_uuid`, `bucket`, `server_name`, `source_type`),
+                INDEX `idx_bucket` (`bucket`)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+            """;
+
+        String createWriters = """
+            CREATE TABLE IF NOT EXISTS `chat_log_writers` (
+                `instance_id` CHAR(36) NOT NULL PRIMARY KEY COMMENT 'Random id of a running plugin instance',
+                `server_name` VARCHAR(255) NOT NULL COMMENT 'Server instance name',
+                `heartbeat` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT 'Last sign of life'
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+            """;
+
+        String uuidType = configuredUuidStorage.getColumnType();
+        try (Connection connection = dataSource.getConnection()) {
+            for (LookupTable lookup : LookupTable.values()) {
+                try (PreparedStatement ps = connection.prepareStatement(lookup.createTableSql())) {
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = connection.prepareStatement(lookup.reserveOverflowSql())) {
+                    ps.executeUpdate();
+                }
+            }
+            for (String ddl : new String[]{createChatMessages, createPlayerSessions, createServerEvents, createCommandLogs,
+                    createPlayers, createPlayerNames, createWriters}) {
+                try (PreparedStatement ps = connection.prepareStatement(ddl.replace("{uuid}", uuidType))) {
+                    ps.executeUpdate();
+                }
+            }
+            PlayerDirectoryBackfill.createProgressTable(connection);
+            playersBackfilled = !PlayerDirectoryBackfill.isPending(connection);
+            // Rows logged before the counters existed are counted by the backfill; its range is fixed first
+            PlayerStatsBackfill.createProgressTable(connection);
+            if (!OnlineMigration.columnExists(connection, PlayerStatsBackfill.TABLE, "id")) {
+                PlayerStatsBackfill.snapshot(connection);
+            }
+            try (PreparedStatement ps = connection.prepareStatement(createPlayerStats.replace("{uuid}", uuidType))) {
+                ps.executeUpdate();
+            }
+            playerStatsReady = !PlayerStatsBackfill.isPending(connection);
+            for (String ddl : new String[]{createChatActivity, createCommandActivity}) {
+                for (String[] grain : new String[][]{{"hourly", "DATETIME"}, {"daily", "DATE"}}) {
+                    String sql = ddl.replace("{grain}", grain[0]).replace("{bucket}", grain[1]).replace("{uuid}", uuidType);
+                    try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                        ps.executeUpdate();
+                    }
+                }
+            }
+            // Registered before reading the layout, under the lock a migration swaps under: the swap either
+            // finished or waits for this server to stop
+            boolean layoutLocked = OnlineMigration.getLock(connection, OnlineMigration.SCHEMA_LOCK, LAYOUT_LOCK_WAIT_SECONDS);
+            if (!layoutLocked) {
+                logger.warning("Another server held the schema lock for " + LAYOUT_LOCK_WAIT_SECONDS + "s; reading the table layout without it");
+            }
+            try {
+                heartbeat(connection);
+                detectLayout(connection);
+            } finally {
+                // Pooled connections keep session locks
+                if (layoutLocked) {
+                    OnlineMigration.releaseLock(connection, OnlineMigration.SCHEMA_LOCK);
+                }
+            }
+            createView(connection);
+            logger.info("Database schema verified (tables/views ensured, UUID storage: " + tableUuidStorage
+                    + ", dictionary encoded: " + dictionaryEncodedTables + ", partitioned: " + partitionedTables + ").");
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Failed to ensure database schema", e);
+        }
+    }
+    
+    /**
+     * Read the UUID format, dictionary encoding and partitioning each table has now
+     */
+    private void detectLayout(Connection connection) throws SQLException {
+        // Existing tables keep their format until migrated
+        for (UuidMigration.Table table : UuidMigration.TABLES) {
+            tableUuidStorage.put(table.name(), detectUuidStorage(connection, table));
+            uuidLegacyColumns |= UuidMigration.hasLegacyColumns(connection, table);
+        }
+        // New tables are created with name columns and encoded by the migration right away
+        for (DictionaryMigration.Table table : DictionaryMigration.TABLES) {
+            if (!OnlineMigration.columnExists(connection, table.name(), table.columns().get(0).name())) {
+                dictionaryEncodedTables.add(table.name());
+                dictionaryIndexesMissing |= !DictionaryMigration.missingIndexes(connection, table).isEmpty();
+            }
+        }
+        historyIndexPending = HistoryIndexMigration.isPending(connection);
+        fulltextIndexed = OnlineMigration.indexExists(connection, SearchIndexMigration.TABLE, SearchIndexMigration.INDEX);
+        for (PartitionManager.Table table : PartitionManager.TABLES) {
+            if (!PartitionManager.partitionNames(connection, table.name()).isEmpty()) {
+                partitionedTables.add(table.name());
+            }
+        }
+    }
+
+    private UuidStorage detectUuidStorage(Connection connection, UuidMigration.Table table) throws SQLException {
+        String sql = "SELECT DATA_TYPE FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, table.name());
+            ps.setString(2, table.columns().get(0).name());
+            try (ResultSet rs = ps.executeQuery()) {
+                // A missing key column means an interrupted swap; writes stay text until it is resumed
+                return rs.next() && "binary".equalsIgnoreCase(rs.getString(1)) ? UuidStorage.BINARY : UuidStorage.TEXT;
+            }
+        }
+    }
+
+    private void createView(Connection connection) {
+        UuidStorage chat = getUuidStorage("chat_messages");
+        UuidStorage sessions = getUuidStorage("player_sessions");
+        // Binary UUIDs are exposed as text so the view looks the same in both modes
+        String messageUuid = chat == UuidStorage.BINARY ? UuidCodec.sqlBinaryToText("cm.message_uuid") + " AS message_uuid" : "cm.message_uuid";
+        String playerUuid = chat == UuidStorage.BINARY ? UuidCodec.sqlBinaryToText("cm.player_uuid") + " AS player_uuid" : "cm.player_uuid";
+        String recipientUuid = chat == UuidStorage.BINARY ? UuidCodec.sqlBinaryToText("cm.recipient_uuid") + " AS recipient_uuid" : "cm.recipient_uuid";
+        // Names of encoded tables are joined back from the lookup tables
+        boolean encoded = isDictionaryEncoded("chat_messages");
+        String serverName = encoded ? "sv.name AS server_name" : "cm.server_name";
+        String worldName = encoded ? "w.name AS world_name" : "cm.world_name";
+        String channel = encoded ? "ch.name AS channel" : "cm.channel";
+        String lookupJoins = encoded
+                ? "LEFT JOIN servers sv ON sv.id = cm.server_id LEFT JOIN worlds w ON w.id = cm.world_id LEFT JOIN channels ch ON ch.id = cm.channel_id\n"
+                : "";
+        String joinPlayer = chat == sessions ? "ps.player_uuid"
+                : chat == UuidStorage.BINARY ? UuidCodec.sqlTextToBinary("ps.player_uuid") : UuidCodec.sqlBinaryToText("ps.player_uuid");
         String createView = """
             CREATE OR REPLACE VIEW `v_chat_messages_full` AS
             SELECT 
                 cm.id,
-                cm.message_uuid,
-                cm.server_name,
-                cm.world_name,
-                cm.player_uuid,
+                %s,
+                %s,
+                %s,
+                %s,
                 cm.player_name,
                 cm.message_content,
                 cm.message_type,
-                cm.channel,
+                %s,
                 cm.location_x,
                 cm.location_y,
                 cm.location_z,
-                cm.recipient_uuid,
+                %s,
                 cm.recipient_name,
                 cm.is_cancelled,
                 cm.metadata_json,
@@ -299,34 +543,303 @@ public class DatabaseManager {
                 ps.ip_address,
                 ps.client_brand
             FROM chat_messages cm
-            LEFT JOIN player_sessions ps ON cm.player_uuid = ps.player_uuid 
+            %sLEFT JOIN player_sessions ps ON cm.player_uuid = %s 
                 AND cm.`timestamp` BETWEEN ps.login_time AND COALESCE(ps.logout_time, NOW())
-            """;
+            """.formatted(messageUuid, serverName, worldName, playerUuid, channel, recipientUuid, lookupJoins, joinPlayer);
+        try (PreparedStatement ps = connection.prepareStatement(createView)) {
+            ps.executeUpdate();
+        } catch (SQLException viewEx) {
+            // View creation is not critical for basic functionality; log warning but continue
+            logger.log(Level.WARNING, "Failed to create or replace view v_chat_messages_full", viewEx);
+        }
+    }
 
-        try (Connection connection = dataSource.getConnection()) {
-            try (PreparedStatement ps = connection.prepareStatement(createChatMessages)) {
-                ps.executeUpdate();
-            }
-            try (PreparedStatement ps = connection.prepareStatement(createPlayerSessions)) {
-                ps.executeUpdate();
+    /**
+     * Recreate views after the column layout of a table changed
+     */
+    void recreateViews() throws SQLException {
+        try (Connection connection = getConnection()) {
+            createView(connection);
+        }
+    }
+
+    /**
+     * Start the pending schema migrations on one background thread, one after another
+     */
+    private void startMigrationsIfNeeded() {
+        if (!migrations.isEmpty()) {
+            return;
+        }
+        FileConfiguration config = plugin.getConfig();
+        int chunkSize = config.getInt("database.schema.migration_chunk_size", 10000);
+        long pauseMillis = config.getLong("database.schema.migration_pause_ms", 50);
+
+        if (historyIndexPending) {
+            migrations.add(new HistoryIndexMigration(this, logger));
+        }
+        if ((configuredUuidStorage == UuidStorage.BINARY && tableUuidStorage.containsValue(UuidStorage.TEXT)) || uuidLegacyColumns) {
+            migrations.add(new UuidMigration(this, logger, chunkSize, pauseMillis));
+        } else if (configuredUuidStorage != UuidStorage.BINARY && tableUuidStorage.containsValue(UuidStorage.BINARY)) {
+            logger.info("Tables already use BINARY(16) UUIDs; uuid_storage=text does not convert them back");
+        }
+        boolean allEncoded = DictionaryMigration.TABLES.stream().allMatch(t -> isDictionaryEncoded(t.name()));
+        if ((dictionaryEncoding && !allEncoded) || dictionaryIndexesMissing) {
+            migrations.add(new DictionaryMigration(this, logger, chunkSize, pauseMillis));
+        } else if (!dictionaryEncoding && !dictionaryEncodedTables.isEmpty()) {
+            logger.info("Tables already use lookup table keys; dictionary_encoding=false does not convert them back");
+        }
+        // Last, so the copy already has the final column layout
+        boolean allPartitioned = PartitionManager.TABLES.stream().allMatch(t -> isPartitioned(t.name()));
+        if (partitioningEnabled && !allPartitioned) {
+            migrations.add(new PartitionMigration(this, logger, chunkSize, pauseMillis, partitionManager));
+        } else if (!partitioningEnabled && !partitionedTables.isEmpty()) {
+            logger.info("Tables are already partitioned; partitioning.enabled=false does not convert them back");
+        }
+        // After the layout migrations: they cannot alter a table with a FULLTEXT index online
+        if (fulltextSearch && !fulltextIndexed && !partitioningEnabled && !isPartitioned(SearchIndexMigration.TABLE)) {
+            migrations.add(new SearchIndexMigration(this, logger));
+        }
+        // Last, so they read the final UUID format of every table
+        if (!playersBackfilled) {
+            migrations.add(new PlayerDirectoryBackfill(this, logger, chunkSize, pauseMillis));
+        }
+        if (!playerStatsReady) {
+            migrations.add(new PlayerStatsBackfill(this, logger, chunkSize, pauseMillis));
+        }
+        if (migrations.isEmpty()) {
+            return;
+        }
+
+        List<OnlineMigration> pending = List.copyOf(migrations);
+        migrationThread = new Thread(() -> {
+            // One server migrates a shared database; the lock lives as long as this connection outside the pool
+            try (Connection lock = DriverManager.getConnection(
+                    dialect.buildJdbcUrl(host, port, database, sslEnabled, false), username, password)) {
+                if (!OnlineMigration.getLock(lock, MIGRATION_LOCK, 0)) {
+                    logger.info("Another server is migrating the schema of this database; its migrations are skipped here");
+                    return;
+                }
+                for (OnlineMigration migration : pending) {
+                    if (migration.isStopped()) {
+                        return;
+                    }
+                    migration.run();
+                    if (!migration.isCompleted()) {
+                        return;
+                    }
+                }
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Could not take the schema migration lock; migrations resume on the next start", e);
             }
-            try (PreparedStatement ps = connection.prepareStatement(createServerEvents)) {
-                ps.executeUpdate();
+        }, "ChatLog-SchemaMigration");
+        migrationThread.setDaemon(true);
+        migrationThread.start();
+    }
+
+    /**
+     * Refresh this server's row in chat_log_writers every few seconds, so migrations on other servers see it
+     */
+    private void startWriterHeartbeat() {
+        if (writerHeartbeat != null) {
+            return;
+        }
+        writerHeartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ChatLog-WriterHeartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writerHeartbeat.scheduleWithFixedDelay(() -> {
+            try (Connection connection = getConnection()) {
+                heartbeat(connection);
+            } catch (SQLException e) {
+                logger.log(Level.FINE, "Writer heartbeat failed", e);
             }
-            try (PreparedStatement ps = connection.prepareStatement(createCommandLogs)) {
-                ps.executeUpdate();
+        }, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void heartbeat(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO `chat_log_writers` (instance_id, server_name, heartbeat) VALUES (?, ?, CURRENT_TIMESTAMP) "
+                        + "ON DUPLICATE KEY UPDATE heartbeat = CURRENT_TIMESTAMP")) {
+            ps.setString(1, instanceId);
+            ps.setString(2, serverName);
+            ps.executeUpdate();
+        }
+        // Rows of servers that stopped without unregistering
+        try (PreparedStatement ps = connection.prepareStatement(
+                "DELETE FROM `chat_log_writers` WHERE heartbeat < CURRENT_TIMESTAMP - INTERVAL 1 DAY")) {
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Names of the other servers that sent a writer heartbeat recently
+     */
+    List<String> otherWriters(Connection connection) throws SQLException {
+        List<String> servers = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT server_name FROM `chat_log_writers` WHERE instance_id <> ? "
+                        + "AND heartbeat > CURRENT_TIMESTAMP - INTERVAL " + HEARTBEAT_STALE_SECONDS + " SECOND")) {
+            ps.setString(1, instanceId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    servers.add(rs.getString(1));
+                }
             }
-            try (PreparedStatement ps = connection.prepareStatement(createView)) {
-                ps.executeUpdate();
-            } catch (SQLException viewEx) {
-                // View creation is not critical for basic functionality; log warning but continue
-                logger.log(Level.WARNING, "Failed to create or replace view v_chat_messages_full", viewEx);
+        }
+        return servers;
+    }
+
+    /**
+     * Whether a schema migration is still copying or converting rows
+     */
+    public boolean isMigrating() {
+        return migrationThread != null && migrationThread.isAlive();
+    }
+
+    /**
+     * Run partition maintenance (premade partitions, retention drops) now and then periodically.
+     * Also runs with partitioning disabled, so tables partitioned earlier keep getting new partitions.
+     */
+    private void startPartitionMaintenance() {
+        if (partitionMaintenance != null || (!partitioningEnabled && partitionedTables.isEmpty())) {
+            return;
+        }
+        long interval = Math.max(1, plugin.getConfig().getLong("database.partitioning.maintenance_interval_minutes", 60));
+        partitionMaintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ChatLog-PartitionMaintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        partitionMaintenance.scheduleWithFixedDelay(partitionManager::maintain, 0, interval, TimeUnit.MINUTES);
+    }
+
+    /**
+     * UUID format set in the config; tables only reach it through the migration
+     */
+    public UuidStorage getConfiguredUuidStorage() {
+        return configuredUuidStorage;
+    }
+
+    /**
+     * Format of the UUID columns of the given table
+     */
+    public UuidStorage getUuidStorage(String table) {
+        return tableUuidStorage.getOrDefault(table, UuidStorage.TEXT);
+    }
+
+    void setUuidStorage(String table, UuidStorage storage) {
+        tableUuidStorage.put(table, storage);
+    }
+
+    /**
+     * Whether the table stores lookup table keys instead of server/world/channel names
+     */
+    public boolean isDictionaryEncoded(String table) {
+        return dictionaryEncodedTables.contains(table);
+    }
+
+    /**
+     * Whether dictionary_encoding is on in the config
+     */
+    public boolean isDictionaryEncodingEnabled() {
+        return dictionaryEncoding;
+    }
+
+    void setDictionaryEncoded(String table) {
+        dictionaryEncodedTables.add(table);
+    }
+
+    /**
+     * Whether the table is RANGE partitioned on its timestamp
+     */
+    public boolean isPartitioned(String table) {
+        return partitionedTables.contains(table);
+    }
+
+    void setPartitioned(String table) {
+        partitionedTables.add(table);
+    }
+
+    /**
+     * Whether content search can use the FULLTEXT index on chat_messages (otherwise it falls back to LIKE)
+     */
+    public boolean isFulltextIndexed() {
+        return fulltextSearch && fulltextIndexed && !isPartitioned(SearchIndexMigration.TABLE);
+    }
+
+    void setFulltextIndexed(boolean indexed) {
+        fulltextIndexed = indexed;
+    }
+
+    /**
+     * Whether player_stats also counts the rows logged before it existed, so counts can be read from it
+     */
+    public boolean isPlayerStatsReady() {
+        return playerStatsReady;
+    }
+
+    void setPlayerStatsReady() {
+        playerStatsReady = true;
+    }
+
+    /**
+     * Whether the players table also holds the players logged before it existed
+     */
+    public boolean isPlayersBackfilled() {
+        return playersBackfilled;
+    }
+
+    /**
+     * Run {@code action} on the migration thread once the players table was filled; nothing if it already is
+     */
+    public void whenPlayersBackfilled(Runnable action) {
+        synchronized (playersBackfilledListeners) {
+            if (!playersBackfilled) {
+                playersBackfilledListeners.add(action);
             }
-            logger.info("Database schema verified (tables/views ensured).");
-        } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Failed to ensure database schema", e);
         }
     }
+
+    void setPlayersBackfilled() {
+        List<Runnable> listeners;
+        synchronized (playersBackfilledListeners) {
+            playersBackfilled = true;
+            listeners = List.copyOf(playersBackfilledListeners);
+            playersBackfilledListeners.clear();
+        }
+        listeners.forEach(Runnable::run);
+    }
+
+    /**
+     * Retention engine for explicit purges and its metrics; null before initialization
+     */
+    public RetentionService getRetention() {
+        return retention;
+    }
+
+    /**
+     * How far back per-player history queries look (0 = unlimited); a bound lets them skip old partitions
+     */
+    public int getHistoryWindowDays() {
+        return historyWindowDays;
+    }
+
+    /**
+     * Shared lock every statement writing UUID or name columns must hold, so a schema swap can pause writers
+     */
+    public Lock getWriteGate() {
+        return writeGate.readLock();
+    }
+
+    /**
+     * Block until all writers finished and keep new ones out; the caller must unlock the returned lock
+     */
+    Lock pauseWrites() {
+        Lock lock = writeGate.writeLock();
+        lock.lock();
+        return lock;
+    }
     
     /**
      * Get a database connection from the pool
@@ -337,12 +850,28 @@ public class DatabaseManager {
         }
         return dataSource.getConnection();
     }
+
+    /**
+     * Open a read-only connection outside the pool for long streaming reads (exports), so they never hold
+     * a pooled connection for minutes. The caller closes it.
+     */
+    public Connection openStreamingConnection() throws SQLException {
+        if (!isEnabled) {
+            throw new SQLException("DatabaseManager is not initialized");
+        }
+        Connection connection = DriverManager.getConnection(
+                dialect.buildStreamingJdbcUrl(host, port, database, sslEnabled), username, password);
+        connection.setReadOnly(true);
+        return connection;
+    }
     
     /**
      * Execute a query asynchronously
      */
     public CompletableFuture<Void> executeAsync(String sql, Object... parameters) {
-        return CompletableFuture.runAsync(() -> {
+        return runAsync(() -> {
+            Lock gate = getWriteGate();
+            gate.lock();
             try (Connection connection = getConnection();
                  PreparedStatement statement = connection.prepareStatement(sql)) {
                 
@@ -355,15 +884,19 @@ public class DatabaseManager {
                 
             } catch (SQLException e) {
                 logger.log(Level.WARNING, "Failed to execute async query: " + sql, e);
+            } finally {
+                gate.unlock();
             }
-        }, asyncExecutor);
+        }, getWriteExecutor());
     }
     
     /**
      * Execute a batch of statements asynchronously
      */
     public CompletableFuture<Void> executeBatchAsync(String sql, Object[]... parameterSets) {
-        return CompletableFuture.runAsync(() -> {
+        return runAsync(() -> {
+            Lock gate = getWriteGate();
+            gate.lock();
             try (Connection connection = getConnection();
                  PreparedStatement statement = connection.prepareStatement(sql)) {
                 
@@ -378,8 +911,53 @@ public class DatabaseManager {
                 
             } catch (SQLException e) {
                 logger.log(Level.WARNING, "Failed to execute batch query: " + sql, e);
+            } finally {
+                gate.unlock();
             }
-        }, asyncExecutor);
+        }, getWriteExecutor());
+    }
+
+    /**
+     * Executor lane for blocking write statements
+     */
+    public Executor getWriteExecutor() {
+        return executors != null ? executors.writes() : NOT_INITIALIZED;
+    }
+
+    /**
+     * Executor lane for blocking read queries
+     */
+    public Executor getReadExecutor() {
+        return executors != null ? executors.reads() : NOT_INITIALIZED;
+    }
+
+    /**
+     * Run a task on the given lane; a saturated lane yields a failed future instead of throwing
+     */
+    public static CompletableFuture<Void> runAsync(Runnable task, Executor executor) {
+        try {
+            return CompletableFuture.runAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Supply a value on the given lane; a saturated lane yields a failed future instead of throwing
+     */
+    public static <T> CompletableFuture<T> supplyAsync(java.util.function.Supplier<T> task, Executor executor) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * Dialect of the configured database
+     */
+    public SqlDialect getDialect() {
+        return dialect;
     }
     
     /**
@@ -404,24 +982,48 @@ public class DatabaseManager {
             dataSource.getHikariPoolMXBean().getThreadsAwaitingConnection());
     }
     
+    /**
+     * Get executor lane statistics for monitoring
+     */
+    public String getExecutorStats() {
+        if (executors == null) {
+            return "Executors not initialized";
+        }
+        return executors.getStats();
+    }
+    
     /**
      * Shutdown the database manager and close all connections
      */
     public void shutdown() {
         logger.info("Shutting down DatabaseManager...");
         
-        if (asyncExecutor != null && !asyncExecutor.isShutdown()) {
-            asyncExecutor.shutdown();
-            try {
-                if (!asyncExecutor.awaitTermination(10, java.util.concurrent.TimeUnit.SECONDS)) {
-                    asyncExecutor.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                asyncExecutor.shutdownNow();
-                Thread.currentThread().interrupt();
+        migrations.forEach(OnlineMigration::stop);
+        migrations.clear();
+        if (partitionMaintenance != null) {
+            partitionMaintenance.shutdownNow();
+            partitionMaintenance = null;
+        }
+        if (retention != null) {
+            retention.stop();
+            retention = null;
+        }
+        if (writerHeartbeat != null) {
+            writerHeartbeat.shutdownNow();
+            writerHeartbeat = null;
+            try (Connection connection = getConnection();
+                 PreparedStatement ps = connection.prepareStatement("DELETE FROM `chat_log_writers` WHERE instance_id = ?")) {
+                ps.setString(1, instanceId);
+                ps.executeUpdate();
+            } catch (SQLException e) {
+                logger.log(Level.FINE, "Could not unregister from chat_log_writers", e);
             }
         }
         
+        if (executors != null && !executors.isShutdown()) {
+            executors.shutdown(10, TimeUnit.SECONDS);
+        }
+        
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
             logger.info("Database connection pool closed");
@@ -0,0 +1,190 @@
+package de.chriss1998.theLabChatLog.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Online migration of the repeated server/world/channel name columns to SMALLINT keys into the
+ * {@link LookupTable lookup tables}.
+ * <p>
+ * Per table: the {@code *_id} columns are added, the lookup tables are seeded with the distinct names,
+ * and the ids are filled in id-range chunks while the plugin keeps writing names. Only the swap runs with
+ * writes paused: rows inserted since the backfill snapshot are converted, the name columns (and their
+ * indexes) are dropped in the same statement that makes the id columns NOT NULL and indexes them in place
+ * of the name indexes, and the table switches to dictionary encoding. The swap waits until no other server
+ * writes to the database, since those still write the name columns.
+ */
+final class DictionaryMigration extends OnlineMigration {
+
+    record Column(String name, String idColumn, LookupTable lookup, boolean nullable, String comment) {}
+
+    record Table(String name, List<Column> columns) {}
+
+    static final List<Table> TABLES = List.of(
+            new Table("chat_messages", List.of(
+                    new Column("server_name", "server_id", LookupTable.SERVERS, false, "Server instance (servers.id)"),
+                    new Column("world_name", "world_id", LookupTable.WORLDS, false, "World where the message was sent (worlds.id)"),
+                    new Column("channel", "channel_id", LookupTable.CHANNELS, true, "Chat channel (channels.id)"))),
+            new Table("command_logs", List.of(
+                    new Column("server_name", "server_id", LookupTable.SERVERS, false, "Server instance (servers.id)"),
+                    new Column("world_name", "world_id", LookupTable.WORLDS, true, "World if applicable (worlds.id)")))
+    );
+
+    DictionaryMigration(DatabaseManager databaseManager, Logger logger, int chunkSize, long pauseMillis) {
+        super(databaseManager, logger, chunkSize, pauseMillis);
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (Table table : TABLES) {
+                if (isStopped()) {
+                    return;
+                }
+                if (databaseManager.isDictionaryEncoded(table.name())) {
+                    addMissingIndexes(table);
+                    continue;
+                }
+                if (databaseManager.isDictionaryEncodingEnabled()) {
+                    migrate(table);
+                }
+            }
+            if (!isStopped()) {
+                databaseManager.recreateViews();
+                markCompleted();
+                logger.info("Dictionary encoding of server/world/channel names finished");
+            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Dictionary encoding migration failed; it will resume on the next start", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void migrate(Table table) throws SQLException, InterruptedException {
+        String name = table.name();
+        try (Connection connection = databaseManager.getConnection()) {
+            for (Column column : table.columns()) {
+                if (!columnExists(connection, name, column.idColumn())) {
+                    execute(connection, "ALTER TABLE `" + name + "` ADD COLUMN `" + column.idColumn() + "` SMALLINT UNSIGNED NULL");
+                }
+            }
+        }
+
+        long[] range = idRange(name);
+        long snapshotMax = range[1];
+        logger.info(String.format("Dictionary encoding names of %s (ids %d..%d)", name, range[0], snapshotMax));
+        try (Connection connection = databaseManager.getConnection()) {
+            seedLookups(connection, table, "t.id <= ?", snapshotMax);
+        }
+
+        String backfill = "UPDATE `" + name + "` t "
+                + joins(table)
+                + " SET " + table.columns().stream()
+                    .map(c -> "t.`" + c.idColumn() + "` = " + idOrOverflow(c))
+                    .collect(Collectors.joining(", "))
+                + " WHERE t.id >= ? AND t.id < ?";
+        if (!backfill(name, backfill, range[0], snapshotMax)) {
+            return;
+        }
+
+        // Final swap with writes paused; rows committed after the snapshot all have ids above it. Other servers
+        // would keep writing the dropped name columns, so it waits until they are stopped.
+        try (Connection connection = databaseManager.getConnection()) {
+            Lock gate = pauseAllWriters(connection, name);
+            if (gate == null) {
+                return;
+            }
+            try {
+                seedLookups(connection, table, "t.id > ?", snapshotMax);
+                execute(connection, backfill.replace("t.id >= ? AND t.id < ?", "t.id > ?"), snapshotMax);
+                execute(connection, swap(table));
+                databaseManager.setDictionaryEncoded(name);
+                logger.info("Name columns of " + name + " are now dictionary encoded");
+            } finally {
+                resumeAllWriters(connection, gate);
+            }
+        }
+    }
+
+    /**
+     * Id columns of an encoded table that have no index yet
+     */
+    static List<Column> missingIndexes(Connection connection, Table table) throws SQLException {
+        List<Column> missing = new ArrayList<>();
+        for (Column column : table.columns()) {
+            if (!indexExists(connection, table.name(), indexName(column))) {
+                missing.add(column);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Index the id columns of a table encoded before the swap added the indexes; online, writes continue
+     */
+    private void addMissingIndexes(Table table) throws SQLException {
+        try (Connection connection = databaseManager.getConnection()) {
+            List<Column> missing = missingIndexes(connection, table);
+            if (missing.isEmpty()) {
+                return;
+            }
+            logger.info("Indexing the name keys of " + table.name());
+            execute(connection, "ALTER TABLE `" + table.name() + "` "
+                    + missing.stream().map(c -> "ADD INDEX `" + indexName(c) + "` (`" + c.idColumn() + "`)")
+                        .collect(Collectors.joining(", "))
+                    + ", ALGORITHM=INPLACE, LOCK=NONE");
+        }
+    }
+
+    private static String indexName(Column column) {
+        return "idx_" + column.idColumn();
+    }
+
+    /**
+     * Insert the names of the selected rows that are not in the lookup tables yet
+     */
+    private static void seedLookups(Connection connection, Table table, String rowCondition, long parameter) throws SQLException {
+        for (Column column : table.columns()) {
+            String lookup = column.lookup().getTableName();
+            execute(connection, "INSERT IGNORE INTO `" + lookup + "` (name) "
+                    + "SELECT DISTINCT t.`" + column.name() + "` FROM `" + table.name() + "` t "
+                    + "LEFT JOIN `" + lookup + "` d ON d.name = t.`" + column.name() + "` COLLATE utf8mb4_bin "
+                    + "WHERE t.`" + column.name() + "` IS NOT NULL AND d.id IS NULL AND " + rowCondition, parameter);
+        }
+    }
+
+    /**
+     * Key of the joined name, or the overflow entry for names that got no key because the key space is used up
+     */
+    private static String idOrOverflow(Column column) {
+        return "IF(t.`" + column.name() + "` IS NULL, NULL, COALESCE(d_" + column.idColumn() + ".id, "
+                + "(SELECT o.id FROM `" + column.lookup().getTableName() + "` o WHERE o.name = '"
+                + LookupTable.OVERFLOW_NAME + "')))";
+    }
+
+    private static String joins(Table table) {
+        return table.columns().stream()
+                .map(c -> "LEFT JOIN `" + c.lookup().getTableName() + "` d_" + c.idColumn()
+                        + " ON d_" + c.idColumn() + ".name = t.`" + c.name() + "` COLLATE utf8mb4_bin")
+                .collect(Collectors.joining(" "));
+    }
+
+    /**
+     * One statement, so a crash never leaves a table with neither usable names nor ids
+     */
+    private static String swap(Table table) {
+        return "ALTER TABLE `" + table.name() + "` "
+                + table.columns().stream()
+                    .map(c -> "DROP COLUMN `" + c.name() + "`, MODIFY COLUMN `" + c.idColumn() + "` SMALLINT UNSIGNED "
+                            + (c.nullable() ? "NULL" : "NOT NULL") + " COMMENT '" + c.comment() + "', "
+                            + "ADD INDEX `" + indexName(c) + "` (`" + c.idColumn() + "`)")
+                    .collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,61 @@
+package de.chriss1998.theLabChatLog.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Replaces the single-column {@code idx_player_uuid} of tables created before keyset pagination with the
+ * composite {@code idx_player_time (player_uuid, timestamp, id)} the history pages seek on.
+ * <p>
+ * The index is built in place without locking the table, so the plugin keeps writing; nothing is backfilled.
+ * It runs before the other migrations because {@link UuidMigration} swaps the index by this name.
+ */
+final class HistoryIndexMigration extends OnlineMigration {
+
+    static final String INDEX = "idx_player_time";
+    static final List<String> TABLES = List.of("chat_messages", "command_logs");
+
+    HistoryIndexMigration(DatabaseManager databaseManager, Logger logger) {
+        super(databaseManager, logger, 0, 0);
+    }
+
+    /**
+     * Whether any table still lacks the composite index
+     */
+    static boolean isPending(Connection connection) throws SQLException {
+        for (String table : TABLES) {
+            if (!indexExists(connection, table, INDEX) && columnExists(connection, table, "player_uuid")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void run() {
+        try (Connection connection = databaseManager.getConnection()) {
+            for (String table : TABLES) {
+                if (isStopped()) {
+                    return;
+                }
+                // Without player_uuid an interrupted UUID swap is pending; its promotion adds the index
+                if (indexExists(connection, table, INDEX) || !columnExists(connection, table, "player_uuid")) {
+                    continue;
+                }
+                logger.info("Adding index " + INDEX + " to " + table + "...");
+                execute(connection, "ALTER TABLE `" + table + "` ADD INDEX `" + INDEX + "` (`player_uuid`, `timestamp`, `id`)"
+                        + (indexExists(connection, table, "idx_player_uuid") ? ", DROP INDEX `idx_player_uuid`" : "")
+                        + ", ALGORITHM=INPLACE, LOCK=NONE");
+            }
+            if (!isStopped()) {
+                markCompleted();
+                logger.info("History indexes on (player_uuid, timestamp, id) are in place");
+            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Adding the history indexes failed; it will be retried on the next start", e);
+        }
+    }
+}
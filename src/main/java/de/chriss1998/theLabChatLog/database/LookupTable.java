@@ -0,0 +1,49 @@
+package de.chriss1998.theLabChatLog.database;
+
+/**
+ * Dictionary tables for the low-cardinality name columns ({@code database.schema.dictionary_encoding}).
+ * Log tables store a SMALLINT surrogate key instead of repeating the name on every row.
+ */
+public enum LookupTable {
+    SERVERS("servers", "Server instance names"),
+    WORLDS("worlds", "World names"),
+    CHANNELS("channels", "Chat channel names");
+
+    private final String tableName;
+    private final String comment;
+
+    LookupTable(String tableName, String comment) {
+        this.tableName = tableName;
+        this.comment = comment;
+    }
+
+    /**
+     * Shared entry for names that no longer get a key of their own once the SMALLINT key space is used up
+     */
+    public static final String OVERFLOW_NAME = "(overflow)";
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Reserve the {@link #OVERFLOW_NAME} entry while there are keys left
+     */
+    String reserveOverflowSql() {
+        return "INSERT IGNORE INTO `" + tableName + "` (name) VALUES ('" + OVERFLOW_NAME + "')";
+    }
+
+    /**
+     * Names are stored in binary collation so that "World" and "world" stay distinct entries; queries that
+     * filter by name compare them in utf8mb4_unicode_ci, like the plain name columns of the log tables
+     */
+    String createTableSql() {
+        return """
+            CREATE TABLE IF NOT EXISTS `%s` (
+                `id` SMALLINT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
+                `name` VARCHAR(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL,
+                UNIQUE INDEX `uk_name` (`name`)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='%s'
+            """.formatted(tableName, comment);
+    }
+}
@@ -0,0 +1,231 @@
+package de.chriss1998.theLabChatLog.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Logger;
+
+/**
+ * Base for schema migrations that run in the background while the plugin keeps writing.
+ * Subclasses backfill new columns in id-range chunks and finish with a short swap during which
+ * writes are paused through {@link DatabaseManager#pauseWrites()}. A swap that changes the columns other
+ * servers on the same database write to goes through {@link #pauseAllWriters}, which waits until this
+ * server is the only one running.
+ */
+abstract class OnlineMigration implements Runnable {
+
+    // Held while a swap changes the layout and while a starting server reads it
+    static final String SCHEMA_LOCK = "thelab_chatlog_schema";
+    private static final int SCHEMA_LOCK_WAIT_SECONDS = 30;
+    private static final long WRITERS_LOG_INTERVAL = TimeUnit.MINUTES.toMillis(10);
+
+    protected final DatabaseManager databaseManager;
+    protected final Logger logger;
+    private final int chunkSize;
+    private final long pauseMillis;
+    private volatile boolean stopped;
+    private volatile boolean completed;
+
+    OnlineMigration(DatabaseManager databaseManager, Logger logger, int chunkSize, long pauseMillis) {
+        this.databaseManager = databaseManager;
+        this.logger = logger;
+        this.chunkSize = Math.max(100, chunkSize);
+        this.pauseMillis = Math.max(0, pauseMillis);
+    }
+
+    void stop() {
+        stopped = true;
+    }
+
+    boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Whether every table was migrated; later migrations only run after earlier ones completed
+     */
+    boolean isCompleted() {
+        return completed;
+    }
+
+    protected void markCompleted() {
+        completed = true;
+    }
+
+    protected int chunkSize() {
+        return chunkSize;
+    }
+
+    protected long pauseMillis() {
+        return pauseMillis;
+    }
+
+    /**
+     * Run an UPDATE whose two parameters are an id range {@code [from, to)} over {@code [firstId, lastId]}.
+     * Returns false if the migration was stopped in between.
+     */
+    protected boolean backfill(String table, String rangeUpdate, long firstId, long lastId) throws SQLException, InterruptedException {
+        long chunks = 0;
+        for (long from = firstId; from <= lastId; from += chunkSize) {
+            if (stopped) {
+                return false;
+            }
+            try (Connection connection = databaseManager.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(rangeUpdate)) {
+                statement.setLong(1, from);
+                statement.setLong(2, Math.min(from + chunkSize, lastId + 1));
+                statement.executeUpdate();
+            }
+            if (++chunks % 100 == 0) {
+                logger.info(String.format("%s migration of %s: %d/%d ids done", getClass().getSimpleName(), table,
+                        Math.min(from + chunkSize, lastId + 1) - firstId, lastId - firstId + 1));
+            }
+            if (pauseMillis > 0) {
+                Thread.sleep(pauseMillis);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Repeat {@link #backfill} over the rows written since {@code caughtUp} until the rest fits in one chunk,
+     * so the paused final step only handles a few rows. Returns the new high-water id, or -1 if stopped.
+     */
+    protected long catchUp(String table, String rangeUpdate, long caughtUp) throws SQLException, InterruptedException {
+        while (true) {
+            long last = idRange(table)[1];
+            if (last - caughtUp <= chunkSize) {
+                return caughtUp;
+            }
+            if (!backfill(table, rangeUpdate, caughtUp + 1, last)) {
+                return -1;
+            }
+            caughtUp = last;
+        }
+    }
+
+    /**
+     * Lowest and highest id of a table ({1, 0} if empty)
+     */
+    protected long[] idRange(String table) throws SQLException {
+        try (Connection connection = databaseManager.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT COALESCE(MIN(id), 1), COALESCE(MAX(id), 0) FROM `" + table + "`");
+             ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            return new long[]{rs.getLong(1), rs.getLong(2)};
+        }
+    }
+
+    /**
+     * Pause writes for a swap that changes the layout every server writes with. Other servers only read the
+     * layout at startup, so this waits, without pausing, until no other server sent a writer heartbeat
+     * recently. The check and the swap run under the schema lock on {@code connection}, which a starting
+     * server takes before it registers and reads the layout. Returns the paused gate, or null if stopped;
+     * hand it to {@link #resumeAllWriters} after the swap.
+     */
+    protected Lock pauseAllWriters(Connection connection, String table) throws SQLException, InterruptedException {
+        long loggedAt = 0;
+        while (!stopped) {
+            List<String> others = databaseManager.otherWriters(connection);
+            if (others.isEmpty() && getLock(connection, SCHEMA_LOCK, SCHEMA_LOCK_WAIT_SECONDS)) {
+                boolean paused = false;
+                try {
+                    others = databaseManager.otherWriters(connection);
+                    if (others.isEmpty()) {
+                        Lock gate = databaseManager.pauseWrites();
+                        paused = true;
+                        return gate;
+                    }
+                } finally {
+                    // Pooled connections keep session locks
+                    if (!paused) {
+                        releaseLock(connection, SCHEMA_LOCK);
+                    }
+                }
+            }
+            if (!others.isEmpty() && System.currentTimeMillis() - loggedAt >= WRITERS_LOG_INTERVAL) {
+                loggedAt = System.currentTimeMillis();
+                logger.warning("The schema swap of " + table + " waits until the other servers on this database are stopped: "
+                        + String.join(", ", others));
+            }
+            Thread.sleep(Math.max(1000, pauseMillis));
+        }
+        return null;
+    }
+
+    protected static void resumeAllWriters(Connection connection, Lock gate) throws SQLException {
+        gate.unlock();
+        releaseLock(connection, SCHEMA_LOCK);
+    }
+
+    /**
+     * Take a named server lock for the session of {@code connection}; false if it was not free in time
+     */
+    static boolean getLock(Connection connection, String name, int timeoutSeconds) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            statement.setString(1, name);
+            statement.setInt(2, timeoutSeconds);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    static void releaseLock(Connection connection, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("DO RELEASE_LOCK(?)")) {
+            statement.setString(1, name);
+            statement.execute();
+        }
+    }
+
+    /**
+     * A player UUID column of {@code source} converted to the UUID format of {@code target}
+     */
+    protected String uuidExpression(String column, String source, String target) {
+        UuidStorage from = databaseManager.getUuidStorage(source);
+        UuidStorage to = databaseManager.getUuidStorage(target);
+        if (from == to) {
+            return column;
+        }
+        return to == UuidStorage.BINARY ? UuidCodec.sqlTextToBinary(column) : UuidCodec.sqlBinaryToText(column);
+    }
+
+    protected static void execute(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.executeUpdate();
+        }
+    }
+
+    protected static void execute(Connection connection, String sql, long parameter) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, parameter);
+            statement.executeUpdate();
+        }
+    }
+
+    static boolean columnExists(Connection connection, String table, String column) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, table);
+            statement.setString(2, column);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    static boolean indexExists(Connection connection, String table, String index) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, table);
+            statement.setString(2, index);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
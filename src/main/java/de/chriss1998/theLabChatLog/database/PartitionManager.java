@@ -0,0 +1,239 @@
+package de.chriss1998.theLabChatLog.database;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * RANGE partitioning of the log tables on {@code timestamp} ({@code database.partitioning}).
+ * <p>
+ * Partitions are named after the first day of the period they hold ({@code p202601} monthly,
+ * {@code p20260115} daily), plus a catch-all {@code p_start} below the first period and an always empty
+ * {@code p_future} above the last one. The maintenance job splits new periods off {@code p_future}
+ * ahead of time and, with retention enabled, drops whole partitions that are past the retention period.
+ */
+public final class PartitionManager {
+
+    public enum Granularity {
+        DAILY(DateTimeFormatter.BASIC_ISO_DATE),
+        MONTHLY(DateTimeFormatter.ofPattern("yyyyMM"));
+
+        private final DateTimeFormatter nameFormat;
+
+        Granularity(DateTimeFormatter nameFormat) {
+            this.nameFormat = nameFormat;
+        }
+
+        LocalDate floor(LocalDate date) {
+            return this == DAILY ? date : date.withDayOfMonth(1);
+        }
+
+        LocalDate next(LocalDate periodStart) {
+            return this == DAILY ? periodStart.plusDays(1) : periodStart.plusMonths(1);
+        }
+
+        String partitionName(LocalDate periodStart) {
+            return "p" + nameFormat.format(periodStart);
+        }
+
+        static Granularity fromConfig(String value) {
+            return value != null && value.trim().equalsIgnoreCase("daily") ? DAILY : MONTHLY;
+        }
+    }
+
+    /**
+     * Tables that can be partitioned, with the key column that has to carry the timestamp in its unique index
+     */
+    record Table(String name, String uuidColumn, String timestampComment, String retentionKey) {}
+
+    static final List<Table> TABLES = List.of(
+            new Table("chat_messages", "message_uuid", "When the message was sent", "retention.chat_messages_days"),
+            new Table("command_logs", "command_uuid", "When the command was executed", "retention.command_logs_days")
+    );
+
+    static final String START = "p_start";
+    static final String FUTURE = "p_future";
+
+    private final DatabaseManager databaseManager;
+    private final Logger logger;
+    private final Granularity granularity;
+    private final int premake;
+    private final boolean retentionEnabled;
+    private final FileConfiguration config;
+
+    PartitionManager(DatabaseManager databaseManager, Logger logger, FileConfiguration config) {
+        this.databaseManager = databaseManager;
+        this.logger = logger;
+        this.config = config;
+        this.granularity = Granularity.fromConfig(config.getString("database.partitioning.granularity", "monthly"));
+        this.premake = Math.max(1, config.getInt("database.partitioning.premake", 3));
+        this.retentionEnabled = config.getBoolean("retention.enabled", false);
+    }
+
+    Granularity getGranularity() {
+        return granularity;
+    }
+
+    /**
+     * {@code PARTITION BY} clause with periods from the one containing {@code oldest} up to the premake horizon
+     */
+    String partitionClause(LocalDate oldest) {
+        LocalDate first = granularity.floor(oldest);
+        List<String> partitions = new ArrayList<>();
+        partitions.add(definition(START, first));
+        for (LocalDate period = first; period.isBefore(horizon()); period = granularity.next(period)) {
+            partitions.add(definition(granularity.partitionName(period), granularity.next(period)));
+        }
+        partitions.add("PARTITION " + FUTURE + " VALUES LESS THAN MAXVALUE");
+        return "PARTITION BY RANGE (UNIX_TIMESTAMP(`timestamp`)) (" + String.join(", ", partitions) + ")";
+    }
+
+    /**
+     * Create upcoming partitions and drop expired ones on every partitioned table
+     */
+    void maintain() {
+        for (Table table : TABLES) {
+            if (!databaseManager.isPartitioned(table.name())) {
+                continue;
+            }
+            try (Connection connection = databaseManager.getConnection()) {
+                List<String> names = partitionNames(connection, table.name());
+                createAhead(connection, table.name(), names);
+                if (retentionEnabled) {
+                    dropExpired(connection, table, names);
+                }
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Partition maintenance of " + table.name() + " failed", e);
+            }
+        }
+    }
+
+    private void createAhead(Connection connection, String table, List<String> names) throws SQLException {
+        LocalDate covered = null;
+        for (String name : names) {
+            LocalDate end = periodEnd(name);
+            if (end != null && (covered == null || end.isAfter(covered))) {
+                covered = end;
+            }
+        }
+        LocalDate from = covered != null ? covered : granularity.floor(LocalDate.now());
+        List<String> added = new ArrayList<>();
+        for (LocalDate period = granularity.floor(from); period.isBefore(horizon()); period = granularity.next(period)) {
+            if (period.isBefore(from)) {
+                continue; // switched from monthly to daily: continue after the last monthly period
+            }
+            added.add(definition(granularity.partitionName(period), granularity.next(period)));
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        added.add("PARTITION " + FUTURE + " VALUES LESS THAN MAXVALUE");
+        // p_future is kept empty, so splitting it only touches metadata
+        execute(connection, "ALTER TABLE `" + table + "` REORGANIZE PARTITION " + FUTURE + " INTO (" + String.join(", ", added) + ")");
+        logger.info("Created " + (added.size() - 1) + " partitions ahead for " + table);
+    }
+
+    private void dropExpired(Connection connection, Table table, List<String> names) throws SQLException {
+        int days = config.getInt(table.retentionKey(), 90);
+        if (days <= 0) {
+            return;
+        }
+        LocalDate cutoff = LocalDate.now().minusDays(days);
+        List<String> expired = new ArrayList<>();
+        LocalDate firstPeriod = null;
+        for (String name : names) {
+            LocalDate start = periodStart(name);
+            if (start != null && firstPeriod == null) {
+                firstPeriod = start;
+            }
+            LocalDate end = periodEnd(name);
+            if (end != null && !end.isAfter(cutoff)) {
+                expired.add(name);
+            }
+        }
+        if (names.contains(START) && firstPeriod != null && !firstPeriod.isAfter(cutoff)) {
+            expired.add(0, START);
+        }
+        // At least one partition below p_future has to remain
+        if (expired.size() >= names.size() - 1) {
+            expired.remove(expired.size() - 1);
+        }
+        if (expired.isEmpty()) {
+            return;
+        }
+        execute(connection, "ALTER TABLE `" + table.name() + "` DROP PARTITION " + String.join(", ", expired));
+        logger.info("Retention: dropped partitions " + expired + " of " + table.name() + " (older than " + days + " days)");
+    }
+
+    /**
+     * Exclusive upper end of the premade range
+     */
+    private LocalDate horizon() {
+        LocalDate period = granularity.floor(LocalDate.now());
+        for (int i = 0; i <= premake; i++) {
+            period = granularity.next(period);
+        }
+        return period;
+    }
+
+    private String definition(String name, LocalDate lessThan) {
+        return "PARTITION " + name + " VALUES LESS THAN (UNIX_TIMESTAMP('" + lessThan + " 00:00:00'))";
+    }
+
+    static List<String> partitionNames(Connection connection, String table) throws SQLException {
+        String sql = "SELECT PARTITION_NAME FROM information_schema.PARTITIONS WHERE TABLE_SCHEMA = DATABASE() "
+                + "AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL ORDER BY PARTITION_ORDINAL_POSITION";
+        List<String> names = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, table);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    names.add(rs.getString(1).toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * First day of the period a partition holds, null for p_start/p_future or foreign names
+     */
+    static LocalDate periodStart(String name) {
+        try {
+            if (name.length() == 9) {
+                return LocalDate.parse(name.substring(1), DateTimeFormatter.BASIC_ISO_DATE);
+            }
+            if (name.length() == 7) {
+                return LocalDate.parse(name.substring(1) + "01", DateTimeFormatter.BASIC_ISO_DATE);
+            }
+        } catch (DateTimeParseException ignored) {
+            // not one of ours
+        }
+        return null;
+    }
+
+    private static LocalDate periodEnd(String name) {
+        LocalDate start = periodStart(name);
+        if (start == null) {
+            return null;
+        }
+        return name.length() == 9 ? Granularity.DAILY.next(start) : Granularity.MONTHLY.next(start);
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package de.chriss1998.theLabChatLog.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Online conversion of a log table to the partitioned layout.
+ * <p>
+ * MySQL requires the partitioning column in every unique key, so the primary key becomes
+ * {@code (id, timestamp)} and the UUID key {@code (uuid, timestamp)}. A partitioned copy of the table is
+ * created and filled in id-range chunks while the plugin keeps writing to the original, and catch-up chunks copy
+ * the rows written in the meantime until only a few are left. With writes paused, those last rows are copied and
+ * both tables are swapped with one {@code RENAME TABLE}.
+ * The original is kept as {@code <table>_unpartitioned} unless it was empty.
+ */
+final class PartitionMigration extends OnlineMigration {
+
+    private final PartitionManager partitions;
+
+    PartitionMigration(DatabaseManager databaseManager, Logger logger, int chunkSize, long pauseMillis, PartitionManager partitions) {
+        super(databaseManager, logger, chunkSize, pauseMillis);
+        this.partitions = partitions;
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (PartitionManager.Table table : PartitionManager.TABLES) {
+                if (isStopped()) {
+                    return;
+                }
+                if (databaseManager.isPartitioned(table.name())) {
+                    continue;
+                }
+                migrate(table);
+            }
+            if (!isStopped()) {
+                databaseManager.recreateViews();
+                markCompleted();
+                logger.info("Partitioning of the log tables finished");
+            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Partitioning migration failed; it will resume on the next start", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void migrate(PartitionManager.Table table) throws SQLException, InterruptedException {
+        String name = table.name();
+        String copy = name + "_partitioned";
+        long resumeFrom;
+        try (Connection connection = databaseManager.getConnection()) {
+            if (!tableExists(connection, copy)) {
+                createCopy(connection, table, copy);
+                resumeFrom = 0;
+            } else {
+                // Interrupted earlier: continue after the highest copied id
+                resumeFrom = maxId(connection, copy);
+            }
+        }
+
+        long[] range = idRange(name);
+        long snapshotMax = range[1];
+        long firstId = Math.max(range[0], resumeFrom + 1);
+        logger.info(String.format("Partitioning %s (%s, ids %d..%d)", name, partitions.getGranularity(), firstId, snapshotMax));
+
+        String copyRows = "INSERT IGNORE INTO `" + copy + "` SELECT * FROM `" + name + "` WHERE id >= ? AND id < ?";
+        if (!backfill(name, copyRows, firstId, snapshotMax)) {
+            return;
+        }
+        // Rows written during the copy, outside the pause
+        long caughtUp = catchUp(name, copyRows, Math.max(snapshotMax, resumeFrom));
+        if (caughtUp < 0) {
+            return;
+        }
+
+        // Final swap with writes paused; rows committed since the catch-up all have ids above it
+        Lock gate = databaseManager.pauseWrites();
+        try (Connection connection = databaseManager.getConnection()) {
+            execute(connection, copyRows.replace("id >= ? AND id < ?", "id > ?"), caughtUp);
+            String backup = name + "_unpartitioned";
+            execute(connection, "RENAME TABLE `" + name + "` TO `" + backup + "`, `" + copy + "` TO `" + name + "`");
+            databaseManager.setPartitioned(name);
+            if (snapshotMax == 0 && maxId(connection, backup) == 0) {
+                execute(connection, "DROP TABLE `" + backup + "`");
+            } else {
+                logger.info("The unpartitioned original of " + name + " was kept as " + backup + "; drop it once you no longer need it");
+            }
+            logger.info(name + " is now partitioned by " + partitions.getGranularity().name().toLowerCase());
+        } finally {
+            gate.unlock();
+        }
+    }
+
+    private void createCopy(Connection connection, PartitionManager.Table table, String copy) throws SQLException {
+        LocalDate oldest = LocalDate.now();
+        try (PreparedStatement statement = connection.prepareStatement("SELECT MIN(`timestamp`) FROM `" + table.name() + "`");
+             ResultSet rs = statement.executeQuery()) {
+            if (rs.next()) {
+                Timestamp min = rs.getTimestamp(1);
+                if (min != null) {
+                    oldest = min.toLocalDateTime().toLocalDate();
+                }
+            }
+        }
+        execute(connection, "CREATE TABLE `" + copy + "` LIKE `" + table.name() + "`");
+        // Partitioned tables cannot have FULLTEXT indexes; search falls back to LIKE on them
+        if (indexExists(connection, copy, SearchIndexMigration.INDEX)) {
+            execute(connection, "ALTER TABLE `" + copy + "` DROP INDEX `" + SearchIndexMigration.INDEX + "`");
+        }
+        execute(connection, "ALTER TABLE `" + copy + "` "
+                + "MODIFY COLUMN `timestamp` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '" + table.timestampComment() + "', "
+                + "DROP PRIMARY KEY, ADD PRIMARY KEY (`id`, `timestamp`), "
+                + "DROP INDEX `" + table.uuidColumn() + "`, "
+                + "ADD UNIQUE INDEX `" + table.uuidColumn() + "` (`" + table.uuidColumn() + "`, `timestamp`)");
+        execute(connection, "ALTER TABLE `" + copy + "` " + partitions.partitionClause(oldest));
+    }
+
+    private static boolean tableExists(Connection connection, String table) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, table);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static long maxId(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT COALESCE(MAX(id), 0) FROM `" + table + "`");
+             ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
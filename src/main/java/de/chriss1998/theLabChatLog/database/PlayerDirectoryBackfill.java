@@ -0,0 +1,186 @@
+package de.chriss1998.theLabChatLog.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One-off fill of the player directory tables ({@code players}, {@code player_names}) from the rows logged
+ * before they existed.
+ * <p>
+ * When the progress table is created, the id range of every source table is stored in {@code players_backfill};
+ * rows above it reach the directory through the write-behind flusher. This migration groups that range by
+ * player in id-range chunks: first and last timestamp, the latest name, and every name with its own time span.
+ * The upserts keep the earliest first_seen, the latest last_seen and the name of the latest event, so a chunk
+ * that is applied twice changes nothing. Each chunk commits together with its progress under a lock on the
+ * progress row, so an interrupted fill resumes and servers sharing the database take turns.
+ * Until it finishes, player names are also resolved through the server's offline players.
+ */
+final class PlayerDirectoryBackfill extends OnlineMigration {
+
+    static final String TABLE = "players";
+    private static final String PROGRESS_TABLE = "players_backfill";
+
+    private static final List<String> SOURCES = List.of("chat_messages", "command_logs");
+
+    // {uuid} is s.player_uuid converted to the format of players; the name of the latest event comes first
+    private static final String UPSERT_PLAYERS = """
+        INSERT INTO `players` (player_uuid, current_name, first_seen, last_seen)
+        SELECT * FROM (
+            SELECT {uuid} AS player_uuid,
+                SUBSTRING_INDEX(GROUP_CONCAT(s.player_name ORDER BY s.`timestamp` DESC, s.id DESC SEPARATOR '\\n'), '\\n', 1) AS latest_name,
+                MIN(s.`timestamp`) AS first_event, MAX(s.`timestamp`) AS last_event
+            FROM `{table}` s
+            WHERE s.id >= ? AND s.id < ? AND s.player_uuid IS NOT NULL AND s.player_name IS NOT NULL
+                AND s.`timestamp` IS NOT NULL
+            GROUP BY s.player_uuid
+        ) AS delta
+        ON DUPLICATE KEY UPDATE
+            current_name = IF(VALUES(last_seen) >= `players`.last_seen, VALUES(current_name), `players`.current_name),
+            first_seen = LEAST(`players`.first_seen, VALUES(first_seen)),
+            last_seen = GREATEST(`players`.last_seen, VALUES(last_seen))
+        """;
+
+    private static final String UPSERT_PLAYER_NAMES = """
+        INSERT INTO `player_names` (player_id, name, first_seen, last_seen)
+        SELECT * FROM (
+            SELECT p.id AS player_id, s.player_name AS name,
+                MIN(s.`timestamp`) AS first_event, MAX(s.`timestamp`) AS last_event
+            FROM `{table}` s
+            JOIN `players` p ON p.player_uuid = {uuid}
+            WHERE s.id >= ? AND s.id < ? AND s.player_name IS NOT NULL AND s.`timestamp` IS NOT NULL
+            GROUP BY p.id, s.player_name
+        ) AS delta
+        ON DUPLICATE KEY UPDATE
+            first_seen = LEAST(`player_names`.first_seen, VALUES(first_seen)),
+            last_seen = GREATEST(`player_names`.last_seen, VALUES(last_seen))
+        """;
+
+    private static final String CREATE_PROGRESS_TABLE = """
+        CREATE TABLE IF NOT EXISTS `players_backfill` (
+            `table_name` VARCHAR(64) NOT NULL PRIMARY KEY COMMENT 'Source table of the player directory',
+            `next_id` BIGINT NOT NULL COMMENT 'First id not read yet',
+            `last_id` BIGINT NOT NULL COMMENT 'Highest id logged before the directory was filled'
+        ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+        """;
+
+    // Held until the chunk commits: another server's fill waits and then continues after this chunk
+    private static final String LOCK_PROGRESS = "SELECT next_id, last_id FROM `players_backfill` WHERE table_name = ? FOR UPDATE";
+    private static final String UPDATE_PROGRESS = "UPDATE `players_backfill` SET next_id = ? WHERE table_name = ?";
+
+    PlayerDirectoryBackfill(DatabaseManager databaseManager, Logger logger, int chunkSize, long pauseMillis) {
+        super(databaseManager, logger, chunkSize, pauseMillis);
+    }
+
+    /**
+     * Create the progress table and, the first time, store the id range of every source table. Rows logged
+     * before the directory existed are all below it; later ones are in the directory already.
+     */
+    static void createProgressTable(Connection connection) throws SQLException {
+        boolean created = !columnExists(connection, PROGRESS_TABLE, "table_name");
+        execute(connection, CREATE_PROGRESS_TABLE);
+        if (created) {
+            for (String source : SOURCES) {
+                execute(connection, "INSERT IGNORE INTO `" + PROGRESS_TABLE + "` (table_name, next_id, last_id) "
+                        + "SELECT '" + source + "', COALESCE(MIN(id), 1), COALESCE(MAX(id), 0) FROM `" + source + "`");
+            }
+        }
+    }
+
+    /**
+     * Whether any source table still has rows to read
+     */
+    static boolean isPending(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT 1 FROM `" + PROGRESS_TABLE + "` WHERE next_id <= last_id LIMIT 1");
+             ResultSet rs = statement.executeQuery()) {
+            return rs.next();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (String source : SOURCES) {
+                if (isStopped() || !fill(source)) {
+                    return;
+                }
+            }
+            databaseManager.setPlayersBackfilled();
+            markCompleted();
+            logger.info("The player directory now covers every logged player");
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Filling the player directory failed; it will resume on the next start", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Read the remaining range of a source table chunk by chunk. Returns false if the migration was stopped in between.
+     */
+    private boolean fill(String source) throws SQLException, InterruptedException {
+        String uuid = uuidExpression("s.player_uuid", source, TABLE);
+        String players = UPSERT_PLAYERS.replace("{table}", source).replace("{uuid}", uuid);
+        String names = UPSERT_PLAYER_NAMES.replace("{table}", source).replace("{uuid}", uuid);
+        long chunks = 0;
+        while (true) {
+            if (isStopped()) {
+                return false;
+            }
+            long to;
+            long last;
+            try (Connection connection = databaseManager.getConnection()) {
+                connection.setAutoCommit(false);
+                try (PreparedStatement lock = connection.prepareStatement(LOCK_PROGRESS);
+                     PreparedStatement playerRows = connection.prepareStatement(players);
+                     PreparedStatement nameRows = connection.prepareStatement(names);
+                     PreparedStatement progress = connection.prepareStatement(UPDATE_PROGRESS)) {
+                    lock.setString(1, source);
+                    long from;
+                    try (ResultSet rs = lock.executeQuery()) {
+                        if (!rs.next()) {
+                            connection.rollback();
+                            return true;
+                        }
+                        from = rs.getLong(1);
+                        last = rs.getLong(2);
+                    }
+                    if (from > last) {
+                        // Done, possibly by another server
+                        connection.rollback();
+                        return true;
+                    }
+                    if (chunks == 0) {
+                        logger.info(String.format("Filling the player directory from %s (ids %d..%d)", source, from, last));
+                    }
+                    to = Math.min(from + chunkSize(), last + 1);
+                    for (PreparedStatement statement : new PreparedStatement[]{playerRows, nameRows}) {
+                        statement.setLong(1, from);
+                        statement.setLong(2, to);
+                        statement.executeUpdate();
+                    }
+                    progress.setLong(1, to);
+                    progress.setString(2, source);
+                    progress.executeUpdate();
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+            if (++chunks % 100 == 0) {
+                logger.info(String.format("Player directory fill from %s: up to id %d of %d", source, to - 1, last));
+            }
+            if (pauseMillis() > 0) {
+                Thread.sleep(pauseMillis());
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package de.chriss1998.theLabChatLog.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One-off backfill of {@code player_stats} with the rows logged before the table existed.
+ * <p>
+ * When player_stats is created, the id range of every source table is stored in {@code player_stats_backfill};
+ * rows above it are counted by the writers as they are inserted. This migration adds the per-player sums of
+ * that range in id-range chunks, each chunk together with its progress in one transaction, so an interrupted
+ * backfill resumes without counting a row twice. Each chunk starts where the progress row says under a row
+ * lock, so servers sharing the database take turns instead of counting the same range twice.
+ * Until it finishes, counts are not read from player_stats.
+ */
+final class PlayerStatsBackfill extends OnlineMigration {
+
+    static final String TABLE = "player_stats";
+    private static final String PROGRESS_TABLE = "player_stats_backfill";
+
+    /**
+     * Source table and the per-player sums of one id range; {@code {uuid}} is the player UUID converted to
+     * the format of player_stats
+     */
+    private record Source(String table, String sums) {}
+
+    private static final List<Source> SOURCES = List.of(
+            new Source("chat_messages", """
+                INSERT INTO `player_stats` (
+                    player_uuid, messages_chat, messages_private, messages_broadcast, messages_command, messages_system,
+                    messages_join, messages_leave, messages_death, messages_achievement, message_bytes
+                )
+                SELECT * FROM (
+                    SELECT {uuid} AS player_uuid,
+                        SUM(message_type = 'CHAT'), SUM(message_type = 'PRIVATE'), SUM(message_type = 'BROADCAST'),
+                        SUM(message_type = 'COMMAND'), SUM(message_type = 'SYSTEM'), SUM(message_type = 'JOIN'),
+                        SUM(message_type = 'LEAVE'), SUM(message_type = 'DEATH'), SUM(message_type = 'ACHIEVEMENT'),
+                        SUM(LENGTH(message_content))
+                    FROM `chat_messages` WHERE id >= ? AND id < ?
+                    GROUP BY `chat_messages`.player_uuid
+                ) AS delta
+                ON DUPLICATE KEY UPDATE
+                    messages_chat = `player_stats`.messages_chat + VALUES(messages_chat),
+                    messages_private = `player_stats`.messages_private + VALUES(messages_private),
+                    messages_broadcast = `player_stats`.messages_broadcast + VALUES(messages_broadcast),
+                    messages_command = `player_stats`.messages_command + VALUES(messages_command),
+                    messages_system = `player_stats`.messages_system + VALUES(messages_system),
+                    messages_join = `player_stats`.messages_join + VALUES(messages_join),
+                    messages_leave = `player_stats`.messages_leave + VALUES(messages_leave),
+                    messages_death = `player_stats`.messages_death + VALUES(messages_death),
+                    messages_achievement = `player_stats`.messages_achievement + VALUES(messages_achievement),
+                    message_bytes = `player_stats`.message_bytes + VALUES(message_bytes)
+                """),
+            new Source("command_logs", """
+                INSERT INTO `player_stats` (player_uuid, commands, command_bytes)
+                SELECT * FROM (
+                    SELECT {uuid} AS player_uuid, COUNT(*), SUM(LENGTH(command_text))
+                    FROM `command_logs` WHERE id >= ? AND id < ? AND player_uuid IS NOT NULL
+                    GROUP BY `command_logs`.player_uuid
+                ) AS delta
+                ON DUPLICATE KEY UPDATE
+                    commands = `player_stats`.commands + VALUES(commands),
+                    command_bytes = `player_stats`.command_bytes + VALUES(command_bytes)
+                """)
+    );
+
+    private static final String CREATE_PROGRESS_TABLE = """
+        CREATE TABLE IF NOT EXISTS `player_stats_backfill` (
+            `table_name` VARCHAR(64) NOT NULL PRIMARY KEY COMMENT 'Source table of the counters',
+            `next_id` BIGINT NOT NULL COMMENT 'First id not counted yet',
+            `last_id` BIGINT NOT NULL COMMENT 'Highest id logged before player_stats existed'
+        ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+        """;
+
+    // Held until the chunk commits: another server's backfill waits and then continues after this chunk
+    private static final String LOCK_PROGRESS = "SELECT next_id, last_id FROM `player_stats_backfill` WHERE table_name = ? FOR UPDATE";
+    private static final String UPDATE_PROGRESS = "UPDATE `player_stats_backfill` SET next_id = ? WHERE table_name = ?";
+
+    PlayerStatsBackfill(DatabaseManager databaseManager, Logger logger, int chunkSize, long pauseMillis) {
+        super(databaseManager, logger, chunkSize, pauseMillis);
+    }
+
+    static void createProgressTable(Connection connection) throws SQLException {
+        execute(connection, CREATE_PROGRESS_TABLE);
+    }
+
+    /**
+     * Store the id range of every source table; called right before player_stats is created.
+     * Existing progress of an earlier attempt is kept.
+     */
+    static void snapshot(Connection connection) throws SQLException {
+        for (Source source : SOURCES) {
+            execute(connection, "INSERT IGNORE INTO `" + PROGRESS_TABLE + "` (table_name, next_id, last_id) "
+                    + "SELECT '" + source.table() + "', COALESCE(MIN(id), 1), COALESCE(MAX(id), 0) FROM `" + source.table() + "`");
+        }
+    }
+
+    /**
+     * Whether any source table still has rows to count
+     */
+    static boolean isPending(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT 1 FROM `" + PROGRESS_TABLE + "` WHERE next_id <= last_id LIMIT 1");
+             ResultSet rs = statement.executeQuery()) {
+            return rs.next();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (Source source : SOURCES) {
+                if (isStopped()) {
+                    return;
+                }
+                long[] progress = progress(source.table());
+                if (progress != null && progress[0] <= progress[1] && !count(source, progress[0], progress[1])) {
+                    return;
+                }
+            }
+            if (!isStopped()) {
+                databaseManager.setPlayerStatsReady();
+                markCompleted();
+                logger.info("Per-player counters are backfilled; message counts are read from " + TABLE);
+            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Backfilling " + TABLE + " failed; it will resume on the next start", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Next id and last id of a source table, null if it has no progress row
+     */
+    private long[] progress(String table) throws SQLException {
+        try (Connection connection = databaseManager.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT next_id, last_id FROM `" + PROGRESS_TABLE + "` WHERE table_name = ?")) {
+            statement.setString(1, table);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? new long[]{rs.getLong(1), rs.getLong(2)} : null;
+            }
+        }
+    }
+
+    /**
+     * Add the sums of {@code [nextId, lastId]} chunk by chunk. Returns false if the migration was stopped in between.
+     * The ids only serve the progress log; every chunk reads its range from the locked progress row.
+     */
+    private boolean count(Source source, long nextId, long lastId) throws SQLException, InterruptedException {
+        String sql = source.sums().replace("{uuid}", uuidExpression("`" + source.table() + "`.player_uuid", source.table(), TABLE));
+        logger.info(String.format("Backfilling %s from %s (ids %d..%d)", TABLE, source.table(), nextId, lastId));
+        long chunks = 0;
+        while (true) {
+            if (isStopped()) {
+                return false;
+            }
+            long to;
+            try (Connection connection = databaseManager.getConnection()) {
+                connection.setAutoCommit(false);
+                try (PreparedStatement lock = connection.prepareStatement(LOCK_PROGRESS);
+                     PreparedStatement sums = connection.prepareStatement(sql);
+                     PreparedStatement progress = connection.prepareStatement(UPDATE_PROGRESS)) {
+                    lock.setString(1, source.table());
+                    long from;
+                    long last;
+                    try (ResultSet rs = lock.executeQuery()) {
+                        if (!rs.next()) {
+                            connection.rollback();
+                            return true;
+                        }
+                        from = rs.getLong(1);
+                        last = rs.getLong(2);
+                    }
+                    if (from > last) {
+                        // Done, possibly by another server
+                        connection.rollback();
+                        return true;
+                    }
+                    to = Math.min(from + chunkSize(), last + 1);
+                    sums.setLong(1, from);
+                    sums.setLong(2, to);
+                    sums.executeUpdate();
+                    progress.setLong(1, to);
+                    progress.setString(2, source.table());
+                    progress.executeUpdate();
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+            if (++chunks % 100 == 0) {
+                logger.info(String.format("Backfill of %s from %s: %d/%d ids done", TABLE, source.table(),
+                        to - nextId, lastId - nextId + 1));
+            }
+            if (pauseMillis() > 0) {
+                Thread.sleep(pauseMillis());
+            }
+        }
+    }
+}
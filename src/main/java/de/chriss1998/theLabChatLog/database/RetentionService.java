@@ -0,0 +1,260 @@
+package de.chriss1998.theLabChatLog.database;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Deletes rows past their retention period ({@code retention.*}) without long locks.
+ * <p>
+ * Rows are deleted in short primary-key ranges, one autocommit statement each, so every chunk holds its
+ * row locks and undo log only briefly. A rows-per-second budget paces the chunks, which keeps replicas and
+ * concurrent writers from falling behind while cleanup runs during peak hours. Partitioned tables are skipped:
+ * {@link PartitionManager} drops their expired partitions instead.
+ */
+public final class RetentionService {
+
+    /**
+     * Table with the indexed time column that decides its age
+     */
+    record Target(String table, String timeColumn, String daysKey, int defaultDays) {}
+
+    static final List<Target> TARGETS = List.of(
+            new Target("chat_messages", "timestamp", "retention.chat_messages_days", 90),
+            new Target("command_logs", "timestamp", "retention.command_logs_days", 90),
+            new Target("player_sessions", "login_time", "retention.session_data_days", 30),
+            new Target("server_events", "timestamp", "retention.server_events_days", 30),
+            new Target("chat_activity_hourly", "bucket", "retention.hourly_activity_days", 35),
+            new Target("command_activity_hourly", "bucket", "retention.hourly_activity_days", 35)
+    );
+
+    private final DatabaseManager databaseManager;
+    private final Logger logger;
+    private final FileConfiguration config;
+    private final boolean enabled;
+    private final long intervalHours;
+    private final int chunkSize;
+    private final int rowsPerSecond;
+    private final ScheduledExecutorService executor;
+    private volatile boolean stopped;
+
+    // Metrics
+    private final Map<String, LongAdder> deletedTotal = new LinkedHashMap<>();
+    private volatile String running;
+    private volatile LocalDateTime lastRun;
+    private volatile long lastRunDeleted;
+    private volatile long lastRunMillis;
+
+    RetentionService(DatabaseManager databaseManager, Logger logger, FileConfiguration config) {
+        this.databaseManager = databaseManager;
+        this.logger = logger;
+        this.config = config;
+        this.enabled = config.getBoolean("retention.enabled", false);
+        this.intervalHours = Math.max(1, config.getLong("retention.cleanup_interval", 24));
+        this.chunkSize = Math.max(100, config.getInt("retention.chunk_size", 1000));
+        this.rowsPerSecond = Math.max(0, config.getInt("retention.max_rows_per_second", 5000));
+        for (Target target : TARGETS) {
+            deletedTotal.put(target.table(), new LongAdder());
+        }
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ChatLog-Retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Schedule the periodic cleanup if retention is enabled; the first run starts a minute after startup
+     */
+    void start() {
+        if (enabled) {
+            executor.scheduleWithFixedDelay(this::runAll, 1, TimeUnit.HOURS.toMinutes(intervalHours), TimeUnit.MINUTES);
+        }
+    }
+
+    void stop() {
+        stopped = true;
+        executor.shutdownNow();
+    }
+
+    /**
+     * Delete the rows of a table older than {@code before} in throttled chunks on the retention thread.
+     * Completes with the number of deleted rows.
+     */
+    public CompletableFuture<Long> purgeAsync(String table, LocalDateTime before) {
+        return purgeAsync(table, before, Long.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #purgeAsync(String, LocalDateTime)}, but never deletes rows with an id above {@code maxId}
+     */
+    public CompletableFuture<Long> purgeAsync(String table, LocalDateTime before, long maxId) {
+        Target target = TARGETS.stream()
+                .filter(t -> t.table().equals(table))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No retention target: " + table));
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return purge(target, before, maxId);
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Retention of " + table + " failed", e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return 0L;
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void runAll() {
+        if (databaseManager.isMigrating()) {
+            // Rows deleted behind a running backfill would survive in its copy; try again next interval
+            logger.info("Retention postponed: a schema migration is still running");
+            return;
+        }
+        long started = System.nanoTime();
+        long deleted = 0;
+        try {
+            for (Target target : TARGETS) {
+                if (stopped) {
+                    return;
+                }
+                int days = config.getInt(target.daysKey(), target.defaultDays());
+                if (days <= 0 || databaseManager.isPartitioned(target.table())) {
+                    continue;
+                }
+                deleted += purge(target, LocalDateTime.now().minusDays(days), Long.MAX_VALUE);
+            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Retention cleanup failed; it continues at the next interval", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        lastRun = LocalDateTime.now();
+        lastRunDeleted = deleted;
+        lastRunMillis = Duration.ofNanos(System.nanoTime() - started).toMillis();
+        if (deleted > 0) {
+            logger.info(String.format("Retention: deleted %d rows in %.1fs", deleted, lastRunMillis / 1000.0));
+        }
+    }
+
+    /**
+     * Walk the id range up to the newest expired row, deleting only expired rows in each chunk.
+     * Rows written late with an old timestamp (spool replays) may lie above that id; a later run covers them.
+     */
+    private long purge(Target target, LocalDateTime before, long maxId) throws SQLException, InterruptedException {
+        Timestamp cutoff = Timestamp.valueOf(before);
+        String table = target.table();
+        String column = target.timeColumn();
+        long firstId;
+        long lastId;
+        try (Connection connection = databaseManager.getConnection()) {
+            lastId = queryLong(connection, "SELECT id FROM `" + table + "` WHERE `" + column + "` < ? ORDER BY `" + column + "` DESC LIMIT 1", cutoff);
+            if (lastId < 0) {
+                return 0;
+            }
+            if (maxId != Long.MAX_VALUE) {
+                lastId = maxId; // bounded purges (archiving) cover every id up to the bound
+            }
+            firstId = queryLong(connection, "SELECT MIN(id) FROM `" + table + "`", null);
+        }
+
+        String delete = "DELETE FROM `" + table + "` WHERE id >= ? AND id < ? AND `" + column + "` < ?";
+        long deleted = 0;
+        running = table;
+        try {
+            for (long from = firstId; from <= lastId; from += chunkSize) {
+                if (stopped) {
+                    break;
+                }
+                long chunkStart = System.nanoTime();
+                int rows;
+                Lock gate = databaseManager.getWriteGate();
+                gate.lock();
+                try (Connection connection = databaseManager.getConnection();
+                     PreparedStatement statement = connection.prepareStatement(delete)) {
+                    statement.setLong(1, from);
+                    statement.setLong(2, Math.min(from + chunkSize, lastId + 1));
+                    statement.setTimestamp(3, cutoff);
+                    rows = statement.executeUpdate();
+                } finally {
+                    gate.unlock();
+                }
+                deleted += rows;
+                deletedTotal.get(table).add(rows);
+                throttle(rows, chunkStart);
+            }
+        } finally {
+            running = null;
+        }
+        if (deleted > 0) {
+            logger.info("Retention: deleted " + deleted + " rows of " + table + " older than " + before.toLocalDate());
+        }
+        return deleted;
+    }
+
+    /**
+     * Sleep until the chunk fits into the rows-per-second budget
+     */
+    private void throttle(int rows, long chunkStart) throws InterruptedException {
+        if (rowsPerSecond <= 0 || rows == 0) {
+            return;
+        }
+        long budgetNanos = rows * 1_000_000_000L / rowsPerSecond;
+        long remaining = budgetNanos - (System.nanoTime() - chunkStart);
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+
+    private static long queryLong(Connection connection, String sql, Timestamp parameter) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            if (parameter != null) {
+                statement.setTimestamp(1, parameter);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next()) {
+                    long value = rs.getLong(1);
+                    return rs.wasNull() ? -1 : value;
+                }
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Deleted rows per table since startup and the outcome of the last run
+     */
+    public String getStats() {
+        String totals = deletedTotal.entrySet().stream()
+                .map(e -> e.getKey() + "=" + e.getValue().sum())
+                .collect(Collectors.joining(", "));
+        String state = running != null ? "running on " + running
+                : lastRun == null ? (enabled ? "no run yet" : "disabled")
+                : String.format("last run %s: %d rows in %.1fs", lastRun.withNano(0), lastRunDeleted, lastRunMillis / 1000.0);
+        return "Retention (" + state + ", max " + (rowsPerSecond > 0 ? rowsPerSecond + " rows/s" : "unthrottled") + ") - deleted: " + totals;
+    }
+}
@@ -0,0 +1,51 @@
+package de.chriss1998.theLabChatLog.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Adds the FULLTEXT index on {@code chat_messages.message_content} to tables created before content search
+ * used it. New tables get the index with their CREATE TABLE.
+ * <p>
+ * InnoDB builds a FULLTEXT index in place but cannot accept writes meanwhile, so the build runs last on the
+ * migration thread instead of blocking startup; log writes wait in the write queue until it is done.
+ * Partitioned tables cannot have FULLTEXT indexes and keep the LIKE search.
+ */
+final class SearchIndexMigration extends OnlineMigration {
+
+    static final String TABLE = "chat_messages";
+    static final String INDEX = "ft_message_content";
+
+    SearchIndexMigration(DatabaseManager databaseManager, Logger logger) {
+        super(databaseManager, logger, 0, 0);
+    }
+
+    /**
+     * Index clause for CREATE/ALTER TABLE in the dialect's flavour
+     */
+    static String indexDefinition(SqlDialect dialect) {
+        return "FULLTEXT INDEX `" + INDEX + "` (`message_content`)" + dialect.getFulltextParser();
+    }
+
+    @Override
+    public void run() {
+        if (databaseManager.isPartitioned(TABLE)) {
+            markCompleted();
+            return;
+        }
+        try (Connection connection = databaseManager.getConnection()) {
+            if (!indexExists(connection, TABLE, INDEX)) {
+                logger.info("Building FULLTEXT index " + INDEX + " on " + TABLE + "; log writes are queued until it is done...");
+                long started = System.currentTimeMillis();
+                execute(connection, "ALTER TABLE `" + TABLE + "` ADD " + indexDefinition(databaseManager.getDialect()));
+                logger.info(String.format("FULLTEXT index built in %.1fs", (System.currentTimeMillis() - started) / 1000.0));
+            }
+            databaseManager.setFulltextIndexed(true);
+            markCompleted();
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Building the FULLTEXT search index failed; search uses LIKE until the next start", e);
+        }
+    }
+}
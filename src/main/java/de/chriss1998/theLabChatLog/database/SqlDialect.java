@@ -0,0 +1,114 @@
+package de.chriss1998.theLabChatLog.database;
+
+/**
+ * Supported database dialects and their driver specific tuning.
+ * The dialect is chosen from {@code database.type} and decides how batches are sent to the server.
+ */
+public enum SqlDialect {
+
+    /**
+     * MySQL Connector/J: batches are sent as explicit multi-row {@code INSERT ... VALUES (...),(...)}.
+     * rewriteBatchedStatements additionally covers plain JDBC batches elsewhere. Statements longer than
+     * prepStmtCacheSqlLimit are prepared again on every call, so it covers the longest {@link BulkInsert}.
+     * FULLTEXT indexes use the ngram parser, which also finds short in-game words and word parts.
+     * Streams use a server-side cursor (useCursorFetch) that hands out fetchSize rows per round-trip.
+     */
+    MYSQL("mysql", "com.mysql.cj.jdbc.Driver", BulkStrategy.MULTI_ROW_VALUES,
+            "&useSSL=false&allowPublicKeyRetrieval=true",
+            "&rewriteBatchedStatements=true&useServerPrepStmts=true&cachePrepStmts=true"
+                    + "&prepStmtCacheSize=250&prepStmtCacheSqlLimit=" + SqlDialect.PREP_STMT_CACHE_SQL_LIMIT
+                    + "&cacheResultSetMetadata=true&cacheServerConfiguration=true&elideSetAutoCommits=true",
+            "&useCursorFetch=true",
+            " WITH PARSER ngram"),
+
+    /**
+     * MariaDB Connector/J 3.x: batches use the binary bulk protocol (COM_STMT_BULK_EXECUTE).
+     * MariaDB has no ngram parser; the shortest indexed word is innodb_ft_min_token_size (default 3).
+     * Streams need no extra parameter: a positive fetchSize already reads the result incrementally.
+     */
+    MARIADB("mariadb", "org.mariadb.jdbc.Driver", BulkStrategy.DRIVER_BULK,
+            "&useSSL=false",
+            "&useBulkStmts=true&useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=250",
+            "",
+            "");
+
+    /**
+     * Longest statement text the MySQL driver caches
+     */
+    static final int PREP_STMT_CACHE_SQL_LIMIT = 16384;
+
+    /**
+     * How a list of rows is written in one round-trip
+     */
+    public enum BulkStrategy {
+        /** Build one statement with several VALUES tuples */
+        MULTI_ROW_VALUES,
+        /** Use addBatch/executeBatch and let the driver use its bulk protocol */
+        DRIVER_BULK
+    }
+
+    private final String protocol;
+    private final String driverClassName;
+    private final BulkStrategy bulkStrategy;
+    private final String noSslParameters;
+    private final String performanceParameters;
+    private final String streamingParameters;
+    private final String fulltextParser;
+
+    SqlDialect(String protocol, String driverClassName, BulkStrategy bulkStrategy,
+               String noSslParameters, String performanceParameters, String streamingParameters, String fulltextParser) {
+        this.protocol = protocol;
+        this.driverClassName = driverClassName;
+        this.bulkStrategy = bulkStrategy;
+        this.noSslParameters = noSslParameters;
+        this.performanceParameters = performanceParameters;
+        this.streamingParameters = streamingParameters;
+        this.fulltextParser = fulltextParser;
+    }
+
+    /**
+     * Resolve the dialect from the configured database type (defaults to MySQL)
+     */
+    public static SqlDialect fromType(String type) {
+        return "mariadb".equalsIgnoreCase(type) ? MARIADB : MYSQL;
+    }
+
+    public String getDriverClassName() {
+        return driverClassName;
+    }
+
+    public BulkStrategy getBulkStrategy() {
+        return bulkStrategy;
+    }
+
+    /**
+     * Parser clause appended to FULLTEXT index definitions (may be empty)
+     */
+    public String getFulltextParser() {
+        return fulltextParser;
+    }
+
+    /**
+     * Build a JDBC URL. An empty schema yields a server-level URL.
+     *
+     * @param withPerformanceParameters whether statement caching and batch tuning should be enabled
+     */
+    public String buildJdbcUrl(String host, int port, String schema, boolean sslEnabled, boolean withPerformanceParameters) {
+        StringBuilder url = new StringBuilder(String.format("jdbc:%s://%s:%d/%s", protocol, host, port, schema));
+        url.append("?useUnicode=true&characterEncoding=UTF-8&serverTimezone=UTC");
+        if (!sslEnabled) {
+            url.append(noSslParameters);
+        }
+        if (withPerformanceParameters) {
+            url.append(performanceParameters);
+        }
+        return url.toString();
+    }
+
+    /**
+     * JDBC URL for connections that read large results incrementally instead of buffering them
+     */
+    public String buildStreamingJdbcUrl(String host, int port, String schema, boolean sslEnabled) {
+        return buildJdbcUrl(host, port, schema, sslEnabled, false) + streamingParameters;
+    }
+}
@@ -0,0 +1,114 @@
+package de.chriss1998.theLabChatLog.database;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.UUID;
+
+/**
+ * Converts UUID strings to and from the column format of a {@link UuidStorage} mode.
+ * Binary values are the two longs of the UUID in big-endian order, i.e. the same bytes as
+ * {@code UNHEX(REPLACE(uuid, '-', ''))}, so SQL-side conversions and JDBC bindings agree.
+ */
+public final class UuidCodec {
+
+    private UuidCodec() {}
+
+    /**
+     * Bind a UUID string (may be null) in the given storage format
+     */
+    public static void bind(PreparedStatement statement, int index, String uuid, UuidStorage storage) throws SQLException {
+        if (storage == UuidStorage.TEXT) {
+            statement.setString(index, uuid);
+        } else if (uuid == null) {
+            statement.setNull(index, Types.BINARY);
+        } else {
+            statement.setBytes(index, toBytes(uuid));
+        }
+    }
+
+    /**
+     * Read a UUID column as canonical string (null stays null)
+     */
+    public static String read(ResultSet resultSet, String column, UuidStorage storage) throws SQLException {
+        if (storage == UuidStorage.TEXT) {
+            return resultSet.getString(column);
+        }
+        byte[] bytes = resultSet.getBytes(column);
+        return bytes != null ? fromBytes(bytes) : null;
+    }
+
+    /**
+     * Parameter object for generic {@code setObject} bindings
+     */
+    public static Object toParameter(String uuid, UuidStorage storage) {
+        return storage == UuidStorage.TEXT || uuid == null ? uuid : toBytes(uuid);
+    }
+
+    public static byte[] toBytes(String uuid) {
+        long msb;
+        long lsb;
+        if (uuid.length() == 36) {
+            // Canonical form: parse the 32 hex digits straight into two longs
+            msb = 0;
+            lsb = 0;
+            int digits = 0;
+            for (int i = 0; i < 36; i++) {
+                char c = uuid.charAt(i);
+                if (c == '-') {
+                    continue;
+                }
+                int d = Character.digit(c, 16);
+                if (d < 0 || digits == 32) {
+                    throw new IllegalArgumentException("Invalid UUID: " + uuid);
+                }
+                if (digits++ < 16) {
+                    msb = (msb << 4) | d;
+                } else {
+                    lsb = (lsb << 4) | d;
+                }
+            }
+            if (digits != 32) {
+                throw new IllegalArgumentException("Invalid UUID: " + uuid);
+            }
+        } else {
+            UUID parsed = UUID.fromString(uuid);
+            msb = parsed.getMostSignificantBits();
+            lsb = parsed.getLeastSignificantBits();
+        }
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (msb >>> (56 - 8 * i));
+            bytes[8 + i] = (byte) (lsb >>> (56 - 8 * i));
+        }
+        return bytes;
+    }
+
+    public static String fromBytes(byte[] bytes) {
+        if (bytes.length != 16) {
+            throw new IllegalArgumentException("Binary UUID must be 16 bytes, got " + bytes.length);
+        }
+        long msb = 0;
+        long lsb = 0;
+        for (int i = 0; i < 8; i++) {
+            msb = (msb << 8) | (bytes[i] & 0xFF);
+            lsb = (lsb << 8) | (bytes[8 + i] & 0xFF);
+        }
+        return new UUID(msb, lsb).toString();
+    }
+
+    /**
+     * SQL expression converting a canonical UUID string expression to BINARY(16)
+     */
+    public static String sqlTextToBinary(String expression) {
+        return "UNHEX(REPLACE(" + expression + ", '-', ''))";
+    }
+
+    /**
+     * SQL expression converting a BINARY(16) expression to the canonical string (works on MySQL and MariaDB)
+     */
+    public static String sqlBinaryToText(String expression) {
+        return "LOWER(INSERT(INSERT(INSERT(INSERT(HEX(" + expression + "), 9, 0, '-'), 14, 0, '-'), 19, 0, '-'), 24, 0, '-'))";
+    }
+}
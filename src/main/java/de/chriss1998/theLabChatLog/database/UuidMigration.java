@@ -0,0 +1,330 @@
+package de.chriss1998.theLabChatLog.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Online migration of VARCHAR(36) UUID columns to BINARY(16).
+ * <p>
+ * Per table: shadow {@code <column>_bin} columns are added and filled in id-range chunks while the plugin
+ * keeps writing text UUIDs. Still online, the indexes are built on the shadow columns, the text columns are
+ * made nullable and catch-up chunks convert the rows written in the meantime until only a few are left.
+ * Only the swap runs with writes paused: the last rows are converted and one metadata-only ALTER renames the
+ * text columns to {@code <column>_text} and the shadow columns and their indexes to the original names, then
+ * the table switches to {@link UuidStorage#BINARY}. Other servers on the same database would keep writing text
+ * UUIDs, so the swap waits until they are stopped. The renamed text columns are dropped online afterwards.
+ * An interrupted migration resumes where it left off on the next start.
+ */
+final class UuidMigration extends OnlineMigration {
+
+    // The swap gives up waiting for running queries after this long and retries, instead of queueing every
+    // statement behind its metadata lock
+    private static final int SWAP_LOCK_WAIT_SECONDS = 5;
+    private static final int SWAP_ATTEMPTS = 10;
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+
+    /**
+     * UUID column and its index; {@code indexTail} lists further index columns after the UUID
+     */
+    record Column(String name, boolean nullable, String index, boolean unique, String comment, List<String> indexTail) {
+        Column(String name, boolean nullable, String index, boolean unique, String comment) {
+            this(name, nullable, index, unique, comment, List.of());
+        }
+
+        String shadow() {
+            return name + "_bin";
+        }
+
+        String legacy() {
+            return name + "_text";
+        }
+
+        String shadowIndex() {
+            return index + "_bin";
+        }
+
+        String legacyIndex() {
+            return index + "_text";
+        }
+    }
+
+    record Table(String name, List<Column> columns) {}
+
+    // Columns after player_uuid in the unique key of the activity rollups
+    private static final List<String> CHAT_ACTIVITY_KEY = List.of("bucket", "server_name", "channel", "message_type");
+    private static final List<String> COMMAND_ACTIVITY_KEY = List.of("bucket", "server_name", "source_type");
+    private static final String COMMAND_ACTIVITY_PLAYER = "UUID of the player, all zeros for other sources";
+
+    private static Table activityTable(String name, String comment, List<String> key) {
+        return new Table(name, List.of(new Column("player_uuid", false, "uk_activity", true, comment, key)));
+    }
+
+    static final List<Table> TABLES = List.of(
+            new Table("chat_messages", List.of(
+                    new Column("message_uuid", false, "message_uuid", true, "Unique identifier for the message"),
+                    new Column("player_uuid", false, HistoryIndexMigration.INDEX, false, "UUID of the player who sent the message",
+                            List.of("timestamp", "id")),
+                    new Column("recipient_uuid", true, null, false, "UUID of recipient for private messages"))),
+            new Table("command_logs", List.of(
+                    new Column("command_uuid", false, "command_uuid", true, "Unique identifier for the command log"),
+                    new Column("player_uuid", true, HistoryIndexMigration.INDEX, false, "UUID if source is PLAYER",
+                            List.of("timestamp", "id")))),
+            new Table("player_sessions", List.of(
+                    new Column("session_uuid", false, "session_uuid", true, "Unique session identifier"),
+                    new Column("player_uuid", false, "idx_player_uuid", false, "UUID of the player"))),
+            new Table("server_events", List.of(
+                    new Column("event_uuid", false, "event_uuid", true, "Unique event identifier"))),
+            new Table("players", List.of(
+                    new Column("player_uuid", false, "player_uuid", true, "UUID of the player"))),
+            new Table(PlayerStatsBackfill.TABLE, List.of(
+                    new Column("player_uuid", false, "player_uuid", true, "UUID of the player"))),
+            activityTable("chat_activity_hourly", "UUID of the player", CHAT_ACTIVITY_KEY),
+            activityTable("chat_activity_daily", "UUID of the player", CHAT_ACTIVITY_KEY),
+            activityTable("command_activity_hourly", COMMAND_ACTIVITY_PLAYER, COMMAND_ACTIVITY_KEY),
+            activityTable("command_activity_daily", COMMAND_ACTIVITY_PLAYER, COMMAND_ACTIVITY_KEY)
+    );
+
+    UuidMigration(DatabaseManager databaseManager, Logger logger, int chunkSize, long pauseMillis) {
+        super(databaseManager, logger, chunkSize, pauseMillis);
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (Table table : TABLES) {
+                if (isStopped()) {
+                    return;
+                }
+                if (databaseManager.getUuidStorage(table.name()) == UuidStorage.BINARY) {
+                    dropLegacyColumns(table);
+                    continue;
+                }
+                if (databaseManager.getConfiguredUuidStorage() == UuidStorage.BINARY) {
+                    migrate(table);
+                }
+            }
+            if (!isStopped()) {
+                markCompleted();
+                logger.info("UUID migration to BINARY(16) finished");
+            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "UUID migration failed; it will resume on the next start", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Whether a swapped table still has its renamed text columns
+     */
+    static boolean hasLegacyColumns(Connection connection, Table table) throws SQLException {
+        for (Column column : table.columns()) {
+            if (columnExists(connection, table.name(), column.legacy())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void migrate(Table table) throws SQLException, InterruptedException {
+        String name = table.name();
+        Column key = table.columns().get(0);
+        boolean textDropped;
+        try (Connection connection = databaseManager.getConnection()) {
+            // Interrupted between dropping the text columns and promoting the shadow columns (older versions)
+            textDropped = !columnExists(connection, name, key.name()) && columnExists(connection, name, key.shadow());
+            if (!textDropped) {
+                addShadowColumns(connection, table);
+            }
+        }
+
+        long caughtUp = 0;
+        String backfill = "UPDATE `" + name + "` SET "
+                + table.columns().stream()
+                    .map(c -> "`" + c.shadow() + "` = " + UuidCodec.sqlTextToBinary("`" + c.name() + "`"))
+                    .collect(Collectors.joining(", "))
+                + " WHERE id >= ? AND id < ?";
+        if (!textDropped) {
+            long[] range = idRange(name);
+            caughtUp = range[1];
+            logger.info(String.format("Migrating UUID columns of %s to BINARY(16) (ids %d..%d)", name, range[0], caughtUp));
+            if (!backfill(name, backfill, range[0], caughtUp)) {
+                return;
+            }
+        }
+        try (Connection connection = databaseManager.getConnection()) {
+            prepareShadowColumns(connection, table, !textDropped);
+        }
+        if (!textDropped) {
+            caughtUp = catchUp(name, backfill, caughtUp);
+            if (caughtUp < 0) {
+                return;
+            }
+        }
+
+        String delta = textDropped ? null : backfill.replace("id >= ? AND id < ?", "id > ?");
+        if (swap(table, delta, caughtUp, textDropped)) {
+            dropLegacyColumns(table);
+        }
+    }
+
+    /**
+     * Convert the last rows and rename the columns with writes paused. Waiting for the metadata lock is bounded,
+     * so a long-running query only delays the swap; returns false if it never got the lock.
+     */
+    private boolean swap(Table table, String delta, long caughtUp, boolean textDropped) throws SQLException, InterruptedException {
+        String name = table.name();
+        for (int attempt = 1; attempt <= SWAP_ATTEMPTS && !isStopped(); attempt++) {
+            try (Connection connection = databaseManager.getConnection()) {
+                // Other servers would keep writing text UUIDs into the swapped columns
+                Lock gate = pauseAllWriters(connection, name);
+                if (gate == null) {
+                    return false;
+                }
+                try {
+                    execute(connection, "SET SESSION lock_wait_timeout = " + SWAP_LOCK_WAIT_SECONDS);
+                    try {
+                        // All inserts go through the single write-behind flusher, so newer rows have ids above caughtUp
+                        if (delta != null) {
+                            execute(connection, delta, caughtUp);
+                        }
+                        execute(connection, renameColumns(table, textDropped));
+                    } finally {
+                        execute(connection, "SET SESSION lock_wait_timeout = DEFAULT");
+                    }
+                    databaseManager.setUuidStorage(name, UuidStorage.BINARY);
+                    databaseManager.recreateViews();
+                    logger.info("UUID columns of " + name + " are now BINARY(16)");
+                    return true;
+                } catch (SQLException e) {
+                    if (e.getErrorCode() != ER_LOCK_WAIT_TIMEOUT) {
+                        throw e;
+                    }
+                    logger.info("UUID column swap of " + name + " is waiting for running queries (attempt " + attempt + ")");
+                } finally {
+                    resumeAllWriters(connection, gate);
+                }
+            }
+            Thread.sleep(Math.max(1000, pauseMillis()));
+        }
+        if (!isStopped()) {
+            logger.warning("UUID column swap of " + name + " did not get its lock; it will resume on the next start");
+        }
+        return false;
+    }
+
+    private void addShadowColumns(Connection connection, Table table) throws SQLException {
+        for (Column column : table.columns()) {
+            if (columnExists(connection, table.name(), column.shadow())) {
+                continue;
+            }
+            execute(connection, "ALTER TABLE `" + table.name() + "` ADD COLUMN `" + column.shadow() + "` BINARY(16) NULL");
+        }
+    }
+
+    /**
+     * Online, writes continue: index the shadow columns under temporary names and let the text columns accept
+     * NULL, so inserts after the swap (which no longer set them) succeed until they are dropped
+     */
+    private void prepareShadowColumns(Connection connection, Table table, boolean hasText) throws SQLException {
+        boolean partitioned = databaseManager.isPartitioned(table.name());
+        List<String> changes = new ArrayList<>();
+        for (Column column : table.columns()) {
+            if (column.index() != null && !indexExists(connection, table.name(), column.shadowIndex())) {
+                changes.add("ADD " + indexDefinition(column, column.shadowIndex(), column.shadow(), partitioned));
+            }
+            if (hasText && !column.nullable() && !isNullable(connection, table.name(), column.name())) {
+                changes.add("MODIFY COLUMN `" + column.name() + "` " + UuidStorage.TEXT.getColumnType() + " NULL");
+            }
+        }
+        if (!changes.isEmpty()) {
+            logger.info("Indexing the BINARY(16) UUID columns of " + table.name());
+            execute(connection, "ALTER TABLE `" + table.name() + "` " + String.join(", ", changes)
+                    + ", ALGORITHM=INPLACE, LOCK=NONE");
+        }
+    }
+
+    /**
+     * Metadata only: the text columns and indexes step aside, the prepared shadow columns take their names
+     */
+    private static String renameColumns(Table table, boolean textDropped) {
+        List<String> changes = new ArrayList<>();
+        for (Column column : table.columns()) {
+            if (!textDropped) {
+                changes.add("RENAME COLUMN `" + column.name() + "` TO `" + column.legacy() + "`");
+                if (column.index() != null) {
+                    changes.add("RENAME INDEX `" + column.index() + "` TO `" + column.legacyIndex() + "`");
+                }
+            }
+            changes.add("RENAME COLUMN `" + column.shadow() + "` TO `" + column.name() + "`");
+            if (column.index() != null) {
+                changes.add("RENAME INDEX `" + column.shadowIndex() + "` TO `" + column.index() + "`");
+            }
+        }
+        return "ALTER TABLE `" + table.name() + "` " + String.join(", ", changes);
+    }
+
+    /**
+     * Online cleanup after the swap. Indexes are dropped explicitly: dropping only the column would leave a
+     * composite (uuid, timestamp) key of a partitioned table behind as a unique key on the timestamp.
+     */
+    private void dropLegacyColumns(Table table) throws SQLException {
+        String name = table.name();
+        try (Connection connection = databaseManager.getConnection()) {
+            List<String> drops = new ArrayList<>();
+            for (Column column : table.columns()) {
+                if (column.index() != null && indexExists(connection, name, column.legacyIndex())) {
+                    drops.add("DROP INDEX `" + column.legacyIndex() + "`");
+                }
+                if (columnExists(connection, name, column.legacy())) {
+                    drops.add("DROP COLUMN `" + column.legacy() + "`");
+                }
+            }
+            if (drops.isEmpty()) {
+                return;
+            }
+            execute(connection, "ALTER TABLE `" + name + "` " + String.join(", ", drops) + ", ALGORITHM=INPLACE, LOCK=NONE");
+
+            String definitions = table.columns().stream()
+                    .map(c -> "MODIFY COLUMN `" + c.name() + "` BINARY(16) " + (c.nullable() ? "NULL" : "NOT NULL")
+                            + " COMMENT '" + c.comment() + "'")
+                    .collect(Collectors.joining(", "));
+            try {
+                execute(connection, "ALTER TABLE `" + name + "` " + definitions + ", ALGORITHM=INPLACE, LOCK=NONE");
+            } catch (SQLException e) {
+                // Needs strict sql_mode to run online; the columns stay nullable, which the plugin never relies on
+                logger.log(Level.WARNING, "Could not restore NOT NULL on the UUID columns of " + name, e);
+            }
+            logger.info("Dropped the old text UUID columns of " + name);
+        }
+    }
+
+    private static String indexDefinition(Column column, String index, String uuidColumn, boolean partitioned) {
+        StringBuilder sql = new StringBuilder(column.unique() ? "UNIQUE " : "").append("INDEX `").append(index)
+                .append("` (`").append(uuidColumn).append('`');
+        for (String tail : column.indexTail()) {
+            sql.append(", `").append(tail).append('`');
+        }
+        // Unique keys of partitioned tables must contain the partitioning column
+        return sql.append(column.unique() && partitioned ? ", `timestamp`)" : ")").toString();
+    }
+
+    private static boolean isNullable(Connection connection, String table, String column) throws SQLException {
+        String sql = "SELECT IS_NULLABLE FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, table);
+            statement.setString(2, column);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && "YES".equalsIgnoreCase(rs.getString(1));
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package de.chriss1998.theLabChatLog.database;
+
+/**
+ * Column format used for UUID columns ({@code database.schema.uuid_storage})
+ */
+public enum UuidStorage {
+    /** Canonical 36 character string, the original schema */
+    TEXT("VARCHAR(36)"),
+    /** 16 raw bytes (most significant long first) */
+    BINARY("BINARY(16)");
+
+    private final String columnType;
+
+    UuidStorage(String columnType) {
+        this.columnType = columnType;
+    }
+
+    public String getColumnType() {
+        return columnType;
+    }
+
+    public static UuidStorage fromConfig(String value) {
+        return value != null && value.trim().equalsIgnoreCase("binary") ? BINARY : TEXT;
+    }
+}
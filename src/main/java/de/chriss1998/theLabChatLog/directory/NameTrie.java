@@ -0,0 +1,89 @@
+package de.chriss1998.theLabChatLog.directory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Case-insensitive prefix trie over player names. Children are kept as sorted char arrays and looked
+ * up by binary search; names are at most 16 characters, so every operation is O(length of name).
+ * Not thread-safe; {@link PlayerDirectory} guards it with a read/write lock.
+ */
+final class NameTrie {
+
+    static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        PlayerDirectory.Entry current; // player currently using this name
+        PlayerDirectory.Entry former;  // most recent player who used it before
+
+        private Node child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        private Node addChild(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0) {
+                return children[i];
+            }
+            int at = -i - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            newKeys[at] = c;
+            newChildren[at] = new Node();
+            System.arraycopy(keys, at, newKeys, at + 1, keys.length - at);
+            System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[at];
+        }
+    }
+
+    private final Node root = new Node();
+
+    /**
+     * Node for the exact name, created if missing
+     */
+    Node put(String name) {
+        Node node = root;
+        for (int i = 0; i < name.length(); i++) {
+            node = node.addChild(Character.toLowerCase(name.charAt(i)));
+        }
+        return node;
+    }
+
+    /**
+     * Node for the exact name or prefix, null if no name starts with it
+     */
+    Node find(String prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(Character.toLowerCase(prefix.charAt(i)));
+        }
+        return node;
+    }
+
+    /**
+     * Current names below the given prefix in alphabetical order, at most {@code limit}
+     */
+    List<String> complete(String prefix, int limit) {
+        List<String> result = new ArrayList<>();
+        Node start = find(prefix);
+        if (start != null) {
+            collect(start, limit, result);
+        }
+        return result;
+    }
+
+    private static void collect(Node node, int limit, List<String> out) {
+        if (node.current != null && out.size() < limit) {
+            out.add(node.current.getName());
+        }
+        for (int i = 0; i < node.children.length && out.size() < limit; i++) {
+            collect(node.children[i], limit, out);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package de.chriss1998.theLabChatLog.directory;
+
+import de.chriss1998.theLabChatLog.dao.PlayerDAO;
+import de.chriss1998.theLabChatLog.database.DatabaseManager;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory directory of every player that appears in the logs: current name, former names,
+ * first/last seen, and a case-insensitive prefix trie over the names.
+ * <p>
+ * The write-behind flusher feeds it with the players of each written batch ({@link #observe}) and
+ * persists new players, renames and a coarse last-seen heartbeat to the {@code players} table.
+ * Commands and tab completion resolve names from memory in O(length of name) without touching
+ * Bukkit's offline player list or the database.
+ */
+public class PlayerDirectory {
+
+    // last_seen is written at most this often per player unless the name changes
+    private static final Duration PERSIST_INTERVAL = Duration.ofMinutes(5);
+    private static final int MAX_PENDING = 10_000;
+
+    /**
+     * One known player. Name and timestamps are written by the flusher thread only.
+     */
+    public static final class Entry {
+        private final String uuid;
+        private volatile String name;
+        private volatile LocalDateTime firstSeen;
+        private volatile LocalDateTime lastSeen;
+        private final List<String> formerNames = new CopyOnWriteArrayList<>();
+        private LocalDateTime lastPersisted;
+
+        private Entry(String uuid, String name, LocalDateTime firstSeen, LocalDateTime lastSeen) {
+            this.uuid = uuid;
+            this.name = name;
+            this.firstSeen = firstSeen;
+            this.lastSeen = lastSeen;
+        }
+
+        public String getUuid() { return uuid; }
+        public String getName() { return name; }
+        public LocalDateTime getFirstSeen() { return firstSeen; }
+        public LocalDateTime getLastSeen() { return lastSeen; }
+        public List<String> getFormerNames() { return List.copyOf(formerNames); }
+    }
+
+    private final PlayerDAO playerDAO;
+    private final Logger logger;
+    private final Map<String, Entry> byUuid = new ConcurrentHashMap<>();
+    private final NameTrie names = new NameTrie();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<PlayerDAO.Sighting> pending = new ArrayList<>(); // flusher thread only
+    private volatile boolean loaded;
+
+    public PlayerDirectory(PlayerDAO playerDAO, Logger logger) {
+        this.playerDAO = playerDAO;
+        this.logger = logger;
+    }
+
+    /**
+     * Load the stored directory in the background; players observed meanwhile are merged
+     */
+    public void loadAsync(Executor executor) {
+        DatabaseManager.runAsync(() -> {
+            try {
+                playerDAO.loadAll(new PlayerDAO.Loader() {
+                    @Override
+                    public void player(String uuid, String currentName, LocalDateTime firstSeen, LocalDateTime lastSeen) {
+                        loadPlayer(uuid, currentName, firstSeen, lastSeen);
+                    }
+
+                    @Override
+                    public void formerName(String uuid, String name) {
+                        loadFormerName(uuid, name);
+                    }
+                });
+                loaded = true;
+                logger.info("Player directory loaded (" + byUuid.size() + " players)");
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Failed to load player directory; only players seen from now on can be resolved", e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Record that a player produced an event under the given name. Called by the flusher thread.
+     */
+    public void observe(String uuid, String name, LocalDateTime at) {
+        if (uuid == null || name == null || name.isEmpty() || at == null) {
+            return;
+        }
+        Entry entry = byUuid.get(uuid);
+        if (entry == null) {
+            Lock write = lock.writeLock();
+            write.lock();
+            try {
+                // The background load may have added the player since the lookup above
+                entry = byUuid.get(uuid);
+                if (entry == null) {
+                    entry = new Entry(uuid, name, at, at);
+                    byUuid.put(uuid, entry);
+                    bind(entry, name);
+                    queue(entry, name, at);
+                    return;
+                }
+            } finally {
+                write.unlock();
+            }
+        }
+
+        boolean renamed = !entry.name.equals(name);
+        if (renamed) {
+            Lock write = lock.writeLock();
+            write.lock();
+            try {
+                if (!at.isBefore(entry.lastSeen)) {
+                    rename(entry, name);
+                } else if (!entry.formerNames.contains(name)) {
+                    // Late event (e.g. spool replay) under an older name
+                    entry.formerNames.add(name);
+                    NameTrie.Node node = names.put(name);
+                    if (node.current != entry) {
+                        node.former = entry;
+                    }
+                }
+            } finally {
+                write.unlock();
+            }
+        }
+        if (at.isAfter(entry.lastSeen)) {
+            entry.lastSeen = at;
+        }
+        if (at.isBefore(entry.firstSeen)) {
+            entry.firstSeen = at;
+        }
+        if (renamed || entry.lastPersisted == null || Duration.between(entry.lastPersisted, at).compareTo(PERSIST_INTERVAL) >= 0) {
+            queue(entry, name, at);
+        }
+    }
+
+    /**
+     * Write queued players to the database. Called by the flusher thread after a batch.
+     */
+    public void persistPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            playerDAO.upsert(pending);
+            pending.clear();
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Failed to update player directory (" + pending.size() + " pending)", e);
+            if (pending.size() > MAX_PENDING) {
+                pending.clear();
+            }
+        }
+    }
+
+    /**
+     * UUID for an exact name (case-insensitive): the player currently using it, otherwise the last
+     * player who used it before. Null if unknown.
+     */
+    public String resolve(String name) {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            NameTrie.Node node = names.find(name);
+            if (node == null) {
+                return null;
+            }
+            Entry entry = node.current != null ? node.current : node.former;
+            return entry != null ? entry.uuid : null;
+        } finally {
+            read.unlock();
+        }
+    }
+
+    /**
+     * Current names starting with the prefix (case-insensitive), alphabetically, at most {@code limit}
+     */
+    public List<String> complete(String prefix, int limit) {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return names.complete(prefix, limit);
+        } finally {
+            read.unlock();
+        }
+    }
+
+    public Entry get(String uuid) {
+        return byUuid.get(uuid);
+    }
+
+    public int size() {
+        return byUuid.size();
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    private void queue(Entry entry, String name, LocalDateTime at) {
+        entry.lastPersisted = at;
+        pending.add(new PlayerDAO.Sighting(entry.uuid, name, at, at));
+    }
+
+    private void loadPlayer(String uuid, String currentName, LocalDateTime firstSeen, LocalDateTime lastSeen) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            Entry entry = byUuid.get(uuid);
+            if (entry == null) {
+                entry = new Entry(uuid, currentName, firstSeen, lastSeen);
+                entry.lastPersisted = lastSeen;
+                byUuid.put(uuid, entry);
+                bind(entry, currentName);
+            } else if (firstSeen.isBefore(entry.firstSeen)) {
+                // Already observed this session; the in-memory name is newer
+                entry.firstSeen = firstSeen;
+            }
+        } finally {
+            write.unlock();
+        }
+    }
+
+    private void loadFormerName(String uuid, String name) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            Entry entry = byUuid.get(uuid);
+            if (entry == null || entry.name.equalsIgnoreCase(name) || entry.formerNames.contains(name)) {
+                return;
+            }
+            entry.formerNames.add(name);
+            NameTrie.Node node = names.put(name);
+            if (node.former == null || node.former.lastSeen.isBefore(entry.lastSeen)) {
+                node.former = entry;
+            }
+        } finally {
+            write.unlock();
+        }
+    }
+
+    /**
+     * Make the entry the current holder of the name unless a more recently seen player holds it
+     */
+    private void bind(Entry entry, String name) {
+        NameTrie.Node node = names.put(name);
+        Entry holder = node.current;
+        if (holder == null || holder == entry || !holder.lastSeen.isAfter(entry.lastSeen)) {
+            if (holder != null && holder != entry) {
+                node.former = holder;
+            }
+            node.current = entry;
+        } else if (node.former == null) {
+            node.former = entry;
+        }
+    }
+
+    private void rename(Entry entry, String newName) {
+        String oldName = entry.name;
+        NameTrie.Node old = names.find(oldName);
+        if (old != null && old.current == entry) {
+            old.current = null;
+            old.former = entry;
+        }
+        entry.formerNames.remove(newName);
+        if (!entry.formerNames.contains(oldName)) {
+            entry.formerNames.add(oldName);
+        }
+        entry.name = newName;
+        bind(entry, newName);
+    }
+}
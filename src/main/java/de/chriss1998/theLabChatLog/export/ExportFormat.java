@@ -0,0 +1,471 @@
+package de.chriss1998.theLabChatLog.export;
+
+import de.chriss1998.theLabChatLog.model.ChatMessage;
+import de.chriss1998.theLabChatLog.model.CommandLog;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Line formats of export files. Both write one row per line with the column names of the tables;
+ * timestamps are ISO-8601 local date-times as stored. Both can be read back for imports.
+ * <ul>
+ *     <li>NDJSON: one JSON object per line, {@code metadata_json} embedded as JSON</li>
+ *     <li>CSV: RFC 4180 with a header line, {@code metadata_json} as text; an empty field is null,
+ *     an empty string is written as {@code ""}. Text that a spreadsheet would run as a formula (starting with
+ *     {@code = + - @}, tab or carriage return) gets a leading {@code '}, which the import removes again</li>
+ * </ul>
+ */
+public enum ExportFormat {
+
+    NDJSON("ndjson"),
+    CSV("csv");
+
+    /**
+     * One exported column; {@code parse} sets it from the text of an imported row (null to ignore the column),
+     * {@code json} marks values that already are JSON text
+     */
+    record Field<T>(String name, Function<T, Object> value, BiConsumer<T, String> parse, boolean json) {
+        Field(String name, Function<T, Object> value, BiConsumer<T, String> parse) {
+            this(name, value, parse, false);
+        }
+    }
+
+    // CSV cells starting with one of these are formulas in spreadsheets
+    private static final String FORMULA_STARTS = "=+-@\t\r";
+    private static final char FORMULA_GUARD = '\'';
+
+    static final List<Field<ChatMessage>> CHAT_FIELDS = List.of(
+            new Field<>("id", ChatMessage::getId, null),
+            new Field<>("message_uuid", ChatMessage::getMessageUuid, (m, v) -> m.setMessageUuid(uuid(required(v)))),
+            new Field<>("timestamp", ChatMessage::getTimestamp, (m, v) -> m.setTimestamp(LocalDateTime.parse(required(v)))),
+            new Field<>("server_name", ChatMessage::getServerName, (m, v) -> m.setServerName(required(v))),
+            new Field<>("world_name", ChatMessage::getWorldName, (m, v) -> m.setWorldName(required(v))),
+            new Field<>("player_uuid", ChatMessage::getPlayerUuid, (m, v) -> m.setPlayerUuid(uuid(required(v)))),
+            new Field<>("player_name", ChatMessage::getPlayerName, (m, v) -> m.setPlayerName(required(v))),
+            new Field<>("message_type", ChatMessage::getMessageType, (m, v) -> m.setMessageType(ChatMessage.MessageType.valueOf(required(v)))),
+            new Field<>("channel", ChatMessage::getChannel, ChatMessage::setChannel),
+            new Field<>("message_content", ChatMessage::getMessageContent, (m, v) -> m.setMessageContent(required(v))),
+            new Field<>("recipient_uuid", ChatMessage::getRecipientUuid, (m, v) -> m.setRecipientUuid(uuid(v))),
+            new Field<>("recipient_name", ChatMessage::getRecipientName, ChatMessage::setRecipientName),
+            new Field<>("location_x", ChatMessage::getLocationX, (m, v) -> m.setLocationX(number(v))),
+            new Field<>("location_y", ChatMessage::getLocationY, (m, v) -> m.setLocationY(number(v))),
+            new Field<>("location_z", ChatMessage::getLocationZ, (m, v) -> m.setLocationZ(number(v))),
+            new Field<>("is_cancelled", ChatMessage::isCancelled, (m, v) -> m.setCancelled(Boolean.parseBoolean(v))),
+            new Field<>("metadata_json", ChatMessage::getMetadataJson, ChatMessage::setMetadataJson, true)
+    );
+
+    static final List<Field<CommandLog>> COMMAND_FIELDS = List.of(
+            new Field<>("id", CommandLog::getId, null),
+            new Field<>("command_uuid", CommandLog::getCommandUuid, (l, v) -> l.setCommandUuid(uuid(required(v)))),
+            new Field<>("timestamp", CommandLog::getTimestamp, (l, v) -> l.setTimestamp(LocalDateTime.parse(required(v)))),
+            new Field<>("server_name", CommandLog::getServerName, (l, v) -> l.setServerName(required(v))),
+            new Field<>("source_type", CommandLog::getSourceType, (l, v) -> l.setSourceType(CommandLog.SourceType.valueOf(required(v)))),
+            new Field<>("player_uuid", CommandLog::getPlayerUuid, (l, v) -> l.setPlayerUuid(uuid(v))),
+            new Field<>("player_name", CommandLog::getPlayerName, CommandLog::setPlayerName),
+            new Field<>("command_text", CommandLog::getCommandText, (l, v) -> l.setCommandText(required(v))),
+            new Field<>("world_name", CommandLog::getWorldName, CommandLog::setWorldName),
+            new Field<>("location_x", CommandLog::getLocationX, (l, v) -> l.setLocationX(number(v))),
+            new Field<>("location_y", CommandLog::getLocationY, (l, v) -> l.setLocationY(number(v))),
+            new Field<>("location_z", CommandLog::getLocationZ, (l, v) -> l.setLocationZ(number(v))),
+            new Field<>("is_cancelled", CommandLog::isCancelled, (l, v) -> l.setCancelled(Boolean.parseBoolean(v))),
+            new Field<>("metadata_json", CommandLog::getMetadataJson, CommandLog::setMetadataJson, true)
+    );
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * File name extension, without the {@code .gz} of the compression
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Parse a format name, null if unknown
+     */
+    public static ExportFormat fromName(String name) {
+        for (ExportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(name) || format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Write the header line, if the format has one
+     */
+    <T> void writeHeader(Writer out, List<Field<T>> fields) throws IOException {
+        if (this != CSV) {
+            return;
+        }
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(fields.get(i).name());
+        }
+        out.write('\n');
+    }
+
+    <T> void writeRow(Writer out, List<Field<T>> fields, T row) throws IOException {
+        if (this == CSV) {
+            for (int i = 0; i < fields.size(); i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                Object value = fields.get(i).value().apply(row);
+                if (value != null) {
+                    String text = value.toString();
+                    writeCsv(out, !(value instanceof Number) && isFormulaLike(text) ? FORMULA_GUARD + text : text);
+                }
+            }
+        } else {
+            out.write('{');
+            for (int i = 0; i < fields.size(); i++) {
+                Field<T> field = fields.get(i);
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write('"');
+                out.write(field.name());
+                out.write("\":");
+                writeJson(out, field.value().apply(row), field.json());
+            }
+            out.write('}');
+        }
+        out.write('\n');
+    }
+
+    private static void writeJson(Writer out, Object value, boolean json) throws IOException {
+        if (value == null) {
+            out.write("null");
+        } else if (json || value instanceof Boolean) {
+            out.write(value.toString());
+        } else if (value instanceof Number number) {
+            // NaN and infinities are not valid JSON numbers
+            boolean finite = !(number instanceof Double d) || Double.isFinite(d);
+            out.write(finite ? number.toString() : "null");
+        } else {
+            out.write('"');
+            String text = value.toString();
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '"' -> out.write("\\\"");
+                    case '\\' -> out.write("\\\\");
+                    case '\n' -> out.write("\\n");
+                    case '\r' -> out.write("\\r");
+                    case '\t' -> out.write("\\t");
+                    default -> {
+                        // Control characters and the JavaScript line separators
+                        if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                            out.write(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                        } else {
+                            out.write(c);
+                        }
+                    }
+                }
+            }
+            out.write('"');
+        }
+    }
+
+    /**
+     * Whether a spreadsheet would read the text as a formula; also true for text that only looks like an
+     * already guarded formula, so that removing one guard on import always restores the exported value
+     */
+    private static boolean isFormulaLike(String text) {
+        int i = 0;
+        while (i < text.length() && text.charAt(i) == FORMULA_GUARD) {
+            i++;
+        }
+        return i < text.length() && FORMULA_STARTS.indexOf(text.charAt(i)) >= 0;
+    }
+
+    private static void writeCsv(Writer out, String text) throws IOException {
+        // Quoted so it reads back as an empty string, not as null
+        boolean quote = text.isEmpty();
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(text);
+            return;
+        }
+        out.write('"');
+        out.write(text.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    /**
+     * Read the next record, without its line break; null at the end of the input.
+     * A CSV record continues over line breaks inside quotes.
+     */
+    String readRecord(Reader in) throws IOException {
+        StringBuilder record = new StringBuilder();
+        boolean quoted = false;
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n' && !quoted) {
+                return record.toString();
+            }
+            if (c == '"' && this == CSV) {
+                quoted = !quoted;
+            }
+            record.append((char) c);
+        }
+        return record.length() > 0 ? record.toString() : null;
+    }
+
+    /**
+     * Column values of a record by column name; {@code header} are the CSV column names and unused for NDJSON
+     *
+     * @throws IllegalArgumentException if the record is malformed
+     */
+    Map<String, String> parseRecord(String record, List<String> header) {
+        if (this == CSV) {
+            List<String> values = parseCsv(record);
+            if (values.size() != header.size()) {
+                throw new IllegalArgumentException("Expected " + header.size() + " columns, found " + values.size());
+            }
+            Map<String, String> row = new HashMap<>();
+            for (int i = 0; i < values.size(); i++) {
+                String value = values.get(i);
+                if (value != null && value.length() > 1 && value.charAt(0) == FORMULA_GUARD && isFormulaLike(value.substring(1))) {
+                    value = value.substring(1);
+                }
+                row.put(header.get(i), value);
+            }
+            return row;
+        }
+        return new JsonObjectReader(record).read();
+    }
+
+    /**
+     * Column names of a CSV header record
+     */
+    List<String> parseHeader(String record) {
+        List<String> names = parseCsv(record);
+        names.replaceAll(name -> name == null ? "" : name);
+        return names;
+    }
+
+    /**
+     * Set the fields of {@code row} from the parsed values; columns missing from the record are passed as null
+     *
+     * @throws IllegalArgumentException if a required value is missing or a value does not parse
+     */
+    static <T> T readRow(Map<String, String> values, List<Field<T>> fields, T row) {
+        for (Field<T> field : fields) {
+            if (field.parse() != null) {
+                try {
+                    field.parse().accept(row, values.get(field.name()));
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException(field.name() + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return row;
+    }
+
+    private static String required(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value is missing");
+        }
+        return value;
+    }
+
+    private static String uuid(String value) {
+        return value == null ? null : UUID.fromString(value).toString();
+    }
+
+    private static Double number(String value) {
+        return value == null ? null : Double.valueOf(value);
+    }
+
+    /**
+     * Fields of one CSV record; an unquoted empty field is null
+     */
+    private static List<String> parseCsv(String record) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    value.append(c);
+                } else if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                values.add(value.length() > 0 || wasQuoted ? value.toString() : null);
+                value.setLength(0);
+                wasQuoted = false;
+            } else if (c != '\r' || i + 1 < record.length()) {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quote");
+        }
+        values.add(value.length() > 0 || wasQuoted ? value.toString() : null);
+        return values;
+    }
+
+    /**
+     * Reads one flat JSON object as written by {@link #writeRow}: strings are unescaped, numbers and booleans
+     * kept as text, nested objects and arrays returned as their JSON text, null as null
+     */
+    private static final class JsonObjectReader {
+        private final String text;
+        private int pos;
+
+        JsonObjectReader(String text) {
+            this.text = text;
+        }
+
+        Map<String, String> read() {
+            Map<String, String> values = new HashMap<>();
+            expect('{');
+            skipSpace();
+            if (peek() == '}') {
+                pos++;
+                return values;
+            }
+            do {
+                skipSpace();
+                String key = string();
+                skipSpace();
+                expect(':');
+                skipSpace();
+                values.put(key, value());
+                skipSpace();
+            } while (next() == ',');
+            pos--;
+            expect('}');
+            skipSpace();
+            if (pos < text.length()) {
+                throw new IllegalArgumentException("Trailing data at " + pos);
+            }
+            return values;
+        }
+
+        private String value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            if (c == '{' || c == '[') {
+                int start = pos;
+                skipNested();
+                return text.substring(start, pos);
+            }
+            int start = pos;
+            while (pos < text.length() && ",}] \t\r".indexOf(text.charAt(pos)) < 0) {
+                pos++;
+            }
+            String literal = text.substring(start, pos);
+            if (literal.isEmpty()) {
+                throw new IllegalArgumentException("Missing value at " + start);
+            }
+            return literal.equals("null") ? null : literal;
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'u' -> {
+                        if (pos + 4 > text.length()) {
+                            throw new IllegalArgumentException("Truncated escape at " + pos);
+                        }
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                    }
+                    default -> sb.append(escaped);
+                }
+            }
+        }
+
+        // Skip an object or array, including strings that contain brackets
+        private void skipNested() {
+            int depth = 0;
+            do {
+                char c = next();
+                if (c == '"') {
+                    pos--;
+                    string();
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+            } while (depth > 0);
+        }
+
+        private void skipSpace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private void expect(char c) {
+            if (next() != c) {
+                throw new IllegalArgumentException("Expected '" + c + "' at " + (pos - 1));
+            }
+        }
+
+        private char peek() {
+            if (pos >= text.length()) {
+                throw new IllegalArgumentException("Unexpected end of record");
+            }
+            return text.charAt(pos);
+        }
+
+        private char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+    }
+}
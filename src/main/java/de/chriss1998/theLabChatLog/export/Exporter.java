@@ -0,0 +1,234 @@
+package de.chriss1998.theLabChatLog.export;
+
+import de.chriss1998.theLabChatLog.dao.ChatDAO;
+import de.chriss1998.theLabChatLog.database.DatabaseManager;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams chat messages and command logs into gzip-compressed NDJSON or CSV files in the export directory.
+ * <p>
+ * Each export reads through {@link ChatDAO#streamChatMessages} and {@link ChatDAO#streamCommandLogs} on its own
+ * connection outside the pool, one fetch of rows at a time, and writes every row straight into the compressed
+ * file channel, so memory use does not depend on the number of rows and the pool stays free for the plugin.
+ * Exports run one after another on a single thread. Files are written as {@code .part} and renamed when done.
+ */
+public final class Exporter {
+
+    /**
+     * Rows to export: the filter and a name used for the files
+     */
+    public record Request(String name, ChatDAO.StreamFilter filter, ExportFormat format) {}
+
+    /**
+     * Progress and outcome of an export; called on the export thread
+     */
+    public interface Listener {
+        void progress(long rows, long bytes);
+
+        void completed(List<Path> files, long rows, long bytes, long millis);
+
+        void failed(Exception error);
+    }
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DatabaseManager databaseManager;
+    private final ChatDAO chatDAO;
+    private final Logger logger;
+    private final Path directory;
+    private final int fetchSize;
+    private final long progressIntervalNanos;
+    private final ExecutorService executor;
+    private final AtomicBoolean busy = new AtomicBoolean();
+    private volatile boolean stopped;
+
+    public Exporter(DatabaseManager databaseManager, ChatDAO chatDAO, Logger logger, File directory,
+                    int fetchSize, long progressIntervalSeconds) {
+        this.databaseManager = databaseManager;
+        this.chatDAO = chatDAO;
+        this.logger = logger;
+        this.directory = directory.toPath();
+        this.fetchSize = Math.max(100, fetchSize);
+        this.progressIntervalNanos = TimeUnit.SECONDS.toNanos(Math.max(1, progressIntervalSeconds));
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "ChatLog-Export");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start an export; returns false if another export is still running
+     */
+    public boolean start(Request request, Listener listener) {
+        if (stopped || !busy.compareAndSet(false, true)) {
+            return false;
+        }
+        executor.execute(() -> {
+            try {
+                run(request, listener);
+            } finally {
+                busy.set(false);
+            }
+        });
+        return true;
+    }
+
+    public boolean isBusy() {
+        return busy.get();
+    }
+
+    /**
+     * Abort a running export after its current row and stop accepting new ones
+     */
+    public void stop() {
+        stopped = true;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warning("Export did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run(Request request, Listener listener) {
+        long started = System.nanoTime();
+        String stem = request.name() + "-" + LocalDateTime.now().format(FILE_TIME);
+        String extension = "." + request.format().getExtension() + ".gz";
+        Progress progress = new Progress(listener);
+        List<Path> files = new ArrayList<>();
+        try (Connection connection = databaseManager.openStreamingConnection()) {
+            Files.createDirectories(directory);
+            files.add(write(directory.resolve(stem + "-chat" + extension), progress, out -> {
+                request.format().writeHeader(out, ExportFormat.CHAT_FIELDS);
+                return chatDAO.streamChatMessages(connection, request.filter(), fetchSize, message -> {
+                    request.format().writeRow(out, ExportFormat.CHAT_FIELDS, message);
+                    progress.row();
+                });
+            }));
+            files.add(write(directory.resolve(stem + "-commands" + extension), progress, out -> {
+                request.format().writeHeader(out, ExportFormat.COMMAND_FIELDS);
+                return chatDAO.streamCommandLogs(connection, request.filter(), fetchSize, log -> {
+                    request.format().writeRow(out, ExportFormat.COMMAND_FIELDS, log);
+                    progress.row();
+                });
+            }));
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            logger.info(String.format("Export %s finished: %d rows, %d bytes in %.1fs", stem, progress.rows,
+                    progress.bytes(), millis / 1000.0));
+            listener.completed(files, progress.rows, progress.bytes(), millis);
+        } catch (SQLException | IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Export " + stem + " failed", e);
+            for (Path file : files) {
+                deleteQuietly(file);
+            }
+            listener.failed(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        long write(Writer out) throws SQLException, IOException;
+    }
+
+    /**
+     * Write one file through gzip into a file channel; the finished file replaces its {@code .part}
+     */
+    private Path write(Path target, Progress progress, RowWriter rows) throws SQLException, IOException {
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            progress.track(channel);
+            try (OutputStream compressed = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+                 Writer out = new BufferedWriter(new OutputStreamWriter(compressed, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                rows.write(out);
+            }
+            progress.untrack();
+        } catch (SQLException | IOException | RuntimeException e) {
+            deleteQuietly(part);
+            throw e;
+        }
+        return Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Could not delete " + file, e);
+        }
+    }
+
+    /**
+     * Row and byte counts of the running export, reported every progress interval
+     */
+    private final class Progress {
+        private final Listener listener;
+        private long rows;
+        private long finishedBytes;
+        private FileChannel current;
+        private long lastReport = System.nanoTime();
+
+        private Progress(Listener listener) {
+            this.listener = listener;
+        }
+
+        void track(FileChannel channel) {
+            current = channel;
+        }
+
+        void untrack() throws IOException {
+            finishedBytes += current.size();
+            current = null;
+        }
+
+        long bytes() {
+            try {
+                return finishedBytes + (current != null ? current.size() : 0);
+            } catch (IOException e) {
+                return finishedBytes;
+            }
+        }
+
+        void row() throws IOException {
+            if (stopped) {
+                throw new IOException("Export aborted: the plugin is shutting down");
+            }
+            rows++;
+            // Checking the clock every 1024 rows is enough
+            if ((rows & 1023) == 0 && System.nanoTime() - lastReport >= progressIntervalNanos) {
+                lastReport = System.nanoTime();
+                listener.progress(rows, bytes());
+            }
+        }
+    }
+}
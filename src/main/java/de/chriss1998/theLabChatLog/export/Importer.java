@@ -0,0 +1,415 @@
+package de.chriss1998.theLabChatLog.export;
+
+import de.chriss1998.theLabChatLog.dao.ChatDAO;
+import de.chriss1998.theLabChatLog.dao.RecentChatIndex;
+import de.chriss1998.theLabChatLog.dao.RecentHistoryCache;
+import de.chriss1998.theLabChatLog.model.ChatMessage;
+import de.chriss1998.theLabChatLog.model.CommandLog;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Loads export files ({@code .ndjson}/{@code .csv}, optionally gzip-compressed) back into chat_messages
+ * or command_logs.
+ * <p>
+ * The import thread reads records in chunks of the batch size and hands them to parser threads; parsed chunks
+ * are written in file order, each as one multi-row insert through the idempotent write path of the spool
+ * replay. Rows whose UUID is already stored are skipped without being counted again, so an interrupted import
+ * can simply be repeated. At most two chunks per parser thread are in flight, so memory use does not depend
+ * on the file size.
+ */
+public final class Importer {
+
+    /**
+     * Progress and outcome of an import; called on the import thread
+     */
+    public interface Listener {
+        void progress(long rows, long inserted);
+
+        void completed(Path file, long rows, long inserted, long rejected, long millis);
+
+        void failed(Path file, Exception error);
+    }
+
+    /**
+     * Columns, model factory and insert of one target table
+     */
+    private record Target<T>(String table, List<ExportFormat.Field<T>> fields, Supplier<T> factory,
+                             SqlInsert<T> insert, Function<T, String> playerUuid, Function<T, LocalDateTime> timestamp) {}
+
+    @FunctionalInterface
+    private interface SqlInsert<T> {
+        int insert(List<T> rows) throws SQLException;
+    }
+
+    /**
+     * Parsed rows of one chunk; {@code error} describes the first rejected record, if any
+     */
+    private record Chunk<T>(List<T> rows, int rejected, String error) {}
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Rejected records logged per file; the rest are only counted
+    private static final int MAX_LOGGED_ERRORS = 10;
+
+    private final ChatDAO chatDAO;
+    private final Logger logger;
+    private final RecentChatIndex recentIndex;
+    private final RecentHistoryCache historyCache;
+    private final int batchSize;
+    private final int parserThreads;
+    private final long progressIntervalNanos;
+    private final ExecutorService executor;
+    private final ExecutorService parsers;
+    private final AtomicBoolean busy = new AtomicBoolean();
+    private volatile boolean stopped;
+
+    public Importer(ChatDAO chatDAO, Logger logger, RecentChatIndex recentIndex, RecentHistoryCache historyCache,
+                    int batchSize, int parserThreads, long progressIntervalSeconds) {
+        this.chatDAO = chatDAO;
+        this.logger = logger;
+        this.recentIndex = recentIndex;
+        this.historyCache = historyCache;
+        this.batchSize = Math.max(100, batchSize);
+        this.parserThreads = Math.max(1, parserThreads);
+        this.progressIntervalNanos = TimeUnit.SECONDS.toNanos(Math.max(1, progressIntervalSeconds));
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "ChatLog-Import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.parsers = Executors.newFixedThreadPool(this.parserThreads, r -> {
+            Thread thread = new Thread(r, "ChatLog-ImportParser-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Whether the file name looks like an export file this importer can read
+     */
+    public static boolean isImportable(Path file) {
+        return formatOf(file) != null;
+    }
+
+    /**
+     * Start importing one file; returns false if another import is still running
+     */
+    public boolean start(Path file, Listener listener) {
+        if (stopped || !busy.compareAndSet(false, true)) {
+            return false;
+        }
+        executor.execute(() -> {
+            try {
+                run(file, listener);
+            } finally {
+                busy.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Import every export file in {@code directory} in name order and move each one into {@code done/} once it
+     * is loaded; files that fail stay for the next attempt. Returns false if another import is still running.
+     */
+    public boolean startDirectory(Path directory) {
+        if (stopped || !busy.compareAndSet(false, true)) {
+            return false;
+        }
+        executor.execute(() -> {
+            try {
+                runDirectory(directory);
+            } finally {
+                busy.set(false);
+            }
+        });
+        return true;
+    }
+
+    public boolean isBusy() {
+        return busy.get();
+    }
+
+    /**
+     * Abort a running import after its current chunk and stop accepting new ones
+     */
+    public void stop() {
+        stopped = true;
+        executor.shutdown();
+        parsers.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warning("Import did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runDirectory(Path directory) {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file) && isImportable(file)) {
+                    files.add(file);
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to list import directory " + directory, e);
+            return;
+        }
+        files.sort(Comparator.comparing(Path::getFileName));
+        if (!files.isEmpty()) {
+            logger.info("Importing " + files.size() + " file(s) from " + directory);
+        }
+        Path done = directory.resolve("done");
+        for (Path file : files) {
+            if (stopped) {
+                return;
+            }
+            boolean[] loaded = new boolean[1];
+            run(file, new Listener() {
+                @Override
+                public void progress(long rows, long inserted) {
+                    logger.info(String.format("Import of %s: %d rows read, %d new", file.getFileName(), rows, inserted));
+                }
+
+                @Override
+                public void completed(Path file, long rows, long inserted, long rejected, long millis) {
+                    loaded[0] = true;
+                }
+
+                @Override
+                public void failed(Path file, Exception error) {
+                    // Already logged by run
+                }
+            });
+            if (loaded[0]) {
+                try {
+                    Files.createDirectories(done);
+                    Files.move(file, done.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Imported " + file.getFileName() + " but could not move it to " + done, e);
+                }
+            }
+        }
+    }
+
+    private void run(Path file, Listener listener) {
+        long started = System.nanoTime();
+        ExportFormat format = formatOf(file);
+        try (Reader in = open(file)) {
+            if (format == null) {
+                throw new IOException("Unknown file type (expected .ndjson, .csv or the same with .gz)");
+            }
+            // CSV names its columns in the header; an NDJSON row names them itself
+            String first = format.readRecord(in);
+            if (first == null) {
+                throw new IOException("File is empty");
+            }
+            List<String> header = format == ExportFormat.CSV ? format.parseHeader(first) : List.of();
+            Set<String> columns = format == ExportFormat.CSV ? Set.copyOf(header) : format.parseRecord(first, header).keySet();
+            String pending = format == ExportFormat.CSV ? null : first;
+            long[] totals;
+            if (columns.contains("message_uuid")) {
+                totals = load(file, in, format, header, pending, chatTarget(), listener);
+            } else if (columns.contains("command_uuid")) {
+                totals = load(file, in, format, header, pending, commandTarget(), listener);
+            } else {
+                throw new IOException("Neither message_uuid nor command_uuid found; not a chat log export");
+            }
+            if (totals == null) {
+                listener.failed(file, new IOException("Import aborted: the plugin is shutting down"));
+                return;
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            logger.info(String.format("Import of %s finished: %d rows, %d new, %d rejected in %.1fs",
+                    file.getFileName(), totals[0], totals[1], totals[2], millis / 1000.0));
+            listener.completed(file, totals[0], totals[1], totals[2], millis);
+        } catch (SQLException | IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Import of " + file.getFileName()
+                    + " failed; rows written so far are kept and skipped when it is repeated", e);
+            listener.failed(file, e);
+        }
+    }
+
+    /**
+     * Read, parse and insert all records. Returns rows read, rows inserted and records rejected,
+     * or null if the import was stopped.
+     */
+    private <T> long[] load(Path file, Reader in, ExportFormat format, List<String> header, String pending,
+                            Target<T> target, Listener listener) throws IOException, SQLException {
+        Deque<Future<Chunk<T>>> inFlight = new ArrayDeque<>();
+        long[] totals = new long[3];
+        AtomicInteger loggedErrors = new AtomicInteger();
+        long lastReport = System.nanoTime();
+        long recordNumber = 0;
+        List<String> records = new ArrayList<>(batchSize);
+        if (pending != null) {
+            records.add(pending);
+        }
+        String record;
+        boolean more = true;
+        while (more) {
+            record = format.readRecord(in);
+            more = record != null;
+            if (more && !record.isBlank()) {
+                records.add(record);
+            }
+            if (records.size() == batchSize || (!more && !records.isEmpty())) {
+                inFlight.add(parsers.submit(parse(format, header, target, records, recordNumber)));
+                recordNumber += records.size();
+                records = new ArrayList<>(batchSize);
+            }
+            // Write the oldest chunk once enough are parsed ahead, and everything at the end
+            while (inFlight.size() > (more ? parserThreads * 2 : 0)) {
+                if (stopped) {
+                    return null;
+                }
+                write(file, target, await(inFlight.poll()), totals, loggedErrors);
+                if (System.nanoTime() - lastReport >= progressIntervalNanos) {
+                    lastReport = System.nanoTime();
+                    listener.progress(totals[0], totals[1]);
+                }
+            }
+        }
+        return totals;
+    }
+
+    private <T> Callable<Chunk<T>> parse(ExportFormat format, List<String> header, Target<T> target,
+                                         List<String> records, long firstRecord) {
+        return () -> {
+            List<T> rows = new ArrayList<>(records.size());
+            int rejected = 0;
+            String error = null;
+            for (int i = 0; i < records.size(); i++) {
+                try {
+                    Map<String, String> values = format.parseRecord(records.get(i), header);
+                    rows.add(ExportFormat.readRow(values, target.fields(), target.factory().get()));
+                } catch (IllegalArgumentException e) {
+                    if (rejected++ == 0) {
+                        // Record numbers count from 1 after the CSV header
+                        error = "record " + (firstRecord + i + 1) + ": " + e.getMessage();
+                    }
+                }
+            }
+            return new Chunk<>(rows, rejected, error);
+        };
+    }
+
+    private <T> void write(Path file, Target<T> target, Chunk<T> chunk, long[] totals, AtomicInteger loggedErrors)
+            throws SQLException {
+        if (chunk.error() != null && loggedErrors.getAndIncrement() < MAX_LOGGED_ERRORS) {
+            logger.warning("Import of " + file.getFileName() + ": skipped " + chunk.rejected()
+                    + " malformed record(s), first at " + chunk.error());
+        }
+        totals[0] += chunk.rows().size() + chunk.rejected();
+        totals[2] += chunk.rejected();
+        if (chunk.rows().isEmpty()) {
+            return;
+        }
+        totals[1] += target.insert().insert(chunk.rows());
+        // The rows bypassed the in-memory views; let them read the affected players and times from the database
+        if (historyCache != null) {
+            Set<String> players = new HashSet<>();
+            for (T row : chunk.rows()) {
+                String uuid = target.playerUuid().apply(row);
+                if (uuid != null) {
+                    players.add(uuid);
+                }
+            }
+            historyCache.forget(players);
+        }
+        if (recentIndex != null && target.table().equals("chat_messages")) {
+            chunk.rows().stream().map(target.timestamp()).filter(Objects::nonNull)
+                    .max(Comparator.naturalOrder()).ifPresent(recentIndex::markGap);
+        }
+    }
+
+    private static <T> Chunk<T> await(Future<Chunk<T>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Parsing failed", e.getCause());
+        }
+    }
+
+    private Target<ChatMessage> chatTarget() {
+        return new Target<>("chat_messages", ExportFormat.CHAT_FIELDS, ChatMessage::new,
+                chatDAO::insertChatMessagesBatchIdempotent, ChatMessage::getPlayerUuid, ChatMessage::getTimestamp);
+    }
+
+    private Target<CommandLog> commandTarget() {
+        return new Target<>("command_logs", ExportFormat.COMMAND_FIELDS, CommandLog::new,
+                chatDAO::insertCommandLogsBatchIdempotent, CommandLog::getPlayerUuid, CommandLog::getTimestamp);
+    }
+
+    /**
+     * Buffered UTF-8 reader over the file channel, decompressing {@code .gz} files
+     */
+    private static Reader open(Path file) throws IOException {
+        InputStream in = Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ));
+        try {
+            if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz")) {
+                in = new GZIPInputStream(in, BUFFER_SIZE);
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * Format from the file extension ({@code .ndjson}, {@code .csv}, each optionally followed by {@code .gz})
+     */
+    private static ExportFormat formatOf(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 ? ExportFormat.fromName(name.substring(dot + 1)) : null;
+    }
+}
@@ -0,0 +1,299 @@
+package de.chriss1998.theLabChatLog.filter;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Redacts sensitive commands before they are logged.
+ * <p>
+ * Keywords are compiled into an Aho-Corasick automaton and prefixes and command labels into tries,
+ * so a command is scanned once, case-insensitively, without allocating. Only a command that actually
+ * has to be redacted produces a new string.
+ * <ul>
+ *   <li>{@code arguments}: per-command rules that redact only the listed arguments (1-based, label excluded)</li>
+ *   <li>{@code keywords}: a command containing one of them anywhere has all arguments redacted</li>
+ *   <li>{@code prefixes}: a command starting with one of them has all arguments redacted</li>
+ * </ul>
+ * Arguments are separated by runs of whitespace, so extra spaces or tabs cannot shift a secret to an
+ * unredacted position.
+ */
+public final class CommandRedactor {
+
+    public static final String REDACTED = "[FILTERED]";
+
+    private static final List<String> DEFAULT_KEYWORDS = List.of("password", "token", "/login", "/register");
+    private static final List<String> DEFAULT_PREFIXES = List.of("/op ", "/deop ");
+
+    private final Automaton keywords;
+    private final Automaton prefixes;
+    private final Automaton labels;
+    private final int[][] argumentRules; // indexed by the label automaton's value, sorted argument positions
+
+    CommandRedactor(List<String> keywords, List<String> prefixes, Map<String, List<Integer>> argumentRules) {
+        this.keywords = Automaton.build(keywords, true);
+        this.prefixes = Automaton.build(prefixes, false);
+        List<String> labelList = new ArrayList<>();
+        this.argumentRules = new int[argumentRules.size()][];
+        for (Map.Entry<String, List<Integer>> rule : argumentRules.entrySet()) {
+            this.argumentRules[labelList.size()] = rule.getValue().stream()
+                    .filter(i -> i != null && i > 0)
+                    .mapToInt(Integer::intValue)
+                    .sorted()
+                    .toArray();
+            labelList.add(stripSlash(rule.getKey()));
+        }
+        this.labels = Automaton.build(labelList, false);
+    }
+
+    /**
+     * Compile the rules under {@code chat_logging.sensitive_commands}
+     */
+    public static CommandRedactor compile(FileConfiguration config) {
+        String base = "chat_logging.sensitive_commands.";
+        List<String> keywords = config.isSet(base + "keywords") ? config.getStringList(base + "keywords") : DEFAULT_KEYWORDS;
+        List<String> prefixes = config.isSet(base + "prefixes") ? config.getStringList(base + "prefixes") : DEFAULT_PREFIXES;
+        Map<String, List<Integer>> arguments = new TreeMap<>();
+        ConfigurationSection section = config.getConfigurationSection(base + "arguments");
+        if (section != null) {
+            for (String label : section.getKeys(false)) {
+                arguments.put(label, section.getIntegerList(label));
+            }
+        }
+        return new CommandRedactor(keywords, prefixes, arguments);
+    }
+
+    /**
+     * Return the command with sensitive arguments replaced, or the same instance if nothing matched
+     */
+    public String redact(String command) {
+        if (command == null || command.isEmpty()) {
+            return command;
+        }
+        int rule = matchLabel(command);
+        if (rule >= 0) {
+            return redactArguments(command, argumentRules[rule]);
+        }
+        if (prefixes.matchesPrefix(command) || keywords.occursIn(command)) {
+            int end = labelEnd(command);
+            return end < command.length() ? command.substring(0, end) + " " + REDACTED : command;
+        }
+        return command;
+    }
+
+    private int matchLabel(String command) {
+        int start = skipWhitespace(command, 0);
+        if (start < command.length() && command.charAt(start) == '/') {
+            start++;
+        }
+        int state = 0;
+        for (int i = start; i < command.length(); i++) {
+            char c = command.charAt(i);
+            if (Character.isWhitespace(c)) {
+                break;
+            }
+            state = labels.step(state, c);
+            if (state < 0) {
+                return -1;
+            }
+        }
+        return labels.value(state);
+    }
+
+    private static String redactArguments(String command, int[] positions) {
+        if (positions.length == 0) {
+            return command;
+        }
+        StringBuilder sb = new StringBuilder(command.length());
+        int argument = 0; // 0 = label
+        int i = 0;
+        while (i < command.length()) {
+            // Whitespace between tokens is kept as is, each run of it separates one argument
+            int tokenStart = skipWhitespace(command, i);
+            sb.append(command, i, tokenStart);
+            if (tokenStart == command.length()) {
+                break;
+            }
+            int tokenEnd = tokenStart;
+            while (tokenEnd < command.length() && !Character.isWhitespace(command.charAt(tokenEnd))) {
+                tokenEnd++;
+            }
+            if (argument > 0 && Arrays.binarySearch(positions, argument) >= 0) {
+                sb.append(REDACTED);
+            } else {
+                sb.append(command, tokenStart, tokenEnd);
+            }
+            argument++;
+            i = tokenEnd;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Index right after the label, leading whitespace included
+     */
+    private static int labelEnd(String command) {
+        int i = skipWhitespace(command, 0);
+        while (i < command.length() && !Character.isWhitespace(command.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipWhitespace(String text, int from) {
+        int i = from;
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String stripSlash(String label) {
+        return label.startsWith("/") ? label.substring(1) : label;
+    }
+
+    /**
+     * Case-insensitive trie over lower-case patterns, optionally with Aho-Corasick failure links.
+     * Transitions are stored as sorted char arrays per state and looked up by binary search.
+     */
+    private static final class Automaton {
+        private final char[][] keys;
+        private final int[][] targets;
+        private final int[] fail;
+        private final int[] values; // pattern index ending here (or via failure links), -1 if none
+
+        private Automaton(char[][] keys, int[][] targets, int[] fail, int[] values) {
+            this.keys = keys;
+            this.targets = targets;
+            this.fail = fail;
+            this.values = values;
+        }
+
+        static Automaton build(List<String> patterns, boolean withFailureLinks) {
+            List<TreeMap<Character, Integer>> children = new ArrayList<>();
+            List<Integer> valueList = new ArrayList<>();
+            children.add(new TreeMap<>());
+            valueList.add(-1);
+            for (int p = 0; p < patterns.size(); p++) {
+                String pattern = patterns.get(p);
+                if (pattern == null || pattern.isEmpty()) {
+                    continue;
+                }
+                int state = 0;
+                for (char c : pattern.toLowerCase(Locale.ROOT).toCharArray()) {
+                    Integer next = children.get(state).get(c);
+                    if (next == null) {
+                        next = children.size();
+                        children.add(new TreeMap<>());
+                        valueList.add(-1);
+                        children.get(state).put(c, next);
+                    }
+                    state = next;
+                }
+                if (valueList.get(state) < 0) {
+                    valueList.set(state, p);
+                }
+            }
+
+            int n = children.size();
+            char[][] keys = new char[n][];
+            int[][] targets = new int[n][];
+            int[] values = new int[n];
+            for (int s = 0; s < n; s++) {
+                TreeMap<Character, Integer> map = children.get(s);
+                keys[s] = new char[map.size()];
+                targets[s] = new int[map.size()];
+                int i = 0;
+                for (Map.Entry<Character, Integer> e : map.entrySet()) {
+                    keys[s][i] = e.getKey();
+                    targets[s][i++] = e.getValue();
+                }
+                values[s] = valueList.get(s);
+            }
+            Automaton automaton = new Automaton(keys, targets, new int[n], values);
+            if (withFailureLinks) {
+                automaton.linkFailures();
+            }
+            return automaton;
+        }
+
+        // Breadth-first, so the failure target of a state is always complete before the state itself
+        private void linkFailures() {
+            Deque<Integer> queue = new ArrayDeque<>();
+            for (int t : targets[0]) {
+                fail[t] = 0;
+                queue.add(t);
+            }
+            while (!queue.isEmpty()) {
+                int s = queue.poll();
+                for (int i = 0; i < keys[s].length; i++) {
+                    char c = keys[s][i];
+                    int t = targets[s][i];
+                    queue.add(t);
+                    int f = fail[s];
+                    while (f != 0 && step(f, c) < 0) {
+                        f = fail[f];
+                    }
+                    int g = step(f, c);
+                    fail[t] = g >= 0 && g != t ? g : 0;
+                    if (values[t] < 0) {
+                        values[t] = values[fail[t]];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Plain trie transition, -1 if there is none
+         */
+        int step(int state, char c) {
+            int i = Arrays.binarySearch(keys[state], Character.toLowerCase(c));
+            return i >= 0 ? targets[state][i] : -1;
+        }
+
+        int value(int state) {
+            return values[state];
+        }
+
+        boolean matchesPrefix(String text) {
+            int state = 0;
+            for (int i = 0; i < text.length(); i++) {
+                state = step(state, text.charAt(i));
+                if (state < 0) {
+                    return false;
+                }
+                if (values[state] >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean occursIn(String text) {
+            if (keys[0].length == 0) {
+                return false;
+            }
+            int state = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                int next;
+                while ((next = step(state, c)) < 0 && state != 0) {
+                    state = fail[state];
+                }
+                state = Math.max(next, 0);
+                if (values[state] >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package de.chriss1998.theLabChatLog.ingest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Crash-safe, append-only spool for events that could not be written to the database.
+ * <p>
+ * Records are appended to fixed-size, memory-mapped segment files as
+ * {@code [int length][int crc32][payload]}; a zero length marks the end of a segment.
+ * Replay happens segment by segment in FIFO order; a segment is deleted once all of its records
+ * were committed to the database. Torn writes after a crash are detected by the CRC and ignored.
+ * Records the database rejects for good are moved to {@code dead-letter.bin} in the same format;
+ * {@link #requeueDeadLetters()} puts them back into the spool once the cause is fixed.
+ */
+public class DiskSpool {
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("spool-(\\d{16})\\.seg");
+    private static final int HEADER_BYTES = 8;
+    private static final String DEAD_LETTER_FILE = "dead-letter.bin";
+    // The dead-letter file while its records are copied back into the spool
+    private static final String REQUEUE_FILE = DEAD_LETTER_FILE + ".requeue";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Logger logger;
+    private final AtomicLong pendingRecords = new AtomicLong();
+
+    // Writer state (guarded by this)
+    private long nextSegmentId;
+    private Path activePath;
+    private FileChannel activeChannel;
+    private MappedByteBuffer activeBuffer;
+    private int activeRecords;
+    private boolean dirty;
+    // After close() nothing is appended, so a late writer cannot open a new segment
+    private boolean closed;
+
+    // Sealed segments waiting for replay (guarded by this)
+    private final Deque<Path> sealedSegments = new ArrayDeque<>();
+    private final List<Path> undeletedSegments = new ArrayList<>();
+
+    // Replay state (flusher thread only)
+    private Path replayPath;
+    private ByteBuffer replayData;
+    private int replayCommittedOffset;
+    private int replayPendingOffset;
+    private int replayPendingRecords;
+
+    public DiskSpool(File directory, int segmentSize, Logger logger) {
+        this.directory = directory.toPath();
+        this.segmentSize = segmentSize;
+        this.logger = logger;
+    }
+
+    /**
+     * Open the spool directory and count records left over from a previous run
+     */
+    public synchronized void open() throws IOException {
+        closed = false;
+        Files.createDirectories(directory);
+        List<Path> existing = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(p -> SEGMENT_NAME.matcher(p.getFileName().toString()).matches())
+                    .sorted()
+                    .forEach(existing::add);
+        }
+        long recovered = 0;
+        for (Path segment : existing) {
+            Matcher m = SEGMENT_NAME.matcher(segment.getFileName().toString());
+            if (m.matches()) {
+                nextSegmentId = Math.max(nextSegmentId, Long.parseLong(m.group(1)) + 1);
+            }
+            int records = countRecords(ByteBuffer.wrap(Files.readAllBytes(segment)));
+            if (records == 0) {
+                Files.deleteIfExists(segment);
+                continue;
+            }
+            recovered += records;
+            sealedSegments.addLast(segment);
+        }
+        pendingRecords.set(recovered);
+        if (recovered > 0) {
+            logger.info("Recovered " + recovered + " spooled events from " + sealedSegments.size() + " segment(s)");
+        }
+        int deadLetters = countDeadLetters();
+        if (deadLetters > 0) {
+            logger.warning(deadLetters + " events the database rejected are waiting in " + directory.resolve(DEAD_LETTER_FILE)
+                    + "; /chatlog deadletter replays them once the cause is fixed");
+        }
+    }
+
+    /**
+     * Append one record. Returns false if the record could not be written or the spool is closed.
+     */
+    public synchronized boolean append(byte[] payload) {
+        if (closed) {
+            return false;
+        }
+        int required = HEADER_BYTES + payload.length;
+        if (required + 4 > segmentSize) {
+            logger.warning("Spool record of " + payload.length + " bytes exceeds the segment size; discarding it");
+            return false;
+        }
+        try {
+            if (activeBuffer == null || activeBuffer.remaining() < required + 4) {
+                rollSegment();
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            int start = activeBuffer.position();
+            // Write payload and checksum first, publish the length last
+            activeBuffer.position(start + 4);
+            activeBuffer.putInt((int) crc.getValue());
+            activeBuffer.put(payload);
+            activeBuffer.putInt(start, payload.length);
+            activeRecords++;
+            dirty = true;
+            pendingRecords.incrementAndGet();
+            return true;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to append to spool segment " + activePath, e);
+            return false;
+        }
+    }
+
+    /**
+     * Force pending writes of the active segment to disk
+     */
+    public synchronized void sync() {
+        if (dirty && activeBuffer != null) {
+            activeBuffer.force();
+            dirty = false;
+        }
+    }
+
+    public long getPendingRecords() {
+        return pendingRecords.get();
+    }
+
+    /**
+     * Read up to {@code max} records from the oldest segment without removing them.
+     * Must be followed by {@link #commitBatch()} once the records are stored safely.
+     */
+    public List<byte[]> readBatch(int max) throws IOException {
+        if (replayData == null && !openNextReplaySegment()) {
+            return List.of();
+        }
+        List<byte[]> batch = new ArrayList<>(Math.min(max, 256));
+        int offset = replayCommittedOffset;
+        while (batch.size() < max) {
+            byte[] payload = readRecord(replayData, offset);
+            if (payload == null) {
+                break;
+            }
+            batch.add(payload);
+            offset += HEADER_BYTES + payload.length;
+        }
+        replayPendingOffset = offset;
+        replayPendingRecords = batch.size();
+        if (batch.isEmpty()) {
+            finishReplaySegment();
+        }
+        return batch;
+    }
+
+    /**
+     * Mark the records returned by the last {@link #readBatch(int)} as stored
+     */
+    public void commitBatch() {
+        if (replayData == null) {
+            return;
+        }
+        replayCommittedOffset = replayPendingOffset;
+        pendingRecords.addAndGet(-replayPendingRecords);
+        replayPendingRecords = 0;
+        if (readRecord(replayData, replayCommittedOffset) == null) {
+            finishReplaySegment();
+        }
+    }
+
+    /**
+     * Append a record the database rejected to the dead-letter file, synced before returning
+     */
+    public synchronized void deadLetter(byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        try (FileChannel channel = FileChannel.open(directory.resolve(DEAD_LETTER_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Number of records in the dead-letter file, including those of an unfinished requeue
+     */
+    public synchronized int countDeadLetters() throws IOException {
+        int count = 0;
+        for (String name : new String[]{DEAD_LETTER_FILE, REQUEUE_FILE}) {
+            Path file = directory.resolve(name);
+            if (Files.exists(file)) {
+                count += countRecords(ByteBuffer.wrap(Files.readAllBytes(file)));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Append the records of the dead-letter file to the spool, so they are replayed again; returns their number.
+     * The file is renamed first: records the database rejects once more start a new dead-letter file, and an
+     * interrupted requeue is finished by the next call (replays are idempotent, so repeated records are harmless).
+     */
+    public synchronized int requeueDeadLetters() throws IOException {
+        Path requeue = directory.resolve(REQUEUE_FILE);
+        if (!Files.exists(requeue)) {
+            Path deadLetters = directory.resolve(DEAD_LETTER_FILE);
+            if (!Files.exists(deadLetters)) {
+                return 0;
+            }
+            Files.move(deadLetters, requeue, StandardCopyOption.ATOMIC_MOVE);
+        }
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(requeue));
+        int count = 0;
+        int offset = 0;
+        byte[] payload;
+        while ((payload = readRecord(data, offset)) != null) {
+            if (!append(payload)) {
+                throw new IOException("Could not append dead-letter record " + count + " to the spool");
+            }
+            count++;
+            offset += HEADER_BYTES + payload.length;
+        }
+        if (activeBuffer != null) {
+            activeBuffer.force();
+            dirty = false;
+        }
+        Files.delete(requeue);
+        return count;
+    }
+
+    /**
+     * Flush and release the active segment; later appends fail
+     */
+    public synchronized void close() {
+        closed = true;
+        if (activeBuffer != null) {
+            activeBuffer.force();
+        }
+        closeActive();
+    }
+
+    private boolean openNextReplaySegment() throws IOException {
+        Path next;
+        synchronized (this) {
+            retryDeletes();
+            if (sealedSegments.isEmpty() && activeRecords > 0) {
+                // Nothing sealed yet: seal the active segment so its records can be replayed
+                activeBuffer.force();
+                sealActive();
+            }
+            next = sealedSegments.pollFirst();
+        }
+        if (next == null) {
+            return false;
+        }
+        replayPath = next;
+        replayData = ByteBuffer.wrap(Files.readAllBytes(next));
+        replayCommittedOffset = 0;
+        replayPendingOffset = 0;
+        replayPendingRecords = 0;
+        return true;
+    }
+
+    private void finishReplaySegment() {
+        Path done = replayPath;
+        replayPath = null;
+        replayData = null;
+        synchronized (this) {
+            undeletedSegments.add(done);
+            retryDeletes();
+        }
+    }
+
+    // Mapped files cannot be deleted on every OS until the mapping is collected, so deletion is retried
+    private void retryDeletes() {
+        Iterator<Path> it = undeletedSegments.iterator();
+        while (it.hasNext()) {
+            try {
+                Files.deleteIfExists(it.next());
+                it.remove();
+            } catch (IOException ignored) {
+                // try again on the next replay round
+            }
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        if (activeBuffer != null) {
+            activeBuffer.force();
+            sealActive();
+        }
+        activePath = directory.resolve(String.format("spool-%016d.seg", nextSegmentId++));
+        activeChannel = FileChannel.open(activePath, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        activeBuffer = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        activeRecords = 0;
+    }
+
+    private void sealActive() {
+        Path sealed = activePath;
+        boolean hasRecords = activeRecords > 0;
+        closeActive();
+        if (hasRecords) {
+            sealedSegments.addLast(sealed);
+        } else {
+            undeletedSegments.add(sealed);
+        }
+    }
+
+    private void closeActive() {
+        if (activeChannel != null) {
+            try {
+                activeChannel.close();
+            } catch (IOException e) {
+                logger.log(Level.FINE, "Failed to close spool segment " + activePath, e);
+            }
+        }
+        activeChannel = null;
+        activeBuffer = null;
+        activePath = null;
+        activeRecords = 0;
+        dirty = false;
+    }
+
+    private static int countRecords(ByteBuffer data) {
+        int count = 0;
+        int offset = 0;
+        byte[] payload;
+        while ((payload = readRecord(data, offset)) != null) {
+            count++;
+            offset += HEADER_BYTES + payload.length;
+        }
+        return count;
+    }
+
+    /**
+     * Read the record at the given offset, or null at the end of the segment or on a torn record
+     */
+    private static byte[] readRecord(ByteBuffer data, int offset) {
+        if (offset + HEADER_BYTES > data.limit()) {
+            return null;
+        }
+        int length = data.getInt(offset);
+        if (length <= 0 || offset + HEADER_BYTES + length > data.limit()) {
+            return null;
+        }
+        int expectedCrc = data.getInt(offset + 4);
+        byte[] payload = new byte[length];
+        data.get(offset + HEADER_BYTES, payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == expectedCrc ? payload : null;
+    }
+}
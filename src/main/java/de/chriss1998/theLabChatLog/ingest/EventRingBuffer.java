@@ -0,0 +1,278 @@
+package de.chriss1998.theLabChatLog.ingest;
+
+import de.chriss1998.theLabChatLog.model.ChatMessage;
+import de.chriss1998.theLabChatLog.model.CommandLog;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Multi-producer / single-consumer ring buffer with preallocated slots, in the style of the LMAX Disruptor.
+ * <p>
+ * Producers (event handlers on the main thread and the async chat threads) claim a sequence with a CAS,
+ * copy the event's fields into the slot and publish the sequence. The consumer walks the published
+ * sequences in order and materializes {@link ChatMessage}/{@link CommandLog} objects off the hot path.
+ * A claimed slot must always be published, otherwise the consumer stalls at that sequence.
+ */
+public final class EventRingBuffer {
+
+    /**
+     * One reusable event slot. Holds references only (no copies) until the consumer materializes it.
+     */
+    public static final class Slot {
+        private long sequence;
+        private ChatMessage.MessageType messageType;   // set for chat events
+        private CommandLog.SourceType sourceType;      // set for commands
+        private long timestampMillis;
+        private String serverName;
+        private String worldName;
+        private UUID playerUuid;
+        private String playerName;
+        private String content;
+        private String channel;
+        private boolean hasLocation;
+        private double x;
+        private double y;
+        private double z;
+        private UUID recipientUuid;
+        private String recipientName;
+        private boolean cancelled;
+        private String metadataJson;
+        private Object materialized;                   // set once materialized before the consumer
+
+        private Slot(long sequence) {
+            this.sequence = sequence;
+        }
+
+        public Slot server(String serverName) { this.serverName = serverName; return this; }
+        public Slot world(String worldName) { this.worldName = worldName; return this; }
+        public Slot player(UUID uuid, String name) { this.playerUuid = uuid; this.playerName = name; return this; }
+        public Slot content(String content) { this.content = content; return this; }
+        public Slot channel(String channel) { this.channel = channel; return this; }
+        public Slot location(double x, double y, double z) { this.hasLocation = true; this.x = x; this.y = y; this.z = z; return this; }
+        public Slot recipient(UUID uuid, String name) { this.recipientUuid = uuid; this.recipientName = name; return this; }
+        public Slot cancelled(boolean cancelled) { this.cancelled = cancelled; return this; }
+        public Slot metadata(String json) { this.metadataJson = json; return this; }
+
+        boolean isCommand() {
+            return sourceType != null;
+        }
+
+        long getSequence() {
+            return sequence;
+        }
+
+        CommandLog.SourceType getSourceType() {
+            return sourceType;
+        }
+
+        void reset(ChatMessage.MessageType messageType, CommandLog.SourceType sourceType) {
+            this.messageType = messageType;
+            this.sourceType = sourceType;
+            this.timestampMillis = System.currentTimeMillis();
+            this.serverName = null;
+            this.worldName = null;
+            this.playerUuid = null;
+            this.playerName = null;
+            this.content = null;
+            this.channel = null;
+            this.hasLocation = false;
+            this.recipientUuid = null;
+            this.recipientName = null;
+            this.cancelled = false;
+            this.metadataJson = null;
+            this.materialized = null;
+        }
+
+        /**
+         * The event as a {@link ChatMessage}; the same instance on every call
+         */
+        ChatMessage toChatMessage() {
+            if (materialized instanceof ChatMessage message) {
+                return message;
+            }
+            ChatMessage message = new ChatMessage.Builder(serverName, toString(playerUuid), playerName, content)
+                    .world(worldName)
+                    .type(messageType)
+                    .recipient(toString(recipientUuid), recipientName)
+                    .cancelled(cancelled)
+                    .metadata(metadataJson)
+                    .build();
+            if (channel != null) {
+                message.setChannel(channel);
+            }
+            if (hasLocation) {
+                message.setLocationX(x);
+                message.setLocationY(y);
+                message.setLocationZ(z);
+            }
+            message.setTimestamp(toLocalDateTime(timestampMillis));
+            materialized = message;
+            return message;
+        }
+
+        /**
+         * The event as a {@link CommandLog}; the same instance on every call
+         */
+        CommandLog toCommandLog() {
+            if (materialized instanceof CommandLog log) {
+                return log;
+            }
+            CommandLog.Builder builder = new CommandLog.Builder()
+                    .server(serverName)
+                    .source(sourceType)
+                    .player(toString(playerUuid), playerName)
+                    .command(content)
+                    .world(worldName)
+                    .cancelled(cancelled)
+                    .metadata(metadataJson);
+            if (hasLocation) {
+                builder.location(x, y, z);
+            }
+            CommandLog log = builder.build();
+            log.setTimestamp(toLocalDateTime(timestampMillis));
+            materialized = log;
+            return log;
+        }
+
+        private static String toString(UUID uuid) {
+            return uuid != null ? uuid.toString() : null;
+        }
+
+        // Whole seconds like the TIMESTAMP columns, so in-memory copies and stored rows agree on every boundary
+        private static LocalDateTime toLocalDateTime(long epochMillis) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()).truncatedTo(ChronoUnit.SECONDS);
+        }
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    // published.get(i) == sequence once the slot for that sequence is readable
+    private final AtomicLongArray published;
+    private final AtomicLong claimCursor = new AtomicLong();
+    private volatile long consumedCursor;
+
+    /**
+     * @param minCapacity rounded up to the next power of two
+     */
+    public EventRingBuffer(int minCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, minCapacity - 1)) << 1;
+        this.slots = new Slot[capacity];
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot(-1);
+            published.set(i, -1);
+        }
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Claimed but not yet consumed slots
+     */
+    public int size() {
+        return (int) (claimCursor.get() - consumedCursor);
+    }
+
+    /**
+     * Claim the next slot for a chat message, or return null if the buffer is full
+     */
+    Slot tryClaim(ChatMessage.MessageType messageType) {
+        return tryClaim(messageType, null);
+    }
+
+    /**
+     * Claim the next slot for a command, or return null if the buffer is full
+     */
+    Slot tryClaim(CommandLog.SourceType sourceType) {
+        return tryClaim(null, sourceType);
+    }
+
+    private Slot tryClaim(ChatMessage.MessageType messageType, CommandLog.SourceType sourceType) {
+        long sequence;
+        do {
+            sequence = claimCursor.get();
+            if (sequence - consumedCursor >= slots.length) {
+                return null;
+            }
+        } while (!claimCursor.compareAndSet(sequence, sequence + 1));
+        Slot slot = slots[(int) sequence & mask];
+        slot.sequence = sequence;
+        slot.reset(messageType, sourceType);
+        return slot;
+    }
+
+    /**
+     * A slot outside the ring, used by producers when the ring is full
+     */
+    static Slot detachedSlot(ChatMessage.MessageType messageType, CommandLog.SourceType sourceType) {
+        Slot slot = new Slot(-1);
+        slot.reset(messageType, sourceType);
+        return slot;
+    }
+
+    void publish(Slot slot) {
+        published.setRelease((int) slot.sequence & mask, slot.sequence);
+    }
+
+    /**
+     * Materialize the published, not yet drained events of one player in sequence order. Holds the same lock as
+     * {@link #drain}, so every event is either still seen here or already handed to the consumer.
+     */
+    synchronized void pendingOf(UUID playerUuid, List<ChatMessage> messages, List<CommandLog> logs) {
+        for (long sequence = consumedCursor; ; sequence++) {
+            int index = (int) sequence & mask;
+            if (published.getAcquire(index) != sequence) {
+                return;
+            }
+            Slot slot = slots[index];
+            if (playerUuid.equals(slot.playerUuid)) {
+                if (slot.isCommand()) {
+                    logs.add(slot.toCommandLog());
+                } else {
+                    messages.add(slot.toChatMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Materialize up to {@code max} published events in sequence order.
+     * Normally only called by the flusher; synchronized so a shutdown drain cannot race it.
+     *
+     * @return number of slots consumed
+     */
+    synchronized int drain(int max, List<ChatMessage> messages, List<CommandLog> logs) {
+        long sequence = consumedCursor;
+        int count = 0;
+        while (count < max) {
+            int index = (int) sequence & mask;
+            if (published.getAcquire(index) != sequence) {
+                break;
+            }
+            Slot slot = slots[index];
+            if (slot.isCommand()) {
+                logs.add(slot.toCommandLog());
+            } else {
+                messages.add(slot.toChatMessage());
+            }
+            // Drop references so the slot does not keep strings alive until it is reused
+            slot.reset(null, null);
+            sequence++;
+            count++;
+        }
+        if (count > 0) {
+            consumedCursor = sequence;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,107 @@
+package de.chriss1998.theLabChatLog.ingest;
+
+import de.chriss1998.theLabChatLog.model.ChatMessage;
+import de.chriss1998.theLabChatLog.model.CommandLog;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Priority-aware admission control for the ingestion path.
+ * <p>
+ * Events are classified into {@link Priority} classes. Once the write queue passes the sample watermark,
+ * low-priority events (join/leave/death spam, command blocks, ...) are sampled; above the shed watermark
+ * they are shed entirely. Chat and player commands are always admitted, and console/RCON commands are
+ * never dropped at all, not even when the queue and the spool are full.
+ */
+public class OverloadController {
+
+    public enum Priority {
+        /** Console and RCON commands – never dropped */
+        CRITICAL,
+        /** Player chat, private messages and player commands – never shed */
+        HIGH,
+        /** Join/leave/death/achievement/system messages, command blocks – shed first */
+        LOW
+    }
+
+    private final boolean enabled;
+    private final double sampleWatermark;
+    private final double shedWatermark;
+    private final int sampleRate;
+
+    private final Map<Priority, LongAdder> sampledOut = new EnumMap<>(Priority.class);
+    private final Map<Priority, LongAdder> shed = new EnumMap<>(Priority.class);
+
+    public OverloadController(FileConfiguration config) {
+        this.enabled = config.getBoolean("performance.overload.enabled", true);
+        this.sampleWatermark = config.getDouble("performance.overload.sample_watermark", 0.5);
+        this.shedWatermark = Math.max(sampleWatermark, config.getDouble("performance.overload.shed_watermark", 0.8));
+        this.sampleRate = Math.max(1, config.getInt("performance.overload.low_priority_sample_rate", 10));
+        for (Priority p : Priority.values()) {
+            sampledOut.put(p, new LongAdder());
+            shed.put(p, new LongAdder());
+        }
+    }
+
+    public static Priority classify(ChatMessage message) {
+        return classify(message.getMessageType());
+    }
+
+    public static Priority classify(CommandLog log) {
+        return classify(log.getSourceType());
+    }
+
+    public static Priority classify(ChatMessage.MessageType type) {
+        return switch (type) {
+            case CHAT, PRIVATE, COMMAND -> Priority.HIGH;
+            default -> Priority.LOW;
+        };
+    }
+
+    public static Priority classify(CommandLog.SourceType source) {
+        return switch (source) {
+            case CONSOLE, RCON -> Priority.CRITICAL;
+            case PLAYER -> Priority.HIGH;
+            default -> Priority.LOW;
+        };
+    }
+
+    /**
+     * Decide whether an event of the given class is accepted at the current queue fill ratio (0..1)
+     */
+    public boolean admit(Priority priority, double fillRatio) {
+        if (!enabled || priority != Priority.LOW || fillRatio < sampleWatermark) {
+            return true;
+        }
+        if (fillRatio >= shedWatermark) {
+            shed.get(priority).increment();
+            return false;
+        }
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            sampledOut.get(priority).increment();
+            return false;
+        }
+        return true;
+    }
+
+    public long getShedCount(Priority priority) {
+        return shed.get(priority).sum();
+    }
+
+    public long getSampledOutCount(Priority priority) {
+        return sampledOut.get(priority).sum();
+    }
+
+    /**
+     * Shedding statistics for monitoring
+     */
+    public String getStats() {
+        return String.format("Overload - %s, watermarks %.0f%%/%.0f%%, low priority sampled out: %d, shed: %d",
+                enabled ? "on" : "off", sampleWatermark * 100, shedWatermark * 100,
+                getSampledOutCount(Priority.LOW), getShedCount(Priority.LOW));
+    }
+}
@@ -0,0 +1,168 @@
+package de.chriss1998.theLabChatLog.ingest;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import de.chriss1998.theLabChatLog.model.ChatMessage;
+import de.chriss1998.theLabChatLog.model.CommandLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Compact binary encoding of spooled events using the protobuf wire format.
+ * Each payload starts with a kind byte followed by tagged fields; null values are simply omitted,
+ * unknown fields are skipped so the format can grow without breaking old segments.
+ */
+final class SpoolCodec {
+
+    static final byte KIND_CHAT_MESSAGE = 1;
+    static final byte KIND_COMMAND_LOG = 2;
+
+    private SpoolCodec() {}
+
+    static byte[] encode(ChatMessage message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128 + length(message.getMessageContent()));
+        bytes.write(KIND_CHAT_MESSAGE);
+        CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+        writeString(out, 1, message.getMessageUuid());
+        writeString(out, 2, message.getServerName());
+        writeString(out, 3, message.getWorldName());
+        writeString(out, 4, message.getPlayerUuid());
+        writeString(out, 5, message.getPlayerName());
+        writeString(out, 6, message.getMessageContent());
+        writeString(out, 7, message.getMessageType() != null ? message.getMessageType().name() : null);
+        writeString(out, 8, message.getChannel());
+        writeDouble(out, 9, message.getLocationX());
+        writeDouble(out, 10, message.getLocationY());
+        writeDouble(out, 11, message.getLocationZ());
+        writeString(out, 12, message.getRecipientUuid());
+        writeString(out, 13, message.getRecipientName());
+        out.writeBool(14, message.isCancelled());
+        writeString(out, 15, message.getMetadataJson());
+        writeTimestamp(out, 16, message.getTimestamp());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static byte[] encode(CommandLog log) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96 + length(log.getCommandText()));
+        bytes.write(KIND_COMMAND_LOG);
+        CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+        writeString(out, 1, log.getCommandUuid());
+        writeString(out, 2, log.getServerName());
+        writeString(out, 3, log.getSourceType() != null ? log.getSourceType().name() : null);
+        writeString(out, 4, log.getPlayerUuid());
+        writeString(out, 5, log.getPlayerName());
+        writeString(out, 6, log.getCommandText());
+        writeString(out, 7, log.getWorldName());
+        writeDouble(out, 8, log.getLocationX());
+        writeDouble(out, 9, log.getLocationY());
+        writeDouble(out, 10, log.getLocationZ());
+        out.writeBool(11, log.isCancelled());
+        writeString(out, 12, log.getMetadataJson());
+        writeTimestamp(out, 13, log.getTimestamp());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a payload into a {@link ChatMessage} or {@link CommandLog}
+     */
+    static Object decode(byte[] payload) throws IOException {
+        if (payload.length == 0) {
+            throw new IOException("Empty spool record");
+        }
+        CodedInputStream in = CodedInputStream.newInstance(payload, 1, payload.length - 1);
+        return switch (payload[0]) {
+            case KIND_CHAT_MESSAGE -> decodeChatMessage(in);
+            case KIND_COMMAND_LOG -> decodeCommandLog(in);
+            default -> throw new IOException("Unknown spool record kind: " + payload[0]);
+        };
+    }
+
+    private static ChatMessage decodeChatMessage(CodedInputStream in) throws IOException {
+        ChatMessage message = new ChatMessage();
+        long seconds = 0;
+        int nanos = 0;
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> message.setMessageUuid(in.readString());
+                case 2 -> message.setServerName(in.readString());
+                case 3 -> message.setWorldName(in.readString());
+                case 4 -> message.setPlayerUuid(in.readString());
+                case 5 -> message.setPlayerName(in.readString());
+                case 6 -> message.setMessageContent(in.readString());
+                case 7 -> message.setMessageType(ChatMessage.MessageType.valueOf(in.readString()));
+                case 8 -> message.setChannel(in.readString());
+                case 9 -> message.setLocationX(in.readDouble());
+                case 10 -> message.setLocationY(in.readDouble());
+                case 11 -> message.setLocationZ(in.readDouble());
+                case 12 -> message.setRecipientUuid(in.readString());
+                case 13 -> message.setRecipientName(in.readString());
+                case 14 -> message.setCancelled(in.readBool());
+                case 15 -> message.setMetadataJson(in.readString());
+                case 16 -> seconds = in.readInt64();
+                case 17 -> nanos = in.readInt32();
+                default -> in.skipField(tag);
+            }
+        }
+        message.setTimestamp(LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC));
+        return message;
+    }
+
+    private static CommandLog decodeCommandLog(CodedInputStream in) throws IOException {
+        CommandLog log = new CommandLog();
+        long seconds = 0;
+        int nanos = 0;
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> log.setCommandUuid(in.readString());
+                case 2 -> log.setServerName(in.readString());
+                case 3 -> log.setSourceType(CommandLog.SourceType.valueOf(in.readString()));
+                case 4 -> log.setPlayerUuid(in.readString());
+                case 5 -> log.setPlayerName(in.readString());
+                case 6 -> log.setCommandText(in.readString());
+                case 7 -> log.setWorldName(in.readString());
+                case 8 -> log.setLocationX(in.readDouble());
+                case 9 -> log.setLocationY(in.readDouble());
+                case 10 -> log.setLocationZ(in.readDouble());
+                case 11 -> log.setCancelled(in.readBool());
+                case 12 -> log.setMetadataJson(in.readString());
+                case 13 -> seconds = in.readInt64();
+                case 14 -> nanos = in.readInt32();
+                default -> in.skipField(tag);
+            }
+        }
+        log.setTimestamp(LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC));
+        return log;
+    }
+
+    private static void writeString(CodedOutputStream out, int field, String value) throws IOException {
+        if (value != null) {
+            out.writeString(field, value);
+        }
+    }
+
+    private static void writeDouble(CodedOutputStream out, int field, Double value) throws IOException {
+        if (value != null) {
+            out.writeDouble(field, value);
+        }
+    }
+
+    // LocalDateTime is zone-less; UTC is only used as a lossless codec here
+    private static void writeTimestamp(CodedOutputStream out, int secondsField, LocalDateTime timestamp) throws IOException {
+        if (timestamp != null) {
+            out.writeInt64(secondsField, timestamp.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt32(secondsField + 1, timestamp.getNano());
+        }
+    }
+
+    private static int length(String s) {
+        return s != null ? s.length() : 0;
+    }
+}
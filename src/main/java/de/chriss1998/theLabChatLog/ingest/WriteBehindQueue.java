@@ -0,0 +1,580 @@
+package de.chriss1998.theLabChatLog.ingest;
+
+import de.chriss1998.theLabChatLog.TheLabChatLog;
+import de.chriss1998.theLabChatLog.dao.ChatDAO;
+import de.chriss1998.theLabChatLog.dao.RecentChatIndex;
+import de.chriss1998.theLabChatLog.dao.RecentHistoryCache;
+import de.chriss1998.theLabChatLog.directory.PlayerDirectory;
+import de.chriss1998.theLabChatLog.model.ChatMessage;
+import de.chriss1998.theLabChatLog.model.CommandLog;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded write-behind queue in front of {@link ChatDAO}.
+ * Event handlers copy their fields into a preallocated {@link EventRingBuffer} slot
+ * ({@link #claim(ChatMessage.MessageType)} / {@link #publish(EventRingBuffer.Slot)}); a single flusher thread
+ * drains the ring and writes JDBC batches,
+ * either once {@code performance.batch_size} entries are pending or after {@code performance.batch_timeout}.
+ * If the queue is full or the database cannot be reached, events go to the {@link DiskSpool}
+ * and are replayed once writes succeed again. A spooled batch the database rejects for good (bad data rather
+ * than an outage) is retried event by event, and the events that still fail go to the dead-letter file;
+ * {@link #requeueDeadLetters()} replays that file again.
+ * Admission is governed by the {@link OverloadController}: low-priority events are sampled or shed
+ * when the queues fill up, console/RCON commands are never dropped.
+ * The players of every written batch are passed to the {@link PlayerDirectory}, its chat messages to the
+ * {@link RecentChatIndex}; the activity rollup deltas they add up in {@link ChatDAO} are flushed from here as well.
+ * The flusher records every event in the {@link RecentHistoryCache} as it drains it from the ring, and the
+ * cache reads the events still in the ring when serving, so the cached history includes what is still waiting
+ * to be written without any work on the producer threads.
+ */
+public class WriteBehindQueue {
+
+    private static final long DROP_WARNING_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final ChatDAO chatDAO;
+    private final PlayerDirectory players; // null if not available
+    private final RecentChatIndex recentIndex; // null if disabled
+    private final RecentHistoryCache historyCache; // null if disabled
+    private final Logger logger;
+    private final int batchSize;
+    private final long batchTimeoutNanos;
+    private final EventRingBuffer ring;
+    private final OverloadController overload;
+    // Critical commands that neither fit into the queue nor into the spool; unbounded, but tiny in practice
+    private final ConcurrentLinkedQueue<CommandLog> criticalOverflow = new ConcurrentLinkedQueue<>();
+    private final Thread flusherThread;
+    private final DiskSpool spool; // null if disabled
+    private volatile boolean running;
+    private volatile boolean databaseHealthy = true;
+    private long lastWriteFailure; // flusher thread only
+
+    // Metrics
+    private final LongAdder writtenChatMessages = new LongAdder();
+    private final LongAdder writtenCommandLogs = new LongAdder();
+    private final LongAdder droppedEvents = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder spooledEvents = new LongAdder();
+    private final LongAdder replayedEvents = new LongAdder();
+    private final LongAdder deadLetteredEvents = new LongAdder();
+    private final AtomicLong lastDropWarning = new AtomicLong(System.nanoTime() - DROP_WARNING_INTERVAL_NANOS);
+
+    public WriteBehindQueue(TheLabChatLog plugin, ChatDAO chatDAO, PlayerDirectory players,
+                            RecentChatIndex recentIndex, RecentHistoryCache historyCache) {
+        this.chatDAO = chatDAO;
+        this.players = players;
+        this.recentIndex = recentIndex;
+        this.historyCache = historyCache;
+        this.logger = plugin.getLogger();
+
+        FileConfiguration config = plugin.getConfig();
+        this.batchSize = Math.max(1, config.getInt("performance.batch_size", 50));
+        this.batchTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(50, config.getLong("performance.batch_timeout", 5000)));
+        // Chat messages and commands share one ring (message_queue_size per kind)
+        int capacity = Math.max(batchSize, config.getInt("performance.message_queue_size", 1000));
+        this.ring = new EventRingBuffer(capacity * 2);
+        this.overload = new OverloadController(config);
+
+        if (config.getBoolean("performance.spool.enabled", true)) {
+            int segmentSize = Math.max(1, config.getInt("performance.spool.segment_size_mb", 8)) * 1024 * 1024;
+            this.spool = new DiskSpool(new File(plugin.getDataFolder(), "spool"), segmentSize, logger);
+        } else {
+            this.spool = null;
+        }
+
+        if (historyCache != null) {
+            historyCache.setInFlight(this::collectInFlight);
+        }
+
+        this.flusherThread = new Thread(this::runFlusher, "ChatLog-WriteBehind-Flusher");
+        this.flusherThread.setDaemon(true);
+    }
+
+    /**
+     * Start the flusher thread
+     */
+    public void start() {
+        if (spool != null) {
+            try {
+                spool.open();
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Failed to open spool directory – events will be dropped when the database is unavailable", e);
+            }
+        }
+        running = true;
+        flusherThread.start();
+        logger.info(String.format("Write-behind queue started (batch_size=%d, batch_timeout=%dms, capacity=%d)",
+                batchSize, TimeUnit.NANOSECONDS.toMillis(batchTimeoutNanos), ring.capacity()));
+    }
+
+    /**
+     * Claim a slot for a chat message. Returns null if the overload policy sheds the event.
+     * The returned slot must be filled and passed to {@link #publish(EventRingBuffer.Slot)}.
+     */
+    public EventRingBuffer.Slot claim(ChatMessage.MessageType type) {
+        if (!overload.admit(OverloadController.classify(type), fillRatio())) {
+            return null;
+        }
+        EventRingBuffer.Slot slot = running ? ring.tryClaim(type) : null;
+        return slot != null ? slot : EventRingBuffer.detachedSlot(type, null);
+    }
+
+    /**
+     * Claim a slot for a command log. Returns null if the overload policy sheds the event.
+     * The returned slot must be filled and passed to {@link #publish(EventRingBuffer.Slot)}.
+     */
+    public EventRingBuffer.Slot claim(CommandLog.SourceType source) {
+        if (!overload.admit(OverloadController.classify(source), fillRatio())) {
+            return null;
+        }
+        EventRingBuffer.Slot slot = running ? ring.tryClaim(source) : null;
+        return slot != null ? slot : EventRingBuffer.detachedSlot(null, source);
+    }
+
+    /**
+     * Hand a filled slot to the flusher. Slots that did not fit into the ring are spooled directly.
+     */
+    public void publish(EventRingBuffer.Slot slot) {
+        if (slot.getSequence() < 0) {
+            // Only when the ring is full; the flusher never sees these, so they are recorded here
+            if (slot.isCommand()) {
+                CommandLog log = slot.toCommandLog();
+                recordHistory(List.of(), List.of(log));
+                spool(log);
+            } else {
+                ChatMessage message = slot.toChatMessage();
+                recordHistory(List.of(message), List.of());
+                spool(message);
+            }
+            return;
+        }
+        ring.publish(slot);
+        if (ring.size() >= batchSize) {
+            LockSupport.unpark(flusherThread);
+        }
+    }
+
+    private boolean spool(ChatMessage message) {
+        try {
+            if (spool != null && spool.append(SpoolCodec.encode(message))) {
+                spooledEvents.increment();
+                return true;
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to encode chat message for spool: " + message.getMessageUuid(), e);
+        }
+        onDropped("chat message");
+        return false;
+    }
+
+    private boolean spool(CommandLog log) {
+        try {
+            if (spool != null && spool.append(SpoolCodec.encode(log))) {
+                spooledEvents.increment();
+                return true;
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to encode command log for spool: " + log.getCommandUuid(), e);
+        }
+        if (OverloadController.classify(log) == OverloadController.Priority.CRITICAL) {
+            // Console/RCON commands are kept in memory and retried by the flusher instead of being dropped
+            criticalOverflow.add(log);
+            return true;
+        }
+        onDropped("command log");
+        return false;
+    }
+
+    private double fillRatio() {
+        return (double) ring.size() / ring.capacity();
+    }
+
+    private void onDropped(String kind) {
+        droppedEvents.increment();
+        long now = System.nanoTime();
+        long last = lastDropWarning.get();
+        if (now - last >= DROP_WARNING_INTERVAL_NANOS && lastDropWarning.compareAndSet(last, now)) {
+            logger.warning("Write queue full and spool unavailable – dropping " + kind + " (dropped so far: " + droppedEvents.sum() + ")");
+        }
+    }
+
+    private void runFlusher() {
+        long lastFlush = System.nanoTime();
+        while (running) {
+            long waited = System.nanoTime() - lastFlush;
+            if (ring.size() >= batchSize || waited >= batchTimeoutNanos) {
+                flushPending();
+                lastFlush = System.nanoTime();
+            } else if (!replaySpool()) {
+                LockSupport.parkNanos(this, batchTimeoutNanos - waited);
+            }
+            if (spool != null) {
+                spool.sync();
+            }
+            if (databaseHealthy) {
+                flushActivity(false);
+            }
+        }
+        // Remaining entries are written (or spooled) before the pool is closed
+        while (flushPending() > 0) {
+            // keep flushing until the ring is empty
+        }
+        if (!criticalOverflow.isEmpty()) {
+            flushPending();
+            if (!criticalOverflow.isEmpty()) {
+                logger.severe("Could not persist " + criticalOverflow.size() + " console/RCON commands before shutdown");
+            }
+        }
+        flushActivity(true);
+    }
+
+    /**
+     * Write the activity rollup deltas of the batches written so far; they stay pending if that fails
+     */
+    private void flushActivity(boolean force) {
+        try {
+            writeOrThrow(() -> chatDAO.flushActivity(force));
+        } catch (SQLException e) {
+            onWriteFailed("activity rollups", e);
+        }
+    }
+
+    /**
+     * Write one batch from the ring; returns the number of events taken from it
+     */
+    private int flushPending() {
+        List<ChatMessage> messages = new ArrayList<>(batchSize);
+        List<CommandLog> logs = new ArrayList<>();
+        CommandLog critical;
+        while (logs.size() < batchSize && (critical = criticalOverflow.poll()) != null) {
+            logs.add(critical);
+        }
+        int overflow = logs.size();
+        int drained;
+        // Recorded under the ring's lock, so a reader sees every event either in the ring or in the cache
+        synchronized (ring) {
+            drained = ring.drain(batchSize, messages, logs);
+            recordHistory(messages, logs.subList(overflow, logs.size()));
+        }
+
+        if (!messages.isEmpty()) {
+            try {
+                writeOrThrow(() -> chatDAO.insertChatMessagesBatch(messages));
+                writtenChatMessages.add(messages.size());
+                observePlayers(messages, List.of());
+                if (recentIndex != null) {
+                    recentIndex.add(messages);
+                }
+            } catch (SQLException e) {
+                onWriteFailed(messages.size() + " chat messages", e);
+                messages.forEach(this::spool);
+            }
+        }
+
+        if (!logs.isEmpty()) {
+            try {
+                writeOrThrow(() -> chatDAO.insertCommandLogsBatch(logs));
+                writtenCommandLogs.add(logs.size());
+                observePlayers(List.of(), logs);
+            } catch (SQLException e) {
+                onWriteFailed(logs.size() + " command logs", e);
+                logs.forEach(this::spool);
+            }
+        }
+        persistPlayers();
+        return drained;
+    }
+
+    private void recordHistory(List<ChatMessage> messages, List<CommandLog> logs) {
+        if (historyCache == null) {
+            return;
+        }
+        messages.forEach(historyCache::record);
+        logs.forEach(historyCache::record);
+    }
+
+    /**
+     * Events of the player still in the ring, for the history cache
+     */
+    private void collectInFlight(String playerUuid, List<ChatMessage> messages, List<CommandLog> logs) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(playerUuid);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        ring.pendingOf(uuid, messages, logs);
+    }
+
+    private void observePlayers(List<ChatMessage> messages, List<CommandLog> logs) {
+        if (players == null) {
+            return;
+        }
+        for (ChatMessage message : messages) {
+            players.observe(message.getPlayerUuid(), message.getPlayerName(), message.getTimestamp());
+        }
+        for (CommandLog log : logs) {
+            players.observe(log.getPlayerUuid(), log.getPlayerName(), log.getTimestamp());
+        }
+    }
+
+    private void persistPlayers() {
+        if (players != null && databaseHealthy) {
+            players.persistPending();
+        }
+    }
+
+    /**
+     * Replay one batch from the spool. Returns true if there is more work to do right away.
+     */
+    private boolean replaySpool() {
+        if (spool == null || spool.getPendingRecords() == 0) {
+            return false;
+        }
+        // While the database is down, probe it at most once per batch timeout
+        if (!databaseHealthy && System.nanoTime() - lastWriteFailure < batchTimeoutNanos) {
+            return false;
+        }
+        try {
+            List<byte[]> records = spool.readBatch(batchSize);
+            if (records.isEmpty()) {
+                return spool.getPendingRecords() > 0;
+            }
+            List<ChatMessage> messages = new ArrayList<>();
+            List<CommandLog> logs = new ArrayList<>();
+            List<byte[]> messageRecords = new ArrayList<>();
+            List<byte[]> logRecords = new ArrayList<>();
+            for (byte[] record : records) {
+                try {
+                    Object event = SpoolCodec.decode(record);
+                    if (event instanceof ChatMessage message) {
+                        messages.add(message);
+                        messageRecords.add(record);
+                    } else if (event instanceof CommandLog log) {
+                        logs.add(log);
+                        logRecords.add(record);
+                    }
+                } catch (IOException | IllegalArgumentException e) {
+                    logger.log(Level.WARNING, "Skipping unreadable spool record", e);
+                }
+            }
+            // Idempotent by message_uuid/command_uuid, so a replay interrupted by a crash can simply repeat
+            try {
+                writeOrThrow(() -> chatDAO.insertChatMessagesBatchIdempotent(messages));
+                writeOrThrow(() -> chatDAO.insertCommandLogsBatchIdempotent(logs));
+            } catch (SQLException e) {
+                if (!isRejected(e)) {
+                    throw e;
+                }
+                logger.log(Level.WARNING, "Database rejected a spooled batch; retrying its "
+                        + (messages.size() + logs.size()) + " events one by one", e);
+                replayOneByOne(messages, messageRecords, logs, logRecords);
+            }
+            spool.commitBatch();
+            replayedEvents.add(messages.size() + logs.size());
+            observePlayers(messages, logs);
+            persistPlayers();
+            if (recentIndex != null) {
+                // Replayed messages are older than what the index holds; searches read their time from the database
+                messages.stream().map(ChatMessage::getTimestamp).filter(Objects::nonNull)
+                        .max(Comparator.naturalOrder()).ifPresent(recentIndex::markGap);
+            }
+            if (spool.getPendingRecords() == 0) {
+                logger.info("Spool fully replayed into the database (" + replayedEvents.sum() + " events so far)");
+            }
+            return true;
+        } catch (SQLException e) {
+            onWriteFailed("spooled events", e);
+            return false;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to read spool segment or write the dead-letter file", e);
+            return false;
+        }
+    }
+
+    /**
+     * A spooled event the database refused on its own
+     */
+    private record Rejection(byte[] record, String what, SQLException error) {}
+
+    /**
+     * Write the events of a rejected batch one at a time; events the database rejects again are moved to the
+     * dead-letter file and left out of {@code messages}/{@code logs}. The record lists hold the spool record of
+     * each event at the same position. An outage in between aborts, so the batch is retried as a whole, and so
+     * does a batch of several events that are all refused: that points at the schema, not at the rows.
+     */
+    private void replayOneByOne(List<ChatMessage> messages, List<byte[]> messageRecords,
+                                List<CommandLog> logs, List<byte[]> logRecords) throws SQLException, IOException {
+        List<ChatMessage> writtenMessages = new ArrayList<>();
+        List<CommandLog> writtenLogs = new ArrayList<>();
+        List<Rejection> rejections = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            ChatMessage message = messages.get(i);
+            try {
+                writeOrThrow(() -> chatDAO.insertChatMessagesBatchIdempotent(List.of(message)));
+                writtenMessages.add(message);
+            } catch (SQLException e) {
+                rejections.add(rejection(messageRecords.get(i), "chat message " + message.getMessageUuid(), e));
+            }
+        }
+        for (int i = 0; i < logs.size(); i++) {
+            CommandLog log = logs.get(i);
+            try {
+                writeOrThrow(() -> chatDAO.insertCommandLogsBatchIdempotent(List.of(log)));
+                writtenLogs.add(log);
+            } catch (SQLException e) {
+                rejections.add(rejection(logRecords.get(i), "command log " + log.getCommandUuid(), e));
+            }
+        }
+        if (rejections.size() > 1 && writtenMessages.isEmpty() && writtenLogs.isEmpty()) {
+            throw new SQLException("The database refused all " + rejections.size() + " events of a spooled batch",
+                    rejections.get(0).error());
+        }
+        for (Rejection rejection : rejections) {
+            spool.deadLetter(rejection.record());
+            deadLetteredEvents.increment();
+            logger.log(Level.WARNING, "Moved " + rejection.what() + " to the spool dead-letter file", rejection.error());
+        }
+        messages.clear();
+        messages.addAll(writtenMessages);
+        logs.clear();
+        logs.addAll(writtenLogs);
+    }
+
+    private Rejection rejection(byte[] record, String what, SQLException e) throws SQLException {
+        if (!isRejected(e)) {
+            throw e;
+        }
+        return new Rejection(record, what, e);
+    }
+
+    /**
+     * Whether the database refused the data itself (data exception or constraint violation), so retrying the
+     * event cannot help. Connection problems, deadlocks, timeouts, missing tables or columns, missing
+     * privileges and unclassified errors are setup problems or outages and are retried.
+     */
+    private boolean isRejected(SQLException e) {
+        if (!chatDAO.isAvailable() || e instanceof SQLNonTransientConnectionException) {
+            return false;
+        }
+        String state = e.getSQLState();
+        // Data exception (22) and integrity constraint violation (23)
+        return state != null && (state.startsWith("22") || state.startsWith("23"));
+    }
+
+    /**
+     * Put the events of the dead-letter file back into the spool for another replay; returns their number
+     */
+    public int requeueDeadLetters() throws IOException {
+        if (spool == null) {
+            return 0;
+        }
+        int requeued = spool.requeueDeadLetters();
+        if (requeued > 0) {
+            logger.info("Requeued " + requeued + " dead-lettered events for replay");
+            LockSupport.unpark(flusherThread);
+        }
+        return requeued;
+    }
+
+    @FunctionalInterface
+    private interface SqlWrite {
+        void run() throws SQLException;
+    }
+
+    private void writeOrThrow(SqlWrite write) throws SQLException {
+        if (!chatDAO.isAvailable()) {
+            throw new SQLException("Database is not available");
+        }
+        write.run();
+        if (!databaseHealthy) {
+            databaseHealthy = true;
+            logger.info("Database writes recovered" + (spool != null ? "; replaying " + spool.getPendingRecords() + " spooled events" : ""));
+        }
+    }
+
+    private void onWriteFailed(String what, SQLException e) {
+        failedBatches.increment();
+        lastWriteFailure = System.nanoTime();
+        if (databaseHealthy) {
+            databaseHealthy = false;
+            logger.log(Level.WARNING, "Failed to write " + what + (spool != null ? " – spooling to disk until the database recovers" : ""), e);
+        }
+    }
+
+    /**
+     * Stop accepting work, flush everything still queued and wait for the flusher to finish
+     */
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(flusherThread);
+        try {
+            flusherThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusherThread.isAlive()) {
+            // Usually stuck in a JDBC call; the interrupt ends waits and sleeps, not every driver read
+            flusherThread.interrupt();
+            try {
+                flusherThread.join(TimeUnit.SECONDS.toMillis(2));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (flusherThread.isAlive()) {
+            List<ChatMessage> messages = new ArrayList<>();
+            List<CommandLog> logs = new ArrayList<>();
+            ring.drain(Integer.MAX_VALUE, messages, logs);
+            CommandLog critical;
+            while ((critical = criticalOverflow.poll()) != null) {
+                logs.add(critical);
+            }
+            logger.warning("Write-behind flusher did not finish in time; spooling " + (messages.size() + logs.size()) + " pending events");
+            messages.forEach(this::spool);
+            logs.forEach(this::spool);
+            if (!criticalOverflow.isEmpty()) {
+                logger.severe("Could not spool " + criticalOverflow.size() + " console/RCON commands before shutdown");
+            }
+        }
+        if (spool != null) {
+            // A flusher still running can no longer append after this; the batch it is writing is lost if it fails
+            spool.close();
+        }
+    }
+
+    /**
+     * Queue statistics for monitoring
+     */
+    public String getStats() {
+        return String.format("Queue Stats - Pending: %d/%d, Written: %d/%d, Dropped: %d, Failed batches: %d, "
+                        + "Spooled: %d, Replayed: %d, Dead-lettered: %d, Spool pending: %d, Critical overflow: %d",
+                ring.size(), ring.capacity(),
+                writtenChatMessages.sum(), writtenCommandLogs.sum(),
+                droppedEvents.sum(), failedBatches.sum(),
+                spooledEvents.sum(), replayedEvents.sum(), deadLetteredEvents.sum(), spool != null ? spool.getPendingRecords() : 0, criticalOverflow.size());
+    }
+
+    public OverloadController getOverloadController() {
+        return overload;
+    }
+}
@@ -1,9 +1,12 @@
 package de.chriss1998.theLabChatLog.listener;
 
 import de.chriss1998.theLabChatLog.TheLabChatLog;
-import de.chriss1998.theLabChatLog.dao.ChatDAO;
+import de.chriss1998.theLabChatLog.config.ChatLogSettings;
+import de.chriss1998.theLabChatLog.ingest.EventRingBuffer;
+import de.chriss1998.theLabChatLog.ingest.WriteBehindQueue;
 import de.chriss1998.theLabChatLog.model.ChatMessage;
 import de.chriss1998.theLabChatLog.model.CommandLog;
+import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -14,7 +17,6 @@ import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.entity.PlayerDeathEvent;
 import org.bukkit.event.player.PlayerAdvancementDoneEvent;
-import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.advancement.AdvancementDisplay;
 import org.bukkit.command.BlockCommandSender;
 import org.bukkit.command.ConsoleCommandSender;
@@ -22,8 +24,6 @@ import org.bukkit.command.RemoteConsoleCommandSender;
 import org.bukkit.event.server.ServerCommandEvent;
 import org.bukkit.event.server.RemoteServerCommandEvent;
 
-import java.util.List;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -32,61 +32,13 @@ import java.util.logging.Logger;
 public class ChatEventListener implements Listener {
     
     private final TheLabChatLog plugin;
-    private final ChatDAO chatDAO;
+    private final WriteBehindQueue writeQueue;
     private final Logger logger;
-    private final String serverName;
     
-    // Configuration flags
-    private boolean chatLoggingEnabled;
-    private boolean logChat;
-    private boolean logPrivateMessages;
-    private boolean logCommands;
-    private boolean logSystemMessages;
-    private boolean logJoinLeave;
-    private boolean logDeathMessages;
-    private boolean logAchievements;
-    private boolean logBroadcasts;
-    private boolean filterSensitiveData;
-    private int maxMessageLength;
-    private List<String> enabledChannels;
-    private List<String> excludedPlayers;
-    
-    public ChatEventListener(TheLabChatLog plugin, ChatDAO chatDAO) {
+    public ChatEventListener(TheLabChatLog plugin, WriteBehindQueue writeQueue) {
         this.plugin = plugin;
-        this.chatDAO = chatDAO;
+        this.writeQueue = writeQueue;
         this.logger = plugin.getLogger();
-        this.serverName = plugin.getConfig().getString("server.name", "Unknown");
-        
-        loadConfiguration();
-    }
-    
-    /**
-     * Load configuration settings
-     */
-    private void loadConfiguration() {
-        FileConfiguration config = plugin.getConfig();
-        
-        this.chatLoggingEnabled = config.getBoolean("chat_logging.enabled", true);
-        this.logChat = config.getBoolean("chat_logging.log_types.chat", true);
-        this.logPrivateMessages = config.getBoolean("chat_logging.log_types.private_messages", true);
-        this.logCommands = config.getBoolean("chat_logging.log_types.commands", false);
-        this.logSystemMessages = config.getBoolean("chat_logging.log_types.system_messages", true);
-        this.logJoinLeave = config.getBoolean("chat_logging.log_types.join_leave", true);
-        this.logDeathMessages = config.getBoolean("chat_logging.log_types.death_messages", true);
-        this.logAchievements = config.getBoolean("chat_logging.log_types.achievements", true);
-        this.logBroadcasts = config.getBoolean("chat_logging.log_types.broadcasts", true);
-        
-        this.filterSensitiveData = config.getBoolean("chat_logging.filter_sensitive_data", true);
-        this.maxMessageLength = config.getInt("chat_logging.max_message_length", 1000);
-        this.enabledChannels = config.getStringList("chat_logging.channels");
-        this.excludedPlayers = config.getStringList("chat_logging.excluded_players");
-        
-        if (config.getBoolean("debug.enabled", false)) {
-            logger.info("Chat logging configuration loaded - Enabled: " + chatLoggingEnabled
-                    + ", logCommands=" + logCommands);
-        } else {
-            logger.info("Chat logging configuration loaded - Enabled: " + chatLoggingEnabled);
-        }
     }
     
     /**
@@ -94,45 +46,30 @@ public class ChatEventListener implements Listener {
      */
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = false)
     public void onPlayerChat(AsyncPlayerChatEvent event) {
-        if (!chatLoggingEnabled || !logChat) {
+        ChatLogSettings settings = plugin.getSettings();
+        if (!settings.isEnabled() || !settings.isLogChat()) {
             return;
         }
         
         Player player = event.getPlayer();
         
         // Check if player is excluded
-        if (isPlayerExcluded(player)) {
+        if (settings.isPlayerExcluded(player)) {
             return;
         }
         
         // Check if channel is enabled (if channel filtering is configured)
         String channel = determineChannel(event);
-        if (!enabledChannels.isEmpty() && !enabledChannels.contains(channel)) {
+        if (!settings.isChannelEnabled(channel)) {
             return;
         }
         
-        String messageContent = processMessageContent(event.getMessage());
-        
-        ChatMessage chatMessage = new ChatMessage.Builder(
-            serverName,
-            player.getUniqueId().toString(),
-            player.getName(),
-            messageContent
-        )
-        .world(player.getWorld().getName())
-        .type(ChatMessage.MessageType.CHAT)
-        .channel(channel)
-        .location(player.getLocation().getX(), player.getLocation().getY(), player.getLocation().getZ())
-        .cancelled(event.isCancelled())
-        .build();
+        String messageContent = processMessageContent(event.getMessage(), settings.getMaxMessageLength());
         
-        // Log the message asynchronously
-        chatDAO.insertChatMessageAsync(chatMessage).exceptionally(throwable -> {
-            logger.log(Level.WARNING, "Failed to log chat message from " + player.getName(), throwable);
-            return null;
-        });
+        // Queue the message for the next batch write
+        publishPlayerMessage(settings, player, ChatMessage.MessageType.CHAT, channel, messageContent, event.isCancelled(), null);
         
-        if (plugin.getConfig().getBoolean("debug.enabled", false)) {
+        if (settings.isDebug()) {
             logger.info("Logged chat message from " + player.getName() + ": " + 
                        (messageContent.length() > 50 ? messageContent.substring(0, 50) + "..." : messageContent));
         }
@@ -143,9 +80,10 @@ public class ChatEventListener implements Listener {
      */
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = false)
     public void onPlayerCommand(PlayerCommandPreprocessEvent event) {
-        if (!chatLoggingEnabled) {
-            if (plugin.getConfig().getBoolean("debug.enabled", false)) {
-                logger.info("Skipping player command logging: chatLoggingEnabled=" + chatLoggingEnabled);
+        ChatLogSettings settings = plugin.getSettings();
+        if (!settings.isEnabled()) {
+            if (settings.isDebug()) {
+                logger.info("Skipping player command logging: chat logging disabled");
             }
             return;
         }
@@ -153,35 +91,34 @@ public class ChatEventListener implements Listener {
         Player player = event.getPlayer();
         
         // Check if player is excluded
-        if (isPlayerExcluded(player)) {
+        if (settings.isPlayerExcluded(player)) {
             return;
         }
         
         String command = event.getMessage();
         
         // Filter out sensitive commands if configured
-        if (filterSensitiveData && isSensitiveCommand(command)) {
-            command = filterSensitiveCommand(command);
-        }
+        command = settings.redactCommand(command);
         
-        if (plugin.getConfig().getBoolean("debug.enabled", false)) {
+        if (settings.isDebug()) {
             logger.info("Logging command from " + player.getName() + ": " + command);
         }
 
-        CommandLog log = new CommandLog.Builder()
-            .server(serverName)
-            .source(CommandLog.SourceType.PLAYER)
-            .player(player.getUniqueId().toString(), player.getName())
-            .command(command)
-            .world(player.getWorld().getName())
-            .location(player.getLocation().getX(), player.getLocation().getY(), player.getLocation().getZ())
-            .cancelled(event.isCancelled())
-            .build();
-
-        chatDAO.insertCommandLogAsync(log).exceptionally(throwable -> {
-            logger.log(Level.WARNING, "Failed to log player command from " + player.getName(), throwable);
-            return null;
-        });
+        EventRingBuffer.Slot slot = writeQueue.claim(CommandLog.SourceType.PLAYER);
+        if (slot == null) {
+            return;
+        }
+        try {
+            Location loc = player.getLocation();
+            slot.server(settings.getServerName())
+                .player(player.getUniqueId(), player.getName())
+                .content(command)
+                .world(player.getWorld().getName())
+                .location(loc.getX(), loc.getY(), loc.getZ())
+                .cancelled(event.isCancelled());
+        } finally {
+            writeQueue.publish(slot);
+        }
     }
     
     /**
@@ -189,49 +126,49 @@ public class ChatEventListener implements Listener {
      */
     @EventHandler(priority = EventPriority.MONITOR)
     public void onServerCommand(ServerCommandEvent event) {
-        if (!chatLoggingEnabled) {
-            if (plugin.getConfig().getBoolean("debug.enabled", false)) {
-                logger.info("Skipping server command logging: chatLoggingEnabled=" + chatLoggingEnabled);
+        ChatLogSettings settings = plugin.getSettings();
+        if (!settings.isEnabled()) {
+            if (settings.isDebug()) {
+                logger.info("Skipping server command logging: chat logging disabled");
             }
             return;
         }
 
         String cmd = event.getCommand();
-        if (filterSensitiveData && isSensitiveCommand(cmd)) {
-            cmd = filterSensitiveCommand(cmd);
-        }
+        cmd = settings.redactCommand(cmd);
 
         // Avoid double logging for remote console; RemoteServerCommandEvent will handle it
         if (event.getSender() instanceof RemoteConsoleCommandSender) {
             return;
         }
 
-        CommandLog.Builder builder = new CommandLog.Builder()
-            .server(serverName)
-            .command(cmd)
-            .cancelled(false);
-
+        CommandLog.SourceType source;
         if (event.getSender() instanceof ConsoleCommandSender) {
-            builder.source(CommandLog.SourceType.CONSOLE);
-        } else if (event.getSender() instanceof BlockCommandSender bcs) {
-            builder.source(CommandLog.SourceType.COMMAND_BLOCK);
-            var loc = bcs.getBlock().getLocation();
-            String worldName = loc.getWorld() != null ? loc.getWorld().getName() : null;
-            builder.world(worldName).location(loc.getX(), loc.getY(), loc.getZ());
+            source = CommandLog.SourceType.CONSOLE;
+        } else if (event.getSender() instanceof BlockCommandSender) {
+            source = CommandLog.SourceType.COMMAND_BLOCK;
         } else {
-            builder.source(CommandLog.SourceType.OTHER);
+            source = CommandLog.SourceType.OTHER;
         }
 
-        CommandLog log = builder.build();
-
-        if (plugin.getConfig().getBoolean("debug.enabled", false)) {
-            logger.info("Logging server command: " + cmd + " (source=" + log.getSourceType() + ")");
+        if (settings.isDebug()) {
+            logger.info("Logging server command: " + cmd + " (source=" + source + ")");
         }
 
-        chatDAO.insertCommandLogAsync(log).exceptionally(throwable -> {
-            logger.log(Level.WARNING, "Failed to log server command", throwable);
-            return null;
-        });
+        EventRingBuffer.Slot slot = writeQueue.claim(source);
+        if (slot == null) {
+            return;
+        }
+        try {
+            slot.server(settings.getServerName()).content(cmd).cancelled(false);
+            if (event.getSender() instanceof BlockCommandSender bcs) {
+                var loc = bcs.getBlock().getLocation();
+                String worldName = loc.getWorld() != null ? loc.getWorld().getName() : null;
+                slot.world(worldName).location(loc.getX(), loc.getY(), loc.getZ());
+            }
+        } finally {
+            writeQueue.publish(slot);
+        }
     }
 
     /**
@@ -239,30 +176,27 @@ public class ChatEventListener implements Listener {
      */
     @EventHandler(priority = EventPriority.MONITOR)
     public void onRemoteServerCommand(RemoteServerCommandEvent event) {
-        if (!chatLoggingEnabled) {
+        ChatLogSettings settings = plugin.getSettings();
+        if (!settings.isEnabled()) {
             return;
         }
 
         String cmd = event.getCommand();
-        if (filterSensitiveData && isSensitiveCommand(cmd)) {
-            cmd = filterSensitiveCommand(cmd);
-        }
+        cmd = settings.redactCommand(cmd);
 
-        CommandLog log = new CommandLog.Builder()
-            .server(serverName)
-            .source(CommandLog.SourceType.RCON)
-            .command(cmd)
-            .cancelled(false)
-            .build();
-
-        if (plugin.getConfig().getBoolean("debug.enabled", false)) {
+        if (settings.isDebug()) {
             logger.info("Logging RCON command: " + cmd);
         }
 
-        chatDAO.insertCommandLogAsync(log).exceptionally(throwable -> {
-            logger.log(Level.WARNING, "Failed to log RCON command", throwable);
-            return null;
-        });
+        EventRingBuffer.Slot slot = writeQueue.claim(CommandLog.SourceType.RCON);
+        if (slot == null) {
+            return;
+        }
+        try {
+            slot.server(settings.getServerName()).content(cmd).cancelled(false);
+        } finally {
+            writeQueue.publish(slot);
+        }
     }
 
     /**
@@ -270,7 +204,8 @@ public class ChatEventListener implements Listener {
      */
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerJoin(PlayerJoinEvent event) {
-        if (!chatLoggingEnabled || !logJoinLeave) {
+        ChatLogSettings settings = plugin.getSettings();
+        if (!settings.isEnabled() || !settings.isLogJoinLeave()) {
             return;
         }
         
@@ -281,22 +216,7 @@ public class ChatEventListener implements Listener {
             joinMessage = player.getName() + " joined the game";
         }
         
-        ChatMessage chatMessage = new ChatMessage.Builder(
-            serverName,
-            player.getUniqueId().toString(),
-            player.getName(),
-            joinMessage
-        )
-        .world(player.getWorld().getName())
-        .type(ChatMessage.MessageType.JOIN)
-        .channel("system")
-        .location(player.getLocation().getX(), player.getLocation().getY(), player.getLocation().getZ())
-        .build();
-        
-        chatDAO.insertChatMessageAsync(chatMessage).exceptionally(throwable -> {
-            logger.log(Level.WARNING, "Failed to log join event for " + player.getName(), throwable);
-            return null;
-        });
+        publishPlayerMessage(settings, player, ChatMessage.MessageType.JOIN, "system", joinMessage, false, null);
     }
     
     /**
@@ -304,7 +224,8 @@ public class ChatEventListener implements Listener {
      */
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerQuit(PlayerQuitEvent event) {
-        if (!chatLoggingEnabled || !logJoinLeave) {
+        ChatLogSettings settings = plugin.getSettings();
+        if (!settings.isEnabled() || !settings.isLogJoinLeave()) {
             return;
         }
         
@@ -315,22 +236,7 @@ public class ChatEventListener implements Listener {
             quitMessage = player.getName() + " left the game";
         }
         
-        ChatMessage chatMessage = new ChatMessage.Builder(
-            serverName,
-            player.getUniqueId().toString(),
-            player.getName(),
-            quitMessage
-        )
-        .world(player.getWorld().getName())
-        .type(ChatMessage.MessageType.LEAVE)
-        .channel("system")
-        .location(player.getLocation().getX(), player.getLocation().getY(), player.getLocation().getZ())
-        .build();
-        
-        chatDAO.insertChatMessageAsync(chatMessage).exceptionally(throwable -> {
-            logger.log(Level.WARNING, "Failed to log quit event for " + player.getName(), throwable);
-            return null;
-        });
+        publishPlayerMessage(settings, player, ChatMessage.MessageType.LEAVE, "system", quitMessage, false, null);
     }
     
     /**
@@ -338,7 +244,8 @@ public class ChatEventListener implements Listener {
      */
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerDeath(PlayerDeathEvent event) {
-        if (!chatLoggingEnabled || !logDeathMessages) {
+        ChatLogSettings settings = plugin.getSettings();
+        if (!settings.isEnabled() || !settings.isLogDeathMessages()) {
             return;
         }
         
@@ -349,22 +256,7 @@ public class ChatEventListener implements Listener {
             deathMessage = player.getName() + " died";
         }
         
-        ChatMessage chatMessage = new ChatMessage.Builder(
-            serverName,
-            player.getUniqueId().toString(),
-            player.getName(),
-            deathMessage
-        )
-        .world(player.getWorld().getName())
-        .type(ChatMessage.MessageType.DEATH)
-        .channel("system")
-        .location(player.getLocation().getX(), player.getLocation().getY(), player.getLocation().getZ())
-        .build();
-        
-        chatDAO.insertChatMessageAsync(chatMessage).exceptionally(throwable -> {
-            logger.log(Level.WARNING, "Failed to log death event for " + player.getName(), throwable);
-            return null;
-        });
+        publishPlayerMessage(settings, player, ChatMessage.MessageType.DEATH, "system", deathMessage, false, null);
     }
     
     /**
@@ -372,7 +264,8 @@ public class ChatEventListener implements Listener {
      */
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerAdvancement(PlayerAdvancementDoneEvent event) {
-        if (!chatLoggingEnabled || !logAchievements) {
+        ChatLogSettings settings = plugin.getSettings();
+        if (!settings.isEnabled() || !settings.isLogAchievements()) {
             return;
         }
         
@@ -388,33 +281,32 @@ public class ChatEventListener implements Listener {
         String achievementMessage = player.getName() + " has made the advancement [" + 
                                    display.getTitle() + "]";
         
-        ChatMessage chatMessage = new ChatMessage.Builder(
-            serverName,
-            player.getUniqueId().toString(),
-            player.getName(),
-            achievementMessage
-        )
-        .world(player.getWorld().getName())
-        .type(ChatMessage.MessageType.ACHIEVEMENT)
-        .channel("system")
-        .location(player.getLocation().getX(), player.getLocation().getY(), player.getLocation().getZ())
-        .metadata("{\"advancement_key\":\"" + advancementKey + "\"}")
-        .build();
-        
-        chatDAO.insertChatMessageAsync(chatMessage).exceptionally(throwable -> {
-            logger.log(Level.WARNING, "Failed to log achievement for " + player.getName(), throwable);
-            return null;
-        });
+        publishPlayerMessage(settings, player, ChatMessage.MessageType.ACHIEVEMENT, "system", achievementMessage, false,
+                "{\"advancement_key\":\"" + advancementKey + "\"}");
     }
     
     /**
-     * Check if a player is excluded from logging
+     * Copy a player message into a write queue slot (no-op if the overload policy sheds it)
      */
-    private boolean isPlayerExcluded(Player player) {
-        String playerUuid = player.getUniqueId().toString();
-        String playerName = player.getName();
-        
-        return excludedPlayers.contains(playerUuid) || excludedPlayers.contains(playerName);
+    private void publishPlayerMessage(ChatLogSettings settings, Player player, ChatMessage.MessageType type,
+                                      String channel, String content, boolean cancelled, String metadata) {
+        EventRingBuffer.Slot slot = writeQueue.claim(type);
+        if (slot == null) {
+            return;
+        }
+        try {
+            Location loc = player.getLocation();
+            slot.server(settings.getServerName())
+                .player(player.getUniqueId(), player.getName())
+                .content(content)
+                .world(player.getWorld().getName())
+                .channel(channel)
+                .location(loc.getX(), loc.getY(), loc.getZ())
+                .cancelled(cancelled)
+                .metadata(metadata);
+        } finally {
+            writeQueue.publish(slot);
+        }
     }
     
     /**
@@ -429,7 +321,7 @@ public class ChatEventListener implements Listener {
     /**
      * Process message content (truncate, filter, etc.)
      */
-    private String processMessageContent(String message) {
+    private String processMessageContent(String message, int maxMessageLength) {
         if (message == null) {
             return "";
         }
@@ -442,37 +334,4 @@ public class ChatEventListener implements Listener {
         // Additional filtering can be added here
         return message;
     }
-    
-    /**
-     * Check if a command contains sensitive information
-     */
-    private boolean isSensitiveCommand(String command) {
-        String lowerCommand = command.toLowerCase();
-        return lowerCommand.contains("password") || 
-               lowerCommand.contains("token") || 
-               lowerCommand.contains("/login") ||
-               lowerCommand.contains("/register") ||
-               lowerCommand.startsWith("/op ") ||
-               lowerCommand.startsWith("/deop ");
-    }
-    
-    /**
-     * Filter sensitive information from commands
-     */
-    private String filterSensitiveCommand(String command) {
-        String[] parts = command.split(" ");
-        if (parts.length > 1) {
-            // Replace arguments with [FILTERED]
-            return parts[0] + " [FILTERED]";
-        }
-        return command;
-    }
-    
-    /**
-     * Reload configuration
-     */
-    public void reloadConfiguration() {
-        loadConfiguration();
-        logger.info("ChatEventListener configuration reloaded");
-    }
 }
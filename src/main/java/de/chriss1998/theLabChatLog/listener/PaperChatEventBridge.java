@@ -1,52 +1,96 @@
 package de.chriss1998.theLabChatLog.listener;
 
 import de.chriss1998.theLabChatLog.TheLabChatLog;
-import de.chriss1998.theLabChatLog.dao.ChatDAO;
+import de.chriss1998.theLabChatLog.config.ChatLogSettings;
+import de.chriss1998.theLabChatLog.ingest.EventRingBuffer;
+import de.chriss1998.theLabChatLog.ingest.WriteBehindQueue;
 import de.chriss1998.theLabChatLog.model.ChatMessage;
+import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.event.Event;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.plugin.EventExecutor;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
-import java.util.List;
 import java.util.logging.Level;
 
 /**
  * Reflection-based bridge to listen to Paper's AsyncChatEvent without compile-time dependency.
+ * All accessors are resolved once into {@code static final} {@link MethodHandle}s of a lazily initialised
+ * holder class; the JIT treats those as constants and inlines invokeExact like a direct call.
  */
 public class PaperChatEventBridge implements Listener {
 
-    private final TheLabChatLog plugin;
-    private final ChatDAO chatDAO;
+    /**
+     * Paper's chat API, resolved when {@link #tryRegister} first touches this class.
+     * Typed (Object)X so invokeExact needs no boxing or casts.
+     */
+    private static final class PaperApi {
+        static final Class<? extends Event> EVENT;          // null if not a Paper server
+        static final ReflectiveOperationException FAILURE;  // why a required accessor is missing, else null
+        static final MethodHandle GET_PLAYER;      // (Object)Player
+        static final MethodHandle IS_CANCELLED;    // (Object)boolean, null if not cancellable
+        static final MethodHandle MESSAGE;         // (Object)Object
+        static final MethodHandle SERIALIZE_PLAIN; // (Object)String, bound to PlainTextComponentSerializer.plainText(); null if unavailable
+
+        static {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<? extends Event> event = null;
+            ReflectiveOperationException failure = null;
+            MethodHandle getPlayer = null;
+            MethodHandle message = null;
+            MethodHandle isCancelled = null;
+            try {
+                event = eventClass();
+                getPlayer = accessor(lookup, event, "getPlayer", Player.class);
+                message = accessor(lookup, event, "message", Object.class);
+                try {
+                    isCancelled = accessor(lookup, event, "isCancelled", boolean.class);
+                } catch (ReflectiveOperationException e) {
+                    isCancelled = null;
+                }
+            } catch (ClassNotFoundException e) {
+                event = null; // Not a Paper server
+            } catch (ReflectiveOperationException e) {
+                failure = e;
+            }
+            EVENT = event;
+            FAILURE = failure;
+            GET_PLAYER = getPlayer;
+            IS_CANCELLED = isCancelled;
+            MESSAGE = message;
+            SERIALIZE_PLAIN = event != null ? resolvePlainSerializer(lookup) : null;
+        }
 
-    // Config
-    private boolean chatLoggingEnabled;
-    private boolean logChat;
-    private boolean filterSensitiveData;
-    private int maxMessageLength;
-    private List<String> enabledChannels;
-    private List<String> excludedPlayers;
+        @SuppressWarnings("unchecked")
+        private static Class<? extends Event> eventClass() throws ClassNotFoundException {
+            return (Class<? extends Event>) Class.forName("io.papermc.paper.event.player.AsyncChatEvent");
+        }
+    }
 
-    private PaperChatEventBridge(TheLabChatLog plugin, ChatDAO chatDAO) {
+    private final TheLabChatLog plugin;
+    private final WriteBehindQueue writeQueue;
+
+    private PaperChatEventBridge(TheLabChatLog plugin, WriteBehindQueue writeQueue) {
         this.plugin = plugin;
-        this.chatDAO = chatDAO;
-        loadConfiguration();
+        this.writeQueue = writeQueue;
     }
 
-    @SuppressWarnings("unchecked")
-    public static boolean tryRegister(TheLabChatLog plugin, ChatDAO chatDAO) {
-        Class<? extends Event> asyncChatEventClass;
-        try {
-            Class<? extends Event> tmp = (Class<? extends Event>) Class.forName("io.papermc.paper.event.player.AsyncChatEvent");
-            asyncChatEventClass = tmp;
-        } catch (ClassNotFoundException e) {
+    public static boolean tryRegister(TheLabChatLog plugin, WriteBehindQueue writeQueue) {
+        Class<? extends Event> asyncChatEventClass = PaperApi.EVENT;
+        if (asyncChatEventClass == null) {
             return false; // Not a Paper server
         }
+        if (PaperApi.FAILURE != null) {
+            plugin.getLogger().log(Level.WARNING, "AsyncChatEvent API nicht kompatibel, Bridge wird nicht registriert", PaperApi.FAILURE);
+            return false;
+        }
 
-        PaperChatEventBridge bridge = new PaperChatEventBridge(plugin, chatDAO);
+        PaperChatEventBridge bridge = new PaperChatEventBridge(plugin, writeQueue);
 
         EventExecutor executor = (listener, event) -> bridge.handleAsyncChat(event);
 
@@ -62,74 +106,73 @@ public class PaperChatEventBridge implements Listener {
         return true;
     }
 
-    public void reloadConfiguration() { loadConfiguration(); }
+    /**
+     * Handle for a public no-arg instance method, adapted to (Object)returnType
+     */
+    private static MethodHandle accessor(MethodHandles.Lookup lookup, Class<?> owner, String name, Class<?> returnType)
+            throws ReflectiveOperationException {
+        Method method = owner.getMethod(name);
+        return lookup.unreflect(method).asType(MethodType.methodType(returnType, Object.class));
+    }
 
-    private void loadConfiguration() {
-        var config = plugin.getConfig();
-        this.chatLoggingEnabled = config.getBoolean("chat_logging.enabled", true);
-        this.logChat = config.getBoolean("chat_logging.log_types.chat", true);
-        this.filterSensitiveData = config.getBoolean("chat_logging.filter_sensitive_data", true);
-        this.maxMessageLength = config.getInt("chat_logging.max_message_length", 1000);
-        this.enabledChannels = config.getStringList("chat_logging.channels");
-        this.excludedPlayers = config.getStringList("chat_logging.excluded_players");
+    /**
+     * PlainTextComponentSerializer.plainText()::serialize as (Object)String, or null if adventure is missing
+     */
+    private static MethodHandle resolvePlainSerializer(MethodHandles.Lookup lookup) {
+        try {
+            Class<?> serializerClass = Class.forName("net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer");
+            Class<?> componentClass = Class.forName("net.kyori.adventure.text.Component");
+            Object serializer = serializerClass.getMethod("plainText").invoke(null);
+            Method serialize = serializerClass.getMethod("serialize", componentClass);
+            return lookup.unreflect(serialize)
+                    .bindTo(serializer)
+                    .asType(MethodType.methodType(String.class, Object.class));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
     }
 
     private void handleAsyncChat(Object event) {
-        if (!chatLoggingEnabled || !logChat) {
+        ChatLogSettings settings = plugin.getSettings();
+        if (!settings.isEnabled() || !settings.isLogChat()) {
             return;
         }
         try {
-            // Player via getPlayer()
-            Method getPlayer = event.getClass().getMethod("getPlayer");
-            Player player = (Player) getPlayer.invoke(event);
-            if (isPlayerExcluded(player)) return;
+            Player player = (Player) PaperApi.GET_PLAYER.invokeExact(event);
+            if (settings.isPlayerExcluded(player)) return;
 
             // Channel (global default)
             String channel = "global";
-            if (!enabledChannels.isEmpty() && !enabledChannels.contains(channel)) return;
+            if (!settings.isChannelEnabled(channel)) return;
 
             // Cancelled?
-            boolean isCancelled = false;
-            try {
-                Method isCancelledM = event.getClass().getMethod("isCancelled");
-                isCancelled = (boolean) isCancelledM.invoke(event);
-            } catch (NoSuchMethodException ignored) { }
+            boolean cancelled = PaperApi.IS_CANCELLED != null && (boolean) PaperApi.IS_CANCELLED.invokeExact(event);
 
             // message() -> Component; serialize via PlainTextComponentSerializer
-            Method messageMethod = event.getClass().getMethod("message");
-            Object component = messageMethod.invoke(event);
+            Object component = (Object) PaperApi.MESSAGE.invokeExact(event);
             String messageContent = serializeComponentToPlain(component);
-            messageContent = processMessageContent(messageContent);
-
-            ChatMessage chatMessage = new ChatMessage.Builder(
-                    plugin.getConfig().getString("server.name", "Unknown"),
-                    player.getUniqueId().toString(),
-                    player.getName(),
-                    messageContent
-            )
-            .world(player.getWorld().getName())
-            .type(ChatMessage.MessageType.CHAT)
-            .channel(channel)
-            .location(player.getLocation().getX(), player.getLocation().getY(), player.getLocation().getZ())
-            .cancelled(isCancelled)
-            .build();
-
-            chatDAO.insertChatMessageAsync(chatMessage).exceptionally(throwable -> {
-                plugin.getLogger().log(Level.WARNING, "Failed to log chat message (Paper bridge) from " + player.getName(), throwable);
-                return null;
-            });
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-            plugin.getLogger().log(Level.WARNING, "Reflection error handling AsyncChatEvent", e);
-        }
-    }
+            messageContent = processMessageContent(messageContent, settings.getMaxMessageLength());
 
-    private boolean isPlayerExcluded(Player player) {
-        String playerUuid = player.getUniqueId().toString();
-        String playerName = player.getName();
-        return excludedPlayers.contains(playerUuid) || excludedPlayers.contains(playerName);
+            EventRingBuffer.Slot slot = writeQueue.claim(ChatMessage.MessageType.CHAT);
+            if (slot == null) return;
+            try {
+                Location loc = player.getLocation();
+                slot.server(settings.getServerName())
+                    .player(player.getUniqueId(), player.getName())
+                    .content(messageContent)
+                    .world(player.getWorld().getName())
+                    .channel(channel)
+                    .location(loc.getX(), loc.getY(), loc.getZ())
+                    .cancelled(cancelled);
+            } finally {
+                writeQueue.publish(slot);
+            }
+        } catch (Throwable t) {
+            plugin.getLogger().log(Level.WARNING, "Reflection error handling AsyncChatEvent", t);
+        }
     }
 
-    private String processMessageContent(String message) {
+    private String processMessageContent(String message, int maxMessageLength) {
         if (message == null) return "";
         if (message.length() > maxMessageLength) {
             message = message.substring(0, Math.max(0, maxMessageLength - 3)) + "...";
@@ -138,12 +181,11 @@ public class PaperChatEventBridge implements Listener {
     }
 
     private String serializeComponentToPlain(Object component) {
+        if (PaperApi.SERIALIZE_PLAIN == null) {
+            return String.valueOf(component);
+        }
         try {
-            Class<?> serializerClass = Class.forName("net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer");
-            Method plainTextMethod = serializerClass.getMethod("plainText");
-            Object serializer = plainTextMethod.invoke(null);
-            Method serialize = serializerClass.getMethod("serialize", Class.forName("net.kyori.adventure.text.Component"));
-            return (String) serialize.invoke(serializer, component);
+            return (String) PaperApi.SERIALIZE_PLAIN.invokeExact(component);
         } catch (Throwable t) {
             // Fallback
             return String.valueOf(component);
@@ -2,6 +2,7 @@ package de.chriss1998.theLabChatLog.listener;
 
 import de.chriss1998.theLabChatLog.TheLabChatLog;
 import de.chriss1998.theLabChatLog.dao.ChatDAO;
+import de.chriss1998.theLabChatLog.dao.HistoryPage;
 import de.chriss1998.theLabChatLog.model.ChatMessage;
 import de.chriss1998.theLabChatLog.model.CommandLog;
 import de.chriss1998.theLabChatLog.gui.PlayerFunctionsGUI;
@@ -64,8 +65,8 @@ public class PlayerFunctionsListener implements Listener {
                 PlayerSelectGUI.open(viewer, Math.max(1, h.getBackPage()));
                 return;
             case PlayerFunctionsGUI.ACTION_HISTORY_ALL: {
-                int page = 1, limit = 10, offset = 0;
-                dao.getCombinedHistoryByPlayerAsync(targetUuid.toString(), limit, offset).thenAccept(entries -> Bukkit.getScheduler().runTask(plugin, () -> {
+                int page = 1, limit = 10;
+                dao.getCombinedHistoryByPlayerAsync(targetUuid.toString(), null, limit).thenApply(HistoryPage::items).thenAccept(entries -> Bukkit.getScheduler().runTask(plugin, () -> {
                     viewer.sendMessage(ChatColor.AQUA + "Historie (ALLE) für " + ChatColor.GOLD + safeName(targetName, targetUuid) + ChatColor.AQUA + " – Seite " + page);
                     if (entries.isEmpty()) {
                         viewer.sendMessage(ChatColor.GRAY + "Keine Einträge gefunden.");
@@ -89,8 +90,8 @@ public class PlayerFunctionsListener implements Listener {
                 return;
             }
             case PlayerFunctionsGUI.ACTION_HISTORY_CHAT: {
-                int page = 1, limit = 10, offset = 0;
-                dao.getChatMessagesByPlayerAsync(targetUuid.toString(), limit, offset).thenAccept(list -> Bukkit.getScheduler().runTask(plugin, () -> {
+                int page = 1, limit = 10;
+                dao.getChatMessagesByPlayerAsync(targetUuid.toString(), null, limit).thenApply(HistoryPage::items).thenAccept(list -> Bukkit.getScheduler().runTask(plugin, () -> {
                     viewer.sendMessage(ChatColor.AQUA + "Historie (CHAT) für " + ChatColor.GOLD + safeName(targetName, targetUuid) + ChatColor.AQUA + " – Seite " + page);
                     if (list.isEmpty()) {
                         viewer.sendMessage(ChatColor.GRAY + "Keine Chat-Nachrichten gefunden.");
@@ -110,8 +111,8 @@ public class PlayerFunctionsListener implements Listener {
                 return;
             }
             case PlayerFunctionsGUI.ACTION_HISTORY_CMD: {
-                int page = 1, limit = 10, offset = 0;
-                dao.getCommandLogsByPlayerAsync(targetUuid.toString(), limit, offset).thenAccept(list -> Bukkit.getScheduler().runTask(plugin, () -> {
+                int page = 1, limit = 10;
+                dao.getCommandLogsByPlayerAsync(targetUuid.toString(), null, limit).thenApply(HistoryPage::items).thenAccept(list -> Bukkit.getScheduler().runTask(plugin, () -> {
                     viewer.sendMessage(ChatColor.AQUA + "Historie (COMMANDS) für " + ChatColor.GOLD + safeName(targetName, targetUuid) + ChatColor.AQUA + " – Seite " + page);
                     if (list.isEmpty()) {
                         viewer.sendMessage(ChatColor.GRAY + "Keine Befehls-Einträge gefunden.");
@@ -2,7 +2,6 @@ package de.chriss1998.theLabChatLog.model;
 
 import java.time.LocalDateTime;
 import java.util.Objects;
-import java.util.UUID;
 
 /**
  * Data model representing a chat message in the database
@@ -33,7 +32,7 @@ public class ChatMessage {
     
     // Default constructor
     public ChatMessage() {
-        this.messageUuid = UUID.randomUUID().toString();
+        this.messageUuid = IdGenerators.nextId();
         this.timestamp = LocalDateTime.now();
         this.messageType = MessageType.CHAT;
         this.channel = "global";
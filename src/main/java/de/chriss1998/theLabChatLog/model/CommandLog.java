@@ -1,7 +1,6 @@
 package de.chriss1998.theLabChatLog.model;
 
 import java.time.LocalDateTime;
-import java.util.UUID;
 
 public class CommandLog {
     public enum SourceType { PLAYER, CONSOLE, RCON, COMMAND_BLOCK, OTHER }
@@ -22,7 +21,7 @@ public class CommandLog {
     private LocalDateTime timestamp;
 
     public CommandLog() {
-        this.commandUuid = UUID.randomUUID().toString();
+        this.commandUuid = IdGenerators.nextId();
         this.timestamp = LocalDateTime.now();
         this.sourceType = SourceType.OTHER;
     }
@@ -0,0 +1,13 @@
+package de.chriss1998.theLabChatLog.model;
+
+/**
+ * Source of the unique identifiers (message_uuid, command_uuid) of new models
+ */
+@FunctionalInterface
+public interface IdGenerator {
+
+    /**
+     * Next identifier in canonical UUID string form
+     */
+    String nextId();
+}
@@ -0,0 +1,35 @@
+package de.chriss1998.theLabChatLog.model;
+
+import java.util.UUID;
+
+/**
+ * Holds the {@link IdGenerator} used by the model constructors ({@code performance.id_generator})
+ */
+public final class IdGenerators {
+
+    /** Random version 4 UUIDs, the previous behaviour */
+    public static final IdGenerator RANDOM = () -> UUID.randomUUID().toString();
+
+    private static volatile IdGenerator current = UuidV7Generator.INSTANCE;
+
+    private IdGenerators() {}
+
+    public static String nextId() {
+        return current.nextId();
+    }
+
+    public static IdGenerator get() {
+        return current;
+    }
+
+    public static void set(IdGenerator generator) {
+        current = generator != null ? generator : UuidV7Generator.INSTANCE;
+    }
+
+    /**
+     * Resolve a config value: "uuidv7" (default) or "random"
+     */
+    public static IdGenerator fromConfig(String value) {
+        return value != null && value.trim().equalsIgnoreCase("random") ? RANDOM : UuidV7Generator.INSTANCE;
+    }
+}
@@ -2,7 +2,6 @@ package de.chriss1998.theLabChatLog.model;
 
 import java.time.LocalDateTime;
 import java.util.Objects;
-import java.util.UUID;
 
 /**
  * Data model representing a player session in the database
@@ -21,7 +20,7 @@ public class PlayerSession {
     
     // Default constructor
     public PlayerSession() {
-        this.sessionUuid = UUID.randomUUID().toString();
+        this.sessionUuid = IdGenerators.nextId();
         this.loginTime = LocalDateTime.now();
     }
     
@@ -2,7 +2,6 @@ package de.chriss1998.theLabChatLog.model;
 
 import java.time.LocalDateTime;
 import java.util.Objects;
-import java.util.UUID;
 
 /**
  * Data model representing a server event in the database
@@ -31,7 +30,7 @@ public class ServerEvent {
     
     // Default constructor
     public ServerEvent() {
-        this.eventUuid = UUID.randomUUID().toString();
+        this.eventUuid = IdGenerators.nextId();
         this.timestamp = LocalDateTime.now();
         this.severityLevel = SeverityLevel.MEDIUM;
     }
@@ -0,0 +1,52 @@
+package de.chriss1998.theLabChatLog.model;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Time-ordered UUIDv7 identifiers (RFC 9562).
+ * <p>
+ * Layout: 48 bit Unix milliseconds, version 7, a 12 bit per-thread sequence, variant bits and 62 random bits.
+ * Each thread keeps its own last timestamp and sequence, so identifiers are strictly increasing per thread
+ * (the write-behind flusher creates nearly all of them) and no shared state or {@code SecureRandom} is touched.
+ * New rows therefore land on the right edge of the unique index instead of random pages.
+ */
+public final class UuidV7Generator implements IdGenerator {
+
+    public static final UuidV7Generator INSTANCE = new UuidV7Generator();
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final int SEQUENCE_MASK = (1 << SEQUENCE_BITS) - 1;
+
+    private static final class State {
+        long lastMillis = -1;
+        int sequence;
+    }
+
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+    private UuidV7Generator() {}
+
+    @Override
+    public String nextId() {
+        return next().toString();
+    }
+
+    public UUID next() {
+        State state = STATE.get();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long now = System.currentTimeMillis();
+        if (now > state.lastMillis) {
+            state.lastMillis = now;
+            // Random start in the lower half leaves room for many ids within the same millisecond
+            state.sequence = random.nextInt(1 << (SEQUENCE_BITS - 1));
+        } else if (++state.sequence > SEQUENCE_MASK) {
+            // Sequence exhausted or clock moved backwards: borrow the next millisecond
+            state.lastMillis++;
+            state.sequence = 0;
+        }
+        long msb = (state.lastMillis << 16) | 0x7000L | state.sequence;
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+}
@@ -0,0 +1,100 @@
+package de.chriss1998.theLabChatLog.archive;
+
+import de.chriss1998.theLabChatLog.model.ChatMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchiveSegmentTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 17);
+    private static final String ALICE = "069a79f4-44e9-4726-a5be-fca90e38aaf5";
+    private static final String BOB = "853c80ef-3c37-49fd-aa49-938b674adae6";
+
+    @TempDir
+    Path directory;
+
+    private static ChatMessage message(long id, String player, int minute) {
+        ChatMessage message = new ChatMessage();
+        message.setId(id);
+        message.setMessageUuid("0190a5e2-7c3b-7d41-8f2e-" + String.format("%012d", id));
+        message.setServerName("lobby");
+        message.setWorldName("world");
+        message.setPlayerUuid(player);
+        message.setPlayerName(player.equals(ALICE) ? "Alice" : "Bob");
+        message.setMessageContent("message " + id);
+        message.setMessageType(ChatMessage.MessageType.CHAT);
+        message.setLocationX(id * 1.5);
+        message.setTimestamp(DAY.atTime(12, minute, 0, 500_000_000));
+        return message;
+    }
+
+    private ArchiveSegment.Header writeDay() throws IOException {
+        List<ChatMessage> rows = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            rows.add(message(100 + i, i % 4 == 0 ? BOB : ALICE, i));
+        }
+        return ArchiveSegment.write(directory, ArchiveCodec.CHAT_MESSAGES, DAY, rows);
+    }
+
+    @Test
+    void headerDescribesTheRows() throws IOException {
+        ArchiveSegment.Header written = writeDay();
+        ArchiveSegment.Header header = ArchiveSegment.readHeader(written.file());
+        assertEquals("chat_messages", header.table());
+        assertEquals(DAY, header.day());
+        assertEquals(40, header.rows());
+        assertEquals(100, header.minId());
+        assertEquals(139, header.maxId());
+        assertEquals(LocalDateTime.of(2024, 5, 17, 12, 0, 0, 500_000_000), header.minTime());
+        assertEquals(LocalDateTime.of(2024, 5, 17, 12, 39, 0, 500_000_000), header.maxTime());
+        assertTrue(header.mightContainPlayer(ALICE.toUpperCase()));
+        assertEquals(Files.size(header.file()), header.fileSize());
+    }
+
+    @Test
+    void playerLookupReturnsOnlyTheirRows() throws IOException {
+        ArchiveSegment.Header header = ArchiveSegment.readHeader(writeDay().file());
+        List<ChatMessage> bob = ArchiveSegment.read(header, ArchiveCodec.CHAT_MESSAGES, BOB.toUpperCase());
+        assertEquals(10, bob.size());
+        for (int i = 0; i < bob.size(); i++) {
+            ChatMessage message = bob.get(i);
+            assertEquals(100L + i * 4, message.getId());
+            assertEquals(BOB, message.getPlayerUuid());
+            assertEquals("message " + message.getId(), message.getMessageContent());
+            assertEquals(message.getId() * 1.5, message.getLocationX());
+            assertNull(message.getLocationY());
+        }
+        assertEquals(List.of(), ArchiveSegment.read(header, ArchiveCodec.CHAT_MESSAGES, "00000000-0000-0000-0000-000000000000"));
+    }
+
+    @Test
+    void fullReadKeepsEveryColumn() throws IOException {
+        ArchiveSegment.Header header = writeDay();
+        List<ChatMessage> rows = ArchiveSegment.read(header, ArchiveCodec.CHAT_MESSAGES, null);
+        assertEquals(40, rows.size());
+        ChatMessage last = rows.get(39);
+        assertEquals(139L, last.getId());
+        assertEquals("Alice", last.getPlayerName());
+        assertEquals(ChatMessage.MessageType.CHAT, last.getMessageType());
+        assertEquals(LocalDateTime.of(2024, 5, 17, 12, 39, 0, 500_000_000), last.getTimestamp());
+    }
+
+    @Test
+    void otherFilesAreRejected() throws IOException {
+        Path file = Files.write(directory.resolve("other" + ArchiveSegment.EXTENSION), new byte[]{1, 2, 3, 4, 5});
+        assertThrows(IOException.class, () -> ArchiveSegment.readHeader(file));
+    }
+}
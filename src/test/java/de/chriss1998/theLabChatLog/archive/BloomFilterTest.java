@@ -0,0 +1,65 @@
+package de.chriss1998.theLabChatLog.archive;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    private static final int ENTRIES = 1_000;
+
+    @Test
+    void addedValuesAreFoundIgnoringCase() {
+        BloomFilter filter = BloomFilter.create(ENTRIES, 0.01);
+        String player = "069a79f4-44e9-4726-a5be-fca90e38aaf5";
+        filter.add(player);
+        assertTrue(filter.mightContain(player));
+        assertTrue(filter.mightContain(player.toUpperCase()));
+    }
+
+    @Test
+    void falsePositivesStayNearTheTargetRate() {
+        BloomFilter filter = BloomFilter.create(ENTRIES, 0.01);
+        for (int i = 0; i < ENTRIES; i++) {
+            filter.add(new UUID(0, i).toString());
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain(new UUID(1, i).toString())) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300);
+    }
+
+    @Test
+    void storedFilterKeepsItsEntries() throws IOException {
+        BloomFilter filter = BloomFilter.create(ENTRIES, 0.01);
+        for (int i = 0; i < ENTRIES; i++) {
+            filter.add(new UUID(0, i).toString());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        filter.write(new DataOutputStream(bytes));
+
+        BloomFilter read = BloomFilter.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        for (int i = 0; i < ENTRIES; i++) {
+            assertTrue(read.mightContain(new UUID(0, i).toString()));
+        }
+    }
+
+    @Test
+    void corruptHeaderIsRejected() {
+        byte[] noHashes = {0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0};
+        assertThrows(IOException.class, () -> BloomFilter.read(new DataInputStream(new ByteArrayInputStream(noHashes))));
+        byte[] tooLarge = {3, 0x7F, 0, 0, 0};
+        assertThrows(IOException.class, () -> BloomFilter.read(new DataInputStream(new ByteArrayInputStream(tooLarge))));
+    }
+}
@@ -0,0 +1,50 @@
+package de.chriss1998.theLabChatLog.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatSearchTest {
+
+    @Test
+    void wordsAreRequired() {
+        assertEquals(List.of(new ChatSearch.Term("diamond", false, false), new ChatSearch.Term("trade", false, false)),
+                ChatSearch.parse("  diamond\ttrade "));
+    }
+
+    @Test
+    void minusExcludesAndStarMatchesPrefix() {
+        assertEquals(List.of(new ChatSearch.Term("grief", false, true), new ChatSearch.Term("spawn", true, false)),
+                ChatSearch.parse("grief* -spawn"));
+    }
+
+    @Test
+    void quotedWordsFormAPhrase() {
+        assertEquals(List.of(new ChatSearch.Term("give me all", false, false), new ChatSearch.Term("ok", true, false)),
+                ChatSearch.parse("\"give  me all\" -\"ok\""));
+        // An unterminated quote runs to the end of the text
+        assertEquals(List.of(new ChatSearch.Term("open end", false, false)), ChatSearch.parse("\"open end"));
+    }
+
+    @Test
+    void operatorsAreNotPartOfTerms() {
+        assertEquals(List.of(new ChatSearch.Term("a b", false, false)), ChatSearch.parse("+(a~b)"));
+        assertTrue(ChatSearch.parse("@ <> \"\"").isEmpty());
+    }
+
+    @Test
+    void booleanQueryMarksEveryTerm() {
+        ChatSearch search = new ChatSearch.Builder("netherite* -\"free stuff\" sell").build();
+        assertEquals("+netherite* -\"free stuff\" +sell", search.booleanQuery());
+        assertFalse(search.isEmpty());
+    }
+
+    @Test
+    void onlyExcludedTermsMatchNothing() {
+        assertTrue(new ChatSearch.Builder("-spam -\"buy now\"").build().isEmpty());
+    }
+}
@@ -0,0 +1,77 @@
+package de.chriss1998.theLabChatLog.dao;
+
+import de.chriss1998.theLabChatLog.model.ChatMessage;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistoryCursorTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 5, 17, 13, 45, 12, 123_456_000);
+
+    @Test
+    void rowCursorSurvivesEncoding() {
+        HistoryCursor cursor = HistoryCursor.decode(new HistoryCursor(TIME, 4711, HistoryCursor.Kind.COMMAND).encode());
+        assertEquals(TIME, cursor.timestamp());
+        assertEquals(4711, cursor.id());
+        assertEquals(HistoryCursor.Kind.COMMAND, cursor.kind());
+        assertNull(cursor.unresolvedUuid());
+        assertFalse(cursor.isIndexed());
+    }
+
+    @Test
+    void cachedEntryKeepsItsUuidUntilResolved() {
+        ChatMessage message = new ChatMessage();
+        message.setMessageUuid("0190a5e2-7c3b-7d41-8f2e-1a2b3c4d5e6f");
+        message.setTimestamp(TIME);
+        HistoryCursor cursor = HistoryCursor.decode(HistoryCursor.after(message).encode());
+        assertEquals(message.getMessageUuid(), cursor.unresolvedUuid());
+        assertEquals(HistoryCursor.Kind.CHAT, cursor.kind());
+
+        HistoryCursor resolved = HistoryCursor.decode(cursor.resolve(99).encode());
+        assertNull(resolved.unresolvedUuid());
+        assertEquals(99, resolved.id());
+        assertEquals(TIME, resolved.timestamp());
+    }
+
+    @Test
+    void indexPositionStaysMarked() {
+        ChatMessage message = new ChatMessage();
+        message.setMessageUuid("0190a5e2-7c3b-7d41-8f2e-1a2b3c4d5e6f");
+        message.setTimestamp(TIME);
+        HistoryCursor cursor = HistoryCursor.decode(HistoryCursor.indexed(message, 12).encode());
+        assertTrue(cursor.isIndexed());
+        assertEquals(12, cursor.id());
+        assertEquals(message.getMessageUuid(), cursor.unresolvedUuid());
+    }
+
+    @Test
+    void emptyTokenStartsFromNewestRow() {
+        assertNull(HistoryCursor.decode(null));
+        assertNull(HistoryCursor.decode(""));
+    }
+
+    @Test
+    void malformedTokenIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> HistoryCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> HistoryCursor.decode("MTIz"));
+    }
+
+    @Test
+    void tieBreakFollowsKindOrder() {
+        HistoryCursor chat = new HistoryCursor(TIME, 10, HistoryCursor.Kind.CHAT);
+        assertEquals(10, chat.tieBreakId(HistoryCursor.Kind.CHAT));
+        // Commands sort after chat messages of the same second, so they start over
+        assertEquals(Long.MAX_VALUE, chat.tieBreakId(HistoryCursor.Kind.COMMAND));
+
+        HistoryCursor command = new HistoryCursor(TIME, 10, HistoryCursor.Kind.COMMAND);
+        assertEquals(Long.MIN_VALUE, command.tieBreakId(HistoryCursor.Kind.CHAT));
+        assertEquals(10, command.tieBreakId(HistoryCursor.Kind.COMMAND));
+    }
+}
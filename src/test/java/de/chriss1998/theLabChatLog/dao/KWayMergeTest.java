@@ -0,0 +1,69 @@
+package de.chriss1998.theLabChatLog.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KWayMergeTest {
+
+    /**
+     * Source over a descending list that records how many rows it handed out
+     */
+    private static final class ListSource implements KWayMerge.Source<Integer> {
+        private final List<Integer> rows;
+        int fetched;
+
+        ListSource(Integer... rows) {
+            this.rows = List.of(rows);
+        }
+
+        @Override
+        public List<Integer> fetch(Integer last, int limit) {
+            int from = last == null ? 0 : rows.indexOf(last) + 1;
+            List<Integer> batch = rows.subList(from, Math.min(rows.size(), from + limit));
+            fetched += batch.size();
+            return new ArrayList<>(batch);
+        }
+    }
+
+    private static KWayMerge<Integer> merge(int batchSize, ListSource... sources) {
+        return new KWayMerge<>(Comparator.reverseOrder(), List.of(sources), batchSize);
+    }
+
+    @Test
+    void mergesSourcesInOrder() throws Exception {
+        KWayMerge<Integer> merge = merge(2, new ListSource(9, 6, 3), new ListSource(8, 7, 2, 1), new ListSource(5));
+        assertEquals(List.of(9, 8, 7, 6, 5, 3, 2, 1), merge.take(0, 100));
+        assertNull(merge.next());
+    }
+
+    @Test
+    void takeSkipsAndLimits() throws Exception {
+        KWayMerge<Integer> merge = merge(3, new ListSource(10, 8, 6, 4), new ListSource(9, 7, 5));
+        assertEquals(List.of(7, 6, 5), merge.take(3, 3));
+        assertEquals(List.of(), merge(3, new ListSource(1)).take(5, 3));
+    }
+
+    @Test
+    void readsOnlyTheBatchesItNeeds() throws Exception {
+        ListSource newer = new ListSource(100, 99, 98, 97, 96, 95, 94, 93);
+        ListSource older = new ListSource(10, 9, 8, 7, 6, 5, 4, 3);
+        merge(2, newer, older).take(0, 3);
+        // The first three rows all come from the newer source: one extra batch there, none beyond the first in the other
+        assertEquals(4, newer.fetched);
+        assertEquals(2, older.fetched);
+    }
+
+    @Test
+    void emptySourcesAreSkipped() throws Exception {
+        KWayMerge<Integer> merge = merge(4, new ListSource(), new ListSource(2, 1), new ListSource());
+        assertEquals(List.of(2, 1), merge.take(0, 10));
+        assertTrue(merge(4).take(0, 10).isEmpty());
+    }
+}
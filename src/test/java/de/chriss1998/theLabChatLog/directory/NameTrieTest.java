@@ -0,0 +1,56 @@
+package de.chriss1998.theLabChatLog.directory;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NameTrieTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 5, 17, 12, 0);
+
+    @Test
+    void namesAreFoundIgnoringCase() {
+        NameTrie trie = new NameTrie();
+        NameTrie.Node node = trie.put("Notch");
+        assertTrue(node == trie.find("notch"));
+        assertTrue(node == trie.put("NOTCH"));
+        assertNotNull(trie.find("no"));
+        assertNull(trie.find("notchy"));
+        assertNull(trie.find("x"));
+    }
+
+    @Test
+    void completionIsAlphabeticalAndLimited() {
+        PlayerDirectory directory = new PlayerDirectory(null, Logger.getAnonymousLogger());
+        directory.observe("uuid-1", "steve", TIME);
+        directory.observe("uuid-2", "Stefan", TIME);
+        directory.observe("uuid-3", "STAN", TIME);
+        directory.observe("uuid-4", "alex", TIME);
+        assertEquals(List.of("STAN", "Stefan", "steve"), directory.complete("st", 10));
+        assertEquals(List.of("STAN", "Stefan"), directory.complete("ST", 2));
+        assertEquals(List.of(), directory.complete("z", 10));
+    }
+
+    @Test
+    void renamedPlayerKeepsTheirOldName() {
+        PlayerDirectory directory = new PlayerDirectory(null, Logger.getAnonymousLogger());
+        directory.observe("uuid-1", "OldName", TIME);
+        directory.observe("uuid-1", "NewName", TIME.plusDays(1));
+        assertEquals("uuid-1", directory.resolve("newname"));
+        assertEquals("uuid-1", directory.resolve("oldname"));
+        // Only current names are completed
+        assertEquals(List.of(), directory.complete("old", 10));
+
+        // Someone else takes the old name over
+        directory.observe("uuid-2", "OldName", TIME.plusDays(2));
+        assertEquals("uuid-2", directory.resolve("OLDNAME"));
+        assertEquals(List.of("OldName"), directory.complete("old", 10));
+    }
+}
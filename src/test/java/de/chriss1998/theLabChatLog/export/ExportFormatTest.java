@@ -0,0 +1,77 @@
+package de.chriss1998.theLabChatLog.export;
+
+import de.chriss1998.theLabChatLog.model.CommandLog;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExportFormatTest {
+
+    private static CommandLog log(String commandText, String playerName) {
+        CommandLog log = new CommandLog();
+        log.setId(7L);
+        log.setCommandUuid("0190a5e2-7c3b-7d41-8f2e-1a2b3c4d5e6f");
+        log.setTimestamp(LocalDateTime.of(2024, 5, 17, 13, 45, 12));
+        log.setServerName("lobby");
+        log.setSourceType(CommandLog.SourceType.PLAYER);
+        log.setPlayerUuid("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+        log.setPlayerName(playerName);
+        log.setCommandText(commandText);
+        log.setLocationX(-64.0);
+        return log;
+    }
+
+    /**
+     * Export the row as CSV and import it again
+     */
+    private static CommandLog roundTrip(CommandLog log) throws IOException {
+        StringWriter out = new StringWriter();
+        ExportFormat.CSV.writeHeader(out, ExportFormat.COMMAND_FIELDS);
+        ExportFormat.CSV.writeRow(out, ExportFormat.COMMAND_FIELDS, log);
+        StringReader in = new StringReader(out.toString());
+        List<String> header = ExportFormat.CSV.parseHeader(ExportFormat.CSV.readRecord(in));
+        Map<String, String> values = ExportFormat.CSV.parseRecord(ExportFormat.CSV.readRecord(in), header);
+        return ExportFormat.readRow(values, ExportFormat.COMMAND_FIELDS, new CommandLog());
+    }
+
+    private static String csvRow(CommandLog log) throws IOException {
+        StringWriter out = new StringWriter();
+        ExportFormat.CSV.writeRow(out, ExportFormat.COMMAND_FIELDS, log);
+        return out.toString();
+    }
+
+    @Test
+    void formulasAreGuardedInTheFile() throws IOException {
+        String row = csvRow(log("=HYPERLINK(\"http://x\")", "@admin"));
+        assertTrue(row.contains(",\"'=HYPERLINK(\"\"http://x\"\")\","));
+        assertTrue(row.contains(",'@admin,"));
+        // Numbers are never formulas, even when negative
+        assertTrue(row.contains(",-64.0,"));
+    }
+
+    @Test
+    void guardedValuesReadBackUnchanged() throws IOException {
+        for (String text : List.of("=1+1", "+cmd", "-x", "@a", "\tcmd", "'=already guarded", "''@twice", "'plain quote", "/tp a,b")) {
+            CommandLog read = roundTrip(log(text, "Steve"));
+            assertEquals(text, read.getCommandText());
+        }
+        assertEquals(-64.0, roundTrip(log("/spawn", "Steve")).getLocationX());
+    }
+
+    @Test
+    void emptyTextAndNullStayApart() throws IOException {
+        CommandLog read = roundTrip(log("/list", ""));
+        assertEquals("", read.getPlayerName());
+        assertNull(read.getWorldName());
+        assertNull(read.getLocationY());
+    }
+}
@@ -0,0 +1,44 @@
+package de.chriss1998.theLabChatLog.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CommandRedactorTest {
+
+    private final CommandRedactor redactor = new CommandRedactor(
+            List.of("password"), List.of("/op "), Map.of("login", List.of(1), "changepw", List.of(1, 2)));
+
+    @Test
+    void redactsListedArgument() {
+        assertEquals("/login [FILTERED]", redactor.redact("/login hunter2"));
+        assertEquals("/changepw [FILTERED] [FILTERED]", redactor.redact("/changepw old new"));
+    }
+
+    @Test
+    void repeatedSpacesDoNotShiftArguments() {
+        assertEquals("/login  [FILTERED]", redactor.redact("/login  hunter2"));
+        assertEquals("/changepw   [FILTERED]  [FILTERED] ", redactor.redact("/changepw   old  new "));
+    }
+
+    @Test
+    void tabsAndLeadingWhitespaceSeparateArguments() {
+        assertEquals("/login\t[FILTERED]", redactor.redact("/login\thunter2"));
+        assertEquals(" /login [FILTERED]", redactor.redact(" /login hunter2"));
+    }
+
+    @Test
+    void keywordRedactsEverythingAfterLabel() {
+        assertEquals("/msg [FILTERED]", redactor.redact("/msg  Steve my password is x"));
+        assertEquals("/msg [FILTERED]", redactor.redact("/msg\tpassword"));
+    }
+
+    @Test
+    void unrelatedCommandIsUnchanged() {
+        String command = "/home  base";
+        assertEquals(command, redactor.redact(command));
+    }
+}
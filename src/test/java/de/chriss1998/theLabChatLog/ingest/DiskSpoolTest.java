@@ -0,0 +1,134 @@
+package de.chriss1998.theLabChatLog.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiskSpoolTest {
+
+    // Room for two 20-byte records (8-byte header each) plus the end marker
+    private static final int SEGMENT_SIZE = 64;
+
+    @TempDir
+    Path directory;
+
+    private DiskSpool open() throws IOException {
+        DiskSpool spool = new DiskSpool(directory.toFile(), SEGMENT_SIZE, Logger.getAnonymousLogger());
+        spool.open();
+        return spool;
+    }
+
+    private static byte[] record(int n) {
+        return String.format("record-%013d", n).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+
+    private static List<String> drain(DiskSpool spool) throws IOException {
+        List<String> read = new ArrayList<>();
+        List<byte[]> batch;
+        while (!(batch = spool.readBatch(100)).isEmpty()) {
+            batch.forEach(payload -> read.add(new String(payload, StandardCharsets.US_ASCII)));
+            spool.commitBatch();
+        }
+        return read;
+    }
+
+    @Test
+    void fullSegmentRollsOverAndReplaysInOrder() throws IOException {
+        DiskSpool spool = open();
+        for (int i = 0; i < 5; i++) {
+            assertTrue(spool.append(record(i)));
+        }
+        assertEquals(3, segments().size());
+        assertEquals(5, spool.getPendingRecords());
+
+        // One segment per batch, oldest first
+        assertEquals(2, spool.readBatch(100).size());
+        spool.commitBatch();
+        assertEquals(3, spool.getPendingRecords());
+        assertEquals(List.of(new String(record(2)), new String(record(3)), new String(record(4))), drain(spool));
+        assertEquals(0, spool.getPendingRecords());
+        spool.close();
+        assertTrue(segments().isEmpty());
+    }
+
+    @Test
+    void recordsSurviveReopen() throws IOException {
+        DiskSpool spool = open();
+        for (int i = 0; i < 3; i++) {
+            spool.append(record(i));
+        }
+        spool.close();
+
+        DiskSpool reopened = open();
+        assertEquals(3, reopened.getPendingRecords());
+        assertEquals(List.of(new String(record(0)), new String(record(1)), new String(record(2))), drain(reopened));
+    }
+
+    @Test
+    void corruptRecordEndsTheSegment() throws IOException {
+        DiskSpool spool = open();
+        spool.append(record(0));
+        spool.append(record(1));
+        spool.close();
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            // Flip a payload byte of the second record, as a torn write would
+            long offset = 8 + record(0).length + 8 + 3;
+            file.seek(offset);
+            int b = file.read();
+            file.seek(offset);
+            file.write(b ^ 0xFF);
+        }
+
+        DiskSpool reopened = open();
+        assertEquals(1, reopened.getPendingRecords());
+        assertEquals(List.of(new String(record(0))), drain(reopened));
+    }
+
+    @Test
+    void closedSpoolRejectsAppends() throws IOException {
+        DiskSpool spool = open();
+        spool.close();
+        assertFalse(spool.append(record(0)));
+        assertTrue(segments().isEmpty());
+    }
+
+    @Test
+    void oversizedRecordIsRefused() throws IOException {
+        DiskSpool spool = open();
+        assertFalse(spool.append(new byte[SEGMENT_SIZE]));
+        assertEquals(0, spool.getPendingRecords());
+    }
+
+    @Test
+    void deadLettersAreRequeued() throws IOException {
+        DiskSpool spool = open();
+        spool.deadLetter(record(7));
+        spool.deadLetter(record(8));
+        assertEquals(2, spool.countDeadLetters());
+
+        assertEquals(2, spool.requeueDeadLetters());
+        assertEquals(0, spool.countDeadLetters());
+        assertEquals(2, spool.getPendingRecords());
+        assertEquals(List.of(new String(record(7)), new String(record(8))), drain(spool));
+        assertEquals(0, spool.requeueDeadLetters());
+    }
+}
@@ -0,0 +1,72 @@
+package de.chriss1998.theLabChatLog.ingest;
+
+import de.chriss1998.theLabChatLog.model.ChatMessage;
+import de.chriss1998.theLabChatLog.model.CommandLog;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpoolCodecTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 5, 17, 13, 45, 12, 987_654_321);
+
+    @Test
+    void chatMessageRoundTrip() throws IOException {
+        ChatMessage message = new ChatMessage();
+        message.setMessageUuid("0190a5e2-7c3b-7d41-8f2e-1a2b3c4d5e6f");
+        message.setServerName("lobby");
+        message.setWorldName("world");
+        message.setPlayerUuid("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+        message.setPlayerName("Notch");
+        message.setMessageContent("hällo, wörld ✓");
+        message.setMessageType(ChatMessage.MessageType.PRIVATE);
+        message.setLocationX(-12.5);
+        message.setLocationZ(3.0);
+        message.setCancelled(true);
+        message.setTimestamp(TIME);
+
+        ChatMessage decoded = (ChatMessage) SpoolCodec.decode(SpoolCodec.encode(message));
+        assertEquals(message.getMessageUuid(), decoded.getMessageUuid());
+        assertEquals("lobby", decoded.getServerName());
+        assertEquals("Notch", decoded.getPlayerName());
+        assertEquals("hällo, wörld ✓", decoded.getMessageContent());
+        assertEquals(ChatMessage.MessageType.PRIVATE, decoded.getMessageType());
+        assertEquals(-12.5, decoded.getLocationX());
+        assertNull(decoded.getLocationY());
+        assertEquals(3.0, decoded.getLocationZ());
+        assertTrue(decoded.isCancelled());
+        assertEquals(message.getChannel(), decoded.getChannel());
+        assertEquals(TIME, decoded.getTimestamp());
+    }
+
+    @Test
+    void commandLogRoundTrip() throws IOException {
+        CommandLog log = new CommandLog();
+        log.setCommandUuid("0190a5e2-7c3b-7d41-8f2e-1a2b3c4d5e70");
+        log.setServerName("survival");
+        log.setSourceType(CommandLog.SourceType.CONSOLE);
+        log.setCommandText("/say hi");
+        log.setTimestamp(TIME);
+
+        CommandLog decoded = (CommandLog) SpoolCodec.decode(SpoolCodec.encode(log));
+        assertEquals(log.getCommandUuid(), decoded.getCommandUuid());
+        assertEquals(CommandLog.SourceType.CONSOLE, decoded.getSourceType());
+        assertEquals("/say hi", decoded.getCommandText());
+        assertNull(decoded.getPlayerUuid());
+        assertFalse(decoded.isCancelled());
+        assertEquals(TIME, decoded.getTimestamp());
+    }
+
+    @Test
+    void unknownPayloadIsRejected() {
+        assertThrows(IOException.class, () -> SpoolCodec.decode(new byte[0]));
+        assertThrows(IOException.class, () -> SpoolCodec.decode(new byte[]{42}));
+    }
+}
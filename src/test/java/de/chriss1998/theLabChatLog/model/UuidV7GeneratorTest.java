@@ -0,0 +1,34 @@
+package de.chriss1998.theLabChatLog.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UuidV7GeneratorTest {
+
+    @Test
+    void idsIncreaseStrictlyOnOneThread() {
+        String previous = UuidV7Generator.INSTANCE.nextId();
+        // Far more ids than fit into one millisecond's sequence
+        for (int i = 0; i < 20_000; i++) {
+            String next = UuidV7Generator.INSTANCE.nextId();
+            assertTrue(next.compareTo(previous) > 0);
+            previous = next;
+        }
+    }
+
+    @Test
+    void layoutIsVersion7() {
+        long before = System.currentTimeMillis();
+        UUID id = UuidV7Generator.INSTANCE.next();
+        long after = System.currentTimeMillis();
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        long millis = id.getMostSignificantBits() >>> 16;
+        // A burst of ids on this thread may have borrowed some milliseconds from the future
+        assertTrue(millis >= before && millis <= after + 1000);
+    }
+}